@@ -0,0 +1,80 @@
+package com.democode.trial.weather;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.democode.trial.weather.dto.AirportData;
+
+/**
+ * Parser of the airports file lines, e.g.
+ * {@code 1,"General Edward Lawrence Logan Intl","Boston","United States","BOS","KBOS",42.364347,-71.005181,19,-5,"A"}
+ *
+ * Fields are id, name, city, country, IATA, ICAO, latitude, longitude, altitude, timezone and DST. Quoted fields
+ * may contain commas, a doubled quote inside a quoted field stands for one quote.
+ */
+public final class AirportCsvParser {
+
+    private static final int FIELDS = 11;
+
+    private AirportCsvParser() {
+    }
+
+    /**
+     * @param line a single line of the airports file
+     * @return the airport described by the line
+     * @throws IllegalArgumentException if the line has too few fields or the coordinates are not numbers
+     */
+    public static AirportData parse(String line) {
+        List<String> parts = split(line);
+        if (parts.size() < FIELDS) {
+            throw new IllegalArgumentException("expected " + FIELDS + " fields but found " + parts.size());
+        }
+
+        AirportData ad = new AirportData();
+        ad.setName(parts.get(1));
+        ad.setCity(parts.get(2));
+        ad.setCountry(parts.get(3));
+        ad.setIata(parts.get(4));
+        ad.setIcao(parts.get(5));
+        try {
+            ad.setLatitude(Double.parseDouble(parts.get(6)));
+            ad.setLongitude(Double.parseDouble(parts.get(7)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("incorrect coordinates " + parts.get(6) + "," + parts.get(7));
+        }
+        ad.setTimezone(parts.get(9));
+        ad.setDst(parts.get(10));
+        return ad;
+    }
+
+    /**
+     * Split a line into unquoted fields
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(FIELDS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -5,6 +5,10 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
 
 import com.democode.trial.weather.dto.AirportData;
 
@@ -64,6 +68,24 @@ public class AirportLoader {
         }
     }
 
+    /**
+     * Stream the whole file to the bulk import endpoint in a single chunked request, the server parses and stores
+     * the lines while they arrive and skips invalid lines instead of stopping.
+     */
+    public void uploadBulk(InputStream airportDataStream) {
+        try {
+            Response response = collect.path("/airports").request(MediaType.APPLICATION_JSON)
+                    .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED)
+                    .post(Entity.entity(airportDataStream, MediaType.TEXT_PLAIN));
+            LOGGER.info("Bulk import status=" + response.getStatus() + " " + response.readEntity(String.class));
+        } catch(Exception ce) {
+            LOGGER.severe("Connection error. Please check if SERVER has been already started.");
+        }
+    }
+
+    /**
+     * @param args the airports file, followed by --bulk to stream it in a single request
+     */
     public static void main(String args[]) throws IOException{
         File airportDataFile = new File(args[0]);
         if (!airportDataFile.exists() || airportDataFile.length() == 0) {
@@ -72,7 +94,13 @@ public class AirportLoader {
         }
 
         AirportLoader al = new AirportLoader();
-        al.upload(new FileInputStream(airportDataFile));
+        try (InputStream in = new FileInputStream(airportDataFile)) {
+            if (args.length > 1 && "--bulk".equals(args[1])) {
+                al.uploadBulk(in);
+            } else {
+                al.upload(in);
+            }
+        }
         System.exit(0);
     }
 }
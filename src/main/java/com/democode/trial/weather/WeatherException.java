@@ -4,4 +4,11 @@ package com.democode.trial.weather;
  * An internal exception marker
  */
 public class WeatherException extends Exception {
+
+    public WeatherException() {
+    }
+
+    public WeatherException(String message) {
+        super(message);
+    }
 }
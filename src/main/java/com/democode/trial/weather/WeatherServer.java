@@ -1,13 +1,14 @@
 package com.democode.trial.weather;
 
-import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.http.server.HttpServer;
-import org.glassfish.grizzly.http.server.HttpServerFilter;
-import org.glassfish.grizzly.http.server.HttpServerProbe;
-import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
+import com.democode.trial.weather.metrics.MetricsEventListener;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.storage.SnapshotScheduler;
+import com.democode.trial.weather.web.AtmosphericInformationWriter;
+import com.democode.trial.weather.web.RestMetricsEndpoint;
 import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
 import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
 
@@ -36,22 +37,26 @@ public class WeatherServer {
             final ResourceConfig resourceConfig = new ResourceConfig();
             resourceConfig.register(RestWeatherCollectorEndpoint.class);
             resourceConfig.register(RestWeatherQueryEndpoint.class);
+            resourceConfig.register(AtmosphericInformationWriter.class);
+            // request counts and latencies per endpoint, scraped from /metrics
+            resourceConfig.register(RestMetricsEndpoint.class);
+            resourceConfig.register(MetricsEventListener.class);
             final HttpServer server = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL), resourceConfig, false);
+            // load the storage, from a snapshot if there is one, before accepting requests
+            AWAStorageFactory.getStorage();
+            final SnapshotScheduler snapshots = SnapshotScheduler.fromSystemProperties();
 
             Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
                 @Override
                 public void run() {
                     server.shutdownNow();
+                    if (snapshots != null) {
+                        snapshots.close();
+                    }
+                    AWAStorageFactory.close();
                 }
             }));
 
-            HttpServerProbe probe = new HttpServerProbe.Adapter() {
-                public void onRequestReceiveEvent(HttpServerFilter filter, Connection connection, Request request) {
-                    System.out.println(request.getRequestURI());
-                }
-            };
-
-            server.getServerConfiguration().getMonitoringConfig().getWebServerConfig().addProbes(probe);
             LOGGER.info(format("Weather Server started.\n url=%s\n", BASE_URL));
             server.start();
 
@@ -1,11 +1,23 @@
 package com.democode.trial.weather.dto;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import com.democode.trial.weather.DataPointType;
 
 /**
  * encapsulates sensor information for a particular location
+ *
+ * The record keeps its JSON form, as the query endpoint sends it, until the next change. Every setter bumps a
+ * version after writing its field and an encoding is only reused while the version it was made at is current, so
+ * a reader racing with a writer never keeps stale bytes. Data points are therefore replaced, never modified once
+ * set.
  */
 public class AtmosphericInformation {
 
+    private static final AtomicIntegerFieldUpdater<AtmosphericInformation> VERSION =
+            AtomicIntegerFieldUpdater.newUpdater(AtmosphericInformation.class, "version");
+
     /** temperature in degrees celsius */
     private DataPoint temperature;
 
@@ -27,6 +39,12 @@ public class AtmosphericInformation {
     /** the last time this data was updated, in milliseconds since UTC epoch */
     private long lastUpdateTime;
 
+    /** number of changes so far */
+    private transient volatile int version;
+
+    /** the latest encoding, null before the first one */
+    private transient volatile Json json;
+
     public AtmosphericInformation() {
 
     }
@@ -46,41 +64,150 @@ public class AtmosphericInformation {
     }
     public void setTemperature(DataPoint temperature) {
         this.temperature = temperature;
+        VERSION.incrementAndGet(this);
     }
     public DataPoint getWind() {
         return wind;
     }
     public void setWind(DataPoint wind) {
         this.wind = wind;
+        VERSION.incrementAndGet(this);
     }
     public DataPoint getHumidity() {
         return humidity;
     }
     public void setHumidity(DataPoint humidity) {
         this.humidity = humidity;
+        VERSION.incrementAndGet(this);
     }
     public DataPoint getPrecipitation() {
         return precipitation;
     }
     public void setPrecipitation(DataPoint precipitation) {
         this.precipitation = precipitation;
+        VERSION.incrementAndGet(this);
     }
     public DataPoint getPressure() {
         return pressure;
     }
     public void setPressure(DataPoint pressure) {
         this.pressure = pressure;
+        VERSION.incrementAndGet(this);
     }
     public DataPoint getCloudCover() {
         return cloudCover;
     }
     public void setCloudCover(DataPoint cloudCover) {
         this.cloudCover = cloudCover;
+        VERSION.incrementAndGet(this);
     }
     public long getLastUpdateTime() {
         return this.lastUpdateTime;
     }
     public void setLastUpdateTime(long lastUpdateTime) {
         this.lastUpdateTime = lastUpdateTime;
+        VERSION.incrementAndGet(this);
+    }
+
+    /**
+     * @return the data point of the given type, null if there is none
+     */
+    public DataPoint getDataPoint(DataPointType type) {
+        switch (type) {
+        case WIND:
+            return wind;
+        case TEMPERATURE:
+            return temperature;
+        case HUMIDTY:
+            return humidity;
+        case PRESSURE:
+            return pressure;
+        case CLOUDCOVER:
+            return cloudCover;
+        default:
+            return precipitation;
+        }
+    }
+
+    public void setDataPoint(DataPointType type, DataPoint dp) {
+        switch (type) {
+        case WIND:
+            setWind(dp);
+            break;
+        case TEMPERATURE:
+            setTemperature(dp);
+            break;
+        case HUMIDTY:
+            setHumidity(dp);
+            break;
+        case PRESSURE:
+            setPressure(dp);
+            break;
+        case CLOUDCOVER:
+            setCloudCover(dp);
+            break;
+        default:
+            setPrecipitation(dp);
+        }
+    }
+
+    /**
+     * @return the record as UTF-8 JSON, the same as Jackson writes it, encoded once per change. The array is
+     *         shared and must not be modified.
+     */
+    public byte[] toJson() {
+        int current = version;
+        Json encoded = json;
+        if (encoded == null || encoded.version != current) {
+            encoded = new Json(current, encode());
+            json = encoded;
+        }
+        return encoded.bytes;
+    }
+
+    /**
+     * @return the record as UTF-8 JSON, encoded from the getters so that a subclass can keep its values elsewhere
+     */
+    protected byte[] encode() {
+        StringBuilder sb = new StringBuilder(384);
+        sb.append('{');
+        append(sb, "temperature", getTemperature()).append(',');
+        append(sb, "wind", getWind()).append(',');
+        append(sb, "humidity", getHumidity()).append(',');
+        append(sb, "precipitation", getPrecipitation()).append(',');
+        append(sb, "pressure", getPressure()).append(',');
+        append(sb, "cloudCover", getCloudCover()).append(',');
+        sb.append("\"lastUpdateTime\":").append(getLastUpdateTime()).append('}');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static StringBuilder append(StringBuilder sb, String name, DataPoint dp) {
+        sb.append('"').append(name).append("\":");
+        if (dp == null) {
+            return sb.append("null");
+        }
+        sb.append("{\"mean\":");
+        if (Double.isNaN(dp.getMean()) || Double.isInfinite(dp.getMean())) {
+            // Jackson quotes the values JSON has no number for
+            sb.append('"').append(dp.getMean()).append('"');
+        } else {
+            sb.append(dp.getMean());
+        }
+        return sb.append(",\"first\":").append(dp.getFirst())
+                .append(",\"second\":").append(dp.getSecond())
+                .append(",\"third\":").append(dp.getThird())
+                .append(",\"count\":").append(dp.getCount()).append('}');
+    }
+
+    private static final class Json {
+
+        final int version;
+
+        final byte[] bytes;
+
+        Json(int version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
     }
 }
@@ -62,7 +62,7 @@ public class DataPoint {
         return third;
     }
 
-    protected void setThird(int third) {
+    public void setThird(int third) {
         this.third = third;
     }
 
@@ -71,7 +71,7 @@ public class DataPoint {
         return count;
     }
 
-    protected void setCount(int count) {
+    public void setCount(int count) {
         this.count = count;
     }
 
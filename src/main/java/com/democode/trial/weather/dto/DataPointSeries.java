@@ -0,0 +1,67 @@
+package com.democode.trial.weather.dto;
+
+/**
+ * A time range of collected points of one type at one airport, one array per field with one entry per sample,
+ * oldest first
+ */
+public class DataPointSeries {
+
+    /** sample times in milliseconds since UTC epoch */
+    private final long[] timestamps;
+
+    private final double[] mean;
+
+    private final int[] first;
+
+    private final int[] second;
+
+    private final int[] third;
+
+    private final int[] count;
+
+    public DataPointSeries(int size) {
+        timestamps = new long[size];
+        mean = new double[size];
+        first = new int[size];
+        second = new int[size];
+        third = new int[size];
+        count = new int[size];
+    }
+
+    public void set(int i, long timestamp, double mean, int first, int second, int third, int count) {
+        this.timestamps[i] = timestamp;
+        this.mean[i] = mean;
+        this.first[i] = first;
+        this.second[i] = second;
+        this.third[i] = third;
+        this.count[i] = count;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public double[] getMean() {
+        return mean;
+    }
+
+    public int[] getFirst() {
+        return first;
+    }
+
+    public int[] getSecond() {
+        return second;
+    }
+
+    public int[] getThird() {
+        return third;
+    }
+
+    public int[] getCount() {
+        return count;
+    }
+}
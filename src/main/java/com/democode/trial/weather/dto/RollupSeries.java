@@ -0,0 +1,69 @@
+package com.democode.trial.weather.dto;
+
+/**
+ * Collected points of one type at one airport downsampled to time buckets of a fixed resolution, one array per
+ * field with one entry per bucket holding samples, oldest first. Min, max and mean are taken over the means of the
+ * samples in the bucket.
+ */
+public class RollupSeries {
+
+    /** bucket length in milliseconds */
+    private final long resolution;
+
+    /** bucket start times in milliseconds since UTC epoch */
+    private final long[] timestamps;
+
+    private final double[] min;
+
+    private final double[] max;
+
+    private final double[] mean;
+
+    /** samples per bucket */
+    private final int[] count;
+
+    public RollupSeries(long resolution, int size) {
+        this.resolution = resolution;
+        timestamps = new long[size];
+        min = new double[size];
+        max = new double[size];
+        mean = new double[size];
+        count = new int[size];
+    }
+
+    public void set(int i, long timestamp, double min, double max, double mean, int count) {
+        this.timestamps[i] = timestamp;
+        this.min[i] = min;
+        this.max[i] = max;
+        this.mean[i] = mean;
+        this.count[i] = count;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long getResolution() {
+        return resolution;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public double[] getMin() {
+        return min;
+    }
+
+    public double[] getMax() {
+        return max;
+    }
+
+    public double[] getMean() {
+        return mean;
+    }
+
+    public int[] getCount() {
+        return count;
+    }
+}
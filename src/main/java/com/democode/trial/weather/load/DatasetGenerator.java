@@ -0,0 +1,378 @@
+package com.democode.trial.weather.load;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.DataPoint;
+import com.google.gson.Gson;
+
+/**
+ * Deterministic synthetic airports and data point updates for tests, benchmarks and load runs at scale. The same
+ * seed gives the same data on every run and JVM.
+ *
+ * Airports are clustered like real ones: cluster centres are spread over populated regions in proportion to their
+ * air traffic, cluster sizes follow a Zipf distribution and the airports of a cluster lie around its centre at
+ * 20 to 200 km. Codes are unique, three upper case letters for the first 17576 airports and three characters of
+ * digits and letters up to {@value #THREE_CHAR_CODES}; larger catalogues get four character codes, which the
+ * storage and snapshots take but the service validation of single airports rejects.
+ *
+ * Data points are within the range the collector accepts for their {@link DataPointType}, temperatures follow the
+ * latitude of the airport.
+ *
+ * Not thread safe, use one generator per thread.
+ *
+ * Run with:
+ * <pre>
+ *   --airports=10000           catalogue size
+ *   --format=txt               txt for the full airports file format, dat for IATA,latitude,longitude lines
+ *   --out=airports-10000.txt   catalogue file
+ *   --updates=0                number of data point updates to write as NDJSON for the batch collector endpoint
+ *   --updates-out=updates.json updates file
+ *   --seed=42
+ * </pre>
+ */
+public class DatasetGenerator {
+
+    public final static Logger LOGGER = Logger.getLogger("DatasetGenerator");
+
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final String CODE_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    /** characters of the codes which are not upper case letters */
+    private static final String OTHER_CHARS = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    /** number of three character codes */
+    public static final int THREE_CHAR_CODES = 62 * 62 * 62;
+
+    /** populated regions: name, south, north, west, east latitude and longitude, relative share of airports */
+    private static final Object[][] REGIONS = {
+            {"United States", 25.0, 49.0, -124.0, -67.0, 30},
+            {"Canada", 43.0, 60.0, -130.0, -60.0, 5},
+            {"Mexico", 15.0, 32.0, -117.0, -87.0, 4},
+            {"Brazil", -33.0, 0.0, -73.0, -35.0, 6},
+            {"Argentina", -50.0, -22.0, -72.0, -54.0, 2},
+            {"United Kingdom", 50.0, 58.0, -7.0, 2.0, 4},
+            {"Germany", 47.0, 55.0, 6.0, 15.0, 5},
+            {"Spain", 36.0, 43.5, -9.0, 3.0, 3},
+            {"Russia", 45.0, 65.0, 30.0, 140.0, 5},
+            {"China", 20.0, 45.0, 98.0, 123.0, 10},
+            {"India", 8.0, 30.0, 70.0, 90.0, 6},
+            {"Japan", 31.0, 44.0, 130.0, 145.0, 3},
+            {"Indonesia", -9.0, 5.0, 95.0, 140.0, 3},
+            {"Nigeria", 4.0, 13.0, 3.0, 14.0, 2},
+            {"South Africa", -34.0, -23.0, 17.0, 32.0, 2},
+            {"Australia", -38.0, -12.0, 114.0, 153.0, 5}};
+
+    private static final int TOTAL_SHARE;
+
+    static {
+        int total = 0;
+        for (Object[] region : REGIONS) {
+            total += (Integer) region[5];
+        }
+        TOTAL_SHARE = total;
+    }
+
+    /** mean number of airports per cluster */
+    private static final int CLUSTER_SIZE = 20;
+
+    private final Random random;
+
+    public DatasetGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public DatasetGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return the code of the airport with the given number, unique for every number: upper case letters first,
+     *         then codes with a digit or lower case letter, four characters beyond {@value #THREE_CHAR_CODES}
+     */
+    public static String code(int i) {
+        int n = CODE_CHARS.length();
+        int letters = LETTERS.length();
+        int others = n - letters;
+        if (i < letters * letters * letters) {
+            return new String(new char[] {LETTERS.charAt(i / letters / letters), LETTERS.charAt(i / letters % letters),
+                    LETTERS.charAt(i % letters)});
+        }
+        i -= letters * letters * letters;
+        if (i < others * n * n) {
+            // a digit or lower case letter first
+            return new String(new char[] {OTHER_CHARS.charAt(i / n / n), CODE_CHARS.charAt(i / n % n),
+                    CODE_CHARS.charAt(i % n)});
+        }
+        i -= others * n * n;
+        int pairs = n * n - letters * letters;
+        if (i < letters * pairs) {
+            // a letter first, a digit or lower case letter after it
+            char first = LETTERS.charAt(i / pairs);
+            int pair = i % pairs;
+            if (pair < others * n) {
+                return new String(new char[] {first, OTHER_CHARS.charAt(pair / n), CODE_CHARS.charAt(pair % n)});
+            }
+            pair -= others * n;
+            return new String(new char[] {first, LETTERS.charAt(pair / others), OTHER_CHARS.charAt(pair % others)});
+        }
+        i -= letters * pairs;
+        return new String(new char[] {CODE_CHARS.charAt(i / n / n / n % n), CODE_CHARS.charAt(i / n / n % n),
+                CODE_CHARS.charAt(i / n % n), CODE_CHARS.charAt(i % n)});
+    }
+
+    /**
+     * @return a catalogue of the given size with codes {@code code(0)} to {@code code(count - 1)} in random order
+     *         of the clusters
+     */
+    public List<AirportData> airports(int count) {
+        int clusters = Math.max(1, count / CLUSTER_SIZE);
+        double[][] centres = new double[clusters][];
+        String[] countries = new String[clusters];
+        for (int c = 0; c < clusters; c++) {
+            Object[] region = region();
+            countries[c] = (String) region[0];
+            centres[c] = new double[] {uniform((Double) region[1], (Double) region[2]),
+                    uniform((Double) region[3], (Double) region[4])};
+        }
+        // Zipf cluster sizes, the first clusters are the largest
+        double[] cumulative = new double[clusters];
+        double sum = 0;
+        for (int c = 0; c < clusters; c++) {
+            sum += 1.0 / (c + 1);
+            cumulative[c] = sum;
+        }
+
+        List<AirportData> retval = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int c = search(cumulative, random.nextDouble() * sum);
+            double distance = 20 + random.nextDouble() * 180;
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            double latitude = Math.max(-89.9, Math.min(89.9, centres[c][0] + Math.cos(bearing) * distance / 111.2));
+            double longitude = centres[c][1]
+                    + Math.sin(bearing) * distance / (111.2 * Math.max(0.1, Math.cos(Math.toRadians(latitude))));
+            longitude = ((longitude + 540) % 360) - 180;
+
+            AirportData ad = new AirportData();
+            ad.setIata(code(i));
+            ad.setIcao("X" + ad.getIata());
+            ad.setName("Airport " + i);
+            ad.setCity("City " + c);
+            ad.setCountry(countries[c]);
+            ad.setLatitude(round(latitude, 6));
+            ad.setLongitude(round(longitude, 6));
+            ad.setTimezone(String.valueOf(Math.round(longitude / 15)));
+            ad.setDst("U");
+            retval.add(ad);
+        }
+        return retval;
+    }
+
+    private Object[] region() {
+        int pick = random.nextInt(TOTAL_SHARE);
+        for (Object[] region : REGIONS) {
+            pick -= (Integer) region[5];
+            if (pick < 0) {
+                return region;
+            }
+        }
+        return REGIONS[REGIONS.length - 1];
+    }
+
+    private static int search(double[] cumulative, double value) {
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private double uniform(double from, double to) {
+        return from + random.nextDouble() * (to - from);
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    /**
+     * @return a data point of the type which the collector accepts, temperatures for a mid latitude
+     */
+    public DataPoint dataPoint(DataPointType type) {
+        return dataPoint(type, 45);
+    }
+
+    /**
+     * @return a data point of the type which the collector accepts, temperatures for the given latitude
+     */
+    public DataPoint dataPoint(DataPointType type, double latitude) {
+        double mean;
+        int spread;
+        switch (type) {
+            case WIND:
+                mean = Math.abs(random.nextGaussian() * 15);
+                spread = 5;
+                break;
+            case TEMPERATURE:
+                mean = clamp(30 - Math.abs(latitude) * 0.6 + random.nextGaussian() * 8, -49.9, 49.9);
+                spread = 3;
+                break;
+            case PRESSURE:
+                mean = clamp(760 + random.nextGaussian() * 10, 650, 799.9);
+                spread = 4;
+                break;
+            default:
+                mean = random.nextDouble() * 99.9;
+                spread = 10;
+        }
+        mean = round(mean, 1);
+        int median = (int) Math.round(mean);
+        DataPoint dp = new DataPoint();
+        dp.setMean(mean);
+        dp.setFirst(median - 1 - random.nextInt(spread));
+        dp.setSecond(median);
+        dp.setThird(median + 1 + random.nextInt(spread));
+        dp.setCount(1 + random.nextInt(20));
+        return dp;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * A data point of one type for one airport
+     */
+    public static final class Update {
+
+        private final String iata;
+
+        private final DataPointType type;
+
+        private final DataPoint dataPoint;
+
+        Update(String iata, DataPointType type, DataPoint dataPoint) {
+            this.iata = iata;
+            this.type = type;
+            this.dataPoint = dataPoint;
+        }
+
+        public String getIata() {
+            return iata;
+        }
+
+        public DataPointType getType() {
+            return type;
+        }
+
+        /**
+         * @return the point type as the collector endpoints take it
+         */
+        public String getPointType() {
+            return type.name().toLowerCase(Locale.ROOT);
+        }
+
+        public DataPoint getDataPoint() {
+            return dataPoint;
+        }
+    }
+
+    /**
+     * @return one of the data point types at random
+     */
+    public DataPointType pointType() {
+        return DataPointType.values()[random.nextInt(DataPointType.values().length)];
+    }
+
+    /**
+     * @return an update of a random airport of the catalogue and a random type
+     */
+    public Update update(List<AirportData> airports) {
+        AirportData ad = airports.get(random.nextInt(airports.size()));
+        DataPointType type = pointType();
+        return new Update(ad.getIata(), type, dataPoint(type, ad.getLatitude()));
+    }
+
+    /**
+     * Write the airports as lines of the full airports file, see {@link com.democode.trial.weather.AirportCsvParser}
+     */
+    public static void writeTxt(List<AirportData> airports, Writer out) throws IOException {
+        int id = 1;
+        for (AirportData ad : airports) {
+            out.write(String.format(Locale.ROOT, "%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",%s,%s,%d,%s,\"%s\"%n", id++,
+                    ad.getName(), ad.getCity(), ad.getCountry(), ad.getIata(), ad.getIcao(), ad.getLatitude(),
+                    ad.getLongitude(), 0, ad.getTimezone(), ad.getDst()));
+        }
+    }
+
+    /**
+     * Write the airports as IATA,latitude,longitude lines of the bundled airports.dat
+     */
+    public static void writeDat(List<AirportData> airports, Writer out) throws IOException {
+        for (AirportData ad : airports) {
+            out.write(ad.getIata() + "," + ad.getLatitude() + "," + ad.getLongitude() + System.lineSeparator());
+        }
+    }
+
+    /**
+     * Write updates as NDJSON records of the batch collector endpoint
+     */
+    public void writeUpdates(List<AirportData> airports, int count, Writer out) throws IOException {
+        Gson gson = new Gson();
+        for (int i = 0; i < count; i++) {
+            Update update = update(airports);
+            out.write("{\"iata\":\"" + update.getIata() + "\",\"pointType\":\"" + update.getPointType()
+                    + "\",\"dataPoint\":" + gson.toJson(update.getDataPoint()) + "}" + System.lineSeparator());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadGenerator.parseOptions(args);
+        int count = Integer.parseInt(options.getOrDefault("airports", "10000"));
+        String format = options.getOrDefault("format", "txt");
+        String file = options.getOrDefault("out", "airports-" + count + "." + format);
+        DatasetGenerator generator = new DatasetGenerator(Long.parseLong(options.getOrDefault("seed",
+                String.valueOf(DEFAULT_SEED))));
+
+        List<AirportData> airports = generator.airports(count);
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            if ("dat".equals(format)) {
+                writeDat(airports, out);
+            } else {
+                writeTxt(airports, out);
+            }
+        }
+        LOGGER.info(count + " airports written to " + file);
+
+        int updates = Integer.parseInt(options.getOrDefault("updates", "0"));
+        if (updates > 0) {
+            String updatesFile = options.getOrDefault("updates-out", "updates.json");
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(updatesFile), StandardCharsets.UTF_8)) {
+                generator.writeUpdates(airports, updates, out);
+            }
+            LOGGER.info(updates + " updates written to " + updatesFile);
+        }
+    }
+}
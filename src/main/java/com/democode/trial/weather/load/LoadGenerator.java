@@ -0,0 +1,403 @@
+package com.democode.trial.weather.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.DataPoint;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Drives a mix of collector updates and radius queries against a running {@link com.democode.trial.weather.WeatherServer}
+ * at a fixed target rate and reports throughput and latency percentiles.
+ *
+ * Every connection is a thread sending its share of the rate on a fixed schedule. The latency of a request is
+ * measured from the time it was scheduled to be sent, not from the time it was actually sent, so a server stall
+ * which delays the following requests of a connection is counted against all of them instead of being hidden
+ * (coordinated omission). The latencies measured from the actual send are reported as well for comparison.
+ * Requests scheduled in the warmup are sent but not recorded.
+ *
+ * Options, all optional:
+ * <pre>
+ *   --url=http://localhost:8080   server to load
+ *   --rate=1000                   requests per second over all connections
+ *   --duration=30                 seconds of measurement after the warmup
+ *   --warmup=5                    seconds of warmup
+ *   --connections=32              concurrent connections
+ *   --updates=10                  percent of requests which are collector updates, the others are queries
+ *   --radius=0,50,500             query radii in km, picked at random
+ *   --airports=BOS,JFK            IATA codes to use, by default all airports of the server
+ *   --out=load-result.json        file for the results as JSON
+ * </pre>
+ * The report is printed to stdout and written as JSON to the result file.
+ */
+public class LoadGenerator {
+
+    public final static Logger LOGGER = Logger.getLogger("LoadGenerator");
+
+    private final String url;
+
+    private final double rate;
+
+    private final long durationNanos;
+
+    private final long warmupNanos;
+
+    private final int connections;
+
+    private final int updatePercent;
+
+    private final String[] radii;
+
+    private final String[] airports;
+
+    private final Gson gson = new Gson();
+
+    public LoadGenerator(String url, double rate, long durationSeconds, long warmupSeconds, int connections,
+            int updatePercent, String[] radii, String[] airports) {
+        if (rate <= 0 || connections < 1 || airports.length == 0 || radii.length == 0) {
+            throw new IllegalArgumentException("rate, connections, airports and radii must be positive");
+        }
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.rate = rate;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.connections = connections;
+        this.updatePercent = updatePercent;
+        this.radii = radii;
+        this.airports = airports;
+    }
+
+    /**
+     * Run the load and wait for it to complete
+     */
+    public LoadResult run() throws InterruptedException {
+        // one kept alive connection per thread
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) * connections / rate);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            // the connections take turns, spreading the requests evenly over every interval
+            Worker worker = new Worker(start + interval * i / connections, interval, measureStart, end,
+                    new DatasetGenerator(DatasetGenerator.DEFAULT_SEED + i));
+            Thread thread = new Thread(worker, "load-" + i);
+            thread.setDaemon(true);
+            worker.thread = thread;
+            workers.add(worker);
+            thread.start();
+        }
+        LoadResult result = new LoadResult();
+        for (Worker worker : workers) {
+            worker.thread.join();
+            result.add(worker.result);
+        }
+        result.elapsedNanos = Math.max(durationNanos, result.lastCompletion - measureStart);
+        return result;
+    }
+
+    private class Worker implements Runnable {
+
+        private final long first;
+
+        private final long interval;
+
+        private final long measureStart;
+
+        private final long end;
+
+        /** data points of the updates, a generator per worker as it is not thread safe */
+        private final DatasetGenerator generator;
+
+        private final LoadResult result = new LoadResult();
+
+        private Thread thread;
+
+        Worker(long first, long interval, long measureStart, long end, DatasetGenerator generator) {
+            this.first = first;
+            this.interval = interval;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.generator = generator;
+        }
+
+        @Override
+        public void run() {
+            for (long intended = first; intended < end; intended += interval) {
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                boolean update = ThreadLocalRandom.current().nextInt(100) < updatePercent;
+                long sent = System.nanoTime();
+                int status = update ? sendUpdate(generator) : sendQuery();
+                long done = System.nanoTime();
+                if (intended >= measureStart) {
+                    result.record(update, status, done - intended, done - sent);
+                    result.lastCompletion = Math.max(result.lastCompletion, done);
+                }
+            }
+        }
+    }
+
+    private String randomAirport() {
+        return airports[ThreadLocalRandom.current().nextInt(airports.length)];
+    }
+
+    private int sendQuery() {
+        String radius = radii[ThreadLocalRandom.current().nextInt(radii.length)];
+        return send("GET", url + "/query/weather/" + randomAirport() + "/" + radius, null);
+    }
+
+    private int sendUpdate(DatasetGenerator generator) {
+        DataPointType type = generator.pointType();
+        DataPoint dp = generator.dataPoint(type);
+        return send("PUT", url + "/collect/weather/" + randomAirport() + "/" + type.name().toLowerCase(Locale.ROOT),
+                gson.toJson(dp));
+    }
+
+    /**
+     * @return the status code, -1 if the request failed
+     */
+    private int send(String method, String target, String body) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(target).openConnection();
+            connection.setRequestMethod(method);
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            // read the whole response so the connection is kept alive
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status;
+        } catch (IOException e) {
+            if (connection != null) {
+                try {
+                    drain(connection.getErrorStream());
+                } catch (IOException ignored) {
+                    // the connection is dropped
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[8192];
+            while (stream.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    /**
+     * @return the IATA codes of all airports of the server
+     */
+    static String[] fetchAirports(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url + "/collect/airports").openConnection();
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("airports can not be read from " + url + ", status " + connection.getResponseCode());
+        }
+        try (InputStream in = connection.getInputStream()) {
+            Type type = new TypeToken<List<String>>() { }.getType();
+            List<String> codes = new Gson().fromJson(new String(readAll(in), StandardCharsets.UTF_8), type);
+            return codes.toArray(new String[codes.size()]);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Counts and latencies of the measured requests
+     */
+    public static class LoadResult {
+
+        private final LatencyHistogram corrected = new LatencyHistogram();
+
+        private final LatencyHistogram uncorrected = new LatencyHistogram();
+
+        private final LatencyHistogram queries = new LatencyHistogram();
+
+        private final LatencyHistogram updates = new LatencyHistogram();
+
+        /** requests per status code, -1 for failed requests */
+        private final Map<Integer, Long> statuses = new HashMap<>();
+
+        private long lastCompletion;
+
+        private long elapsedNanos;
+
+        void record(boolean update, int status, long correctedNanos, long uncorrectedNanos) {
+            corrected.record(correctedNanos);
+            uncorrected.record(uncorrectedNanos);
+            (update ? updates : queries).record(correctedNanos);
+            statuses.merge(status, 1L, Long::sum);
+        }
+
+        void add(LoadResult other) {
+            corrected.add(other.corrected);
+            uncorrected.add(other.uncorrected);
+            queries.add(other.queries);
+            updates.add(other.updates);
+            other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+            lastCompletion = Math.max(lastCompletion, other.lastCompletion);
+        }
+
+        public long getRequests() {
+            return corrected.getCount();
+        }
+
+        /**
+         * @return completed requests per second
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getRequests() * 1e9 / elapsedNanos;
+        }
+
+        public LatencyHistogram getCorrected() {
+            return corrected;
+        }
+
+        public LatencyHistogram getUncorrected() {
+            return uncorrected;
+        }
+
+        public Map<Integer, Long> getStatuses() {
+            return statuses;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> retval = new LinkedHashMap<>();
+            retval.put("requests", getRequests());
+            retval.put("throughput", getThroughput());
+            retval.put("statuses", statuses);
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("corrected", percentiles(corrected));
+            latency.put("uncorrected", percentiles(uncorrected));
+            latency.put("query", percentiles(queries));
+            latency.put("update", percentiles(updates));
+            retval.put("latency_ms", latency);
+            return retval;
+        }
+
+        private static Map<String, Double> percentiles(LatencyHistogram histogram) {
+            Map<String, Double> retval = new LinkedHashMap<>();
+            retval.put("count", (double) histogram.getCount());
+            retval.put("mean", histogram.getMean() / 1e6);
+            retval.put("p50", histogram.getValueAtPercentile(50) / 1e6);
+            retval.put("p90", histogram.getValueAtPercentile(90) / 1e6);
+            retval.put("p99", histogram.getValueAtPercentile(99) / 1e6);
+            retval.put("p99.9", histogram.getValueAtPercentile(99.9) / 1e6);
+            retval.put("max", histogram.getMax() / 1e6);
+            return retval;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder retval = new StringBuilder();
+            retval.append(String.format(Locale.ROOT, "requests: %d, throughput: %.1f/s, statuses: %s%n", getRequests(),
+                    getThroughput(), statuses));
+            retval.append(String.format(Locale.ROOT, "%-12s %8s %9s %9s %9s %9s %9s %9s%n", "latency ms", "count",
+                    "mean", "p50", "p90", "p99", "p99.9", "max"));
+            line(retval, "corrected", corrected);
+            line(retval, "uncorrected", uncorrected);
+            line(retval, "query", queries);
+            line(retval, "update", updates);
+            return retval.toString();
+        }
+
+        private static void line(StringBuilder out, String name, LatencyHistogram h) {
+            out.append(String.format(Locale.ROOT, "%-12s %8d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%n", name,
+                    h.getCount(), h.getMean() / 1e6, h.getValueAtPercentile(50) / 1e6,
+                    h.getValueAtPercentile(90) / 1e6, h.getValueAtPercentile(99) / 1e6,
+                    h.getValueAtPercentile(99.9) / 1e6, h.getMax() / 1e6));
+        }
+    }
+
+    /**
+     * @return the options given as --name=value
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("option expected as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        String[] airports = options.containsKey("airports") ? options.get("airports").split(",") : fetchAirports(url);
+        LoadGenerator generator = new LoadGenerator(url,
+                Double.parseDouble(options.getOrDefault("rate", "1000")),
+                Long.parseLong(options.getOrDefault("duration", "30")),
+                Long.parseLong(options.getOrDefault("warmup", "5")),
+                Integer.parseInt(options.getOrDefault("connections", "32")),
+                Integer.parseInt(options.getOrDefault("updates", "10")),
+                options.getOrDefault("radius", "0,50,500").split(","), airports);
+        Path out = Paths.get(options.getOrDefault("out", "load-result.json"));
+
+        LOGGER.info("Loading " + url + " at " + generator.rate + " requests/s over " + generator.connections
+                + " connections, " + airports.length + " airports");
+        LoadResult result = generator.run();
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("url", url);
+        json.put("rate", generator.rate);
+        json.put("connections", generator.connections);
+        json.put("updates_percent", generator.updatePercent);
+        json.put("radius", Arrays.asList(generator.radii));
+        json.put("duration_s", TimeUnit.NANOSECONDS.toSeconds(generator.durationNanos));
+        json.putAll(result.toMap());
+        Files.write(out, new GsonBuilder().setPrettyPrinting().create().toJson(json).getBytes(StandardCharsets.UTF_8));
+        System.out.print(result);
+        System.out.println("results written to " + out.toAbsolutePath());
+    }
+}
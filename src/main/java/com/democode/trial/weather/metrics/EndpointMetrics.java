@@ -0,0 +1,69 @@
+package com.democode.trial.weather.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests, errors and latency of one endpoint, identified by its HTTP method and path template. Recording is
+ * lock free.
+ */
+public class EndpointMetrics {
+
+    private final String method;
+
+    private final String path;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder clientErrors = new LongAdder();
+
+    private final LongAdder serverErrors = new LongAdder();
+
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    EndpointMetrics(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Record a completed request
+     *
+     * @param status the response status, 500 if the request failed with an exception
+     * @param nanos time from receiving the request until the response has been written
+     */
+    public void record(int status, long nanos) {
+        requests.increment();
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+        latency.record(nanos);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /** requests answered with a 4xx status */
+    public long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    /** requests answered with a 5xx status or failed */
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    public LatencyRecorder getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,68 @@
+package com.democode.trial.weather.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies counted in the fixed buckets of a Prometheus histogram, {@value #BUCKETS} upper bounds from 50 us to
+ * 10 s. Every bucket, the count and the sum are striped {@link LongAdder}s, so any number of threads record
+ * without a lock or allocation; a scrape racing with recording may see a sample in the count but not yet in its
+ * bucket, which is acceptable for monitoring.
+ */
+public class LatencyRecorder {
+
+    /** upper bounds of the buckets in seconds, as reported */
+    static final double[] UPPER_BOUNDS = {0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    public static final int BUCKETS = 17;
+
+    private static final long[] UPPER_BOUND_NANOS = new long[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUND_NANOS[i] = Math.round(UPPER_BOUNDS[i] * 1e9);
+        }
+    }
+
+    /** the buckets and one more for latencies above the highest bound */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyRecorder() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKETS && nanos > UPPER_BOUND_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * @return samples per bucket, not cumulative, the last one above the highest bound
+     */
+    public long[] getCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public void clear() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+    }
+}
@@ -0,0 +1,117 @@
+package com.democode.trial.weather.metrics;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.ext.Provider;
+
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.glassfish.jersey.uri.UriTemplate;
+
+/**
+ * Jersey listener recording every request into the {@link MetricsRegistry}: the time from the start of request
+ * processing by Jersey until the response has been written, and the status. Requests are grouped by the path
+ * template of the matched resource method, e.g. {@code /query/weather/{iata}/{radius}}, so the number of endpoints
+ * stays bounded whatever the clients send; requests matching no resource are recorded as {@code unmatched}, with
+ * their HTTP method if it is a standard one and {@code OTHER} otherwise.
+ *
+ * Register it with the resource classes of the application.
+ */
+@Provider
+public class MetricsEventListener implements ApplicationEventListener {
+
+    static final String UNMATCHED = "unmatched";
+
+    /** method of unmatched requests with a method outside of {@link #METHODS} */
+    static final String OTHER = "OTHER";
+
+    /** HTTP methods of RFC 7231 and PATCH */
+    private static final Set<String> METHODS = new HashSet<>(Arrays.asList(
+            "GET", "HEAD", "POST", "PUT", "DELETE", "CONNECT", "OPTIONS", "TRACE", "PATCH"));
+
+    private final MetricsRegistry registry;
+
+    /** recorder per matched resource method, so the template is only built once */
+    private final ConcurrentMap<ResourceMethod, EndpointMetrics> methods = new ConcurrentHashMap<>();
+
+    public MetricsEventListener() {
+        this(MetricsRegistry.getInstance());
+    }
+
+    MetricsEventListener(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent event) {
+        return new RequestListener(System.nanoTime());
+    }
+
+    private EndpointMetrics endpoint(RequestEvent event) {
+        ExtendedUriInfo uriInfo = event.getUriInfo();
+        ResourceMethod method = uriInfo == null ? null : uriInfo.getMatchedResourceMethod();
+        if (method == null) {
+            String httpMethod = event.getContainerRequest() == null ? null : event.getContainerRequest().getMethod();
+            return registry.endpoint(METHODS.contains(httpMethod) ? httpMethod : OTHER, UNMATCHED);
+        }
+        EndpointMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = registry.endpoint(method.getHttpMethod(), template(uriInfo));
+            methods.putIfAbsent(method, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the path template of the matched resource and method
+     */
+    private static String template(ExtendedUriInfo uriInfo) {
+        // matched templates are ordered from the resource method up to the root resource
+        List<UriTemplate> templates = uriInfo.getMatchedTemplates();
+        StringBuilder path = new StringBuilder();
+        for (int i = templates.size() - 1; i >= 0; i--) {
+            String template = templates.get(i).getTemplate();
+            if (template.isEmpty() || "/".equals(template)) {
+                continue;
+            }
+            if (!template.startsWith("/")) {
+                path.append('/');
+            }
+            path.append(template.endsWith("/") ? template.substring(0, template.length() - 1) : template);
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    private class RequestListener implements RequestEventListener {
+
+        private final long start;
+
+        RequestListener(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onEvent(RequestEvent event) {
+            if (event.getType() == RequestEvent.Type.FINISHED) {
+                ContainerResponse response = event.getContainerResponse();
+                int status = response == null || !event.isSuccess() && response.getStatus() < 400 ? 500
+                        : response.getStatus();
+                endpoint(event).record(status, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.democode.trial.weather.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.democode.trial.weather.DataPointType;
+
+/**
+ * Process wide recorders of the service: per endpoint requests, errors and latency, filled in by
+ * {@link MetricsEventListener}, and collected data points per type. Everything is recorded lock free into
+ * striped counters, the scrape reads and formats them in the Prometheus text format, see {@link #write}.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    private final LongAdder[] ingested = new LongAdder[DataPointType.values().length];
+
+    MetricsRegistry() {
+        for (int i = 0; i < ingested.length; i++) {
+            ingested[i] = new LongAdder();
+        }
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the recorder of the endpoint, created on first use
+     */
+    public EndpointMetrics endpoint(String method, String path) {
+        String key = method + " " + path;
+        EndpointMetrics metrics = endpoints.get(key);
+        return metrics != null ? metrics : endpoints.computeIfAbsent(key, k -> new EndpointMetrics(method, path));
+    }
+
+    public Collection<EndpointMetrics> getEndpoints() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    /**
+     * Count a data point stored by the collector
+     */
+    public void recordIngest(DataPointType type) {
+        ingested[type.ordinal()].increment();
+    }
+
+    public long getIngested(DataPointType type) {
+        return ingested[type.ordinal()].sum();
+    }
+
+    /**
+     * Write the recorders in the Prometheus text format
+     */
+    public void write(PrometheusWriter out) {
+        out.help("awa_http_requests_total", "counter", "HTTP requests completed per endpoint");
+        for (EndpointMetrics e : endpoints.values()) {
+            out.sample("awa_http_requests_total", labels(e, null), e.getRequests());
+        }
+        out.help("awa_http_errors_total", "counter", "HTTP requests answered with an error status per endpoint");
+        for (EndpointMetrics e : endpoints.values()) {
+            out.sample("awa_http_errors_total", labels(e, "4xx"), e.getClientErrors());
+            out.sample("awa_http_errors_total", labels(e, "5xx"), e.getServerErrors());
+        }
+        out.help("awa_http_request_duration_seconds", "histogram", "HTTP request latency per endpoint");
+        for (EndpointMetrics e : endpoints.values()) {
+            out.histogram("awa_http_request_duration_seconds", labels(e, null), e.getLatency());
+        }
+        out.help("awa_datapoints_ingested_total", "counter", "data points stored by the collector per type");
+        for (DataPointType type : DataPointType.values()) {
+            out.sample("awa_datapoints_ingested_total",
+                    new String[] {"type", type.name().toLowerCase(Locale.ROOT)}, getIngested(type));
+        }
+    }
+
+    private static String[] labels(EndpointMetrics e, String status) {
+        return status == null ? new String[] {"method", e.getMethod(), "endpoint", e.getPath()}
+                : new String[] {"method", e.getMethod(), "endpoint", e.getPath(), "status", status};
+    }
+
+    /**
+     * Forget all endpoints and counts, for tests
+     */
+    public void clear() {
+        endpoints.clear();
+        for (LongAdder adder : ingested) {
+            adder.reset();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.democode.trial.weather.metrics;
+
+/**
+ * Minimal writer of the Prometheus text exposition format, version 0.0.4
+ */
+public class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    /**
+     * Start a metric family
+     *
+     * @param type counter, gauge or histogram
+     */
+    public PrometheusWriter help(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * @param labels label names and values alternating, may be empty
+     */
+    public PrometheusWriter sample(String name, String[] labels, double value) {
+        out.append(name);
+        labels(labels, null);
+        out.append(' ');
+        value(value);
+        out.append('\n');
+        return this;
+    }
+
+    public PrometheusWriter gauge(String name, String help, double value) {
+        return help(name, "gauge", help).sample(name, new String[0], value);
+    }
+
+    /**
+     * Write the cumulative buckets, sum and count of the recorder
+     */
+    public PrometheusWriter histogram(String name, String[] labels, LatencyRecorder recorder) {
+        long[] counts = recorder.getCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket");
+            labels(labels, i < LatencyRecorder.BUCKETS ? format(LatencyRecorder.UPPER_BOUNDS[i]) : "+Inf");
+            out.append(' ').append(cumulative).append('\n');
+        }
+        sample(name + "_sum", labels, recorder.getSumNanos() / 1e9);
+        return sample(name + "_count", labels, cumulative);
+    }
+
+    private void labels(String[] labels, String le) {
+        if (labels.length == 0 && le == null) {
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            escape(labels[i + 1]);
+            out.append('"');
+        }
+        if (le != null) {
+            out.append(labels.length > 0 ? "," : "").append("le=\"").append(le).append('"');
+        }
+        out.append('}');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private void value(double value) {
+        if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static String format(double bound) {
+        return bound == (long) bound ? (long) bound + ".0" : Double.toString(bound);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
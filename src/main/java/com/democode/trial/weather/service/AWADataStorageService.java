@@ -1,27 +1,41 @@
 package com.democode.trial.weather.service;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
+import com.democode.trial.weather.DataPointType;
 import com.democode.trial.weather.WeatherException;
 import com.democode.trial.weather.dto.AirportData;
 import com.democode.trial.weather.dto.AtmosphericInformation;
 import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.dto.RollupSeries;
+import com.democode.trial.weather.storage.RadiusQueryCache;
+import com.democode.trial.weather.storage.RequestCounters;
 
 public interface AWADataStorageService {
 	
 	AirportData addAirport(String iataCode, double latitude, double longitude);
 	AirportData addAirport(AirportData airport);
+	void addAirports(Collection<AirportData> airports);
+	void validateAirport(AirportData airport);
     List<AirportData> getAirportData();
 	List<AtmosphericInformation> getAtmosphericInformation();
-	Map<AirportData, Integer> getRequestFrequency();
-	Map<Double, Integer> getRadiusFreq();
+	RequestCounters getRequestCounters();
+	RadiusQueryCache getQueryCache();
+	int getDataSize();
+	int getAirportCount();
+	long getHistoryBytes();
     void updateRequestFrequency(String iata, Double radius);
     AirportData findAirportData(String iataCode);
     int getAirportDataIdx(String iataCode);
+    List<AirportData> findAirportsInRadius(AirportData center, double radius);
+    List<AtmosphericInformation> findAtmosphericInformationInRadius(AirportData center, double radius);
     double calculateDistance(AirportData ad1, AirportData ad2);
     AtmosphericInformation updateAtmosphericInformation(AtmosphericInformation ai, String pointType, DataPoint dp) throws WeatherException;
     void processDataPoint(String iataCode, String pointType, DataPoint dp) throws WeatherException;
     AtmosphericInformation getAtmosphericInformation(String iata);
+    DataPointSeries getHistory(String iata, DataPointType type, long from, long to);
+    RollupSeries getHistory(String iata, DataPointType type, long from, long to, int points);
     int removeAirport(String iata);
 }
@@ -1,19 +1,26 @@
 package com.democode.trial.weather.service;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 import com.democode.trial.weather.DataPointType;
 import com.democode.trial.weather.WeatherException;
 import com.democode.trial.weather.dto.AirportData;
 import com.democode.trial.weather.dto.AtmosphericInformation;
 import com.democode.trial.weather.dto.DataPoint;
-import com.democode.trial.weather.storage.AWADataStorage;
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.dto.RollupSeries;
+import com.democode.trial.weather.metrics.MetricsRegistry;
+import com.democode.trial.weather.storage.AWAStorage;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.storage.GeoMath;
+import com.democode.trial.weather.storage.RadiusQueryCache;
+import com.democode.trial.weather.storage.RequestCounters;
 
 public class AWADataStorageServiceImpl implements AWADataStorageService {
 	
     /** earth radius in KM */
-    public static final double R = 6372.8;
+    public static final double R = GeoMath.EARTH_RADIUS;
 
     /**
      * Records information about how often requests are made
@@ -23,10 +30,8 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
      */
     public void updateRequestFrequency(String iata, Double radius) {
         AirportData airportData = findAirportData(iata);
-        AWADataStorage.getInstance().putRequestFrequency(airportData, 
-        		AWADataStorage.getInstance().getRequestFrequency().getOrDefault(airportData, 0) + 1);
-        AWADataStorage.getInstance().putRadiusFreq(radius, 
-        		AWADataStorage.getInstance().getRadiusFreq().getOrDefault(radius, 0));
+        AWAStorageFactory.getStorage().getRequestCounters().record(airportData == null ? null : airportData.getIata(),
+        		radius == null ? 0 : radius);
     }
 
     /**
@@ -36,19 +41,17 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
      * @return airport data or null if not found
      */
     public AirportData findAirportData(String iataCode) {
-        return AWADataStorage.getInstance().getAirportData().stream().filter(ap -> ap.getIata().equals(iataCode))
-            .findFirst().orElse(null);
+        return AWAStorageFactory.getStorage().findAirportData(iataCode);
     }
 
     /**
-     * Given an iataCode find the airport data
+     * Given an iataCode find the position of the airport in the airport list
      *
      * @param iataCode as a string
-     * @return airport data or null if not found
+     * @return position of the airport or -1 if not found
      */
     public int getAirportDataIdx(String iataCode) {
-        AirportData ad = findAirportData(iataCode);
-        return AWADataStorage.getInstance().getAirportData().indexOf(ad);
+        return AWAStorageFactory.getStorage().getAirportDataIdx(iataCode);
     }
 
     /**
@@ -59,12 +62,48 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
      * @return the distance in KM
      */
     public double calculateDistance(AirportData ad1, AirportData ad2) {
-        double deltaLat = Math.toRadians(ad2.getLatitude() - ad1.getLatitude());
-        double deltaLon = Math.toRadians(ad2.getLongitude() - ad1.getLongitude());
-        double a =  Math.pow(Math.sin(deltaLat / 2), 2) + Math.pow(Math.sin(deltaLon / 2), 2)
-                * Math.cos(ad1.getLatitude()) * Math.cos(ad2.getLatitude());
-        double c = 2 * Math.asin(Math.sqrt(a));
-        return R * c;
+        return GeoMath.distance(ad1.getLatitude(), ad1.getLongitude(), ad2.getLatitude(), ad2.getLongitude());
+    }
+
+    /**
+     * Airports within the given distance of the center airport, looked up through the spatial index.
+     *
+     * @param center the center airport
+     * @param radius the radius in KM
+     * @return airports in the radius, the center included
+     */
+    public List<AirportData> findAirportsInRadius(AirportData center, double radius) {
+        return AWAStorageFactory.getStorage().findAirportsInRadius(center, radius);
+    }
+
+    /**
+     * Non empty readings of the airports within the given distance of the center airport, from the
+     * {@link RadiusQueryCache} if the same query has been answered since the last write touching its airports.
+     *
+     * @param center the center airport
+     * @param radius the radius in KM
+     * @return read only readings of the airports in the radius, the center included
+     */
+    public List<AtmosphericInformation> findAtmosphericInformationInRadius(AirportData center, double radius) {
+        AWAStorage storage = AWAStorageFactory.getStorage();
+        RadiusQueryCache cache = storage.getQueryCache();
+        List<AtmosphericInformation> retval = cache.get(center.getIata(), radius);
+        if (retval != null) {
+            return retval;
+        }
+        // register the query before looking at the storage, so that any write from now on drops the result
+        RadiusQueryCache.Entry entry = cache.reserve(center, radius);
+        boolean put = false;
+        try {
+            retval = storage.getNonEmptyAtmosphericInformation(storage.findAirportsInRadius(center, radius));
+            cache.put(entry, retval);
+            put = true;
+        } finally {
+            if (!put) {
+                cache.cancel(entry);
+            }
+        }
+        return retval;
     }
     
     /**
@@ -77,9 +116,35 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
      * @throws WeatherException if the update can not be completed
      */
     public void processDataPoint(String iataCode, String pointType, DataPoint dp) throws WeatherException {
-    	AtmosphericInformation ai = getAtmosphericInformation(iataCode);
-        ai =updateAtmosphericInformation(ai, pointType, dp);
-        AWADataStorage.getInstance().updateAtmosphericInformation(iataCode, ai);
+        AWAStorage storage = AWAStorageFactory.getStorage();
+        DataPointType type = acceptedType(pointType, dp);
+        long time = System.currentTimeMillis();
+        if (type == null || !storage.updateDataPoint(iataCode, type, dp, time)) {
+            if (storage.getAtmosphericInformation(iataCode) == null) {
+                throw new WeatherException("unknown airport iata=" + iataCode);
+            }
+            throw new IllegalStateException("couldn't update atmospheric data");
+        }
+        storage.getHistory().record(iataCode, type, time, dp);
+        MetricsRegistry.getInstance().recordIngest(type);
+    }
+
+    /**
+     * Recent data points of one type at an airport
+     *
+     * @param from first sample time in milliseconds since UTC epoch, inclusive
+     * @param to last sample time in milliseconds since UTC epoch, inclusive
+     */
+    public DataPointSeries getHistory(String iata, DataPointType type, long from, long to) {
+    	return AWAStorageFactory.getStorage().getHistory().range(iata, type, from, to);
+    }
+
+    /**
+     * Recent data points of one type at an airport downsampled to at least the given number of points, if the
+     * rollups allow
+     */
+    public RollupSeries getHistory(String iata, DataPointType type, long from, long to, int points) {
+    	return AWAStorageFactory.getStorage().getHistory().rollup(iata, type, from, to, points);
     }
 
     
@@ -92,56 +157,58 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
      * @return updated AtmosphericInformation object
      */
     public AtmosphericInformation updateAtmosphericInformation(AtmosphericInformation newAi, String pointType, DataPoint dp) throws WeatherException {
-        
+        DataPointType type = acceptedType(pointType, dp);
+        if (type == null) {
+            throw new IllegalStateException("couldn't update atmospheric data");
+        }
+        newAi.setDataPoint(type, dp);
+        newAi.setLastUpdateTime(System.currentTimeMillis());
+        return newAi;
+    }
+
+    /**
+     * @param pointType the data point type as a string
+     * @param dp the actual data point
+     * @return the type of the data point, null if the type is unknown or the mean is out of its range
+     */
+    private static DataPointType acceptedType(String pointType, DataPoint dp) {
         if (pointType.equalsIgnoreCase(DataPointType.WIND.name())) {
             if (dp.getMean() >= 0) {
-                newAi.setWind(dp);
-                newAi.setLastUpdateTime(System.currentTimeMillis());
-                return newAi;
+                return DataPointType.WIND;
             }
         }
 
         if (pointType.equalsIgnoreCase(DataPointType.TEMPERATURE.name())) {
             if (dp.getMean() >= -50 && dp.getMean() < 100) {
-                newAi.setTemperature(dp);
-                newAi.setLastUpdateTime(System.currentTimeMillis());
-                return newAi;
+                return DataPointType.TEMPERATURE;
             }
         }
 
         if (pointType.equalsIgnoreCase(DataPointType.HUMIDTY.name())) {
             if (dp.getMean() >= 0 && dp.getMean() < 100) {
-                newAi.setHumidity(dp);
-                newAi.setLastUpdateTime(System.currentTimeMillis());
-                return newAi;
+                return DataPointType.HUMIDTY;
             }
         }
 
         if (pointType.equalsIgnoreCase(DataPointType.PRESSURE.name())) {
             if (dp.getMean() >= 650 && dp.getMean() < 800) {
-                newAi.setPressure(dp);
-                newAi.setLastUpdateTime(System.currentTimeMillis());
-                return newAi;
+                return DataPointType.PRESSURE;
             }
         }
 
         if (pointType.equalsIgnoreCase(DataPointType.CLOUDCOVER.name())) {
             if (dp.getMean() >= 0 && dp.getMean() < 100) {
-                newAi.setCloudCover(dp);
-                newAi.setLastUpdateTime(System.currentTimeMillis());
-                return newAi;
+                return DataPointType.CLOUDCOVER;
             }
         }
 
         if (pointType.equalsIgnoreCase(DataPointType.PRECIPITATION.name())) {
             if (dp.getMean() >=0 && dp.getMean() < 100) {
-                newAi.setPrecipitation(dp);
-                newAi.setLastUpdateTime(System.currentTimeMillis());
-                return newAi;
+                return DataPointType.PRECIPITATION;
             }
         }
 
-        throw new IllegalStateException("couldn't update atmospheric data");
+        return null;
     }
 
     /**
@@ -153,12 +220,25 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
     	airport.setLatitude(latitude);
     	airport.setLongitude(longitude);
     	validateAirport(airport);
-    	return AWADataStorage.getInstance().addAirport(iataCode, latitude, longitude);
+    	return AWAStorageFactory.getStorage().addAirport(iataCode, latitude, longitude);
     }
 
     public AirportData addAirport(AirportData airport) {
     	validateAirport(airport);
-        return AWADataStorage.getInstance().addAirport(airport);
+        return AWAStorageFactory.getStorage().addAirport(airport);
+    }
+
+
+    /**
+     * Create several airport records with a single storage update
+     *
+     * @throws IllegalArgumentException if any of the airports is invalid, nothing is added then
+     */
+    public void addAirports(Collection<AirportData> airports) {
+    	for (AirportData airport : airports) {
+    		validateAirport(airport);
+    	}
+    	AWAStorageFactory.getStorage().addAirports(airports);
     }
 
     
@@ -166,24 +246,42 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
      * Several storage getters below
      */
     public List<AirportData> getAirportData() {
-		return AWADataStorage.getInstance().getAirportData();
+		return AWAStorageFactory.getStorage().getAirportData();
 	}
 
 	public List<AtmosphericInformation> getAtmosphericInformation() {
-		return AWADataStorage.getInstance().getAtmosphericInformation();
+		return AWAStorageFactory.getStorage().getAtmosphericInformation();
 	}
 
-	public Map<AirportData, Integer> getRequestFrequency() {
-		return AWADataStorage.getInstance().getRequestFrequency();
+	public RequestCounters getRequestCounters() {
+		return AWAStorageFactory.getStorage().getRequestCounters();
 	}
 
-	public Map<Double, Integer> getRadiusFreq() {
-		return AWADataStorage.getInstance().getRadiusFreq();
+	public RadiusQueryCache getQueryCache() {
+		return AWAStorageFactory.getStorage().getQueryCache();
+	}
+
+	/**
+	 * @return number of non empty atmospheric records updated in the last day
+	 */
+	public int getDataSize() {
+		return AWAStorageFactory.getStorage().getFreshnessTracker().getFreshCount();
+	}
+
+	public int getAirportCount() {
+		return AWAStorageFactory.getStorage().getAirportData().size();
+	}
+
+	/**
+	 * @return estimated bytes of the data point history of all airports
+	 */
+	public long getHistoryBytes() {
+		return AWAStorageFactory.getStorage().getHistory().sizeInBytes();
 	}
 
 	@Override
 	public AtmosphericInformation getAtmosphericInformation(String iata) {
-		return AWADataStorage.getInstance().getAtmosphericInformation(iata);
+		return AWAStorageFactory.getStorage().getAtmosphericInformation(iata);
 	}
 
 	/**
@@ -199,7 +297,7 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
 		}
 
 		if(findAirportData(iata) != null) {
-			AWADataStorage.getInstance().removeAirport(iata);
+			AWAStorageFactory.getStorage().removeAirport(iata);
 			return 1;
 		} else {
 			return 0;
@@ -207,7 +305,10 @@ public class AWADataStorageServiceImpl implements AWADataStorageService {
 		
 	}
 
-	private void validateAirport(AirportData airport) {
+	/**
+	 * @throws IllegalArgumentException if the airport can not be stored
+	 */
+	public void validateAirport(AirportData airport) {
 		// IATA checks
 		if( isIataInvalid(airport.getIata()) ) {
 			throw new IllegalArgumentException("IATA code is incorrect");
@@ -1,41 +1,31 @@
 package com.democode.trial.weather.storage;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
 
+import com.democode.trial.weather.DataPointType;
 import com.democode.trial.weather.dto.AirportData;
 import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
 
 //TODO This implementation of storage for demonstration purposes only. For next releases could be considered the In-Memory-Data-Grid solution as the airoportData storage
-public class AWADataStorage {
-
-	private static final String AIRPORTS_DATA = "airports.dat";
+/**
+ * Single threaded storage, every caller has to provide its own synchronization.
+ * {@link ConcurrentAWADataStorage} is the thread safe alternative.
+ */
+public class AWADataStorage extends AbstractAWADataStorage {
 
 	private static AWADataStorage instance = null;
 	
-    /** all known airports */
-    private List<AirportData> airportData = new ArrayList<>();
+    /** all known airports with their indexes */
+    private AirportCatalog catalog = new AirportCatalog();
 
     /** atmospheric information for each airport, idx corresponds with airportData */
     private Map<String,AtmosphericInformation> atmosphericInformation = new HashMap<>();
-    
-    /**
-     * Internal performance counter to better understand most requested information, this map can be improved but
-     * for now provides the basis for future performance optimizations. Due to the stateless deployment architecture
-     * we don't want to write this to disk, but will pull it off using a REST request and aggregate with other
-     * performance metrics {@link #ping()}
-     */
-    private Map<AirportData, Integer> requestFrequency = new HashMap<AirportData, Integer>();
-    private Map<Double, Integer> radiusFreq = new HashMap<Double, Integer>();
-
-    public final static Logger LOGGER = Logger.getLogger("AWADataStorage");
 
     private AWADataStorage() {
     	
@@ -51,7 +41,7 @@ public class AWADataStorage {
     }
    
     public List<AirportData> getAirportData() {
-		return new ArrayList<AirportData>(airportData);
+		return new ArrayList<AirportData>(catalog.getAirports());
 	}
 
 
@@ -59,68 +49,47 @@ public class AWADataStorage {
 		return new ArrayList<AtmosphericInformation>(atmosphericInformation.values());
 	}
 
-	public Map<AirportData, Integer> getRequestFrequency() {
-		Map<AirportData, Integer> clone = new HashMap<AirportData, Integer>();
-		clone.putAll(requestFrequency);
-		return clone;
-	}
-
-	public Map<Double, Integer> getRadiusFreq() {
-		Map<Double, Integer> clone = new HashMap<Double, Integer>();
-		clone.putAll(radiusFreq);
-		return clone;
-	}
-
 	
 	public void addAtmosphericInformation(String key, AtmosphericInformation atmosphericInformation) {
 		this.atmosphericInformation.put(key,atmosphericInformation);
+		invalidateQueries(key);
 	}
 
 	public void addAirportData(AirportData airportData) {
-		this.airportData.add(airportData);
-	}
-
-
-	public void putRequestFrequency(AirportData key, Integer value) {
-		this.requestFrequency.put(key, value);
-	}
-
-
-	public void putRadiusFreq(Double key, Integer value) {
-		this.radiusFreq.put(key, value);
+		List<AirportData> touched = withReplaced(catalog, Collections.singletonList(airportData));
+		catalog.put(airportData);
+		queryCache.invalidate(touched);
 	}
 	
 	/**
 	 * Clear all storage
 	 */
 	public void clear() {
-        airportData.clear(); 
+        catalog.clear();
         atmosphericInformation.clear(); 
-        requestFrequency.clear();
+        requestCounters.clear();
+        freshnessTracker.clear();
+        history.clear();
+        queryCache.clear();
         instance = null;
 	}
 
-	
-	/**
-	 * Load test data
-	 */
-	public void initData() {
-		InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(AIRPORTS_DATA);
-		BufferedReader br = new BufferedReader(new InputStreamReader(is));
-		String l = null;
-
-		try {
-		    while ( (l = br.readLine()) != null) {
-		        String[] split = l.split(",");
-		        addAirport(split[0], Double.valueOf(split[1]), Double.valueOf(split[2]));
-		    }
-		} catch (IOException e) {
-			LOGGER.severe("AirportData has not initialized! Root case:"+e);
-		}
-	}
-	
 	public synchronized void updateAtmosphericInformation(String key, AtmosphericInformation aiNew ) {
 		atmosphericInformation.put(key, aiNew);
+		trackFreshness(key, aiNew);
+		invalidateQueries(key);
+	}
+
+	public synchronized boolean updateDataPoint(String iata, DataPointType type, DataPoint dp, long lastUpdateTime) {
+		AtmosphericInformation ai = atmosphericInformation.get(iata);
+		if (ai == null) {
+			return false;
+		}
+		ai.setDataPoint(type, dp);
+		ai.setLastUpdateTime(lastUpdateTime);
+		trackFreshness(iata, ai);
+		invalidateQueries(iata);
+		return true;
 	}
 	
 	/**
@@ -131,37 +100,47 @@ public class AWADataStorage {
 	 * @return new AirportData object
 	 */
 	public AirportData addAirport(String iataCode, double latitude, double longitude) {
-        AirportData ad = new AirportData();
-        ad.setIata(iataCode);
-        ad.setLatitude(latitude);
-        ad.setLongitude(longitude);
-        airportData.add(ad);
+        AirportData ad = newAirport(iataCode, latitude, longitude);
+        List<AirportData> touched = withReplaced(catalog, Collections.singletonList(ad));
+        catalog.put(ad);
 
         AtmosphericInformation ai = new AtmosphericInformation();
         atmosphericInformation.put(ad.getIata(),ai);
+        freshnessTracker.remove(ad.getIata());
+        queryCache.invalidate(touched);
         return ad;
     }
 
 
 	public AirportData addAirport(AirportData ad) {
-        AirportData adNew = new AirportData();
-        adNew.setIata(ad.getIata());
-        adNew.setLatitude(ad.getLatitude());
-        adNew.setLongitude(ad.getLongitude());
-        adNew.setCity(ad.getCity());
-        adNew.setCountry(ad.getCountry());
-        adNew.setDst(ad.getDst());
-        adNew.setIcao(ad.getIcao());
-        adNew.setName(ad.getName());
-        adNew.setTimezone(ad.getTimezone());
-        
-        airportData.add(adNew);
+        AirportData adNew = copyAirport(ad);
+        List<AirportData> touched = withReplaced(catalog, Collections.singletonList(adNew));
+        catalog.put(adNew);
 
         AtmosphericInformation ai = new AtmosphericInformation();
         atmosphericInformation.put(adNew.getIata(),ai);
+        freshnessTracker.remove(adNew.getIata());
+        queryCache.invalidate(touched);
         return adNew;
     }
 
+	/**
+	 * Add several airports with a single update of the catalog indexes
+	 */
+	public void addAirports(Collection<AirportData> airports) {
+		List<AirportData> copies = new ArrayList<>(airports.size());
+		for(AirportData ad : airports) {
+			copies.add(copyAirport(ad));
+		}
+		List<AirportData> touched = withReplaced(catalog, copies);
+		catalog.putAll(copies);
+		for(AirportData ad : copies) {
+			atmosphericInformation.put(ad.getIata(), new AtmosphericInformation());
+			freshnessTracker.remove(ad.getIata());
+		}
+		queryCache.invalidate(touched);
+	}
+
 	public AtmosphericInformation getAtmosphericInformation(String iata) {
 		return atmosphericInformation.get(iata);
 	}
@@ -173,13 +152,46 @@ public class AWADataStorage {
      * @return airport data or null if not found
      */
     public AirportData findAirportData(String iataCode) {
-        return airportData.stream().filter(ap -> ap.getIata().equals(iataCode)).findFirst().orElse(null);
+        return catalog.find(iataCode);
+    }
+
+    /**
+     * Given an iataCode find the position of the airport in the airport list
+     *
+     * @param iataCode as a string
+     * @return position of the airport or -1 if not found
+     */
+    public int getAirportDataIdx(String iataCode) {
+        return catalog.indexOf(iataCode);
+    }
+
+    /**
+     * Find all airports within the given distance of the center airport, the center included
+     *
+     * @param center the airport in the center of the search circle
+     * @param radius the radius in KM
+     * @return airports in the radius
+     */
+    public List<AirportData> findAirportsInRadius(AirportData center, double radius) {
+        return catalog.findInRadius(center, radius);
     }
 
 	public void removeAirport(String iata) {
-		AirportData ad =findAirportData(iata);
-		airportData.remove(ad);
-		
+		invalidateQueries(iata);
+		catalog.remove(iata);
 		atmosphericInformation.remove(iata);
+		requestCounters.remove(iata);
+		freshnessTracker.remove(iata);
+		history.remove(iata);
+	}
+
+	/**
+	 * Drop the radius query results around the airport
+	 */
+	private void invalidateQueries(String iata) {
+		AirportData ad = catalog.find(iata);
+		if (ad != null) {
+			queryCache.invalidate(ad);
+		}
 	}
 }
@@ -0,0 +1,43 @@
+package com.democode.trial.weather.storage;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Airport weather storage. Implementations are obtained through {@link AWAStorageFactory}.
+ */
+public interface AWAStorage {
+
+    List<AirportData> getAirportData();
+    List<AtmosphericInformation> getAtmosphericInformation();
+    AtmosphericInformation getAtmosphericInformation(String iata);
+    /**
+     * @return the non empty readings of the airports in their order, which may be shared and must not be modified
+     */
+    List<AtmosphericInformation> getNonEmptyAtmosphericInformation(List<AirportData> airports);
+    void updateAtmosphericInformation(String key, AtmosphericInformation aiNew);
+    /**
+     * Set one data point and the last update time of an airport, its other readings stay
+     *
+     * @return false if the airport is unknown
+     */
+    boolean updateDataPoint(String iata, DataPointType type, DataPoint dp, long lastUpdateTime);
+    RequestCounters getRequestCounters();
+    FreshnessTracker getFreshnessTracker();
+    AtmosphericHistory getHistory();
+    RadiusQueryCache getQueryCache();
+    AirportData addAirport(String iataCode, double latitude, double longitude);
+    AirportData addAirport(AirportData ad);
+    void addAirports(Collection<AirportData> airports);
+    AirportData findAirportData(String iataCode);
+    int getAirportDataIdx(String iataCode);
+    List<AirportData> findAirportsInRadius(AirportData center, double radius);
+    void removeAirport(String iata);
+    void initData();
+    void clear();
+}
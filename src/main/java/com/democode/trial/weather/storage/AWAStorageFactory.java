@@ -0,0 +1,150 @@
+package com.democode.trial.weather.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Provides the storage used by the service layer.
+ *
+ * The implementation is chosen with the system property {@value #STORAGE_PROPERTY}: {@code concurrent} (default)
+ * for {@link ConcurrentAWADataStorage}, {@code simple} for the single threaded {@link AWADataStorage} or
+ * {@code mapped} for the {@link MappedAWADataStorage} shared with other processes. A new storage starts from the
+ * {@link StorageSnapshot} named by {@value StorageSnapshot#SNAPSHOT_PROPERTY} if it exists and is intact,
+ * otherwise from the bundled airports file. The simple storage always loads the airports file first and applies
+ * the snapshot on top. A mapped storage keeps the airports of an existing file and a read only one loads nothing.
+ * If {@value WriteAheadLog#DIR_PROPERTY} is set, the log is replayed on top of that and the storage is wrapped into
+ * a {@link DurableAWAStorage}, except for read only storages.
+ */
+public final class AWAStorageFactory {
+
+    public final static Logger LOGGER = Logger.getLogger("AWAStorageFactory");
+
+    public static final String STORAGE_PROPERTY = "awa.storage";
+
+    private static volatile AWAStorage instance = null;
+
+    private AWAStorageFactory() {
+    }
+
+    public static AWAStorage getStorage() {
+        AWAStorage storage = instance;
+        if (storage == null) {
+            synchronized (AWAStorageFactory.class) {
+                storage = instance;
+                if (storage == null) {
+                    storage = createStorage();
+                    instance = storage;
+                }
+            }
+        }
+        return storage;
+    }
+
+    private static AWAStorage createStorage() {
+        AWAStorage storage;
+        String kind = System.getProperty(STORAGE_PROPERTY);
+        if ("simple".equalsIgnoreCase(kind)) {
+            storage = AWADataStorage.getInstance();
+            loadSnapshot(storage);
+        } else if ("mapped".equalsIgnoreCase(kind)) {
+            MappedAWADataStorage mapped = openMapped();
+            if (mapped.isReadOnly()) {
+                return mapped;
+            }
+            storage = mapped;
+            if (storage.getAirportData().isEmpty() && !loadSnapshot(storage)) {
+                storage.initData();
+            }
+        } else {
+            storage = new ConcurrentAWADataStorage();
+            if (!loadSnapshot(storage)) {
+                storage.initData();
+            }
+        }
+        return openLog(storage);
+    }
+
+    private static MappedAWADataStorage openMapped() {
+        try {
+            MappedAWADataStorage storage = MappedAWADataStorage.fromSystemProperties();
+            MappedReadings readings = storage.getReadings();
+            LOGGER.info("Mapped " + readings.getFile() + (readings.isReadOnly() ? " for reading" : " for writing")
+                    + " with " + readings.size() + " of " + readings.capacity() + " slots taken");
+            return storage;
+        } catch (IOException e) {
+            throw new UncheckedIOException("mapped storage can not be opened", e);
+        }
+    }
+
+    /**
+     * Replay the log in {@value WriteAheadLog#DIR_PROPERTY} if there is one and log all further writes
+     *
+     * @return the storage, wrapped if the log is enabled
+     */
+    private static AWAStorage openLog(AWAStorage storage) {
+        try {
+            WriteAheadLog log = WriteAheadLog.fromSystemProperties();
+            if (log == null) {
+                return storage;
+            }
+            long start = System.nanoTime();
+            int records = log.replay(storage);
+            LOGGER.info(records + " write ahead log records replayed in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, durability " + log.getDurability());
+            return new DurableAWAStorage(storage, log);
+        } catch (IOException e) {
+            throw new UncheckedIOException("write ahead log can not be opened", e);
+        }
+    }
+
+    /**
+     * Load the snapshot named by {@value StorageSnapshot#SNAPSHOT_PROPERTY} if there is one
+     *
+     * @return true if the snapshot has been loaded
+     */
+    private static boolean loadSnapshot(AWAStorage storage) {
+        String file = System.getProperty(StorageSnapshot.SNAPSHOT_PROPERTY);
+        if (file == null || file.trim().isEmpty() || !Files.exists(Paths.get(file))) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            int airports = StorageSnapshot.load(Paths.get(file), storage);
+            LOGGER.info("Snapshot of " + airports + " airports loaded from " + file + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            return true;
+        } catch (IOException e) {
+            LOGGER.severe("Snapshot " + file + " has not loaded, starting from the airports file! Root case:" + e);
+            return false;
+        }
+    }
+
+    /**
+     * Clear the current storage, the next {@link #getStorage()} call creates and loads a new one
+     */
+    public static synchronized void reset() {
+        if (instance != null) {
+            instance.clear();
+            close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Close the write ahead log of the current storage if it has one, e.g. on shutdown
+     */
+    public static synchronized void close() {
+        if (instance instanceof Closeable) {
+            try {
+                ((Closeable) instance).close();
+            } catch (IOException e) {
+                LOGGER.severe("Storage has not closed properly! Root case:" + e);
+            }
+        }
+    }
+}
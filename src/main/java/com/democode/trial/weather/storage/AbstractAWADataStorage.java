@@ -0,0 +1,157 @@
+package com.democode.trial.weather.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+
+/**
+ * Behaviour shared by the storage implementations
+ */
+public abstract class AbstractAWADataStorage implements AWAStorage {
+
+    private static final String AIRPORTS_DATA = "airports.dat";
+
+    public final static Logger LOGGER = Logger.getLogger("AWADataStorage");
+
+    /**
+     * Internal performance counter to better understand most requested information. Due to the stateless
+     * deployment architecture we don't want to write this to disk, but will pull it off using a REST request and
+     * aggregate with other performance metrics
+     */
+    protected final RequestCounters requestCounters = new RequestCounters();
+
+    /** number of fresh atmospheric records, kept up to date by the storage writes */
+    protected final FreshnessTracker freshnessTracker = new FreshnessTracker(Clock.systemUTC());
+
+    /** recent data points per airport and type */
+    protected final AtmosphericHistory history = new AtmosphericHistory();
+
+    /** radius query results, dropped by the writes touching them */
+    protected final RadiusQueryCache queryCache;
+
+    protected AbstractAWADataStorage() {
+        this(new RadiusQueryCache());
+    }
+
+    protected AbstractAWADataStorage(RadiusQueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    public RequestCounters getRequestCounters() {
+        return requestCounters;
+    }
+
+    public FreshnessTracker getFreshnessTracker() {
+        return freshnessTracker;
+    }
+
+    public AtmosphericHistory getHistory() {
+        return history;
+    }
+
+    public RadiusQueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    public List<AtmosphericInformation> getNonEmptyAtmosphericInformation(List<AirportData> airports) {
+        List<AtmosphericInformation> retval = new ArrayList<>();
+        for (AirportData ad : airports) {
+            AtmosphericInformation ai = getAtmosphericInformation(ad.getIata());
+            if (ai != null && isNotEmpty(ai)) {
+                retval.add(ai);
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * @return true if the record holds at least one data point
+     */
+    public static boolean isNotEmpty(AtmosphericInformation ai) {
+        return ai.getCloudCover() != null || ai.getHumidity() != null || ai.getPrecipitation() != null
+           || ai.getPressure() != null || ai.getTemperature() != null || ai.getWind() != null;
+    }
+
+    /**
+     * Track the freshness of a record just written to the storage
+     */
+    protected void trackFreshness(String iata, AtmosphericInformation ai) {
+        if (isNotEmpty(ai)) {
+            freshnessTracker.touch(iata, ai.getLastUpdateTime());
+        } else {
+            freshnessTracker.remove(iata);
+        }
+    }
+
+    /**
+     * @return the airports and the catalogued ones with the same codes they replace, the radius query results
+     *         around both are affected by adding them
+     */
+    protected static List<AirportData> withReplaced(AirportCatalog catalog, Collection<AirportData> airports) {
+        List<AirportData> retval = new ArrayList<>(airports);
+        for (AirportData ad : airports) {
+            AirportData old = catalog.find(ad.getIata());
+            if (old != null) {
+                retval.add(old);
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Load test data
+     */
+    public void initData() {
+        InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(AIRPORTS_DATA);
+        BufferedReader br = new BufferedReader(new InputStreamReader(is));
+        String l = null;
+        List<AirportData> airports = new ArrayList<>();
+
+        try {
+            while ( (l = br.readLine()) != null) {
+                String[] split = l.split(",");
+                airports.add(newAirport(split[0], Double.valueOf(split[1]), Double.valueOf(split[2])));
+            }
+        } catch (IOException e) {
+            LOGGER.severe("AirportData has not initialized! Root case:"+e);
+        }
+        addAirports(airports);
+    }
+
+    /**
+     * @return a new airport record with the given code and coordinates
+     */
+    protected static AirportData newAirport(String iataCode, double latitude, double longitude) {
+        AirportData ad = new AirportData();
+        ad.setIata(iataCode);
+        ad.setLatitude(latitude);
+        ad.setLongitude(longitude);
+        return ad;
+    }
+
+    /**
+     * @return a copy of the airport record, the storage never keeps caller owned instances
+     */
+    protected static AirportData copyAirport(AirportData ad) {
+        AirportData adNew = new AirportData();
+        adNew.setIata(ad.getIata());
+        adNew.setLatitude(ad.getLatitude());
+        adNew.setLongitude(ad.getLongitude());
+        adNew.setCity(ad.getCity());
+        adNew.setCountry(ad.getCountry());
+        adNew.setDst(ad.getDst());
+        adNew.setIcao(ad.getIcao());
+        adNew.setName(ad.getName());
+        adNew.setTimezone(ad.getTimezone());
+        return adNew;
+    }
+}
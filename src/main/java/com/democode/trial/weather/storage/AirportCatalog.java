@@ -0,0 +1,181 @@
+package com.democode.trial.weather.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.democode.trial.weather.dto.AirportData;
+
+/**
+ * The airport list together with its lookup structures: the iata index, the spatial grid and the coordinate
+ * columns. All of them are kept aligned by {@link #put(AirportData)} and {@link #remove(String)}.
+ *
+ * A catalog is not thread safe. Concurrent storages mutate a {@link #copy()} and publish it as a new immutable
+ * snapshot, the single threaded storage mutates its catalog in place.
+ */
+public class AirportCatalog {
+
+    /** radius in KM from which a columnar scan is cheaper than walking the grid cells */
+    private static final double SCAN_RADIUS = 2500;
+
+    /** reusable slot buffer for columnar scans */
+    private static final ThreadLocal<int[]> SCAN_SLOTS = new ThreadLocal<>();
+
+    /** all known airports */
+    private final List<AirportData> airportData;
+
+    /** primary index: iata code to position of the airport in {@link #airportData} */
+    private final Map<String, Integer> airportIdx;
+
+    /** spatial index for radius queries */
+    private final GeoGridIndex geoIndex;
+
+    /** coordinates in radians, slot i belongs to the i-th airport of {@link #airportData} */
+    private final AirportCoordinates coordinates;
+
+    public AirportCatalog() {
+        airportData = new ArrayList<>();
+        airportIdx = new HashMap<>();
+        geoIndex = new GeoGridIndex();
+        coordinates = new AirportCoordinates();
+    }
+
+    private AirportCatalog(AirportCatalog other) {
+        airportData = new ArrayList<>(other.airportData);
+        airportIdx = new HashMap<>(other.airportIdx);
+        geoIndex = other.geoIndex.copy();
+        coordinates = other.coordinates.copy();
+    }
+
+    /**
+     * @return an independent catalog with the same airports
+     */
+    public AirportCatalog copy() {
+        return new AirportCatalog(this);
+    }
+
+    /**
+     * @return read only view of the airports in insertion order
+     */
+    public List<AirportData> getAirports() {
+        return Collections.unmodifiableList(airportData);
+    }
+
+    public int size() {
+        return airportData.size();
+    }
+
+    /**
+     * Given an iataCode find the airport data
+     *
+     * @param iataCode as a string
+     * @return airport data or null if not found
+     */
+    public AirportData find(String iataCode) {
+        Integer idx = airportIdx.get(iataCode);
+        return idx == null ? null : airportData.get(idx);
+    }
+
+    /**
+     * Given an iataCode find the position of the airport in the airport list
+     *
+     * @param iataCode as a string
+     * @return position of the airport or -1 if not found
+     */
+    public int indexOf(String iataCode) {
+        Integer idx = airportIdx.get(iataCode);
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Find all airports within the given distance of the center airport, the center included
+     *
+     * @param center the airport in the center of the search circle
+     * @param radius the radius in KM
+     * @return airports in the radius
+     */
+    public List<AirportData> findInRadius(AirportData center, double radius) {
+        if (radius < SCAN_RADIUS) {
+            return geoIndex.findInRadius(center.getLatitude(), center.getLongitude(), radius);
+        }
+
+        int[] slots = SCAN_SLOTS.get();
+        if (slots == null || slots.length < coordinates.size()) {
+            slots = new int[coordinates.size()];
+            SCAN_SLOTS.set(slots);
+        }
+        int found = coordinates.findInRadius(center.getLatitude(), center.getLongitude(), radius, slots);
+        List<AirportData> retval = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            retval.add(airportData.get(slots[i]));
+        }
+        return retval;
+    }
+
+    /**
+     * Add the airport to the list and all indexes, an airport with the same iata code is replaced in place
+     */
+    public void put(AirportData ad) {
+        Integer idx = airportIdx.get(ad.getIata());
+        if(idx != null) {
+            geoIndex.remove(airportData.set(idx, ad));
+            coordinates.set(idx, ad.getLatitude(), ad.getLongitude());
+        } else {
+            airportIdx.put(ad.getIata(), airportData.size());
+            airportData.add(ad);
+            coordinates.add(ad.getLatitude(), ad.getLongitude());
+        }
+        geoIndex.add(ad);
+    }
+
+    /**
+     * Add several airports, the spatial index is updated once for all new airports. Airports with a known iata
+     * code are replaced in place, of several new airports with the same code the last one wins.
+     */
+    public void putAll(Collection<AirportData> airports) {
+        Map<String, AirportData> added = new LinkedHashMap<>();
+        for (AirportData ad : airports) {
+            if (airportIdx.containsKey(ad.getIata())) {
+                put(ad);
+            } else {
+                added.put(ad.getIata(), ad);
+            }
+        }
+        for (AirportData ad : added.values()) {
+            airportIdx.put(ad.getIata(), airportData.size());
+            airportData.add(ad);
+            coordinates.add(ad.getLatitude(), ad.getLongitude());
+        }
+        geoIndex.addAll(added.values());
+    }
+
+    /**
+     * Remove the airport from the list and all indexes
+     *
+     * @return true if the airport was known
+     */
+    public boolean remove(String iata) {
+        Integer idx = airportIdx.remove(iata);
+        if(idx == null) {
+            return false;
+        }
+        geoIndex.remove(airportData.remove(idx.intValue()));
+        coordinates.remove(idx);
+        // positions after the removed airport have shifted by one
+        for(int i = idx; i < airportData.size(); i++) {
+            airportIdx.put(airportData.get(i).getIata(), i);
+        }
+        return true;
+    }
+
+    public void clear() {
+        airportData.clear();
+        airportIdx.clear();
+        geoIndex.clear();
+        coordinates.clear();
+    }
+}
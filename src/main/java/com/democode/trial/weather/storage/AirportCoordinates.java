@@ -0,0 +1,149 @@
+package com.democode.trial.weather.storage;
+
+import java.util.Arrays;
+
+/**
+ * Column store of airport coordinates, slot i holds the coordinates of the i-th airport of the catalogue.
+ *
+ * Latitude and longitude are kept in radians next to the precomputed cosine of the latitude, so a batch distance
+ * kernel only needs two sines per airport and no object access. Distances are compared through the Haversine
+ * term {@code a = sin^2(dLat/2) + cos(lat1) cos(lat2) sin^2(dLon/2)} against the term of the radius, which avoids
+ * asin and sqrt in the loop.
+ */
+public class AirportCoordinates {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] lat = new double[INITIAL_CAPACITY];
+
+    private double[] lon = new double[INITIAL_CAPACITY];
+
+    private double[] cosLat = new double[INITIAL_CAPACITY];
+
+    private int size;
+
+    public AirportCoordinates() {
+    }
+
+    private AirportCoordinates(AirportCoordinates other) {
+        lat = Arrays.copyOf(other.lat, Math.max(INITIAL_CAPACITY, other.size));
+        lon = Arrays.copyOf(other.lon, lat.length);
+        cosLat = Arrays.copyOf(other.cosLat, lat.length);
+        size = other.size;
+    }
+
+    /**
+     * @return an independent copy of the columns
+     */
+    public AirportCoordinates copy() {
+        return new AirportCoordinates(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(double latitude, double longitude) {
+        if (size == lat.length) {
+            int capacity = size * 2;
+            lat = Arrays.copyOf(lat, capacity);
+            lon = Arrays.copyOf(lon, capacity);
+            cosLat = Arrays.copyOf(cosLat, capacity);
+        }
+        set(size++, latitude, longitude);
+    }
+
+    public void set(int slot, double latitude, double longitude) {
+        lat[slot] = Math.toRadians(latitude);
+        lon[slot] = Math.toRadians(longitude);
+        cosLat[slot] = Math.cos(lat[slot]);
+    }
+
+    /**
+     * Remove a slot, the following slots move down by one to stay aligned with the airport list
+     */
+    public void remove(int slot) {
+        int tail = size - slot - 1;
+        System.arraycopy(lat, slot + 1, lat, slot, tail);
+        System.arraycopy(lon, slot + 1, lon, slot, tail);
+        System.arraycopy(cosLat, slot + 1, cosLat, slot, tail);
+        size--;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Distance from one point to every airport
+     *
+     * @param latitude latitude of the origin in degrees
+     * @param longitude longitude of the origin in degrees
+     * @param out receives the distance in KM per slot, must hold at least {@link #size()} values
+     */
+    public void distances(double latitude, double longitude, double[] out) {
+        double lat0 = Math.toRadians(latitude);
+        double lon0 = Math.toRadians(longitude);
+        double cos0 = Math.cos(lat0);
+        for (int i = 0; i < size; i++) {
+            double sinLat = Math.sin((lat[i] - lat0) * 0.5);
+            double sinLon = Math.sin((lon[i] - lon0) * 0.5);
+            double a = sinLat * sinLat + cos0 * cosLat[i] * sinLon * sinLon;
+            out[i] = 2 * GeoMath.EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, a)));
+        }
+    }
+
+    /**
+     * Slots of the airports within the given distance of a point. An airport whose latitude differs by more than
+     * the angular radius, or whose longitude falls outside the meridians tangent to the circle, is ruled out before
+     * any trigonometry is done.
+     *
+     * @param latitude latitude of the center in degrees
+     * @param longitude longitude of the center in degrees
+     * @param radius the radius in KM
+     * @param out receives the matching slots, must hold at least {@link #size()} values
+     * @return the number of slots written to out
+     */
+    public int findInRadius(double latitude, double longitude, double radius, int[] out) {
+        if (radius < 0) {
+            return 0;
+        }
+        double lat0 = Math.toRadians(latitude);
+        double lon0 = Math.toRadians(longitude);
+        double cos0 = Math.cos(lat0);
+        double angular = radius / GeoMath.EARTH_RADIUS;
+        if (angular >= Math.PI) {
+            for (int i = 0; i < size; i++) {
+                out[i] = i;
+            }
+            return size;
+        }
+        double sinHalf = Math.sin(angular * 0.5);
+        double threshold = sinHalf * sinHalf;
+        // a circle containing a pole crosses every meridian, otherwise it spans asin(sin(r) / cos(lat)) both ways
+        double maxDeltaLon = Math.abs(lat0) + angular >= Math.PI / 2 ? Math.PI
+                : Math.asin(Math.sin(angular) / cos0);
+
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            double deltaLat = lat[i] - lat0;
+            if (Math.abs(deltaLat) > angular) {
+                continue;
+            }
+            double deltaLon = Math.abs(lon[i] - lon0);
+            if (deltaLon > Math.PI) {
+                deltaLon = 2 * Math.PI - deltaLon;
+            }
+            if (deltaLon > maxDeltaLon) {
+                continue;
+            }
+            double sinLat = Math.sin(deltaLat * 0.5);
+            double sinLon = Math.sin((lon[i] - lon0) * 0.5);
+            double a = sinLat * sinLat + cos0 * cosLat[i] * sinLon * sinLon;
+            if (a <= threshold) {
+                out[found++] = i;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,168 @@
+package com.democode.trial.weather.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.dto.RollupSeries;
+
+/**
+ * Recent data point history of every airport, one {@link DataPointHistory} per airport and data point type.
+ *
+ * A history is allocated with the first sample of its type, so an airport takes at most
+ * {@code 6 * (capacity * DataPointHistory.SAMPLE_BYTES + (minutes + hours + days) * Rollup.BUCKET_BYTES + ~500)}
+ * bytes. With the default capacity of {@value #DEFAULT_CAPACITY} samples per type and the default rollup retention
+ * of {@value DataPointHistory#DEFAULT_MINUTE_BUCKETS} minutes, {@value DataPointHistory#DEFAULT_HOUR_BUCKETS} hours
+ * and {@value DataPointHistory#DEFAULT_DAY_BUCKETS} days that is 24 KB for the samples and up to 19 KB for the
+ * rollups, which grow with the time the samples cover and reach it after a month, about 46 KB per airport. The
+ * capacity is set with the system property {@value #CAPACITY_PROPERTY}, the rollup retention with
+ * {@value #ROLLUP_MINUTES_PROPERTY}, {@value #ROLLUP_HOURS_PROPERTY} and {@value #ROLLUP_DAYS_PROPERTY}.
+ * {@link #sizeInBytes()} reports the columns as they are. The history is kept in memory only, it is not part of
+ * snapshots or the log.
+ *
+ * Longer history is kept in compressed {@link GorillaChunk}s of {@value DataPointHistory#CHUNK_SAMPLES} samples
+ * when the system property {@value #CHUNKS_PROPERTY} sets the number of chunks to retain per airport and type.
+ * A synthetic trace of one reading a minute compresses to 4.3 bytes per sample with whole number means and to
+ * 10 bytes with one decimal, instead of {@value DataPointHistory#SAMPLE_BYTES}, so a week of one type (84 chunks)
+ * takes 45 to 100 KB per airport.
+ */
+public class AtmosphericHistory {
+
+    /** system property with the number of samples kept per airport and data point type */
+    public static final String CAPACITY_PROPERTY = "awa.history.capacity";
+
+    public static final int DEFAULT_CAPACITY = 128;
+
+    /** system property with the number of compressed chunks retained per airport and data point type */
+    public static final String CHUNKS_PROPERTY = "awa.history.chunks";
+
+    /** system property with the number of minutes kept in the minute rollup of every airport and type */
+    public static final String ROLLUP_MINUTES_PROPERTY = "awa.history.rollup.minutes";
+
+    /** system property with the number of hours kept in the hour rollup of every airport and type */
+    public static final String ROLLUP_HOURS_PROPERTY = "awa.history.rollup.hours";
+
+    /** system property with the number of days kept in the day rollup of every airport and type */
+    public static final String ROLLUP_DAYS_PROPERTY = "awa.history.rollup.days";
+
+    private final int capacity;
+
+    private final int retainedChunks;
+
+    private final int minuteBuckets;
+
+    private final int hourBuckets;
+
+    private final int dayBuckets;
+
+    private final ConcurrentMap<String, DataPointHistory[]> histories = new ConcurrentHashMap<>();
+
+    public AtmosphericHistory() {
+        this(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY), Integer.getInteger(CHUNKS_PROPERTY, 0),
+                Integer.getInteger(ROLLUP_MINUTES_PROPERTY, DataPointHistory.DEFAULT_MINUTE_BUCKETS),
+                Integer.getInteger(ROLLUP_HOURS_PROPERTY, DataPointHistory.DEFAULT_HOUR_BUCKETS),
+                Integer.getInteger(ROLLUP_DAYS_PROPERTY, DataPointHistory.DEFAULT_DAY_BUCKETS));
+    }
+
+    public AtmosphericHistory(int capacity) {
+        this(capacity, 0);
+    }
+
+    public AtmosphericHistory(int capacity, int retainedChunks) {
+        this(capacity, retainedChunks, DataPointHistory.DEFAULT_MINUTE_BUCKETS, DataPointHistory.DEFAULT_HOUR_BUCKETS,
+                DataPointHistory.DEFAULT_DAY_BUCKETS);
+    }
+
+    public AtmosphericHistory(int capacity, int retainedChunks, int minuteBuckets, int hourBuckets, int dayBuckets) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("history capacity must be positive");
+        }
+        if (retainedChunks < 0) {
+            throw new IllegalArgumentException("retained history chunks must not be negative");
+        }
+        if (minuteBuckets < 1 || hourBuckets < 1 || dayBuckets < 1) {
+            throw new IllegalArgumentException("history rollups must keep at least one bucket");
+        }
+        this.capacity = capacity;
+        this.retainedChunks = retainedChunks;
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+        this.dayBuckets = dayBuckets;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Record a sample of the airport
+     */
+    public void record(String iata, DataPointType type, long timestamp, DataPoint dp) {
+        DataPointHistory[] airport = histories.computeIfAbsent(iata, k -> new DataPointHistory[DataPointType.values().length]);
+        DataPointHistory history;
+        synchronized (airport) {
+            history = airport[type.ordinal()];
+            if (history == null) {
+                history = new DataPointHistory(capacity, retainedChunks, minuteBuckets, hourBuckets, dayBuckets);
+                airport[type.ordinal()] = history;
+            }
+        }
+        history.add(timestamp, dp);
+    }
+
+    /**
+     * @return samples of the airport and type with from &lt;= timestamp &lt;= to, empty if there are none
+     */
+    public DataPointSeries range(String iata, DataPointType type, long from, long to) {
+        DataPointHistory history = get(iata, type);
+        return history == null ? new DataPointSeries(0) : history.range(from, to);
+    }
+
+    /**
+     * @return downsampled samples of the airport and type with from &lt;= timestamp &lt;= to in about the given
+     *         number of points or more, see {@link DataPointHistory#rollup(long, long, int)}
+     */
+    public RollupSeries rollup(String iata, DataPointType type, long from, long to, int points) {
+        DataPointHistory history = get(iata, type);
+        return history == null ? new RollupSeries(Rollup.MINUTE, 0) : history.rollup(from, to, points);
+    }
+
+    private DataPointHistory get(String iata, DataPointType type) {
+        DataPointHistory[] airport = histories.get(iata);
+        if (airport == null) {
+            return null;
+        }
+        synchronized (airport) {
+            return airport[type.ordinal()];
+        }
+    }
+
+    /**
+     * @return estimated bytes of all histories, see {@link DataPointHistory#sizeInBytes()}, walks every airport
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (DataPointHistory[] airport : histories.values()) {
+            for (DataPointType type : DataPointType.values()) {
+                DataPointHistory history;
+                synchronized (airport) {
+                    history = airport[type.ordinal()];
+                }
+                if (history != null) {
+                    bytes += history.sizeInBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    public void remove(String iata) {
+        histories.remove(iata);
+    }
+
+    public void clear() {
+        histories.clear();
+    }
+}
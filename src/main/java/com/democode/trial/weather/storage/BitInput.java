@@ -0,0 +1,41 @@
+package com.democode.trial.weather.storage;
+
+/**
+ * Reads the values written by a {@link BitOutput}
+ */
+final class BitInput {
+
+    private final byte[] bytes;
+
+    private long position;
+
+    BitInput(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    long readBits(int bits) {
+        long value = 0;
+        while (bits > 0) {
+            int index = (int) (position >>> 3);
+            int available = 8 - (int) (position & 7);
+            int take = Math.min(available, bits);
+            int chunk = ((bytes[index] & 0xff) >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            position += take;
+            bits -= take;
+        }
+        return value;
+    }
+
+    /**
+     * Read a value written in two's complement with the given number of bits
+     */
+    long readSigned(int bits) {
+        long value = readBits(bits);
+        return bits == 64 ? value : (value << (64 - bits)) >> (64 - bits);
+    }
+}
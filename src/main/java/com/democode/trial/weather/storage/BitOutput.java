@@ -0,0 +1,53 @@
+package com.democode.trial.weather.storage;
+
+import java.util.Arrays;
+
+/**
+ * Appends values of any bit length to a growing byte array, most significant bit first
+ */
+final class BitOutput {
+
+    private byte[] bytes;
+
+    /** number of bits written */
+    private long position;
+
+    BitOutput(int initialBytes) {
+        bytes = new byte[Math.max(initialBytes, 8)];
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the lowest bits of the value
+     */
+    void writeBits(long value, int bits) {
+        ensureCapacity(bits);
+        while (bits > 0) {
+            int index = (int) (position >>> 3);
+            int free = 8 - (int) (position & 7);
+            int take = Math.min(free, bits);
+            int chunk = (int) (value >>> (bits - take)) & ((1 << take) - 1);
+            bytes[index] |= chunk << (free - take);
+            position += take;
+            bits -= take;
+        }
+    }
+
+    private void ensureCapacity(int bits) {
+        long needed = (position + bits + 7) >>> 3;
+        if (needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.max(needed, bytes.length * 2L));
+        }
+    }
+
+    long position() {
+        return position;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, (int) ((position + 7) >>> 3));
+    }
+}
@@ -0,0 +1,166 @@
+package com.democode.trial.weather.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Thread safe storage for concurrent request processing.
+ *
+ * The airport catalogue is an immutable {@link AirportCatalog} snapshot behind a volatile reference. Readers use
+ * whatever snapshot is current without locking; writers build a modified copy and publish it, writers of the
+ * catalogue are serialized among themselves only. The current readings are packed into {@link PackedReadings}, the
+ * atmospheric information records handed out are views of them.
+ */
+public class ConcurrentAWADataStorage extends AbstractAWADataStorage {
+
+    /** current airport catalogue, never modified after publication */
+    private volatile AirportCatalog catalog = new AirportCatalog();
+
+    /** serializes catalogue writers, readers never take it */
+    private final Object catalogLock = new Object();
+
+    private final PackedReadings readings = new PackedReadings();
+
+    public List<AirportData> getAirportData() {
+        return catalog.getAirports();
+    }
+
+    public List<AtmosphericInformation> getAtmosphericInformation() {
+        return readings.getAll();
+    }
+
+    public AtmosphericInformation getAtmosphericInformation(String iata) {
+        return readings.get(iata);
+    }
+
+    /**
+     * @return read only views of the packed records, see {@link PackedReadings#view(String)}
+     */
+    @Override
+    public List<AtmosphericInformation> getNonEmptyAtmosphericInformation(List<AirportData> airports) {
+        List<AtmosphericInformation> retval = new ArrayList<>(airports.size());
+        for (AirportData ad : airports) {
+            AtmosphericInformation ai = readings.view(ad.getIata());
+            if (ai != null) {
+                retval.add(ai);
+            }
+        }
+        return retval;
+    }
+
+    public void updateAtmosphericInformation(String key, AtmosphericInformation aiNew) {
+        // only airports still in the catalogue keep their readings
+        if (readings.write(key, aiNew)) {
+            trackFreshness(key, aiNew);
+            untrackIfRemoved(key);
+            invalidateQueries(key);
+        }
+    }
+
+    public boolean updateDataPoint(String iata, DataPointType type, DataPoint dp, long lastUpdateTime) {
+        if (!readings.write(iata, type, dp, lastUpdateTime)) {
+            return false;
+        }
+        freshnessTracker.touch(iata, lastUpdateTime);
+        untrackIfRemoved(iata);
+        invalidateQueries(iata);
+        return true;
+    }
+
+    /**
+     * Untrack an airport removed after its readings were written, the removal may have untracked it before the
+     * writer tracked it. A removal after this check untracks the airport itself.
+     */
+    private void untrackIfRemoved(String iata) {
+        if (!readings.contains(iata)) {
+            freshnessTracker.remove(iata);
+        }
+    }
+
+    public AirportData addAirport(String iataCode, double latitude, double longitude) {
+        AirportData ad = newAirport(iataCode, latitude, longitude);
+        addAirports(Collections.singletonList(ad));
+        return ad;
+    }
+
+    public AirportData addAirport(AirportData ad) {
+        AirportData adNew = copyAirport(ad);
+        addAirports(Collections.singletonList(adNew));
+        return adNew;
+    }
+
+    /**
+     * Add several airports with a single catalogue copy and a single update of its indexes
+     */
+    public void addAirports(Collection<AirportData> airports) {
+        synchronized (catalogLock) {
+            List<AirportData> touched = withReplaced(catalog, airports);
+            AirportCatalog next = catalog.copy();
+            next.putAll(airports);
+            for (AirportData ad : airports) {
+                readings.add(ad.getIata());
+                freshnessTracker.remove(ad.getIata());
+            }
+            catalog = next;
+            queryCache.invalidate(touched);
+        }
+    }
+
+    public AirportData findAirportData(String iataCode) {
+        return catalog.find(iataCode);
+    }
+
+    public int getAirportDataIdx(String iataCode) {
+        return catalog.indexOf(iataCode);
+    }
+
+    public List<AirportData> findAirportsInRadius(AirportData center, double radius) {
+        return catalog.findInRadius(center, radius);
+    }
+
+    public void removeAirport(String iata) {
+        synchronized (catalogLock) {
+            AirportData ad = catalog.find(iata);
+            if (ad != null) {
+                AirportCatalog next = catalog.copy();
+                next.remove(iata);
+                catalog = next;
+            }
+            readings.remove(iata);
+            requestCounters.remove(iata);
+            freshnessTracker.remove(iata);
+            history.remove(iata);
+            if (ad != null) {
+                queryCache.invalidate(ad);
+            }
+        }
+    }
+
+    /**
+     * Drop the radius query results around the airport
+     */
+    private void invalidateQueries(String iata) {
+        AirportData ad = catalog.find(iata);
+        if (ad != null) {
+            queryCache.invalidate(ad);
+        }
+    }
+
+    public void clear() {
+        synchronized (catalogLock) {
+            catalog = new AirportCatalog();
+            readings.clear();
+            requestCounters.clear();
+            freshnessTracker.clear();
+            history.clear();
+            queryCache.clear();
+        }
+    }
+}
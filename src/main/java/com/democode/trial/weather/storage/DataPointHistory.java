@@ -0,0 +1,347 @@
+package com.democode.trial.weather.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.dto.RollupSeries;
+
+/**
+ * The last samples of one data point type at one airport, kept in a ring buffer of primitive columns. A sample
+ * takes {@value #SAMPLE_BYTES} bytes: timestamp, mean, first, second, third quartile and count. The columns are
+ * allocated once with the full capacity, the oldest sample is overwritten when the buffer is full.
+ *
+ * Timestamps are kept ascending for the binary search of a time range, a sample older than the latest one is
+ * stored with the latest timestamp.
+ *
+ * With retained chunks, every {@value #CHUNK_SAMPLES} samples (or the capacity if smaller) are also sealed into an
+ * immutable {@link GorillaChunk} before the ring buffer overwrites them, the oldest chunk is dropped when more than
+ * the retained number exist. Ranges older than the ring buffer are decoded from the chunks outside the lock.
+ *
+ * Every sample is also added to {@link Rollup}s of a minute, an hour and a day, which answer long ranges without
+ * going through the samples. By default they keep the last {@value #DEFAULT_MINUTE_BUCKETS} minutes,
+ * {@value #DEFAULT_HOUR_BUCKETS} hours and {@value #DEFAULT_DAY_BUCKETS} days. They grow with the time covered, not
+ * with the number of samples, up to {@link #getMaxRollupBytes()}, {@value #DEFAULT_MAX_ROLLUP_BYTES} bytes with the
+ * default retention.
+ */
+public class DataPointHistory {
+
+    /** bytes per sample in the columns */
+    public static final int SAMPLE_BYTES = 8 + 8 + 4 * 4;
+
+    /** samples per sealed chunk, about two hours of one sample a minute */
+    public static final int CHUNK_SAMPLES = 120;
+
+    /** minute buckets kept by default, an hour */
+    public static final int DEFAULT_MINUTE_BUCKETS = 60;
+
+    /** hour buckets kept by default, a day */
+    public static final int DEFAULT_HOUR_BUCKETS = 24;
+
+    /** day buckets kept by default, a month */
+    public static final int DEFAULT_DAY_BUCKETS = 31;
+
+    /** bytes of the rollup columns with the default retention grown to their full length */
+    public static final int DEFAULT_MAX_ROLLUP_BYTES =
+            (DEFAULT_MINUTE_BUCKETS + DEFAULT_HOUR_BUCKETS + DEFAULT_DAY_BUCKETS) * Rollup.BUCKET_BYTES;
+
+    private final long[] timestamps;
+
+    private final double[] mean;
+
+    private final int[] first;
+
+    private final int[] second;
+
+    private final int[] third;
+
+    private final int[] count;
+
+    /** slot of the oldest sample */
+    private int start;
+
+    private int size;
+
+    private static final Chunk[] NO_CHUNKS = new Chunk[0];
+
+    /** rollups from the finest to the coarsest */
+    private final Rollup[] rollups;
+
+    private final int chunkSamples;
+
+    private final int retainedChunks;
+
+    /** samples ever added */
+    private long added;
+
+    /** time of the first sample ever added */
+    private long firstTimestamp;
+
+    /** newest samples of the ring buffer not sealed into a chunk yet */
+    private int unsealed;
+
+    /** sealed chunks, oldest first, replaced on every seal */
+    private volatile Chunk[] chunks = NO_CHUNKS;
+
+    public DataPointHistory(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * @param capacity samples in the ring buffer
+     * @param retainedChunks compressed chunks kept of the samples before, 0 for none
+     */
+    public DataPointHistory(int capacity, int retainedChunks) {
+        this(capacity, retainedChunks, DEFAULT_MINUTE_BUCKETS, DEFAULT_HOUR_BUCKETS, DEFAULT_DAY_BUCKETS);
+    }
+
+    /**
+     * @param capacity samples in the ring buffer
+     * @param retainedChunks compressed chunks kept of the samples before, 0 for none
+     * @param minuteBuckets minutes kept in the minute rollup
+     * @param hourBuckets hours kept in the hour rollup
+     * @param dayBuckets days kept in the day rollup
+     */
+    public DataPointHistory(int capacity, int retainedChunks, int minuteBuckets, int hourBuckets, int dayBuckets) {
+        rollups = new Rollup[] {
+                new Rollup(Rollup.MINUTE, minuteBuckets),
+                new Rollup(Rollup.HOUR, hourBuckets),
+                new Rollup(Rollup.DAY, dayBuckets)};
+        this.chunkSamples = Math.min(CHUNK_SAMPLES, capacity);
+        this.retainedChunks = retainedChunks;
+        timestamps = new long[capacity];
+        mean = new double[capacity];
+        first = new int[capacity];
+        second = new int[capacity];
+        third = new int[capacity];
+        count = new int[capacity];
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void add(long timestamp, DataPoint dp) {
+        int slot;
+        if (size < timestamps.length) {
+            slot = (start + size) % timestamps.length;
+            size++;
+        } else {
+            slot = start;
+            start = (start + 1) % timestamps.length;
+        }
+        if (size > 1) {
+            timestamp = Math.max(timestamp, timestamps[(slot + timestamps.length - 1) % timestamps.length]);
+        }
+        timestamps[slot] = timestamp;
+        mean[slot] = dp.getMean();
+        first[slot] = dp.getFirst();
+        second[slot] = dp.getSecond();
+        third[slot] = dp.getThird();
+        count[slot] = dp.getCount();
+        for (Rollup rollup : rollups) {
+            rollup.add(timestamp, dp.getMean());
+        }
+        if (added == 0) {
+            firstTimestamp = timestamp;
+        }
+        added++;
+        if (retainedChunks > 0 && ++unsealed == chunkSamples) {
+            seal();
+        }
+    }
+
+    /**
+     * Compress the unsealed samples, still in the ring buffer, into a new chunk
+     */
+    private void seal() {
+        GorillaChunk.Encoder encoder = new GorillaChunk.Encoder(unsealed);
+        for (int i = size - unsealed; i < size; i++) {
+            int slot = (start + i) % timestamps.length;
+            encoder.append(timestamps[slot], mean[slot], first[slot], second[slot], third[slot], count[slot]);
+        }
+        Chunk[] current = chunks;
+        int keep = Math.min(current.length, retainedChunks - 1);
+        Chunk[] next = Arrays.copyOfRange(current, current.length - keep, current.length + 1);
+        next[keep] = new Chunk(added - unsealed, encoder.seal());
+        chunks = next;
+        unsealed = 0;
+    }
+
+    /**
+     * @return bytes of the sealed chunks
+     */
+    public long getChunkBytes() {
+        long bytes = 0;
+        for (Chunk chunk : chunks) {
+            bytes += chunk.data.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Samples with from &lt;= timestamp &lt;= to, oldest first
+     */
+    public DataPointSeries range(long from, long to) {
+        DataPointSeries recent;
+        Chunk[] sealed;
+        long ringStart;
+        synchronized (this) {
+            recent = ringRange(from, to);
+            sealed = chunks;
+            ringStart = added - size;
+        }
+        if (sealed.length == 0) {
+            return recent;
+        }
+        // the samples no longer in the ring buffer, decoded from the immutable chunks without the lock
+        List<DataPointSeries> older = new ArrayList<>();
+        List<int[]> bounds = new ArrayList<>();
+        int total = recent.size();
+        for (Chunk chunk : sealed) {
+            if (chunk.firstSeq >= ringStart || chunk.data.getLastTimestamp() < from
+                    || chunk.data.getFirstTimestamp() > to) {
+                continue;
+            }
+            DataPointSeries decoded = chunk.data.decode();
+            int end = (int) Math.min(decoded.size(), ringStart - chunk.firstSeq);
+            int lo = 0;
+            while (lo < end && decoded.getTimestamps()[lo] < from) {
+                lo++;
+            }
+            int hi = lo;
+            while (hi < end && decoded.getTimestamps()[hi] <= to) {
+                hi++;
+            }
+            if (hi > lo) {
+                older.add(decoded);
+                bounds.add(new int[] {lo, hi});
+                total += hi - lo;
+            }
+        }
+        if (older.isEmpty()) {
+            return recent;
+        }
+        DataPointSeries series = new DataPointSeries(total);
+        int i = 0;
+        for (int c = 0; c < older.size(); c++) {
+            i = copy(older.get(c), bounds.get(c)[0], bounds.get(c)[1], series, i);
+        }
+        copy(recent, 0, recent.size(), series, i);
+        return series;
+    }
+
+    /**
+     * Downsampled samples with from &lt;= timestamp &lt;= to, from the coarsest rollup holding the range which
+     * still has at least the given number of buckets over it, or the finest rollup holding the range if none has.
+     */
+    public synchronized RollupSeries rollup(long from, long to, int points) {
+        Rollup coarsest = rollups[rollups.length - 1];
+        if (size == 0) {
+            return coarsest.range(from, to);
+        }
+        long begin = Math.max(from, firstTimestamp);
+        long end = Math.min(to, timestamps[(start + size - 1) % timestamps.length]);
+        long span = Math.max(0, end - begin + 1);
+        Rollup chosen = null;
+        for (int i = rollups.length - 1; i >= 0; i--) {
+            Rollup rollup = rollups[i];
+            if (rollup.getOldestTimestamp() > begin) {
+                break;
+            }
+            chosen = rollup;
+            if (span / rollup.getResolution() >= points) {
+                break;
+            }
+        }
+        return (chosen == null ? coarsest : chosen).range(from, to);
+    }
+
+    /**
+     * @return bytes of the rollup columns grown to their full length
+     */
+    public long getMaxRollupBytes() {
+        long buckets = 0;
+        for (Rollup rollup : rollups) {
+            buckets += rollup.getMaxBuckets();
+        }
+        return buckets * Rollup.BUCKET_BYTES;
+    }
+
+    /**
+     * @return bytes of the rollup columns
+     */
+    public synchronized long getRollupBytes() {
+        long bytes = 0;
+        for (Rollup rollup : rollups) {
+            bytes += rollup.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return estimated bytes of the ring buffer columns, sealed chunks and rollups
+     */
+    public long sizeInBytes() {
+        return (long) timestamps.length * SAMPLE_BYTES + getChunkBytes() + getRollupBytes();
+    }
+
+    private static int copy(DataPointSeries from, int lo, int hi, DataPointSeries to, int i) {
+        for (int j = lo; j < hi; j++, i++) {
+            to.set(i, from.getTimestamps()[j], from.getMean()[j], from.getFirst()[j], from.getSecond()[j],
+                    from.getThird()[j], from.getCount()[j]);
+        }
+        return i;
+    }
+
+    private DataPointSeries ringRange(long from, long to) {
+        int lo = lowerBound(from);
+        int hi = lowerBound(to == Long.MAX_VALUE ? to : to + 1);
+        int n = Math.max(0, hi - lo);
+        DataPointSeries series = new DataPointSeries(n);
+        for (int i = 0; i < n; i++) {
+            int slot = (start + lo + i) % timestamps.length;
+            series.set(i, timestamps[slot], mean[slot], first[slot], second[slot], third[slot], count[slot]);
+        }
+        return series;
+    }
+
+    /**
+     * @return position, counted from the oldest sample, of the first sample not older than the timestamp
+     */
+    private int lowerBound(long timestamp) {
+        if (timestamp == Long.MAX_VALUE) {
+            return size;
+        }
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[(start + mid) % timestamps.length] < timestamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static final class Chunk {
+
+        /** sequence number of the first sample */
+        final long firstSeq;
+
+        final GorillaChunk data;
+
+        Chunk(long firstSeq, GorillaChunk data) {
+            this.firstSeq = firstSeq;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.democode.trial.weather.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Storage which records every write in a {@link WriteAheadLog} after applying it to the wrapped storage.
+ *
+ * Applying and appending a write of an airport happen under a lock striped by the iata code, so the log holds the
+ * writes of each airport in the order they were applied. Waiting for the disk happens outside of it.
+ *
+ * A write returns once the log is as durable as its {@link WriteAheadLog.Durability} requires, a failed log write
+ * is reported as an {@link UncheckedIOException}. Loading the airports file and clearing are not logged.
+ */
+public class DurableAWAStorage implements AWAStorage, Closeable {
+
+    private static final int STRIPES = 64;
+
+    private final AWAStorage storage;
+
+    private final WriteAheadLog log;
+
+    private final Object[] stripes = new Object[STRIPES];
+
+    public DurableAWAStorage(AWAStorage storage, WriteAheadLog log) {
+        this.storage = storage;
+        this.log = log;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    private Object stripe(String iata) {
+        return stripes[(iata == null ? 0 : iata.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    public List<AirportData> getAirportData() {
+        return storage.getAirportData();
+    }
+
+    public List<AtmosphericInformation> getAtmosphericInformation() {
+        return storage.getAtmosphericInformation();
+    }
+
+    public AtmosphericInformation getAtmosphericInformation(String iata) {
+        return storage.getAtmosphericInformation(iata);
+    }
+
+    public List<AtmosphericInformation> getNonEmptyAtmosphericInformation(List<AirportData> airports) {
+        return storage.getNonEmptyAtmosphericInformation(airports);
+    }
+
+    public void updateAtmosphericInformation(String key, AtmosphericInformation aiNew) {
+        try {
+            long position;
+            synchronized (stripe(key)) {
+                storage.updateAtmosphericInformation(key, aiNew);
+                position = log.appendAtmosphericInformation(key, aiNew);
+            }
+            log.commit(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The log gets the whole record of the airport after the write, replaying it needs no earlier records
+     */
+    public boolean updateDataPoint(String iata, DataPointType type, DataPoint dp, long lastUpdateTime) {
+        try {
+            long position;
+            synchronized (stripe(iata)) {
+                if (!storage.updateDataPoint(iata, type, dp, lastUpdateTime)) {
+                    return false;
+                }
+                position = log.appendAtmosphericInformation(iata, storage.getAtmosphericInformation(iata));
+            }
+            log.commit(position);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public RequestCounters getRequestCounters() {
+        return storage.getRequestCounters();
+    }
+
+    public FreshnessTracker getFreshnessTracker() {
+        return storage.getFreshnessTracker();
+    }
+
+    public RadiusQueryCache getQueryCache() {
+        return storage.getQueryCache();
+    }
+
+    public AtmosphericHistory getHistory() {
+        return storage.getHistory();
+    }
+
+    public AirportData addAirport(String iataCode, double latitude, double longitude) {
+        try {
+            AirportData ad;
+            long position;
+            synchronized (stripe(iataCode)) {
+                ad = storage.addAirport(iataCode, latitude, longitude);
+                position = log.appendAddAirport(ad);
+            }
+            log.commit(position);
+            return ad;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public AirportData addAirport(AirportData ad) {
+        try {
+            AirportData added;
+            long position;
+            synchronized (stripe(ad.getIata())) {
+                added = storage.addAirport(ad);
+                position = log.appendAddAirport(added);
+            }
+            log.commit(position);
+            return added;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add the airports and wait for the log once for all of them. Bulk additions are not ordered against concurrent
+     * writes of the same airports.
+     */
+    public void addAirports(Collection<AirportData> airports) {
+        storage.addAirports(airports);
+        try {
+            long position = 0;
+            for (AirportData ad : airports) {
+                position = log.appendAddAirport(ad);
+            }
+            log.commit(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public AirportData findAirportData(String iataCode) {
+        return storage.findAirportData(iataCode);
+    }
+
+    public int getAirportDataIdx(String iataCode) {
+        return storage.getAirportDataIdx(iataCode);
+    }
+
+    public List<AirportData> findAirportsInRadius(AirportData center, double radius) {
+        return storage.findAirportsInRadius(center, radius);
+    }
+
+    public void removeAirport(String iata) {
+        try {
+            long position;
+            synchronized (stripe(iata)) {
+                storage.removeAirport(iata);
+                position = log.appendRemoveAirport(iata);
+            }
+            log.commit(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void initData() {
+        storage.initData();
+    }
+
+    public void clear() {
+        storage.clear();
+    }
+
+    /**
+     * Write a snapshot and drop the log segments it covers. Writes logged after the checkpoint may also be in the
+     * snapshot, replaying them again on top of it is harmless.
+     */
+    public int checkpoint(Path snapshot) throws IOException {
+        long segment = log.checkpoint();
+        int airports = StorageSnapshot.write(storage, snapshot);
+        log.deleteSegmentsBefore(segment);
+        return airports;
+    }
+
+    /**
+     * Force and close the log, the storage stays readable
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
@@ -0,0 +1,232 @@
+package com.democode.trial.weather.storage;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Incrementally maintained number of fresh atmospheric records, i.e. non empty records updated within the
+ * last {@value #FRESH_MILLIS} milliseconds.
+ *
+ * Every record has one entry with the time it turns stale, scheduled on a timer wheel with one slot per minute.
+ * Reading the count first advances the wheel to the current time and expires the records whose deadline has
+ * passed, so the read costs O(expired records) instead of a scan over all records. An update only moves the
+ * deadline of the entry, which is filed again for its new deadline when its slot comes up, so the wheel holds
+ * at most one entry per airport however often it is updated. An update with an earlier deadline than the slot
+ * the entry is filed at replaces the entry, the old one is dropped when its slot comes up.
+ */
+public class FreshnessTracker {
+
+    /** records updated within the last day are fresh */
+    public static final long FRESH_MILLIS = 86400000;
+
+    private static final long SLOT_MILLIS = 60000;
+
+    /** one slot per minute of the freshness period plus the current minute */
+    private static final int SLOTS = (int) (FRESH_MILLIS / SLOT_MILLIS) + 1;
+
+    private final Clock clock;
+
+    /** wheel entry of each airport, stale ones stay until their slot comes up */
+    private final ConcurrentMap<String, Expiry> entries = new ConcurrentHashMap<>();
+
+    private final Queue<Expiry>[] wheel;
+
+    private final AtomicInteger freshCount = new AtomicInteger();
+
+    /** the first minute whose slot has not been fully expired yet */
+    private long nextMinute;
+
+    @SuppressWarnings("unchecked")
+    public FreshnessTracker(Clock clock) {
+        this.clock = clock;
+        this.wheel = (Queue<Expiry>[]) new Queue<?>[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.nextMinute = clock.millis() / SLOT_MILLIS;
+    }
+
+    /**
+     * Record an update of a non empty record
+     *
+     * @param iata the airport of the record
+     * @param lastUpdateTime the update time of the record in milliseconds since UTC epoch
+     */
+    public void touch(String iata, long lastUpdateTime) {
+        long deadline = lastUpdateTime + FRESH_MILLIS;
+        if (deadline <= clock.millis()) {
+            remove(iata);
+            return;
+        }
+        for (;;) {
+            Expiry expiry = entries.get(iata);
+            if (expiry == null) {
+                expiry = new Expiry(iata, deadline);
+                if (entries.putIfAbsent(iata, expiry) == null) {
+                    freshCount.incrementAndGet();
+                    schedule(expiry);
+                    return;
+                }
+                continue;
+            }
+            synchronized (expiry) {
+                if (expiry.retired) {
+                    // dropped by the wheel meanwhile
+                    continue;
+                }
+                if (expiry.deadline == 0) {
+                    freshCount.incrementAndGet();
+                }
+                if (deadline / SLOT_MILLIS < expiry.minute) {
+                    // the filed slot comes too late for the new deadline
+                    Expiry earlier = new Expiry(iata, deadline);
+                    expiry.retired = true;
+                    entries.put(iata, earlier);
+                    schedule(earlier);
+                } else {
+                    expiry.deadline = deadline;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forget the record of a removed or emptied airport
+     */
+    public void remove(String iata) {
+        Expiry expiry = entries.get(iata);
+        if (expiry != null) {
+            synchronized (expiry) {
+                if (!expiry.retired && expiry.deadline != 0) {
+                    expiry.deadline = 0;
+                    freshCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of fresh records
+     */
+    public int getFreshCount() {
+        advance(clock.millis());
+        return freshCount.get();
+    }
+
+    /**
+     * @return number of entries on the wheel
+     */
+    int getScheduledCount() {
+        int count = 0;
+        for (Queue<Expiry> slot : wheel) {
+            count += slot.size();
+        }
+        return count;
+    }
+
+    public synchronized void clear() {
+        for (Expiry expiry : entries.values()) {
+            synchronized (expiry) {
+                expiry.retired = true;
+            }
+        }
+        entries.clear();
+        for (Queue<Expiry> slot : wheel) {
+            slot.clear();
+        }
+        freshCount.set(0);
+        nextMinute = clock.millis() / SLOT_MILLIS;
+    }
+
+    /**
+     * Expire every record with a deadline up to now
+     */
+    private synchronized void advance(long now) {
+        long minute = now / SLOT_MILLIS;
+        // a full turn covers the whole wheel
+        long first = Math.max(nextMinute, minute - SLOTS);
+        for (long m = first; m < minute; m++) {
+            drain(wheel[slot(m)], now, Integer.MAX_VALUE);
+        }
+        nextMinute = Math.max(nextMinute, minute);
+
+        // the current minute is expired up to now, entries fresh for the rest of it stay
+        Queue<Expiry> current = wheel[slot(minute)];
+        drain(current, now, current.size());
+    }
+
+    /**
+     * Take up to the given number of entries off a slot, expire the stale ones and file the others again
+     */
+    private void drain(Queue<Expiry> slot, long now, int limit) {
+        List<Expiry> pending = null;
+        Expiry expiry;
+        for (int i = 0; i < limit && (expiry = slot.poll()) != null; i++) {
+            synchronized (expiry) {
+                if (expiry.retired) {
+                    continue;
+                }
+                if (expiry.deadline > now) {
+                    expiry.minute = expiry.deadline / SLOT_MILLIS;
+                    Queue<Expiry> next = wheel[slot(expiry.minute)];
+                    if (next == slot) {
+                        // due a full turn ahead or later in the current minute
+                        if (pending == null) {
+                            pending = new ArrayList<>();
+                        }
+                        pending.add(expiry);
+                    } else {
+                        next.add(expiry);
+                    }
+                    continue;
+                }
+                if (expiry.deadline != 0) {
+                    freshCount.decrementAndGet();
+                }
+                expiry.retired = true;
+                entries.remove(expiry.iata, expiry);
+            }
+        }
+        if (pending != null) {
+            slot.addAll(pending);
+        }
+    }
+
+    private void schedule(Expiry expiry) {
+        wheel[slot(expiry.minute)].add(expiry);
+    }
+
+    private static int slot(long minute) {
+        return (int) (minute % SLOTS);
+    }
+
+    /**
+     * Wheel entry of an airport, guarded by its own monitor
+     */
+    private static class Expiry {
+
+        final String iata;
+
+        /** the time the record turns stale, 0 once it is not fresh anymore */
+        long deadline;
+
+        /** minute of the slot the entry is filed at */
+        long minute;
+
+        /** dropped from the wheel, a new entry is needed for the airport */
+        boolean retired;
+
+        Expiry(String iata, long deadline) {
+            this.iata = iata;
+            this.deadline = deadline;
+            this.minute = deadline / SLOT_MILLIS;
+        }
+    }
+}
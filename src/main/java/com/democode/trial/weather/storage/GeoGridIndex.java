@@ -0,0 +1,168 @@
+package com.democode.trial.weather.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.democode.trial.weather.dto.AirportData;
+
+/**
+ * Spatial index of airports on a fixed latitude/longitude grid of one degree cells.
+ *
+ * A radius query only visits the cells overlapping the bounding box of the search circle and checks the exact
+ * Haversine distance for the airports found there. The bounding box wraps around the dateline and covers all
+ * longitudes as soon as the circle reaches a pole.
+ *
+ * Cell lists are never modified in place, a mutation replaces the list of the touched cell. A {@link #copy()}
+ * therefore only clones the cell array and shares all lists with the original.
+ */
+public class GeoGridIndex {
+
+    private static final int ROWS = 180;
+
+    private static final int COLS = 360;
+
+    /** airports per cell, cells are allocated on the first insert */
+    private final List<AirportData>[] cells;
+
+    private int size;
+
+    public GeoGridIndex() {
+        @SuppressWarnings("unchecked")
+        List<AirportData>[] empty = (List<AirportData>[]) new List<?>[ROWS * COLS];
+        cells = empty;
+    }
+
+    private GeoGridIndex(GeoGridIndex other) {
+        cells = other.cells.clone();
+        size = other.size;
+    }
+
+    /**
+     * @return an independent index sharing the unchanged cells with this one
+     */
+    public GeoGridIndex copy() {
+        return new GeoGridIndex(this);
+    }
+
+    public void add(AirportData ad) {
+        int cell = cell(row(ad.getLatitude()), col(ad.getLongitude()));
+        List<AirportData> list = new ArrayList<>(cells[cell] == null ? 1 : cells[cell].size() + 1);
+        if (cells[cell] != null) {
+            list.addAll(cells[cell]);
+        }
+        list.add(ad);
+        cells[cell] = list;
+        size++;
+    }
+
+    /**
+     * Add several airports, every touched cell is replaced once no matter how many of the airports it receives
+     */
+    public void addAll(Collection<AirportData> airports) {
+        Map<Integer, List<AirportData>> added = new HashMap<>();
+        for (AirportData ad : airports) {
+            int cell = cell(row(ad.getLatitude()), col(ad.getLongitude()));
+            List<AirportData> list = added.get(cell);
+            if (list == null) {
+                list = new ArrayList<>(cells[cell] == null ? 4 : cells[cell].size() + 4);
+                if (cells[cell] != null) {
+                    list.addAll(cells[cell]);
+                }
+                added.put(cell, list);
+            }
+            list.add(ad);
+        }
+        for (Map.Entry<Integer, List<AirportData>> e : added.entrySet()) {
+            cells[e.getKey()] = e.getValue();
+        }
+        size += airports.size();
+    }
+
+    public boolean remove(AirportData ad) {
+        int cell = cell(row(ad.getLatitude()), col(ad.getLongitude()));
+        if (cells[cell] == null || !cells[cell].contains(ad)) {
+            return false;
+        }
+        List<AirportData> list = new ArrayList<>(cells[cell]);
+        list.remove(ad);
+        cells[cell] = list.isEmpty() ? null : list;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Find all airports within the given distance of a point
+     *
+     * @param latitude latitude of the center in degrees
+     * @param longitude longitude of the center in degrees
+     * @param radius the radius in KM
+     * @return airports within the radius, in no particular order
+     */
+    public List<AirportData> findInRadius(double latitude, double longitude, double radius) {
+        List<AirportData> retval = new ArrayList<>();
+        if (radius < 0) {
+            return retval;
+        }
+
+        double angular = radius / GeoMath.EARTH_RADIUS;
+        double latMin = latitude - Math.toDegrees(angular);
+        double latMax = latitude + Math.toDegrees(angular);
+
+        int colMin;
+        int colCount;
+        if (latMin <= -90 || latMax >= 90 || angular >= Math.PI / 2) {
+            // the circle contains a pole, every meridian crosses it
+            colMin = 0;
+            colCount = COLS;
+        } else {
+            double deltaLon = Math.toDegrees(Math.asin(Math.sin(angular) / Math.cos(Math.toRadians(latitude))));
+            int first = (int) Math.floor(longitude - deltaLon);
+            int last = (int) Math.floor(longitude + deltaLon);
+            colMin = Math.floorMod(first + 180, COLS);
+            colCount = Math.min(COLS, last - first + 1);
+        }
+
+        int rowMin = row(Math.max(-90, latMin));
+        int rowMax = row(Math.min(90, latMax));
+        for (int r = rowMin; r <= rowMax; r++) {
+            for (int c = 0; c < colCount; c++) {
+                List<AirportData> list = cells[cell(r, (colMin + c) % COLS)];
+                if (list == null) {
+                    continue;
+                }
+                for (AirportData ad : list) {
+                    if (GeoMath.distance(latitude, longitude, ad.getLatitude(), ad.getLongitude()) <= radius) {
+                        retval.add(ad);
+                    }
+                }
+            }
+        }
+        return retval;
+    }
+
+    private static int row(double latitude) {
+        return Math.min(ROWS - 1, Math.max(0, (int) Math.floor(latitude + 90)));
+    }
+
+    private static int col(double longitude) {
+        return Math.floorMod((int) Math.floor(longitude) + 180, COLS);
+    }
+
+    private static int cell(int row, int col) {
+        return row * COLS + col;
+    }
+}
@@ -0,0 +1,28 @@
+package com.democode.trial.weather.storage;
+
+/**
+ * Great circle helpers shared by the storage indexes and the service layer
+ */
+public final class GeoMath {
+
+    /** earth radius in KM */
+    public static final double EARTH_RADIUS = 6372.8;
+
+    private GeoMath() {
+    }
+
+    /**
+     * Haversine distance between two points given in degrees.
+     *
+     * @return the distance in KM
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double deltaLat = Math.toRadians(lat2 - lat1);
+        double deltaLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(deltaLat / 2);
+        double sinLon = Math.sin(deltaLon / 2);
+        double a = sinLat * sinLat
+                + sinLon * sinLon * Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2));
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(1, a)));
+    }
+}
@@ -0,0 +1,263 @@
+package com.democode.trial.weather.storage;
+
+import com.democode.trial.weather.dto.DataPointSeries;
+
+/**
+ * A sealed, immutable block of samples of one data point type compressed in the style of Facebook's Gorilla. The
+ * first sample is stored raw, each following one as
+ * <ul>
+ * <li>timestamp: the delta of its delta to the previous timestamp, in one of five buckets of 1, 9, 17, 24 or 68
+ * bits sized for timestamps in milliseconds about a minute apart;</li>
+ * <li>mean: the XOR of its bits with the previous mean, 1 bit if unchanged, otherwise only the meaningful bits
+ * between the leading and trailing zeros;</li>
+ * <li>quartiles: the change of their distance to the rounded mean, count: the difference to the previous count,
+ * in buckets of 1, 8, 19 or 67 bits.</li>
+ * </ul>
+ * Every value is restored exactly. A chunk is never modified after {@link Encoder#seal()}, so any number of
+ * threads may decode it without locking.
+ */
+public final class GorillaChunk {
+
+    private final byte[] bits;
+
+    private final int size;
+
+    private final long firstTimestamp;
+
+    private final long lastTimestamp;
+
+    private GorillaChunk(byte[] bits, int size, long firstTimestamp, long lastTimestamp) {
+        this.bits = bits;
+        this.size = size;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * @return bytes of the compressed samples
+     */
+    public int sizeInBytes() {
+        return bits.length;
+    }
+
+    /**
+     * @return all samples of the chunk, oldest first
+     */
+    public DataPointSeries decode() {
+        DataPointSeries series = new DataPointSeries(size);
+        BitInput in = new BitInput(bits);
+        long timestamp = 0;
+        long delta = 0;
+        long meanBits = 0;
+        int leading = -1;
+        int trailing = 0;
+        int count = 0;
+        long first = 0;
+        long second = 0;
+        long third = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                timestamp = in.readBits(64);
+                meanBits = in.readBits(64);
+                count = (int) in.readBits(32);
+            } else {
+                delta += readTimestampDelta(in);
+                timestamp += delta;
+                if (in.readBit()) {
+                    if (in.readBit()) {
+                        leading = (int) in.readBits(5);
+                        int meaningful = (int) in.readBits(6) + 1;
+                        trailing = 64 - leading - meaningful;
+                    }
+                    meanBits ^= in.readBits(64 - leading - trailing) << trailing;
+                }
+                count += (int) readInteger(in);
+            }
+            double mean = Double.longBitsToDouble(meanBits);
+            first += readInteger(in);
+            second += readInteger(in);
+            third += readInteger(in);
+            long rounded = round(mean);
+            series.set(i, timestamp, mean, (int) (rounded + first), (int) (rounded + second), (int) (rounded + third),
+                    count);
+        }
+        return series;
+    }
+
+    private static long readTimestampDelta(BitInput in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.readSigned(7);
+        }
+        if (!in.readBit()) {
+            return in.readSigned(14);
+        }
+        if (!in.readBit()) {
+            return in.readSigned(20);
+        }
+        return in.readSigned(64);
+    }
+
+    private static long readInteger(BitInput in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.readSigned(6);
+        }
+        if (!in.readBit()) {
+            return in.readSigned(16);
+        }
+        return in.readSigned(64);
+    }
+
+    /** the reference of the quartiles, defined for any mean */
+    private static long round(double mean) {
+        return Double.isNaN(mean) ? 0 : Math.round(mean);
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    /**
+     * Compresses samples into a chunk, not thread safe
+     */
+    public static final class Encoder {
+
+        private final BitOutput out;
+
+        private int size;
+
+        private long firstTimestamp;
+
+        private long timestamp;
+
+        private long delta;
+
+        private long meanBits;
+
+        private int leading = -1;
+
+        private int trailing;
+
+        private int count;
+
+        /** distances of the quartiles to the rounded mean */
+        private long first;
+
+        private long second;
+
+        private long third;
+
+        public Encoder(int expectedSize) {
+            out = new BitOutput(expectedSize * 8);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void append(long timestamp, double mean, int first, int second, int third, int count) {
+            long bits = Double.doubleToRawLongBits(mean);
+            if (size == 0) {
+                firstTimestamp = timestamp;
+                out.writeBits(timestamp, 64);
+                out.writeBits(bits, 64);
+                out.writeBits(count, 32);
+            } else {
+                long newDelta = timestamp - this.timestamp;
+                writeTimestampDelta(newDelta - delta);
+                delta = newDelta;
+                writeMean(bits ^ meanBits);
+                writeInteger((long) count - this.count);
+            }
+            long rounded = round(mean);
+            writeInteger(first - rounded - this.first);
+            writeInteger(second - rounded - this.second);
+            writeInteger(third - rounded - this.third);
+            this.first = first - rounded;
+            this.second = second - rounded;
+            this.third = third - rounded;
+            this.timestamp = timestamp;
+            this.meanBits = bits;
+            this.count = count;
+            size++;
+        }
+
+        private void writeTimestampDelta(long dod) {
+            if (dod == 0) {
+                out.writeBit(false);
+            } else if (fits(dod, 7)) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (fits(dod, 14)) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 14);
+            } else if (fits(dod, 20)) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 20);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+        }
+
+        private void writeMean(long xor) {
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            // 5 bits hold up to 31 leading zeros
+            int newLeading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int newTrailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+                out.writeBits(0b10, 2);
+            } else {
+                leading = newLeading;
+                trailing = newTrailing;
+                out.writeBits(0b11, 2);
+                out.writeBits(leading, 5);
+                out.writeBits(64 - leading - trailing - 1, 6);
+            }
+            out.writeBits(xor >>> trailing, 64 - leading - trailing);
+        }
+
+        private void writeInteger(long value) {
+            if (value == 0) {
+                out.writeBit(false);
+            } else if (fits(value, 6)) {
+                out.writeBits(0b10, 2);
+                out.writeBits(value, 6);
+            } else if (fits(value, 16)) {
+                out.writeBits(0b110, 3);
+                out.writeBits(value, 16);
+            } else {
+                out.writeBits(0b111, 3);
+                out.writeBits(value, 64);
+            }
+        }
+
+        /**
+         * @return the immutable chunk of the appended samples
+         */
+        public GorillaChunk seal() {
+            return new GorillaChunk(out.toByteArray(), size, firstTimestamp, timestamp);
+        }
+    }
+}
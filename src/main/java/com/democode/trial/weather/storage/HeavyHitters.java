@@ -0,0 +1,164 @@
+package com.democode.trial.weather.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate top-K counter with fixed memory.
+ *
+ * Counts are kept in a Count-Min sketch of striped {@link LongAdder} cells: an estimate never undercounts and
+ * overcounts by at most {@code e * N / width} with probability {@code 1 - e^-depth}, where N is the total count.
+ * Next to the sketch a candidate set of at most K keys remembers which keys currently have the highest estimates.
+ * A key only enters a full candidate set when its estimate exceeds the smallest estimate in the set, so the
+ * candidate maintenance lock is only taken by keys which are about to become heavy hitters.
+ */
+public class HeavyHitters {
+
+    private final int capacity;
+
+    private final int width;
+
+    private final LongAdder[][] cells;
+
+    /** candidate keys, the value is unused */
+    private final Map<String, Boolean> candidates = new ConcurrentHashMap<>();
+
+    /** smallest estimate in a full candidate set, a newcomer has to beat it */
+    private volatile long threshold;
+
+    /**
+     * @param capacity number of heavy hitters to track
+     * @param depth number of sketch rows
+     * @param width number of counters per row, rounded up to a power of two
+     */
+    public HeavyHitters(int capacity, int depth, int width) {
+        this.capacity = capacity;
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.cells = new LongAdder[depth][this.width];
+        for (LongAdder[] row : cells) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new LongAdder();
+            }
+        }
+    }
+
+    public void add(String key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < cells.length; row++) {
+            LongAdder cell = cells[row][index(hash, row)];
+            cell.increment();
+            estimate = Math.min(estimate, cell.sum());
+        }
+
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        if (candidates.size() < capacity || estimate > threshold) {
+            admit(key);
+        }
+    }
+
+    private synchronized void admit(String key) {
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        if (candidates.size() < capacity) {
+            candidates.put(key, Boolean.TRUE);
+            if (candidates.size() == capacity) {
+                threshold = smallest();
+            }
+            return;
+        }
+
+        long estimate = estimate(key);
+        String victim = null;
+        long min = Long.MAX_VALUE;
+        for (String candidate : candidates.keySet()) {
+            long e = estimate(candidate);
+            if (e < min) {
+                min = e;
+                victim = candidate;
+            }
+        }
+        if (estimate > min) {
+            candidates.remove(victim);
+            candidates.put(key, Boolean.TRUE);
+            threshold = smallest();
+        } else {
+            threshold = min;
+        }
+    }
+
+    private long smallest() {
+        long min = Long.MAX_VALUE;
+        for (String candidate : candidates.keySet()) {
+            min = Math.min(min, estimate(candidate));
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * @return estimated count of the key, never lower than the true count
+     */
+    public long estimate(String key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < cells.length; row++) {
+            estimate = Math.min(estimate, cells[row][index(hash, row)].sum());
+        }
+        return estimate;
+    }
+
+    /**
+     * @return estimated counts of the current heavy hitters, at most K entries
+     */
+    public Map<String, Long> top() {
+        Map<String, Long> retval = new HashMap<>();
+        for (String candidate : candidates.keySet()) {
+            retval.put(candidate, estimate(candidate));
+        }
+        return retval;
+    }
+
+    /**
+     * Stop reporting the key, its counts stay in the sketch
+     */
+    public synchronized void remove(String key) {
+        if (candidates.remove(key) != null) {
+            threshold = 0;
+        }
+    }
+
+    public synchronized void clear() {
+        candidates.clear();
+        threshold = 0;
+        for (LongAdder[] row : cells) {
+            for (LongAdder cell : row) {
+                cell.reset();
+            }
+        }
+    }
+
+    private int index(int hash, int row) {
+        return index(hash, row, width);
+    }
+
+    /**
+     * Sketch column of a key hash in the given row
+     *
+     * @param width row width, a power of two
+     */
+    static int index(int hash, int row, int width) {
+        // murmur3 finalizer over the hash salted per row
+        int h = hash ^ (0x9E3779B9 * (row + 1));
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & (width - 1);
+    }
+}
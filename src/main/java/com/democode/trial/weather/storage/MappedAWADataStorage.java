@@ -0,0 +1,231 @@
+package com.democode.trial.weather.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Storage with the current readings in a {@link MappedReadings} file, so that several query processes on one
+ * machine serve the readings of a single collector process without ingesting its traffic themselves.
+ *
+ * The writing storage works like {@link ConcurrentAWADataStorage}: the airport catalogue is an immutable snapshot
+ * in memory, the readings live in the file. A read only storage takes its catalogue from the file and rebuilds it
+ * whenever the writer has added or removed airports; its writes throw {@link UnsupportedOperationException}. It
+ * does not see the writes which would drop radius query results, so its query cache is off, and its history,
+ * freshness and request counters only cover its own process.
+ */
+public class MappedAWADataStorage extends AbstractAWADataStorage implements Closeable {
+
+    private final MappedReadings readings;
+
+    /** current airport catalogue, never modified after publication */
+    private volatile AirportCatalog catalog = new AirportCatalog();
+
+    /** catalogue version of the file the catalogue of a read only storage was built from */
+    private volatile long catalogVersion = -1;
+
+    /** serializes catalogue writers, readers never take it */
+    private final Object catalogLock = new Object();
+
+    public MappedAWADataStorage(MappedReadings readings) {
+        super(readings.isReadOnly() ? new RadiusQueryCache(0) : new RadiusQueryCache());
+        this.readings = readings;
+        if (!readings.isReadOnly()) {
+            // the airports of an existing file
+            catalog.putAll(readings.getAirports());
+        }
+    }
+
+    /**
+     * Map the file named by {@value MappedReadings#FILE_PROPERTY}, for reading only if
+     * {@value MappedReadings#READ_ONLY_PROPERTY} is true. A new file gets {@value MappedReadings#SLOTS_PROPERTY}
+     * slots.
+     */
+    public static MappedAWADataStorage fromSystemProperties() throws IOException {
+        String file = System.getProperty(MappedReadings.FILE_PROPERTY);
+        if (file == null || file.trim().isEmpty()) {
+            throw new IOException("the mapped storage needs the file " + MappedReadings.FILE_PROPERTY);
+        }
+        Path path = Paths.get(file);
+        if (Boolean.getBoolean(MappedReadings.READ_ONLY_PROPERTY)) {
+            return new MappedAWADataStorage(MappedReadings.openReadOnly(path));
+        }
+        return new MappedAWADataStorage(MappedReadings.open(path,
+                Integer.getInteger(MappedReadings.SLOTS_PROPERTY, MappedReadings.DEFAULT_SLOTS)));
+    }
+
+    public boolean isReadOnly() {
+        return readings.isReadOnly();
+    }
+
+    public MappedReadings getReadings() {
+        return readings;
+    }
+
+    /**
+     * @return the current catalogue, a read only storage rebuilds it first if the airports in the file changed
+     */
+    private AirportCatalog catalog() {
+        if (readings.isReadOnly()) {
+            long version = readings.catalogVersion();
+            if (version != catalogVersion) {
+                synchronized (catalogLock) {
+                    if (version != catalogVersion) {
+                        AirportCatalog next = new AirportCatalog();
+                        next.putAll(readings.getAirports());
+                        catalog = next;
+                        catalogVersion = version;
+                    }
+                }
+            }
+        }
+        return catalog;
+    }
+
+    public List<AirportData> getAirportData() {
+        return catalog().getAirports();
+    }
+
+    public List<AtmosphericInformation> getAtmosphericInformation() {
+        return readings.getAll();
+    }
+
+    public AtmosphericInformation getAtmosphericInformation(String iata) {
+        return readings.get(iata);
+    }
+
+    public void updateAtmosphericInformation(String key, AtmosphericInformation aiNew) {
+        if (readings.write(key, aiNew)) {
+            trackFreshness(key, aiNew);
+            untrackIfRemoved(key);
+            invalidateQueries(key);
+        }
+    }
+
+    public boolean updateDataPoint(String iata, DataPointType type, DataPoint dp, long lastUpdateTime) {
+        if (!readings.write(iata, type, dp, lastUpdateTime)) {
+            return false;
+        }
+        freshnessTracker.touch(iata, lastUpdateTime);
+        untrackIfRemoved(iata);
+        invalidateQueries(iata);
+        return true;
+    }
+
+    /**
+     * Untrack an airport removed after its readings were written, the removal may have untracked it before the
+     * writer tracked it. A removal after this check untracks the airport itself.
+     */
+    private void untrackIfRemoved(String iata) {
+        if (catalog.find(iata) == null) {
+            freshnessTracker.remove(iata);
+        }
+    }
+
+    public AirportData addAirport(String iataCode, double latitude, double longitude) {
+        AirportData ad = newAirport(iataCode, latitude, longitude);
+        addAirports(Collections.singletonList(ad));
+        return ad;
+    }
+
+    public AirportData addAirport(AirportData ad) {
+        AirportData adNew = copyAirport(ad);
+        addAirports(Collections.singletonList(adNew));
+        return adNew;
+    }
+
+    /**
+     * Add several airports with a single catalogue copy, the readers see them after a single catalogue version
+     * change
+     *
+     * @throws IllegalStateException if the file has not enough free slots, nothing is added then
+     */
+    public void addAirports(Collection<AirportData> airports) {
+        synchronized (catalogLock) {
+            readings.addAll(airports);
+            List<AirportData> touched = withReplaced(catalog, airports);
+            AirportCatalog next = catalog.copy();
+            next.putAll(airports);
+            for (AirportData ad : airports) {
+                freshnessTracker.remove(ad.getIata());
+            }
+            catalog = next;
+            queryCache.invalidate(touched);
+        }
+    }
+
+    public AirportData findAirportData(String iataCode) {
+        return catalog().find(iataCode);
+    }
+
+    public int getAirportDataIdx(String iataCode) {
+        return catalog().indexOf(iataCode);
+    }
+
+    public List<AirportData> findAirportsInRadius(AirportData center, double radius) {
+        return catalog().findInRadius(center, radius);
+    }
+
+    public void removeAirport(String iata) {
+        synchronized (catalogLock) {
+            readings.remove(iata);
+            AirportData ad = catalog.find(iata);
+            if (ad != null) {
+                AirportCatalog next = catalog.copy();
+                next.remove(iata);
+                catalog = next;
+            }
+            requestCounters.remove(iata);
+            freshnessTracker.remove(iata);
+            history.remove(iata);
+            if (ad != null) {
+                queryCache.invalidate(ad);
+            }
+        }
+    }
+
+    /**
+     * Drop the radius query results around the airport
+     */
+    private void invalidateQueries(String iata) {
+        AirportData ad = catalog.find(iata);
+        if (ad != null) {
+            queryCache.invalidate(ad);
+        }
+    }
+
+    /**
+     * Clear the storage, the file too unless it is mapped for reading only
+     */
+    public void clear() {
+        synchronized (catalogLock) {
+            if (!readings.isReadOnly()) {
+                readings.clear();
+                catalog = new AirportCatalog();
+            }
+            requestCounters.clear();
+            freshnessTracker.clear();
+            history.clear();
+            queryCache.clear();
+        }
+    }
+
+    /**
+     * Write the changes of a writing storage to the file, the mapping itself is released by the garbage collector
+     */
+    @Override
+    public void close() throws IOException {
+        if (!readings.isReadOnly()) {
+            readings.force();
+        }
+    }
+}
@@ -0,0 +1,676 @@
+package com.democode.trial.weather.storage;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Current readings and airport positions in a memory mapped file, written by one process and read by any number
+ * of processes which map the same file.
+ *
+ * Layout, every field a little endian long:
+ * <pre>
+ * header  0 magic "AWAMMAP1", 1 layout version, 2 longs per slot, 3 slot count, 4 catalogue version, 5-7 unused
+ * slot    0 sequence, odd while the slot is written
+ *         1 iata code, up to 8 US-ASCII bytes starting at the low byte, 0 for a free slot
+ *         2 latitude bits
+ *         3 longitude bits
+ *         4 last update time in milliseconds since UTC epoch
+ *         5 bit mask of the data point types present, by ordinal
+ *         6 + 3t mean bits of the data point of type t
+ *         7 + 3t first quartile in the high and second quartile in the low half
+ *         8 + 3t third quartile in the high half and count in the low half
+ * </pre>
+ *
+ * Each slot is a seqlock. The writer makes the sequence odd, stores the fields and makes the sequence even again,
+ * with store fences in between; readers retry until they read the same even sequence before and after the fields,
+ * with load fences in between. Threads of the writing process are serialized per slot by lock stripes. The
+ * catalogue version is bumped after airports are added or removed, readers look their slots up in an index which
+ * they rebuild from the slots when the version has changed. Java 8 has no fences outside of
+ * {@code sun.misc.Unsafe}, so they are looked up reflectively and called through method handles.
+ *
+ * The file has a fixed number of slots, set when it is created. Only the iata code and the position of an airport
+ * are shared, the other airport fields stay with the writer.
+ */
+public class MappedReadings {
+
+    /** system property with the file, the mapped storage needs it */
+    public static final String FILE_PROPERTY = "awa.mmap.file";
+
+    /** system property with the number of slots of a new file */
+    public static final String SLOTS_PROPERTY = "awa.mmap.slots";
+
+    /** system property, true to map the file for reading only */
+    public static final String READ_ONLY_PROPERTY = "awa.mmap.readOnly";
+
+    public static final int DEFAULT_SLOTS = 65536;
+
+    static final long MAGIC = 0x3150414d4d415741L;
+
+    static final long VERSION = 1;
+
+    static final int HEADER_BYTES = 64;
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private static final int SEQUENCE = 0;
+
+    private static final int IATA = 8;
+
+    private static final int LATITUDE = 16;
+
+    private static final int LONGITUDE = 24;
+
+    private static final int UPDATED = 32;
+
+    private static final int PRESENT = 40;
+
+    private static final int POINTS = 48;
+
+    private static final int POINT_BYTES = 24;
+
+    public static final int SLOT_LONGS = POINTS / Long.BYTES + POINT_BYTES / Long.BYTES * TYPES.length;
+
+    static final int SLOT_BYTES = SLOT_LONGS * Long.BYTES;
+
+    private static final int CATALOG_VERSION = 32;
+
+    private static final int STRIPES = 64;
+
+    /** spins on a slot which is being written before yielding */
+    private static final int SPINS = 64;
+
+    private static final long LOW = 0xffffffffL;
+
+    /** Unsafe.storeFence, bound to the Unsafe instance */
+    private static final MethodHandle STORE_FENCE;
+
+    /** Unsafe.loadFence, bound to the Unsafe instance */
+    private static final MethodHandle LOAD_FENCE;
+
+    static {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodType fence = MethodType.methodType(void.class);
+            STORE_FENCE = MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", fence).bindTo(unsafe);
+            LOAD_FENCE = MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", fence).bindTo(unsafe);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Path file;
+
+    private final MappedByteBuffer buffer;
+
+    private final boolean readOnly;
+
+    private final int capacity;
+
+    private final Object[] stripes = new Object[STRIPES];
+
+    /** slots of the airports, kept by the writer */
+    private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+
+    /** slots handed out so far by the writer, free ones included */
+    private int allocated;
+
+    /** slots the writer has freed, reused last in first out */
+    private int[] free = new int[16];
+
+    private int freeCount;
+
+    /** slots of the airports as a reader last saw them */
+    private volatile Index index = new Index(-1, Collections.<String, Integer>emptyMap(),
+            Collections.<AirportData>emptyList());
+
+    private MappedReadings(Path file, MappedByteBuffer buffer, boolean readOnly) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        this.readOnly = readOnly;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getLong(0) != MAGIC) {
+            throw new IOException(file + " is not a mapped readings file");
+        }
+        if (buffer.getLong(8) != VERSION || buffer.getLong(16) != SLOT_LONGS) {
+            throw new IOException("unsupported mapped readings layout " + buffer.getLong(8) + " in " + file);
+        }
+        long slotCount = buffer.getLong(24);
+        if (slotCount < 0 || HEADER_BYTES + slotCount * SLOT_BYTES > buffer.capacity()) {
+            throw new IOException("corrupt mapped readings file " + file + " with " + slotCount + " slots");
+        }
+        capacity = (int) slotCount;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Map the file for writing, it is created with the given number of slots if it does not exist. The airports of
+     * an existing file are kept. Only one process may have the file open for writing.
+     */
+    public static MappedReadings open(Path file, int slots) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            if (created) {
+                if (slots < 1 || slots > (Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES) {
+                    throw new IllegalArgumentException("mapped readings slots must be between 1 and "
+                            + (Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES);
+                }
+            } else if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a mapped readings file");
+            }
+            long size = created ? HEADER_BYTES + (long) slots * SLOT_BYTES : channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (created) {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putLong(8, VERSION);
+                buffer.putLong(16, SLOT_LONGS);
+                buffer.putLong(24, slots);
+                storeFence();
+                // readers check the magic first, so it goes last
+                buffer.putLong(0, MAGIC);
+            }
+            MappedReadings readings = new MappedReadings(file, buffer, false);
+            readings.recover();
+            return readings;
+        }
+    }
+
+    /**
+     * Map the file of a writer for reading
+     *
+     * @throws IOException if the file does not exist or is not a mapped readings file
+     */
+    public static MappedReadings openReadOnly(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a mapped readings file");
+            }
+            return new MappedReadings(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), true);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return number of slots of the file
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of airports with a slot
+     */
+    public int size() {
+        return readOnly ? index().slots.size() : slots.size();
+    }
+
+    /**
+     * @return the version of the airports in the file, changed by every addition and removal
+     */
+    public long catalogVersion() {
+        long version = buffer.getLong(CATALOG_VERSION);
+        loadFence();
+        return version;
+    }
+
+    /**
+     * @return the airports in the file with their iata codes and positions, in slot order
+     */
+    public List<AirportData> getAirports() {
+        return readOnly ? index().airports : scan().airports;
+    }
+
+    /**
+     * Give the airports slots without readings, an airport which has one gets the new position and loses its
+     * readings
+     *
+     * @throws IllegalArgumentException if an iata code can not be stored, nothing is added then
+     * @throws IllegalStateException if the file has not enough free slots, nothing is added then
+     */
+    public synchronized void addAll(Collection<AirportData> airports) {
+        checkWritable();
+        Set<String> added = new HashSet<>();
+        for (AirportData ad : airports) {
+            code(ad.getIata());
+            if (!slots.containsKey(ad.getIata())) {
+                added.add(ad.getIata());
+            }
+        }
+        if (added.size() > freeCount + capacity - allocated) {
+            throw new IllegalStateException("no room for " + added.size() + " airports in " + file + ", "
+                    + (freeCount + capacity - allocated) + " of " + capacity + " slots are free");
+        }
+        for (AirportData ad : airports) {
+            Integer slot = slots.get(ad.getIata());
+            if (slot == null) {
+                slot = freeCount > 0 ? free[--freeCount] : allocated++;
+            }
+            int base = offset(slot);
+            synchronized (stripe(slot)) {
+                lock(base);
+                for (int at = IATA; at < SLOT_BYTES; at += Long.BYTES) {
+                    buffer.putLong(base + at, 0);
+                }
+                buffer.putLong(base + IATA, code(ad.getIata()));
+                buffer.putLong(base + LATITUDE, Double.doubleToRawLongBits(ad.getLatitude()));
+                buffer.putLong(base + LONGITUDE, Double.doubleToRawLongBits(ad.getLongitude()));
+                unlock(base);
+            }
+            slots.put(ad.getIata(), slot);
+        }
+        bumpCatalogVersion();
+    }
+
+    /**
+     * Drop the airport and its readings
+     *
+     * @return true if the airport had a slot
+     */
+    public synchronized boolean remove(String iata) {
+        checkWritable();
+        Integer slot = slots.remove(iata);
+        if (slot == null) {
+            return false;
+        }
+        clearSlot(slot);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = slot;
+        bumpCatalogVersion();
+        return true;
+    }
+
+    public synchronized void clear() {
+        checkWritable();
+        for (Integer slot : slots.values()) {
+            clearSlot(slot);
+        }
+        slots.clear();
+        allocated = 0;
+        freeCount = 0;
+        bumpCatalogVersion();
+    }
+
+    /**
+     * @return the readings of the airport, null if it has no slot
+     */
+    public AtmosphericInformation get(String iata) {
+        Integer slot = readOnly ? index().slots.get(iata) : slots.get(iata);
+        if (slot == null) {
+            return null;
+        }
+        return read(slot, code(iata));
+    }
+
+    /**
+     * @return the readings of all airports
+     */
+    public List<AtmosphericInformation> getAll() {
+        Map<String, Integer> current = readOnly ? index().slots : slots;
+        List<AtmosphericInformation> retval = new ArrayList<>(current.size());
+        for (Map.Entry<String, Integer> entry : current.entrySet()) {
+            AtmosphericInformation ai = read(entry.getValue(), code(entry.getKey()));
+            if (ai != null) {
+                retval.add(ai);
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Replace all readings of the airport with the given record
+     *
+     * @return false if the airport has no slot
+     */
+    public boolean write(String iata, AtmosphericInformation ai) {
+        checkWritable();
+        Integer slot = slots.get(iata);
+        if (slot == null) {
+            return false;
+        }
+        int base = offset(slot);
+        synchronized (stripe(slot)) {
+            // the airport may have been removed since its slot was looked up
+            if (buffer.getLong(base + IATA) != code(iata)) {
+                return false;
+            }
+            lock(base);
+            long present = 0;
+            for (DataPointType type : TYPES) {
+                DataPoint dp = ai.getDataPoint(type);
+                if (dp != null) {
+                    pack(base, type, dp);
+                    present |= 1L << type.ordinal();
+                }
+            }
+            buffer.putLong(base + PRESENT, present);
+            buffer.putLong(base + UPDATED, ai.getLastUpdateTime());
+            unlock(base);
+        }
+        return true;
+    }
+
+    /**
+     * Set the data point of one type and the last update time of the airport, the other readings stay
+     *
+     * @return false if the airport has no slot
+     */
+    public boolean write(String iata, DataPointType type, DataPoint dp, long lastUpdateTime) {
+        checkWritable();
+        Integer slot = slots.get(iata);
+        if (slot == null) {
+            return false;
+        }
+        int base = offset(slot);
+        synchronized (stripe(slot)) {
+            if (buffer.getLong(base + IATA) != code(iata)) {
+                return false;
+            }
+            lock(base);
+            pack(base, type, dp);
+            buffer.putLong(base + PRESENT, buffer.getLong(base + PRESENT) | 1L << type.ordinal());
+            buffer.putLong(base + UPDATED, lastUpdateTime);
+            unlock(base);
+        }
+        return true;
+    }
+
+    /**
+     * Write the changes to the file, the readers see them without it
+     */
+    public void force() {
+        checkWritable();
+        buffer.force();
+    }
+
+    /**
+     * Find the airports of an existing file and the free slots between them. A writer which died while writing a
+     * slot left its sequence odd, it is made even first, otherwise readers would wait for the slot forever.
+     */
+    private synchronized void recover() {
+        boolean repaired = false;
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = offset(slot);
+            long sequence = buffer.getLong(base + SEQUENCE);
+            if ((sequence & 1) != 0) {
+                buffer.putLong(base + SEQUENCE, sequence + 1);
+                repaired = true;
+            }
+        }
+        if (repaired) {
+            // readers rebuild their index in case an airport was added or removed halfway
+            bumpCatalogVersion();
+        }
+        Index found = scan();
+        slots.putAll(found.slots);
+        for (Integer slot : found.slots.values()) {
+            allocated = Math.max(allocated, slot + 1);
+        }
+        for (int slot = allocated - 1; slot >= 0; slot--) {
+            if (buffer.getLong(offset(slot) + IATA) == 0) {
+                if (freeCount == free.length) {
+                    free = Arrays.copyOf(free, freeCount * 2);
+                }
+                free[freeCount++] = slot;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the current catalogue version, rebuilt if the writer has changed the airports
+     */
+    private Index index() {
+        Index current = index;
+        if (current.version == catalogVersion()) {
+            return current;
+        }
+        synchronized (this) {
+            current = index;
+            if (current.version != catalogVersion()) {
+                current = scan();
+                index = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Read the airports of all slots, repeated until the catalogue version is the same before and after
+     */
+    private Index scan() {
+        for (;;) {
+            long version = catalogVersion();
+            Map<String, Integer> found = new HashMap<>();
+            List<AirportData> airports = new ArrayList<>();
+            long[] position = new long[3];
+            for (int slot = 0; slot < capacity; slot++) {
+                readPosition(offset(slot), position);
+                if (position[0] != 0) {
+                    String iata = iata(position[0]);
+                    found.put(iata, slot);
+                    airports.add(AbstractAWADataStorage.newAirport(iata, Double.longBitsToDouble(position[1]),
+                            Double.longBitsToDouble(position[2])));
+                }
+            }
+            if (catalogVersion() == version) {
+                return new Index(version, found, Collections.unmodifiableList(airports));
+            }
+        }
+    }
+
+    private void readPosition(int base, long[] position) {
+        for (int spins = 0;; spins++) {
+            long sequence = buffer.getLong(base + SEQUENCE);
+            loadFence();
+            if ((sequence & 1) == 0) {
+                position[0] = buffer.getLong(base + IATA);
+                position[1] = buffer.getLong(base + LATITUDE);
+                position[2] = buffer.getLong(base + LONGITUDE);
+                loadFence();
+                if (buffer.getLong(base + SEQUENCE) == sequence) {
+                    return;
+                }
+            }
+            if (spins > SPINS) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * @return a consistent view of the slot, null if it does not hold the airport with the given code
+     */
+    private AtmosphericInformation read(int slot, long code) {
+        int base = offset(slot);
+        for (int spins = 0;; spins++) {
+            long sequence = buffer.getLong(base + SEQUENCE);
+            loadFence();
+            if ((sequence & 1) == 0) {
+                boolean held = buffer.getLong(base + IATA) == code;
+                AtmosphericInformation ai = held ? unpack(base) : null;
+                loadFence();
+                if (buffer.getLong(base + SEQUENCE) == sequence) {
+                    return ai;
+                }
+            }
+            if (spins > SPINS) {
+                Thread.yield();
+            }
+        }
+    }
+
+    private AtmosphericInformation unpack(int base) {
+        AtmosphericInformation ai = new AtmosphericInformation();
+        long present = buffer.getLong(base + PRESENT);
+        for (DataPointType type : TYPES) {
+            if ((present & 1L << type.ordinal()) != 0) {
+                int at = base + POINTS + POINT_BYTES * type.ordinal();
+                long quartiles = buffer.getLong(at + 8);
+                long rest = buffer.getLong(at + 16);
+                DataPoint dp = new DataPoint();
+                dp.setMean(Double.longBitsToDouble(buffer.getLong(at)));
+                dp.setFirst((int) (quartiles >> 32));
+                dp.setSecond((int) quartiles);
+                dp.setThird((int) (rest >> 32));
+                dp.setCount((int) rest);
+                ai.setDataPoint(type, dp);
+            }
+        }
+        ai.setLastUpdateTime(buffer.getLong(base + UPDATED));
+        return ai;
+    }
+
+    private void pack(int base, DataPointType type, DataPoint dp) {
+        int at = base + POINTS + POINT_BYTES * type.ordinal();
+        buffer.putLong(at, Double.doubleToRawLongBits(dp.getMean()));
+        buffer.putLong(at + 8, (long) dp.getFirst() << 32 | dp.getSecond() & LOW);
+        buffer.putLong(at + 16, (long) dp.getThird() << 32 | dp.getCount() & LOW);
+    }
+
+    /**
+     * Make the sequence of a slot odd, called with its stripe held
+     */
+    private void lock(int base) {
+        buffer.putLong(base + SEQUENCE, buffer.getLong(base + SEQUENCE) + 1 | 1);
+        storeFence();
+    }
+
+    /**
+     * Make the sequence of a slot even again once its fields are stored
+     */
+    private void unlock(int base) {
+        storeFence();
+        buffer.putLong(base + SEQUENCE, buffer.getLong(base + SEQUENCE) + 1);
+    }
+
+    private void clearSlot(int slot) {
+        int base = offset(slot);
+        synchronized (stripe(slot)) {
+            lock(base);
+            for (int at = IATA; at < SLOT_BYTES; at += Long.BYTES) {
+                buffer.putLong(base + at, 0);
+            }
+            unlock(base);
+        }
+    }
+
+    private void bumpCatalogVersion() {
+        storeFence();
+        buffer.putLong(CATALOG_VERSION, buffer.getLong(CATALOG_VERSION) + 1);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException(file + " is mapped for reading only");
+        }
+    }
+
+    private Object stripe(int slot) {
+        return stripes[slot % STRIPES];
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * @return the iata code packed into a long
+     * @throws IllegalArgumentException if the code is empty, longer than 8 characters or not US-ASCII
+     */
+    static long code(String iata) {
+        if (iata == null || iata.isEmpty() || iata.length() > Long.BYTES) {
+            throw new IllegalArgumentException("mapped readings take iata codes of 1 to 8 characters: " + iata);
+        }
+        long code = 0;
+        for (int i = 0; i < iata.length(); i++) {
+            char c = iata.charAt(i);
+            if (c == 0 || c > 127) {
+                throw new IllegalArgumentException("mapped readings take US-ASCII iata codes: " + iata);
+            }
+            code |= (long) c << 8 * i;
+        }
+        return code;
+    }
+
+    static String iata(long code) {
+        StringBuilder sb = new StringBuilder(Long.BYTES);
+        for (; code != 0; code >>>= 8) {
+            sb.append((char) (code & 0xff));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Keep the stores before from being reordered with the stores after
+     */
+    private static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keep the loads before from being reordered with the loads and stores after
+     */
+    private static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Index {
+
+        final long version;
+
+        final Map<String, Integer> slots;
+
+        final List<AirportData> airports;
+
+        Index(long version, Map<String, Integer> slots, List<AirportData> airports) {
+            this.version = version;
+            this.slots = slots;
+            this.airports = airports;
+        }
+    }
+}
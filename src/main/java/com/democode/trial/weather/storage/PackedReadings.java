@@ -0,0 +1,434 @@
+package com.democode.trial.weather.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Current readings of the airports packed into primitive records instead of {@link AtmosphericInformation} and
+ * {@link DataPoint} objects. Every airport owns a fixed slot holding an immutable record of {@value #SLOT_LONGS}
+ * longs:
+ *
+ * <pre>
+ * 0      last update time in milliseconds since UTC epoch
+ * 1      bit mask of the data point types present, by ordinal
+ * 2 + 3t mean bits of the data point of type t
+ * 3 + 3t first quartile in the high and second quartile in the low half
+ * 4 + 3t third quartile in the high half and count in the low half
+ * </pre>
+ *
+ * Slots are assigned on {@link #add(String)} and reused after {@link #remove(String)}; pages of
+ * {@value #PAGE_SLOTS} slots are added as needed and never move, so readers need no lock. A record is never
+ * modified once published: writers copy the current one, change the copy and swap it in with a compare and set,
+ * starting over if another writer came first. A reader therefore always gets a whole record in one read, and
+ * writers of one airport never wait for each other, they only repeat their copy when they collide.
+ *
+ * A record names the airport it belongs to, so a reader or writer which found the slot of an airport just before
+ * the slot went to another airport notices it. Every {@link #add(String)} publishes a new record, so a writer
+ * still holding the record of a removed airport can not swap its copy into the slot.
+ *
+ * {@link #get(String)} unpacks a new {@link AtmosphericInformation} which the caller owns. {@link #view(String)}
+ * returns a read only view of the record instead, which unpacks a data point only when it is asked for; the views
+ * of one record share its JSON encoding, made with the first {@link AtmosphericInformation#toJson()} and kept
+ * until the record is replaced, so that radius queries neither copy the readings nor encode them again.
+ */
+public class PackedReadings {
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private static final int UPDATED = 0;
+
+    private static final int PRESENT = 1;
+
+    private static final int POINTS = 2;
+
+    private static final int POINT_LONGS = 3;
+
+    public static final int SLOT_LONGS = POINTS + POINT_LONGS * TYPES.length;
+
+    /** estimated heap of a record with its fields, without the encoding */
+    public static final int RECORD_BYTES = 24 + 16 + SLOT_LONGS * Long.BYTES;
+
+    private static final int PAGE_SHIFT = 10;
+
+    public static final int PAGE_SLOTS = 1 << PAGE_SHIFT;
+
+    private static final long LOW = 0xffffffffL;
+
+    /** fields of an airport without readings, shared by their records */
+    private static final long[] EMPTY = new long[SLOT_LONGS];
+
+    /** slot of every airport */
+    private final ConcurrentMap<String, Integer> slots = new ConcurrentHashMap<>();
+
+    /** pages in slot order, replaced by a longer copy when a page is added */
+    private volatile Page[] pages = new Page[0];
+
+    /** slots handed out so far, free ones included */
+    private int allocated;
+
+    /** released slots, reused last in first out */
+    private int[] free = new int[16];
+
+    private int freeCount;
+
+    /**
+     * @return number of airports with a slot
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    public boolean contains(String iata) {
+        return slots.containsKey(iata);
+    }
+
+    /**
+     * Give the airport a slot without readings, the readings of an airport which has one are dropped
+     */
+    public synchronized void add(String iata) {
+        Integer slot = slots.get(iata);
+        if (slot == null) {
+            slot = freeCount > 0 ? free[--freeCount] : allocate();
+            // the record is published before the airport, readers never find the slot empty
+            page(slot).set(index(slot), new Record(iata, EMPTY));
+            slots.put(iata, slot);
+        } else {
+            page(slot).set(index(slot), new Record(iata, EMPTY));
+        }
+    }
+
+    /**
+     * Drop the airport and its readings
+     *
+     * @return true if the airport had a slot
+     */
+    public synchronized boolean remove(String iata) {
+        Integer slot = slots.remove(iata);
+        if (slot == null) {
+            return false;
+        }
+        page(slot).set(index(slot), null);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = slot;
+        return true;
+    }
+
+    public synchronized void clear() {
+        for (String iata : new ArrayList<>(slots.keySet())) {
+            remove(iata);
+        }
+    }
+
+    /**
+     * @return the readings of the airport, null if it has no slot
+     */
+    public AtmosphericInformation get(String iata) {
+        Record record = record(iata);
+        return record == null ? null : unpack(record.fields);
+    }
+
+    /**
+     * @return read only view of the readings of the airport, null if it has no slot or no data point
+     */
+    public AtmosphericInformation view(String iata) {
+        Record record = record(iata);
+        return record == null || record.fields[PRESENT] == 0 ? null : new View(record);
+    }
+
+    private Record record(String iata) {
+        for (;;) {
+            Integer slot = slots.get(iata);
+            if (slot == null) {
+                return null;
+            }
+            Record record = page(slot).get(index(slot));
+            // the slot may have been reused for another airport before it was read
+            if (record != null && record.iata.equals(iata)) {
+                return record;
+            }
+        }
+    }
+
+    /**
+     * @return the readings of all airports
+     */
+    public List<AtmosphericInformation> getAll() {
+        List<AtmosphericInformation> retval = new ArrayList<>(slots.size());
+        for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+            Integer slot = entry.getValue();
+            Record record = page(slot).get(index(slot));
+            if (record != null && record.iata.equals(entry.getKey())) {
+                retval.add(unpack(record.fields));
+            }
+        }
+        return retval;
+    }
+
+    /**
+     * Replace all readings of the airport with the given record
+     *
+     * @return false if the airport has no slot
+     */
+    public boolean write(String iata, AtmosphericInformation ai) {
+        long[] next = new long[SLOT_LONGS];
+        long present = 0;
+        for (DataPointType type : TYPES) {
+            DataPoint dp = ai.getDataPoint(type);
+            if (dp != null) {
+                pack(next, type, dp);
+                present |= 1L << type.ordinal();
+            }
+        }
+        next[PRESENT] = present;
+        next[UPDATED] = ai.getLastUpdateTime();
+        Record record = new Record(iata, next);
+
+        for (;;) {
+            Integer slot = slots.get(iata);
+            if (slot == null) {
+                return false;
+            }
+            Page page = page(slot);
+            int index = index(slot);
+            Record current = page.get(index);
+            if (current != null && current.iata.equals(iata) && page.compareAndSet(index, current, record)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Set the data point of one type and the last update time of the airport, the other readings stay
+     *
+     * @return false if the airport has no slot
+     */
+    public boolean write(String iata, DataPointType type, DataPoint dp, long lastUpdateTime) {
+        for (;;) {
+            Integer slot = slots.get(iata);
+            if (slot == null) {
+                return false;
+            }
+            Page page = page(slot);
+            int index = index(slot);
+            Record current = page.get(index);
+            // the record read must still be the one of this airport, the swap fails if it was replaced since
+            if (current == null || !current.iata.equals(iata)) {
+                continue;
+            }
+            long[] next = current.fields.clone();
+            pack(next, type, dp);
+            next[PRESENT] |= 1L << type.ordinal();
+            next[UPDATED] = lastUpdateTime;
+            if (page.compareAndSet(index, current, new Record(iata, next))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return estimated bytes held by the slot pages and the records of the airports, without their encodings
+     */
+    public long sizeInBytes() {
+        return (long) pages.length * PAGE_SLOTS * Integer.BYTES + (long) slots.size() * RECORD_BYTES;
+    }
+
+    private int allocate() {
+        int slot = allocated++;
+        Page[] current = pages;
+        if (slot >> PAGE_SHIFT == current.length) {
+            Page[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = new Page();
+            pages = next;
+        }
+        return slot;
+    }
+
+    private static void pack(long[] record, DataPointType type, DataPoint dp) {
+        int at = POINTS + POINT_LONGS * type.ordinal();
+        record[at] = Double.doubleToRawLongBits(dp.getMean());
+        record[at + 1] = (long) dp.getFirst() << 32 | dp.getSecond() & LOW;
+        record[at + 2] = (long) dp.getThird() << 32 | dp.getCount() & LOW;
+    }
+
+    private static AtmosphericInformation unpack(long[] record) {
+        AtmosphericInformation ai = new AtmosphericInformation();
+        for (DataPointType type : TYPES) {
+            DataPoint dp = unpack(record, type);
+            if (dp != null) {
+                ai.setDataPoint(type, dp);
+            }
+        }
+        ai.setLastUpdateTime(record[UPDATED]);
+        return ai;
+    }
+
+    /**
+     * @return the data point of the given type, null if the record has none
+     */
+    private static DataPoint unpack(long[] record, DataPointType type) {
+        if ((record[PRESENT] & 1L << type.ordinal()) == 0) {
+            return null;
+        }
+        int at = POINTS + POINT_LONGS * type.ordinal();
+        long quartiles = record[at + 1];
+        long rest = record[at + 2];
+        DataPoint dp = new DataPoint();
+        dp.setMean(Double.longBitsToDouble(record[at]));
+        dp.setFirst((int) (quartiles >> 32));
+        dp.setSecond((int) quartiles);
+        dp.setThird((int) (rest >> 32));
+        dp.setCount((int) rest);
+        return dp;
+    }
+
+    private Page page(int slot) {
+        return pages[slot >> PAGE_SHIFT];
+    }
+
+    private static int index(int slot) {
+        return slot & PAGE_SLOTS - 1;
+    }
+
+    /**
+     * Records of {@value #PAGE_SLOTS} consecutive slots, null for a free slot
+     */
+    @SuppressWarnings("serial")
+    private static final class Page extends AtomicReferenceArray<Record> {
+
+        Page() {
+            super(PAGE_SLOTS);
+        }
+    }
+
+    /**
+     * Immutable readings of an airport, replaced as a whole by every write
+     */
+    private static final class Record {
+
+        /** the airport owning the slot when the record was published */
+        final String iata;
+
+        final long[] fields;
+
+        /** JSON of the record, made by the first view asked for it */
+        volatile byte[] json;
+
+        Record(String iata, long[] fields) {
+            this.iata = iata;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Read only view of a record, every getter unpacks a new data point
+     */
+    private static final class View extends AtmosphericInformation {
+
+        private final transient Record record;
+
+        View(Record record) {
+            this.record = record;
+        }
+
+        @Override
+        public DataPoint getTemperature() {
+            return unpack(record.fields, DataPointType.TEMPERATURE);
+        }
+
+        @Override
+        public DataPoint getWind() {
+            return unpack(record.fields, DataPointType.WIND);
+        }
+
+        @Override
+        public DataPoint getHumidity() {
+            return unpack(record.fields, DataPointType.HUMIDTY);
+        }
+
+        @Override
+        public DataPoint getPrecipitation() {
+            return unpack(record.fields, DataPointType.PRECIPITATION);
+        }
+
+        @Override
+        public DataPoint getPressure() {
+            return unpack(record.fields, DataPointType.PRESSURE);
+        }
+
+        @Override
+        public DataPoint getCloudCover() {
+            return unpack(record.fields, DataPointType.CLOUDCOVER);
+        }
+
+        @Override
+        public long getLastUpdateTime() {
+            return record.fields[UPDATED];
+        }
+
+        @Override
+        public DataPoint getDataPoint(DataPointType type) {
+            return unpack(record.fields, type);
+        }
+
+        @Override
+        public void setTemperature(DataPoint temperature) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setWind(DataPoint wind) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHumidity(DataPoint humidity) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPrecipitation(DataPoint precipitation) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPressure(DataPoint pressure) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCloudCover(DataPoint cloudCover) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLastUpdateTime(long lastUpdateTime) {
+            throw readOnly();
+        }
+
+        @Override
+        public byte[] toJson() {
+            byte[] json = record.json;
+            if (json == null) {
+                // views racing on a new record encode the same bytes
+                json = encode();
+                record.json = json;
+            }
+            return json;
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("the readings of a query are read only");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.democode.trial.weather.storage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of query radii over fixed logarithmic buckets in a 1-2-5 series. Bucket i counts the radii in
+ * [UPPER_BOUNDS[i-1], UPPER_BOUNDS[i]), bucket 0 counts radius 0 (single airport queries) and the last bucket
+ * everything from 20000 km on. Memory does not depend on the radii seen.
+ */
+public class RadiusHistogram {
+
+    /** exclusive upper bound of each bucket in KM */
+    public static final double[] UPPER_BOUNDS = {
+        Double.MIN_VALUE, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, Double.POSITIVE_INFINITY
+    };
+
+    private final LongAdder[] counts = new LongAdder[UPPER_BOUNDS.length];
+
+    public RadiusHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(double radius) {
+        counts[bucket(radius)].increment();
+    }
+
+    public static int bucket(double radius) {
+        if (!(radius > 0)) {
+            return 0;
+        }
+        for (int i = 1; i < UPPER_BOUNDS.length; i++) {
+            if (radius < UPPER_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return UPPER_BOUNDS.length - 1;
+    }
+
+    /**
+     * @return count per bucket, always {@link #UPPER_BOUNDS} long
+     */
+    public long[] getCounts() {
+        long[] retval = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            retval[i] = counts[i].sum();
+        }
+        return retval;
+    }
+
+    public void clear() {
+        for (LongAdder count : counts) {
+            count.reset();
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.democode.trial.weather.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+
+/**
+ * Bounded cache of radius query results, keyed by the center airport and the exact radius.
+ *
+ * Hits are lock free: a concurrent map lookup, a reference bit and striped counters. Entries are replaced with
+ * the CLOCK approximation of LRU, and a new result is only admitted if it was asked for more often than the
+ * victim, as counted by a small Count-Min sketch which halves its counts every {@value #SAMPLE_FACTOR} times the
+ * capacity lookups (TinyLFU admission). One-off queries therefore do not push out the few popular ones.
+ *
+ * A write to the readings of an airport, its addition or removal drops exactly the entries whose circle contains
+ * the airport, found through a coarse grid of {@value #CELL_DEGREES} degree cells holding the entries overlapping
+ * them and the same distance check as the spatial query. Registering an entry in a handful of cells is much
+ * cheaper than indexing every airport inside the circle. A result is computed in two steps so that it never misses
+ * a write: {@link #reserve} before the spatial query, {@link #put} after reading the readings, or {@link #cancel}
+ * if the query failed. A write touching the entry in between drops it, then the result is returned but not cached.
+ *
+ * The size is set with the system property {@value #SIZE_PROPERTY}, 0 disables the cache.
+ */
+public class RadiusQueryCache {
+
+    /** system property with the maximum number of cached results */
+    public static final String SIZE_PROPERTY = "awa.query.cache.size";
+
+    public static final int DEFAULT_SIZE = 1024;
+
+    /** estimated bytes of an entry without its result and cells */
+    static final int ENTRY_BYTES = 128;
+
+    /** estimated bytes per grid cell of an entry, its array slot and cell set node */
+    static final int CELL_BYTES = 48;
+
+    /** size of the grid cells in degrees */
+    static final int CELL_DEGREES = 10;
+
+    private static final int ROWS = 180 / CELL_DEGREES;
+
+    private static final int COLS = 360 / CELL_DEGREES;
+
+    /** lookups between halvings of the sketch, per entry of capacity */
+    private static final int SAMPLE_FACTOR = 10;
+
+    private static final int SKETCH_DEPTH = 4;
+
+    /** above this number of distance checks a bulk airport import drops all entries */
+    private static final long MAX_ADD_CHECKS = 1000000;
+
+    private final int capacity;
+
+    /** published entries */
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /** entries per grid cell overlapping their circle, read without the lock, the sets are modified under it */
+    private final ConcurrentMap<Integer, Set<Entry>> byCell = new ConcurrentHashMap<>();
+
+    /** reserved and published entries */
+    private final Set<Entry> live = new HashSet<>();
+
+    /** published entries by slot, swept by the clock hand */
+    private final Entry[] clock;
+
+    private int hand;
+
+    /** racy counters, a lost increment only makes a frequency a little lower */
+    private final int[] sketch;
+
+    private final int sketchWidth;
+
+    private int sketchAdditions;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private volatile long bytes;
+
+    public RadiusQueryCache() {
+        this(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE));
+    }
+
+    public RadiusQueryCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("query cache size must not be negative");
+        }
+        this.capacity = capacity;
+        this.clock = new Entry[capacity];
+        this.sketchWidth = Integer.highestOneBit(Math.max(16, capacity * 4) - 1) << 1;
+        this.sketch = new int[SKETCH_DEPTH * sketchWidth];
+    }
+
+    /**
+     * @return the cached result or null on a miss
+     */
+    public List<AtmosphericInformation> get(String iata, double radius) {
+        if (capacity == 0) {
+            return null;
+        }
+        Key key = new Key(iata, radius);
+        increment(key.hashCode());
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.result;
+    }
+
+    /**
+     * Start computing a result, before the spatial query. Once the cache is full, a query asked for the first time
+     * is not reserved, it would hardly ever be admitted.
+     *
+     * @return the entry to cover and put, null if the result will not be cached
+     */
+    public Entry reserve(AirportData center, double radius) {
+        if (capacity == 0) {
+            return null;
+        }
+        Key key = new Key(center.getIata(), radius);
+        if (entries.size() >= capacity && frequency(key.hashCode()) <= 1) {
+            rejections.increment();
+            return null;
+        }
+        Entry entry = new Entry(key, center.getLatitude(), center.getLongitude(), radius);
+        synchronized (this) {
+            live.add(entry);
+            for (int cell : entry.cells) {
+                Set<Entry> set = byCell.get(cell);
+                if (set == null) {
+                    set = new HashSet<>();
+                    byCell.put(cell, set);
+                }
+                set.add(entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Cache the result of a reserved entry unless a write dropped it or it is asked for less than the entry it
+     * would replace
+     */
+    public synchronized void put(Entry entry, List<AtmosphericInformation> result) {
+        if (entry == null || !entry.valid) {
+            return;
+        }
+        entry.result = Collections.unmodifiableList(new ArrayList<>(result));
+        entry.bytes = ENTRY_BYTES + 8L * result.size() + (long) CELL_BYTES * entry.cells.length;
+        Entry previous = entries.get(entry.key);
+        if (previous != null) {
+            remove(previous);
+        }
+        int slot = entries.size() < capacity ? freeSlot() : victimSlot();
+        Entry victim = clock[slot];
+        if (victim != null) {
+            if (frequency(entry.key.hashCode()) <= frequency(victim.key.hashCode())) {
+                rejections.increment();
+                remove(entry);
+                return;
+            }
+            evictions.increment();
+            remove(victim);
+        }
+        entry.slot = slot;
+        clock[slot] = entry;
+        entries.put(entry.key, entry);
+        bytes += entry.bytes;
+    }
+
+    /**
+     * Drop a reserved entry whose result will not be put, e.g. because the query failed
+     */
+    public synchronized void cancel(Entry entry) {
+        if (entry != null && entry.slot < 0) {
+            remove(entry);
+        }
+    }
+
+    private int freeSlot() {
+        for (int i = 0; i < capacity; i++) {
+            int slot = (hand + i) % capacity;
+            if (clock[slot] == null) {
+                return slot;
+            }
+        }
+        throw new IllegalStateException("no free slot in a cache which is not full");
+    }
+
+    /**
+     * @return slot of the first entry without its reference bit, clearing the bits passed over
+     */
+    private int victimSlot() {
+        while (true) {
+            Entry entry = clock[hand];
+            int slot = hand;
+            hand = (hand + 1) % capacity;
+            if (!entry.referenced) {
+                return slot;
+            }
+            entry.referenced = false;
+        }
+    }
+
+    /**
+     * Drop the results whose circle contains the airport, after its readings have been written, it has been added
+     * or removed
+     */
+    public void invalidate(AirportData ad) {
+        if (!byCell.containsKey(cell(ad.getLatitude(), ad.getLongitude()))) {
+            return;
+        }
+        synchronized (this) {
+            drop(ad);
+        }
+    }
+
+    /**
+     * Drop the results whose circle contains one of the airports. A bulk import which would take more than a
+     * million distance checks drops all results instead.
+     */
+    public void invalidate(Collection<AirportData> airports) {
+        if (capacity == 0 || airports.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (live.isEmpty()) {
+                return;
+            }
+            if ((long) live.size() * airports.size() > MAX_ADD_CHECKS) {
+                for (Entry entry : new ArrayList<>(live)) {
+                    invalidations.increment();
+                    remove(entry);
+                }
+                return;
+            }
+            for (AirportData ad : airports) {
+                drop(ad);
+            }
+        }
+    }
+
+    private void drop(AirportData ad) {
+        Set<Entry> set = byCell.get(cell(ad.getLatitude(), ad.getLongitude()));
+        if (set == null) {
+            return;
+        }
+        for (Entry entry : new ArrayList<>(set)) {
+            if (entry.contains(ad)) {
+                invalidations.increment();
+                remove(entry);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (!entry.valid) {
+            return;
+        }
+        entry.valid = false;
+        live.remove(entry);
+        if (entry.slot >= 0) {
+            clock[entry.slot] = null;
+            entries.remove(entry.key, entry);
+            bytes -= entry.bytes;
+        }
+        for (int cell : entry.cells) {
+            Set<Entry> set = byCell.get(cell);
+            if (set != null && set.remove(entry) && set.isEmpty()) {
+                byCell.remove(cell);
+            }
+        }
+    }
+
+    private static int cell(double latitude, double longitude) {
+        int row = Math.min(ROWS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+        int col = Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), COLS);
+        return row * COLS + col;
+    }
+
+    /**
+     * @return the grid cells overlapping the bounding box of the circle, as {@link GeoGridIndex} computes it
+     */
+    static int[] cells(double latitude, double longitude, double radius) {
+        if (radius < 0) {
+            return new int[0];
+        }
+        double angular = radius / GeoMath.EARTH_RADIUS;
+        double latMin = Math.max(-90, latitude - Math.toDegrees(angular));
+        double latMax = Math.min(90, latitude + Math.toDegrees(angular));
+        int rowMin = Math.min(ROWS - 1, (int) Math.floor((latMin + 90) / CELL_DEGREES));
+        int rowMax = Math.min(ROWS - 1, (int) Math.floor((latMax + 90) / CELL_DEGREES));
+
+        int colMin;
+        int colCount;
+        if (latMin <= -90 || latMax >= 90 || angular >= Math.PI / 2) {
+            // the circle contains a pole, every meridian crosses it
+            colMin = 0;
+            colCount = COLS;
+        } else {
+            double deltaLon = Math.toDegrees(Math.asin(Math.sin(angular) / Math.cos(Math.toRadians(latitude))));
+            int first = (int) Math.floor((longitude - deltaLon + 180) / CELL_DEGREES);
+            int last = (int) Math.floor((longitude + deltaLon + 180) / CELL_DEGREES);
+            colMin = Math.floorMod(first, COLS);
+            colCount = Math.min(COLS, last - first + 1);
+        }
+
+        int[] cells = new int[(rowMax - rowMin + 1) * colCount];
+        int i = 0;
+        for (int r = rowMin; r <= rowMax; r++) {
+            for (int c = 0; c < colCount; c++) {
+                cells[i++] = r * COLS + (colMin + c) % COLS;
+            }
+        }
+        return cells;
+    }
+
+    private void increment(int hash) {
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            sketch[row * sketchWidth + HeavyHitters.index(hash, row, sketchWidth)]++;
+        }
+        if (++sketchAdditions >= SAMPLE_FACTOR * capacity) {
+            // age the counts so that former favourites make room
+            sketchAdditions = 0;
+            for (int i = 0; i < sketch.length; i++) {
+                sketch[i] >>>= 1;
+            }
+        }
+    }
+
+    private int frequency(int hash) {
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            frequency = Math.min(frequency, sketch[row * sketchWidth + HeavyHitters.index(hash, row, sketchWidth)]);
+        }
+        return frequency;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return hits of all lookups, 0 before the first lookup
+     */
+    public double getHitRatio() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /** results replaced by a more frequent one */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * results not cached because they were asked for less than the entry they would replace or for the first time
+     * with a full cache
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /** results dropped by a write */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return estimated bytes of the cached entries, their results and cells, not counting the readings
+     *         which the storage holds anyway
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : new ArrayList<>(live)) {
+            remove(entry);
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        rejections.reset();
+        invalidations.reset();
+        for (int i = 0; i < sketch.length; i++) {
+            sketch[i] = 0;
+        }
+    }
+
+    private static final class Key {
+
+        private final String iata;
+
+        private final double radius;
+
+        Key(String iata, double radius) {
+            this.iata = iata;
+            this.radius = radius;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return iata.equals(that.iata) && Double.compare(radius, that.radius) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * iata.hashCode() + Double.hashCode(radius);
+        }
+    }
+
+    /**
+     * A result being computed or cached
+     */
+    public static final class Entry {
+
+        private final Key key;
+
+        private final double latitude;
+
+        private final double longitude;
+
+        private final double radius;
+
+        /** grid cells overlapping the circle */
+        private final int[] cells;
+
+        /** guarded by the cache, false once dropped */
+        private boolean valid = true;
+
+        /** guarded by the cache, -1 until published */
+        private int slot = -1;
+
+        private long bytes;
+
+        /** written before the entry is published through the concurrent map */
+        private List<AtmosphericInformation> result;
+
+        private volatile boolean referenced;
+
+        Entry(Key key, double latitude, double longitude, double radius) {
+            this.key = key;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+            this.cells = cells(latitude, longitude, radius);
+        }
+
+        boolean contains(AirportData ad) {
+            return GeoMath.distance(latitude, longitude, ad.getLatitude(), ad.getLongitude()) <= radius;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.democode.trial.weather.storage;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.democode.trial.weather.storage.SlidingWindowCounters.WindowStatistics;
+
+/**
+ * Internal performance counters to better understand the most requested information: queries per airport and
+ * per radius. Memory is fixed no matter how many distinct airports or radii are queried: airports are counted
+ * in a {@link HeavyHitters} sketch reporting the top {@value #TOP_AIRPORTS}, radii in a {@link RadiusHistogram}.
+ * Recording a query is O(1) on striped counters and never copies or locks.
+ *
+ * Besides the lifetime counts the same queries are recorded in {@link SlidingWindowCounters} for statistics of
+ * the last minutes.
+ */
+public class RequestCounters {
+
+    /** number of most requested airports reported */
+    public static final int TOP_AIRPORTS = 32;
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private static final int SKETCH_WIDTH = 1024;
+
+    private final HeavyHitters airports = new HeavyHitters(TOP_AIRPORTS, SKETCH_DEPTH, SKETCH_WIDTH);
+
+    private final RadiusHistogram radii = new RadiusHistogram();
+
+    private final LongAdder total = new LongAdder();
+
+    private final SlidingWindowCounters window;
+
+    public RequestCounters() {
+        this(Clock.systemUTC());
+    }
+
+    public RequestCounters(Clock clock) {
+        window = new SlidingWindowCounters(clock);
+    }
+
+    /**
+     * Record a query
+     *
+     * @param iata the queried airport or null if the airport is not known
+     * @param radius the query radius in KM
+     */
+    public void record(String iata, double radius) {
+        if (iata != null) {
+            airports.add(iata);
+        }
+        radii.record(radius);
+        total.increment();
+        window.record(iata, radius);
+    }
+
+    /**
+     * @return estimated number of queries for the airport, never lower than the true count
+     */
+    public long getCount(String iata) {
+        return airports.estimate(iata);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return estimated queries of the most requested airports
+     */
+    public Map<String, Long> getTopAirports() {
+        return airports.top();
+    }
+
+    /**
+     * @return queries per radius bucket, see {@link RadiusHistogram#UPPER_BOUNDS}
+     */
+    public long[] getRadiusHistogram() {
+        return radii.getCounts();
+    }
+
+    /**
+     * Statistics of the last minutes for the {@value #TOP_AIRPORTS} airports most requested in that window
+     *
+     * @param minutes window length, at most {@value SlidingWindowCounters#BUCKETS}
+     */
+    public WindowStatistics getWindowStatistics(int minutes) {
+        return window.getStatistics(minutes, TOP_AIRPORTS);
+    }
+
+    /**
+     * Stop reporting a removed airport
+     */
+    public void remove(String iata) {
+        airports.remove(iata);
+        window.remove(iata);
+    }
+
+    public void clear() {
+        airports.clear();
+        radii.clear();
+        total.reset();
+        window.clear();
+    }
+}
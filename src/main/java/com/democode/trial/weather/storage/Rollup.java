@@ -0,0 +1,157 @@
+package com.democode.trial.weather.storage;
+
+import com.democode.trial.weather.dto.RollupSeries;
+
+/**
+ * Min, max, mean and count of the sample means of one data point type per time bucket of a fixed resolution, for
+ * the newest buckets up to a maximum number. A bucket without samples takes a slot too, so the slot of a bucket
+ * follows from its number and adding a sample costs a constant time, apart from clearing skipped buckets after a
+ * gap and growing the columns.
+ *
+ * The columns start small and double up to the maximum, a bucket takes {@value #BUCKET_BYTES} bytes. Samples are
+ * expected in time order, a sample older than the retained buckets is ignored. Not thread safe, a
+ * {@link DataPointHistory} guards its rollups with its own lock.
+ */
+public class Rollup {
+
+    public static final long MINUTE = 60 * 1000L;
+
+    public static final long HOUR = 60 * MINUTE;
+
+    public static final long DAY = 24 * HOUR;
+
+    /** bytes per bucket in the columns */
+    public static final int BUCKET_BYTES = 8 + 8 + 8 + 4;
+
+    private static final int INITIAL_LENGTH = 8;
+
+    private final long resolution;
+
+    private final int maxBuckets;
+
+    private double[] min = new double[0];
+
+    private double[] max = new double[0];
+
+    private double[] sum = new double[0];
+
+    private int[] count = new int[0];
+
+    /** number of the newest bucket, its start time divided by the resolution */
+    private long latest;
+
+    /** buckets from the oldest retained to the newest */
+    private int size;
+
+    public Rollup(long resolution, int maxBuckets) {
+        this.resolution = resolution;
+        this.maxBuckets = maxBuckets;
+    }
+
+    public long getResolution() {
+        return resolution;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * @return start time of the oldest retained bucket, Long.MAX_VALUE if there is none
+     */
+    public long getOldestTimestamp() {
+        return size == 0 ? Long.MAX_VALUE : (latest - size + 1) * resolution;
+    }
+
+    public void add(long timestamp, double value) {
+        long bucket = Math.floorDiv(timestamp, resolution);
+        if (size == 0) {
+            grow(1);
+            latest = bucket;
+            size = 1;
+            clear(slot(bucket));
+        } else if (bucket > latest) {
+            int newSize = (int) Math.min(size + (bucket - latest), maxBuckets);
+            grow(newSize);
+            for (long b = Math.max(latest + 1, bucket - min.length + 1); b <= bucket; b++) {
+                clear(slot(b));
+            }
+            latest = bucket;
+            size = newSize;
+        } else if (bucket <= latest - size) {
+            return;
+        }
+        int slot = slot(bucket);
+        min[slot] = count[slot] == 0 ? value : Math.min(min[slot], value);
+        max[slot] = count[slot] == 0 ? value : Math.max(max[slot], value);
+        sum[slot] += value;
+        count[slot]++;
+    }
+
+    /**
+     * @return the buckets with samples starting in from..to, with from rounded down to the resolution, oldest first
+     */
+    public RollupSeries range(long from, long to) {
+        long first = Math.max(Math.floorDiv(from, resolution), latest - size + 1);
+        long last = Math.min(Math.floorDiv(to, resolution), latest);
+        int n = 0;
+        for (long b = first; b <= last; b++) {
+            if (count[slot(b)] > 0) {
+                n++;
+            }
+        }
+        RollupSeries series = new RollupSeries(resolution, n);
+        int i = 0;
+        for (long b = first; b <= last; b++) {
+            int slot = slot(b);
+            if (count[slot] > 0) {
+                series.set(i++, b * resolution, min[slot], max[slot], sum[slot] / count[slot], count[slot]);
+            }
+        }
+        return series;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) min.length);
+    }
+
+    private void clear(int slot) {
+        min[slot] = 0;
+        max[slot] = 0;
+        sum[slot] = 0;
+        count[slot] = 0;
+    }
+
+    /**
+     * Make room for the given number of buckets, the retained buckets move to the slots of the new length
+     */
+    private void grow(int buckets) {
+        if (buckets <= min.length) {
+            return;
+        }
+        int length = Math.min(Math.max(Math.max(min.length * 2, INITIAL_LENGTH), buckets), maxBuckets);
+        double[] newMin = new double[length];
+        double[] newMax = new double[length];
+        double[] newSum = new double[length];
+        int[] newCount = new int[length];
+        for (long b = latest - size + 1; b <= latest; b++) {
+            int from = slot(b);
+            int to = (int) Math.floorMod(b, (long) length);
+            newMin[to] = min[from];
+            newMax[to] = max[from];
+            newSum[to] = sum[from];
+            newCount[to] = count[from];
+        }
+        min = newMin;
+        max = newMax;
+        sum = newSum;
+        count = newCount;
+    }
+
+    /**
+     * @return bytes of the columns
+     */
+    public long sizeInBytes() {
+        return (long) min.length * BUCKET_BYTES;
+    }
+}
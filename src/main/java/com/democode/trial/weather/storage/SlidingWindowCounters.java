@@ -0,0 +1,287 @@
+package com.democode.trial.weather.storage;
+
+import java.time.Clock;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Query counters over the last hour in {@value #BUCKETS} one minute buckets.
+ *
+ * Every bucket holds the number of queries, a {@link RadiusHistogram} compatible radius histogram, a small
+ * Count-Min sketch of the queried airports and up to {@value #CANDIDATES} candidates: the airports with the
+ * highest estimate in the bucket, an airport replacing the candidate with the lowest estimate once it is queried
+ * more often in that minute. The airports reported for a window are the candidates of its buckets, so an airport
+ * hot in the last minutes is reported whatever its lifetime rank. All buckets live in preallocated atomic arrays,
+ * so recording a query never allocates. A bucket is rotated by the first writer of a new minute: it claims the
+ * bucket with a CAS of the bucket minute to {@link #ROTATING}, zeroes it and only then publishes the new minute.
+ * Writers of the new minute wait for the publication, so none of their increments is wiped, and readers skip a
+ * bucket whose minute changes while they sum it up.
+ */
+public class SlidingWindowCounters {
+
+    /** number of buckets, one per minute */
+    public static final int BUCKETS = 60;
+
+    private static final long BUCKET_MILLIS = 60000;
+
+    /** minute of a bucket being zeroed by the writer rotating it */
+    private static final long ROTATING = -1;
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private static final int SKETCH_WIDTH = 256;
+
+    /** number of most queried airports kept per bucket */
+    static final int CANDIDATES = 16;
+
+    private static final int TOTAL = 0;
+
+    private static final int RADIUS = 1;
+
+    private static final int SKETCH = RADIUS + RadiusHistogram.UPPER_BOUNDS.length;
+
+    private static final int BUCKET_SIZE = SKETCH + SKETCH_DEPTH * SKETCH_WIDTH;
+
+    private final Clock clock;
+
+    /** minute since epoch each bucket currently counts */
+    private final AtomicLongArray minutes = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS * BUCKET_SIZE);
+
+    /** candidate airports of each bucket, null slots are free */
+    private final AtomicReferenceArray<String> candidates = new AtomicReferenceArray<>(BUCKETS * CANDIDATES);
+
+    public SlidingWindowCounters(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Record a query in the bucket of the current minute
+     *
+     * @param iata the queried airport or null if the airport is not known
+     * @param radius the query radius in KM
+     */
+    public void record(String iata, double radius) {
+        int bucket = bucket(clock.millis() / BUCKET_MILLIS);
+        int base = bucket * BUCKET_SIZE;
+        counts.incrementAndGet(base + TOTAL);
+        counts.incrementAndGet(base + RADIUS + RadiusHistogram.bucket(radius));
+        if (iata != null) {
+            int hash = iata.hashCode();
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                estimate = Math.min(estimate, counts.incrementAndGet(
+                        base + SKETCH + row * SKETCH_WIDTH + HeavyHitters.index(hash, row, SKETCH_WIDTH)));
+            }
+            offer(bucket, iata, estimate);
+        }
+    }
+
+    /**
+     * Make the airport a candidate of the bucket if there is a free slot or it is estimated higher than the
+     * lowest candidate. Races between writers may cost a candidate its slot, which is acceptable for statistics.
+     */
+    private void offer(int bucket, String iata, long estimate) {
+        int first = bucket * CANDIDATES;
+        int free = -1;
+        for (int i = first; i < first + CANDIDATES; i++) {
+            String candidate = candidates.get(i);
+            if (candidate == null) {
+                free = free < 0 ? i : free;
+            } else if (candidate.equals(iata)) {
+                return;
+            }
+        }
+        if (free >= 0 && candidates.compareAndSet(free, null, iata)) {
+            return;
+        }
+
+        int base = bucket * BUCKET_SIZE;
+        int lowest = -1;
+        String lowestCandidate = null;
+        long lowestEstimate = estimate;
+        for (int i = first; i < first + CANDIDATES; i++) {
+            String candidate = candidates.get(i);
+            long candidateEstimate = candidate == null ? 0 : estimate(candidate.hashCode(), base);
+            if (candidateEstimate < lowestEstimate) {
+                lowest = i;
+                lowestCandidate = candidate;
+                lowestEstimate = candidateEstimate;
+            }
+        }
+        if (lowest >= 0) {
+            candidates.compareAndSet(lowest, lowestCandidate, iata);
+        }
+    }
+
+    /**
+     * @return Count-Min estimate of the key with the hash in the bucket at the base
+     */
+    private long estimate(int hash, int base) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            estimate = Math.min(estimate,
+                    counts.get(base + SKETCH + row * SKETCH_WIDTH + HeavyHitters.index(hash, row, SKETCH_WIDTH)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @return index of the bucket of the given minute, rotated if it still holds an older minute
+     */
+    private int bucket(long minute) {
+        int bucket = (int) (minute % BUCKETS);
+        while (true) {
+            long current = minutes.get(bucket);
+            if (current == ROTATING) {
+                // zeroing takes a few microseconds, once a minute
+                Thread.yield();
+            } else if (current >= minute) {
+                return bucket;
+            } else if (minutes.compareAndSet(bucket, current, ROTATING)) {
+                int base = bucket * BUCKET_SIZE;
+                for (int i = 0; i < BUCKET_SIZE; i++) {
+                    counts.set(base + i, 0);
+                }
+                for (int i = bucket * CANDIDATES; i < (bucket + 1) * CANDIDATES; i++) {
+                    candidates.set(i, null);
+                }
+                minutes.set(bucket, minute);
+                return bucket;
+            }
+        }
+    }
+
+    /**
+     * Statistics of the last minutes, the current minute included
+     *
+     * @param window number of minutes, at most {@value #BUCKETS}
+     * @param top number of most queried airports to report, taken from the candidates of the window buckets
+     */
+    public WindowStatistics getStatistics(int window, int top) {
+        long now = clock.millis() / BUCKET_MILLIS;
+        long total = 0;
+        long[] radius = new long[RadiusHistogram.UPPER_BOUNDS.length];
+        long[] sketch = new long[SKETCH_DEPTH * SKETCH_WIDTH];
+        long[] bucketRadius = new long[radius.length];
+        long[] bucketSketch = new long[sketch.length];
+        String[] bucketCandidates = new String[CANDIDATES];
+        Set<String> airports = new HashSet<>();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long minute = minutes.get(bucket);
+            if (minute > now || minute <= now - Math.min(window, BUCKETS)) {
+                continue;
+            }
+            int base = bucket * BUCKET_SIZE;
+            long bucketTotal = counts.get(base + TOTAL);
+            for (int i = 0; i < radius.length; i++) {
+                bucketRadius[i] = counts.get(base + RADIUS + i);
+            }
+            for (int i = 0; i < sketch.length; i++) {
+                bucketSketch[i] = counts.get(base + SKETCH + i);
+            }
+            for (int i = 0; i < CANDIDATES; i++) {
+                bucketCandidates[i] = candidates.get(bucket * CANDIDATES + i);
+            }
+            if (minutes.get(bucket) != minute) {
+                // rotated meanwhile, the counts read may be partly zeroed and belong to a minute out of the window
+                continue;
+            }
+            total += bucketTotal;
+            for (int i = 0; i < radius.length; i++) {
+                radius[i] += bucketRadius[i];
+            }
+            for (int i = 0; i < sketch.length; i++) {
+                sketch[i] += bucketSketch[i];
+            }
+            for (String candidate : bucketCandidates) {
+                if (candidate != null) {
+                    airports.add(candidate);
+                }
+            }
+        }
+
+        List<Map.Entry<String, Long>> estimates = new ArrayList<>(airports.size());
+        for (String iata : airports) {
+            int hash = iata.hashCode();
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                estimate = Math.min(estimate, sketch[row * SKETCH_WIDTH + HeavyHitters.index(hash, row, SKETCH_WIDTH)]);
+            }
+            if (estimate > 0) {
+                estimates.add(new AbstractMap.SimpleImmutableEntry<>(iata, estimate));
+            }
+        }
+        estimates.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        Map<String, Long> airportCounts = new HashMap<>();
+        for (Map.Entry<String, Long> e : estimates.subList(0, Math.min(top, estimates.size()))) {
+            airportCounts.put(e.getKey(), e.getValue());
+        }
+        return new WindowStatistics(total, airportCounts, radius);
+    }
+
+    /**
+     * Stop reporting a removed airport, its counts stay in the sketches
+     */
+    public void remove(String iata) {
+        for (int i = 0; i < candidates.length(); i++) {
+            String candidate = candidates.get(i);
+            if (iata.equals(candidate)) {
+                candidates.compareAndSet(i, candidate, null);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < candidates.length(); i++) {
+            candidates.set(i, null);
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            minutes.set(i, 0);
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Query statistics of a time window
+     */
+    public static class WindowStatistics {
+
+        private final long total;
+
+        private final Map<String, Long> airportCounts;
+
+        private final long[] radiusHistogram;
+
+        WindowStatistics(long total, Map<String, Long> airportCounts, long[] radiusHistogram) {
+            this.total = total;
+            this.airportCounts = airportCounts;
+            this.radiusHistogram = radiusHistogram;
+        }
+
+        /** number of queries in the window */
+        public long getTotal() {
+            return total;
+        }
+
+        /** estimated queries per airport in the window */
+        public Map<String, Long> getAirportCounts() {
+            return airportCounts;
+        }
+
+        /** queries per radius bucket in the window, see {@link RadiusHistogram#UPPER_BOUNDS} */
+        public long[] getRadiusHistogram() {
+            return radiusHistogram;
+        }
+    }
+}
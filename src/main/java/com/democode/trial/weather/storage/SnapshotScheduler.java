@@ -0,0 +1,80 @@
+package com.democode.trial.weather.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Writes a {@link StorageSnapshot} of the current storage periodically and a final one on {@link #close()}.
+ */
+public class SnapshotScheduler implements Closeable {
+
+    public final static Logger LOGGER = Logger.getLogger("SnapshotScheduler");
+
+    /** default seconds between snapshots */
+    public static final long DEFAULT_INTERVAL = 300;
+
+    private final Path file;
+
+    private final ScheduledExecutorService executor;
+
+    public SnapshotScheduler(Path file, long intervalSeconds) {
+        this.file = file;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::snapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return a scheduler configured by {@value StorageSnapshot#SNAPSHOT_PROPERTY} and
+     *         {@value StorageSnapshot#INTERVAL_PROPERTY}, null if snapshots are disabled
+     */
+    public static SnapshotScheduler fromSystemProperties() {
+        String file = System.getProperty(StorageSnapshot.SNAPSHOT_PROPERTY);
+        if (file == null || file.trim().isEmpty()) {
+            return null;
+        }
+        long interval = Long.getLong(StorageSnapshot.INTERVAL_PROPERTY, DEFAULT_INTERVAL);
+        return new SnapshotScheduler(Paths.get(file), interval);
+    }
+
+    /**
+     * Write a snapshot now
+     */
+    public void snapshot() {
+        try {
+            long start = System.nanoTime();
+            AWAStorage storage = AWAStorageFactory.getStorage();
+            // a snapshot of a logged storage is a checkpoint which allows dropping the older log segments
+            int airports = storage instanceof DurableAWAStorage ? ((DurableAWAStorage) storage).checkpoint(file)
+                    : StorageSnapshot.write(storage, file);
+            LOGGER.info("Snapshot of " + airports + " airports written to " + file + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException e) {
+            LOGGER.severe("Snapshot to " + file + " has failed! Root case:" + e);
+        }
+    }
+
+    /**
+     * Stop the periodic snapshots and write a final one
+     */
+    @Override
+    public void close() {
+        // no interrupt, it would close the files of a snapshot or checkpoint in progress
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+}
@@ -0,0 +1,260 @@
+package com.democode.trial.weather.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Binary snapshot of the airport catalogue and the current atmospheric readings.
+ *
+ * Layout, all numbers big endian:
+ * <pre>
+ * header   int magic "AWAS", int version, int airport count, long creation time
+ * airport  string iata, double latitude, double longitude, string name, city, country, icao, timezone, dst,
+ *          byte mask of the present data points, long last update time, per present data point:
+ *          double mean, int first, int second, int third, int count
+ * trailer  int CRC32 of all preceding bytes
+ * </pre>
+ * Strings are a short byte length, -1 for null, followed by the UTF-8 bytes. Data points are in the order
+ * temperature, wind, humidity, precipitation, pressure, cloud cover, bit i of the mask marks the i-th.
+ *
+ * A snapshot is written to a temporary file and moved over the previous one, so readers see either the old or
+ * the new snapshot. It is read through a memory mapping and verified before anything is applied to the storage.
+ */
+public final class StorageSnapshot {
+
+    /** system property with the snapshot file, snapshots are disabled without it */
+    public static final String SNAPSHOT_PROPERTY = "awa.snapshot.file";
+
+    /** system property with the seconds between periodic snapshots */
+    public static final String INTERVAL_PROPERTY = "awa.snapshot.interval";
+
+    static final int MAGIC = 0x41574153;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 20;
+
+    static final int TRAILER_SIZE = 4;
+
+    private static final int DATA_POINTS = 6;
+
+    /** an airport with null strings and no data points */
+    private static final int MIN_AIRPORT_SIZE = 2 + 8 + 8 + 6 * 2 + 1 + 8;
+
+    private StorageSnapshot() {
+    }
+
+    /**
+     * Write all airports and their readings
+     *
+     * @return number of airports written
+     */
+    public static int write(AWAStorage storage, Path file) throws IOException {
+        List<AirportData> airports = storage.getAirportData();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream fos = Files.newOutputStream(tmp);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fos, crc), 65536))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(airports.size());
+            out.writeLong(System.currentTimeMillis());
+            for (AirportData ad : airports) {
+                writeAirport(out, ad);
+                writeAtmosphericInformation(out, storage.getAtmosphericInformation(ad.getIata()));
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return airports.size();
+    }
+
+    /**
+     * Add the airports and readings of a snapshot to the storage. Readings go through
+     * {@link AWAStorage#updateAtmosphericInformation(String, AtmosphericInformation)} to keep derived state such
+     * as the freshness tracking in line.
+     *
+     * @return number of airports loaded
+     * @throws IOException if the file can not be read, is truncated or corrupt, the storage is unchanged then
+     */
+    public static int load(Path file, AWAStorage storage) throws IOException {
+        List<AirportData> airports;
+        List<AtmosphericInformation> readings;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("truncated snapshot " + file + " of " + size + " bytes");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot " + file + " too large");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a storage snapshot");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("unsupported snapshot version " + buffer.getInt(4));
+            }
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit((int) size - TRAILER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if ((int) crc.getValue() != buffer.getInt((int) size - TRAILER_SIZE)) {
+                throw new IOException("checksum mismatch in snapshot " + file);
+            }
+
+            int count = buffer.getInt(8);
+            if (count < 0 || count > (size - HEADER_SIZE - TRAILER_SIZE) / MIN_AIRPORT_SIZE) {
+                throw new IOException("corrupt snapshot " + file + " with " + count + " airports");
+            }
+            ByteBuffer in = buffer.duplicate();
+            in.position(HEADER_SIZE);
+            in.limit((int) size - TRAILER_SIZE);
+            airports = new ArrayList<>(count);
+            readings = new ArrayList<>(count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    AirportData ad = readAirport(in);
+                    airports.add(ad);
+                    readings.add(readAtmosphericInformation(in));
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("corrupt snapshot " + file + " at airport " + airports.size());
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("corrupt snapshot " + file + ", " + in.remaining() + " bytes after the last airport");
+            }
+        }
+
+        storage.addAirports(airports);
+        for (int i = 0; i < airports.size(); i++) {
+            AtmosphericInformation ai = readings.get(i);
+            if (AbstractAWADataStorage.isNotEmpty(ai)) {
+                storage.updateAtmosphericInformation(airports.get(i).getIata(), ai);
+            }
+        }
+        return airports.size();
+    }
+
+    static void writeAirport(DataOutputStream out, AirportData ad) throws IOException {
+        writeString(out, ad.getIata());
+        out.writeDouble(ad.getLatitude());
+        out.writeDouble(ad.getLongitude());
+        writeString(out, ad.getName());
+        writeString(out, ad.getCity());
+        writeString(out, ad.getCountry());
+        writeString(out, ad.getIcao());
+        writeString(out, ad.getTimezone());
+        writeString(out, ad.getDst());
+    }
+
+    /**
+     * @param ai the readings, null is written as a record without data points
+     */
+    static void writeAtmosphericInformation(DataOutputStream out, AtmosphericInformation ai) throws IOException {
+        DataPoint[] points = ai == null ? new DataPoint[DATA_POINTS] : dataPoints(ai);
+        int mask = 0;
+        for (int i = 0; i < DATA_POINTS; i++) {
+            if (points[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        out.writeByte(mask);
+        out.writeLong(ai == null ? 0 : ai.getLastUpdateTime());
+        for (DataPoint dp : points) {
+            if (dp != null) {
+                out.writeDouble(dp.getMean());
+                out.writeInt(dp.getFirst());
+                out.writeInt(dp.getSecond());
+                out.writeInt(dp.getThird());
+                out.writeInt(dp.getCount());
+            }
+        }
+    }
+
+    static AirportData readAirport(ByteBuffer in) {
+        AirportData ad = new AirportData();
+        ad.setIata(readString(in));
+        ad.setLatitude(in.getDouble());
+        ad.setLongitude(in.getDouble());
+        ad.setName(readString(in));
+        ad.setCity(readString(in));
+        ad.setCountry(readString(in));
+        ad.setIcao(readString(in));
+        ad.setTimezone(readString(in));
+        ad.setDst(readString(in));
+        return ad;
+    }
+
+    static AtmosphericInformation readAtmosphericInformation(ByteBuffer in) {
+        int mask = in.get();
+        long lastUpdateTime = in.getLong();
+        DataPoint[] points = new DataPoint[DATA_POINTS];
+        for (int i = 0; i < DATA_POINTS; i++) {
+            if ((mask & 1 << i) != 0) {
+                DataPoint dp = new DataPoint();
+                dp.setMean(in.getDouble());
+                dp.setFirst(in.getInt());
+                dp.setSecond(in.getInt());
+                dp.setThird(in.getInt());
+                dp.setCount(in.getInt());
+                points[i] = dp;
+            }
+        }
+        AtmosphericInformation ai = new AtmosphericInformation(points[0], points[1], points[2], points[3], points[4], points[5]);
+        ai.setLastUpdateTime(lastUpdateTime);
+        return ai;
+    }
+
+    private static DataPoint[] dataPoints(AtmosphericInformation ai) {
+        return new DataPoint[] {ai.getTemperature(), ai.getWind(), ai.getHumidity(), ai.getPrecipitation(),
+                ai.getPressure(), ai.getCloudCover()};
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("string of " + bytes.length + " bytes can not be stored");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("negative string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,419 @@
+package com.democode.trial.weather.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+
+/**
+ * Append only log of storage writes.
+ *
+ * Every record holds the full state written, i.e. the whole airport or the whole atmospheric information of an
+ * airport, so replaying a record more than once is harmless. Records are framed as int payload length, int CRC32
+ * of the payload and the payload: a type byte followed by the fields in the {@link StorageSnapshot} encoding.
+ *
+ * Records are collected in a buffer and written to the current segment file {@code wal-<n>.log} when the buffer
+ * is full or a sync is due. How long a writer waits depends on the {@link Durability}. Syncs are group commits:
+ * the first writer to sync forces everything appended so far, writers arriving meanwhile find their records
+ * durable after the next force and share it.
+ *
+ * A checkpoint starts a new segment. Once a snapshot taken after the checkpoint is written, the segments before it
+ * are no longer needed and are deleted.
+ */
+public class WriteAheadLog implements Closeable {
+
+    public final static Logger LOGGER = Logger.getLogger("WriteAheadLog");
+
+    /** system property with the log directory, the log is disabled without it */
+    public static final String DIR_PROPERTY = "awa.wal.dir";
+
+    /** system property with the {@link Durability}, batched by default */
+    public static final String DURABILITY_PROPERTY = "awa.wal.durability";
+
+    /** system property with the milliseconds between background syncs */
+    public static final String SYNC_INTERVAL_PROPERTY = "awa.wal.syncInterval";
+
+    public static final long DEFAULT_SYNC_INTERVAL = 10;
+
+    public enum Durability {
+        /** written to the operating system in the background, never forced to disk */
+        NONE,
+        /** forced to disk in the background every sync interval, a crash loses at most one interval */
+        BATCHED,
+        /** every write returns once it is forced to disk */
+        ALWAYS
+    }
+
+    static final byte ADD_AIRPORT = 1;
+
+    static final byte REMOVE_AIRPORT = 2;
+
+    static final byte ATMOSPHERIC = 3;
+
+    private static final int FRAME_HEADER = 8;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path dir;
+
+    private final Durability durability;
+
+    /** guards the buffer, the channel and the appended position */
+    private final Object appendLock = new Object();
+
+    /** held by the writer forcing the log, the group commit leader */
+    private final Object syncLock = new Object();
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private FileChannel channel;
+
+    private long segment;
+
+    /** bytes appended since the log was opened */
+    private long appended;
+
+    /** bytes known to be on disk */
+    private volatile long durable;
+
+    private final AtomicLong syncs = new AtomicLong();
+
+    private final ScheduledExecutorService syncer;
+
+    private boolean closed;
+
+    /**
+     * Open the log in the directory. Existing segments are kept for {@link #replay(AWAStorage)}, new records go to
+     * a new segment.
+     */
+    public WriteAheadLog(Path dir, Durability durability, long syncIntervalMillis) throws IOException {
+        this.dir = dir;
+        this.durability = durability;
+        Files.createDirectories(dir);
+        List<Long> segments = segments();
+        segment = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        channel = openSegment(segment);
+
+        if (durability == Durability.ALWAYS) {
+            syncer = null;
+        } else {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::backgroundSync, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return a log configured by {@value #DIR_PROPERTY}, {@value #DURABILITY_PROPERTY} and
+     *         {@value #SYNC_INTERVAL_PROPERTY}, null if the log is disabled
+     */
+    public static WriteAheadLog fromSystemProperties() throws IOException {
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || dir.trim().isEmpty()) {
+            return null;
+        }
+        Durability durability = Durability.valueOf(
+                System.getProperty(DURABILITY_PROPERTY, Durability.BATCHED.name()).toUpperCase());
+        long interval = Long.getLong(SYNC_INTERVAL_PROPERTY, DEFAULT_SYNC_INTERVAL);
+        return new WriteAheadLog(Paths.get(dir), durability, interval);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * @return number of forces to disk so far
+     */
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    /**
+     * @return log position to {@link #commit(long)} once the record is appended
+     */
+    public long appendAddAirport(AirportData ad) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ADD_AIRPORT);
+        StorageSnapshot.writeAirport(out, ad);
+        return append(bytes.toByteArray());
+    }
+
+    public long appendRemoveAirport(String iata) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(REMOVE_AIRPORT);
+        StorageSnapshot.writeString(out, iata);
+        return append(bytes.toByteArray());
+    }
+
+    public long appendAtmosphericInformation(String iata, AtmosphericInformation ai) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ATMOSPHERIC);
+        StorageSnapshot.writeString(out, iata);
+        StorageSnapshot.writeAtmosphericInformation(out, ai);
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * Wait until the log is durable up to the position as far as the durability requires
+     */
+    public void commit(long position) throws IOException {
+        if (durability == Durability.ALWAYS) {
+            sync(position, true);
+        }
+    }
+
+    private long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int frame = FRAME_HEADER + payload.length;
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IOException("write ahead log is closed");
+            }
+            if (buffer.remaining() < frame) {
+                writeBuffer();
+            }
+            if (frame > buffer.capacity()) {
+                ByteBuffer large = ByteBuffer.allocate(frame);
+                large.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+            } else {
+                buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            }
+            appended += frame;
+            return appended;
+        }
+    }
+
+    /**
+     * Write the buffer to the channel, the caller holds the append lock
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write everything appended up to now and force it to disk if requested, unless another writer already made
+     * the position durable
+     */
+    private void sync(long position, boolean force) throws IOException {
+        if (durable >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durable >= position) {
+                return;
+            }
+            FileChannel target;
+            long upTo;
+            synchronized (appendLock) {
+                if (closed) {
+                    return;
+                }
+                writeBuffer();
+                target = channel;
+                upTo = appended;
+            }
+            if (force) {
+                // appends continue while the leader waits for the disk
+                target.force(false);
+                syncs.incrementAndGet();
+                durable = upTo;
+            }
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            sync(Long.MAX_VALUE, durability == Durability.BATCHED);
+        } catch (IOException e) {
+            LOGGER.severe("Write ahead log sync has failed! Root case:" + e);
+        }
+    }
+
+    /**
+     * Continue in a new segment, all records appended so far are in the previous segments
+     *
+     * @return the new segment, pass it to {@link #deleteSegmentsBefore(long)} once a snapshot is written
+     */
+    public long checkpoint() throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (closed) {
+                    throw new IOException("write ahead log is closed");
+                }
+                writeBuffer();
+                channel.force(false);
+                channel.close();
+                durable = appended;
+                segment++;
+                channel = openSegment(segment);
+                return segment;
+            }
+        }
+    }
+
+    /**
+     * Delete the segments older than the given one
+     */
+    public void deleteSegmentsBefore(long first) throws IOException {
+        for (long s : segments()) {
+            if (s < first) {
+                Files.deleteIfExists(segmentFile(s));
+            }
+        }
+    }
+
+    /**
+     * Apply the records of the segments written before this log was opened, oldest first. A damaged record, e.g.
+     * one torn by a crash, is cut off its segment together with the rest of the segment and replay carries on with
+     * the next segment, so the records behind the damage are neither applied now nor on the next start.
+     *
+     * @return number of records applied
+     */
+    public int replay(AWAStorage storage) throws IOException {
+        int applied = 0;
+        for (long s : segments()) {
+            if (s >= segment) {
+                break;
+            }
+            Path file = segmentFile(s);
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (in.hasRemaining()) {
+                int start = in.position();
+                if (!applyRecord(in, storage)) {
+                    LOGGER.warning("Damaged record in " + file + " at " + start + ", rest of the segment dropped");
+                    try (FileChannel damaged = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        damaged.truncate(start);
+                    }
+                    break;
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @return false if the record at the buffer position is incomplete or corrupt
+     */
+    private static boolean applyRecord(ByteBuffer in, AWAStorage storage) {
+        if (in.remaining() < FRAME_HEADER) {
+            return false;
+        }
+        int length = in.getInt();
+        int checksum = in.getInt();
+        if (length < 1 || length > in.remaining()) {
+            return false;
+        }
+        ByteBuffer payload = in.slice();
+        payload.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+        in.position(in.position() + length);
+
+        try {
+            byte type = payload.get();
+            if (type == ADD_AIRPORT) {
+                storage.addAirport(StorageSnapshot.readAirport(payload));
+            } else if (type == REMOVE_AIRPORT) {
+                storage.removeAirport(StorageSnapshot.readString(payload));
+            } else if (type == ATMOSPHERIC) {
+                String iata = StorageSnapshot.readString(payload);
+                storage.updateAtmosphericInformation(iata, StorageSnapshot.readAtmosphericInformation(payload));
+            } else {
+                return false;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop the background syncs, write and force all records and close the segment
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            // no interrupt, it would close the channel under a sync in progress
+            syncer.shutdown();
+        }
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (closed) {
+                    return;
+                }
+                writeBuffer();
+                channel.force(false);
+                channel.close();
+                durable = appended;
+                closed = true;
+            }
+        }
+    }
+
+    private FileChannel openSegment(long s) throws IOException {
+        return FileChannel.open(segmentFile(s), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentFile(long s) {
+        return dir.resolve(String.format("wal-%016d.log", s));
+    }
+
+    /**
+     * @return the numbers of the segment files in ascending order
+     */
+    private List<Long> segments() throws IOException {
+        List<Long> retval = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "wal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    retval.add(Long.parseLong(name.substring(4, name.length() - 4)));
+                } catch (NumberFormatException e) {
+                    LOGGER.warning("Ignoring " + file);
+                }
+            }
+        }
+        Collections.sort(retval);
+        return retval;
+    }
+}
@@ -0,0 +1,72 @@
+package com.democode.trial.weather.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.democode.trial.weather.dto.AtmosphericInformation;
+
+/**
+ * Writes a collection of atmospheric information as a JSON array by concatenating the encodings the records keep
+ * between changes (see {@link AtmosphericInformation#toJson()}), instead of serializing every record and its data
+ * points with Jackson on each query. The output is byte for byte the same.
+ *
+ * Only entities with the generic type, sent as a {@link GenericEntity}, are picked, a raw list is still written by
+ * Jackson.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class AtmosphericInformationWriter implements MessageBodyWriter<Collection<AtmosphericInformation>> {
+
+    private static final byte[] EMPTY = {'[', ']'};
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        if (!Collection.class.isAssignableFrom(type) || !(genericType instanceof ParameterizedType)) {
+            return false;
+        }
+        Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+        return arguments.length == 1 && arguments[0] == AtmosphericInformation.class;
+    }
+
+    @Override
+    public long getSize(Collection<AtmosphericInformation> ais, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        // ignored by JAX-RS 2.0 runtimes
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Collection<AtmosphericInformation> ais, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException {
+        write(ais, entityStream);
+    }
+
+    /**
+     * Write the records as a JSON array
+     */
+    public static void write(Collection<AtmosphericInformation> ais, OutputStream out) throws IOException {
+        if (ais.isEmpty()) {
+            out.write(EMPTY);
+            return;
+        }
+        char separator = '[';
+        for (AtmosphericInformation ai : ais) {
+            out.write(separator);
+            out.write(ai.toJson());
+            separator = ',';
+        }
+        out.write(']');
+    }
+}
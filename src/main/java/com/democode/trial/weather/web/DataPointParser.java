@@ -0,0 +1,612 @@
+package com.democode.trial.weather.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Parser of a single data point in json, e.g. {@code {"mean": 22.5, "first": 10, "second": 20, "third": 30,
+ * "count": 7}}, working on the UTF-8 bytes of the request body without building strings or a json tree.
+ *
+ * It accepts what the reflective Gson mapping accepted from well formed json: the fields in any order, missing
+ * fields and null values left 0, unknown fields of any type skipped, numbers in quotes and integral numbers such as
+ * {@code 1e2} for the quartiles and the count. The last of duplicate fields wins. Anything else, including the
+ * lenient syntax Gson tolerates such as comments or unquoted names, is rejected with the offset of the offending
+ * byte.
+ *
+ * The records of a batch, {@code {"iata": .., "pointType": .., "dataPoint": {..}}}, are parsed the same way by
+ * {@link #parseRecord(byte[], int, int, WeatherBatchReader.Record)}, so both ingest paths share one validation.
+ */
+public final class DataPointParser {
+
+    /** largest body read from a stream */
+    static final int MAX_BODY = 65536;
+
+    /** deepest nesting of skipped values */
+    private static final int MAX_DEPTH = 64;
+
+    private static final byte[][] FIELDS = {bytes("mean"), bytes("first"), bytes("second"), bytes("third"),
+            bytes("count")};
+
+    private static final int MEAN = 0;
+
+    private static final int FIRST = 1;
+
+    private static final int SECOND = 2;
+
+    private static final int THIRD = 3;
+
+    private static final int COUNT = 4;
+
+    private static final byte[][] RECORD_FIELDS = {bytes("iata"), bytes("pointType"), bytes("dataPoint")};
+
+    private static final int IATA = 0;
+
+    private static final int POINT_TYPE = 1;
+
+    private static final int DATA_POINT = 2;
+
+    /** powers of ten represented exactly by a double */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** body buffer per request thread, grown copies are not kept */
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[512]);
+
+    private final byte[] bytes;
+
+    private final int offset;
+
+    private final int end;
+
+    /** what is parsed, for the error messages */
+    private final String subject;
+
+    private int pos;
+
+    private DataPointParser(byte[] bytes, int offset, int length, String subject) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.pos = offset;
+        this.end = offset + length;
+        this.subject = subject;
+    }
+
+    /**
+     * Read the whole stream, at most {@value #MAX_BODY} bytes, and parse it
+     *
+     * @throws IOException if the stream can not be read
+     * @throws IllegalArgumentException if the body is not a data point or too large
+     */
+    public static DataPoint parse(InputStream in) throws IOException {
+        byte[] buffer = BUFFERS.get();
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length > MAX_BODY) {
+                    throw new IllegalArgumentException("data point larger than " + MAX_BODY + " bytes");
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(MAX_BODY + 1, 2 * length));
+            }
+            int n = in.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        return parse(buffer, 0, length);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a data point
+     */
+    public static DataPoint parse(String json) {
+        if (json == null) {
+            throw new IllegalArgumentException("missing data point");
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the UTF-8 bytes are not a data point
+     */
+    public static DataPoint parse(byte[] bytes, int offset, int length) {
+        DataPointParser parser = new DataPointParser(bytes, offset, length, "data point");
+        parser.skipWhitespace();
+        DataPoint dp = parser.readDataPoint();
+        parser.expectEnd();
+        return dp;
+    }
+
+    /**
+     * Parse the UTF-8 bytes of a batch record into the given record, fields missing in the input are left null
+     *
+     * @throws IllegalArgumentException if the bytes are not a record, the fields read up to the error are set
+     */
+    static void parseRecord(byte[] bytes, int offset, int length, WeatherBatchReader.Record record) {
+        DataPointParser parser = new DataPointParser(bytes, offset, length, "record");
+        parser.skipWhitespace();
+        parser.readRecord(record);
+        parser.expectEnd();
+    }
+
+    private void readRecord(WeatherBatchReader.Record record) {
+        expect('{', "expected {");
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            int field = readName(RECORD_FIELDS);
+            skipWhitespace();
+            expect(':', "expected :");
+            skipWhitespace();
+            if (peek() == 'n') {
+                expectLiteral("null");
+            } else if (field == IATA) {
+                record.iata = readString();
+            } else if (field == POINT_TYPE) {
+                record.pointType = readString();
+            } else if (field == DATA_POINT) {
+                record.dataPoint = readDataPoint();
+            } else {
+                skipValue(0);
+            }
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return;
+            }
+            expect(',', "expected , or }");
+        }
+    }
+
+    private void expectEnd() {
+        skipWhitespace();
+        if (pos < end) {
+            throw error("unexpected content after the " + subject);
+        }
+    }
+
+    private DataPoint readDataPoint() {
+        expect('{', "expected {");
+        DataPoint dp = new DataPoint();
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+        } else {
+            while (true) {
+                skipWhitespace();
+                int field = readName(FIELDS);
+                skipWhitespace();
+                expect(':', "expected :");
+                skipWhitespace();
+                if (field < 0) {
+                    skipValue(0);
+                } else {
+                    readField(dp, field);
+                }
+                skipWhitespace();
+                int c = peek();
+                if (c == '}') {
+                    pos++;
+                    break;
+                }
+                expect(',', "expected , or }");
+            }
+        }
+        return dp;
+    }
+
+    /**
+     * @return index of the name in the known fields or -1
+     */
+    private int readName(byte[][] fields) {
+        if (peek() != '"') {
+            throw error("expected a quoted field name");
+        }
+        int start = ++pos;
+        while (pos < end && bytes[pos] != '"' && bytes[pos] != '\\') {
+            if ((bytes[pos] & 0xff) < 0x20) {
+                throw error("control character in a string");
+            }
+            pos++;
+        }
+        if (pos < end && bytes[pos] == '"') {
+            int length = pos - start;
+            pos++;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].length == length && regionMatches(fields[i], start)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        // escaped or unterminated, compare the decoded name
+        pos = start - 1;
+        String name = readString();
+        for (int i = 0; i < fields.length; i++) {
+            if (name.equals(new String(fields[i], StandardCharsets.US_ASCII))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(byte[] name, int start) {
+        for (int i = 0; i < name.length; i++) {
+            if (bytes[start + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readField(DataPoint dp, int field) {
+        int c = peek();
+        if (c == 'n') {
+            // like Gson, null leaves the field as it is
+            expectLiteral("null");
+            return;
+        }
+        if (field == MEAN) {
+            dp.setMean(c == '"' ? parseQuotedDouble(readString()) : readDouble());
+            return;
+        }
+        int value = c == '"' ? parseQuotedInt(readString()) : readInt();
+        if (field == FIRST) {
+            dp.setFirst(value);
+        } else if (field == SECOND) {
+            dp.setSecond(value);
+        } else if (field == THIRD) {
+            dp.setThird(value);
+        } else if (field == COUNT) {
+            dp.setCount(value);
+        }
+    }
+
+    private double parseQuotedDouble(String s) {
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw error("expected a number but was \"" + s + "\"");
+        }
+    }
+
+    private int parseQuotedInt(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return toInt(parseQuotedDouble(s));
+        }
+    }
+
+    private int readInt() {
+        int start = pos;
+        boolean integral = scanNumber();
+        int length = pos - start;
+        if (integral && length <= 10) {
+            long value = 0;
+            int i = start;
+            boolean negative = bytes[i] == '-';
+            if (negative) {
+                i++;
+            }
+            for (; i < pos; i++) {
+                value = value * 10 + (bytes[i] - '0');
+            }
+            value = negative ? -value : value;
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw error(start, "expected an int but was " + text(start));
+            }
+            return (int) value;
+        }
+        return toInt(toDouble(start));
+    }
+
+    private int toInt(double value) {
+        int retval = (int) value;
+        if (retval != value) {
+            throw error("expected an int but was " + value);
+        }
+        return retval;
+    }
+
+    private double readDouble() {
+        int start = pos;
+        scanNumber();
+        return toDouble(start);
+    }
+
+    /**
+     * Exact conversion of the number just scanned: digits and a power of ten which both fit a double exactly give
+     * the correctly rounded result with a single multiplication or division, anything else goes through
+     * {@link Double#parseDouble}
+     */
+    private double toDouble(int start) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int exponent = 0;
+        boolean negative = false;
+        int i = start;
+        if (bytes[i] == '-') {
+            negative = true;
+            i++;
+        }
+        for (; i < pos && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            if (mantissa != 0 || bytes[i] != '0') {
+                digits++;
+            }
+            mantissa = mantissa * 10 + (bytes[i] - '0');
+            if (digits > 15) {
+                return Double.parseDouble(text(start));
+            }
+        }
+        if (i < pos && bytes[i] == '.') {
+            for (i++; i < pos && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                if (mantissa != 0 || bytes[i] != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                scale++;
+                if (digits > 15) {
+                    return Double.parseDouble(text(start));
+                }
+            }
+        }
+        if (i < pos) {
+            // an exponent, rarely used and easily out of the exact range
+            return Double.parseDouble(text(start));
+        }
+        if (scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(text(start));
+        }
+        double value = mantissa;
+        value = scale == 0 ? value : value / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Scan a json number, -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+     *
+     * @return true if it has neither fraction nor exponent
+     */
+    private boolean scanNumber() {
+        int start = pos;
+        if (peek() == '-') {
+            pos++;
+        }
+        int c = peek();
+        if (c == '0') {
+            pos++;
+        } else if (c >= '1' && c <= '9') {
+            skipDigits();
+        } else {
+            pos = start;
+            throw error("expected a number");
+        }
+        boolean integral = true;
+        if (peek() == '.') {
+            pos++;
+            if (!isDigit(peek())) {
+                throw error("expected a digit");
+            }
+            skipDigits();
+            integral = false;
+        }
+        c = peek();
+        if (c == 'e' || c == 'E') {
+            pos++;
+            c = peek();
+            if (c == '+' || c == '-') {
+                pos++;
+            }
+            if (!isDigit(peek())) {
+                throw error("expected a digit");
+            }
+            skipDigits();
+            integral = false;
+        }
+        return integral;
+    }
+
+    private void skipDigits() {
+        while (isDigit(peek())) {
+            pos++;
+        }
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Skip a value of any type, checking that it is well formed
+     */
+    private void skipValue(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw error("values nested deeper than " + MAX_DEPTH);
+        }
+        int c = peek();
+        if (c == '"') {
+            readString();
+        } else if (c == '{' || c == '[') {
+            int close = c == '{' ? '}' : ']';
+            pos++;
+            skipWhitespace();
+            if (peek() == close) {
+                pos++;
+                return;
+            }
+            while (true) {
+                skipWhitespace();
+                if (c == '{') {
+                    readName(FIELDS);
+                    skipWhitespace();
+                    expect(':', "expected :");
+                    skipWhitespace();
+                }
+                skipValue(depth + 1);
+                skipWhitespace();
+                if (peek() == close) {
+                    pos++;
+                    return;
+                }
+                expect(',', c == '{' ? "expected , or }" : "expected , or ]");
+            }
+        } else if (c == 't') {
+            expectLiteral("true");
+        } else if (c == 'f') {
+            expectLiteral("false");
+        } else if (c == 'n') {
+            expectLiteral("null");
+        } else {
+            scanNumber();
+        }
+    }
+
+    /**
+     * Read a quoted string, only used for escaped names, skipped values, quoted numbers and the codes of a record
+     */
+    private String readString() {
+        expect('"', "expected a string");
+        StringBuilder sb = new StringBuilder();
+        int start = pos;
+        while (true) {
+            if (pos >= end) {
+                throw error("unterminated string");
+            }
+            int c = bytes[pos] & 0xff;
+            if (c == '"') {
+                break;
+            }
+            if (c < 0x20) {
+                throw error("control character in a string");
+            }
+            if (c != '\\') {
+                pos++;
+                continue;
+            }
+            sb.append(new String(bytes, start, pos - start, StandardCharsets.UTF_8));
+            pos++;
+            int escaped = peek();
+            pos++;
+            switch (escaped) {
+            case '"':
+            case '\\':
+            case '/':
+                sb.append((char) escaped);
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'u':
+                sb.append(readHex());
+                break;
+            default:
+                pos--;
+                throw error("invalid escape");
+            }
+            start = pos;
+        }
+        sb.append(new String(bytes, start, pos - start, StandardCharsets.UTF_8));
+        pos++;
+        return sb.toString();
+    }
+
+    private char readHex() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int c = peek();
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                throw error("expected a hex digit");
+            }
+            value = value << 4 | digit;
+            pos++;
+        }
+        return (char) value;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (peek() != literal.charAt(i)) {
+                throw error("expected " + literal);
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char c, String message) {
+        if (peek() != c) {
+            throw error(message);
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte c = bytes[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * @return the next byte or -1 at the end
+     */
+    private int peek() {
+        return pos < end ? bytes[pos] & 0xff : -1;
+    }
+
+    private String text(int start) {
+        return new String(bytes, start, pos - start, StandardCharsets.US_ASCII);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(pos, message);
+    }
+
+    private IllegalArgumentException error(int at, String message) {
+        String found = at < end ? "'" + (char) (bytes[at] & 0xff) + "'" : "the end";
+        return new IllegalArgumentException("malformed " + subject + " at byte " + (at - offset) + ": " + message
+                + ", found " + found);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
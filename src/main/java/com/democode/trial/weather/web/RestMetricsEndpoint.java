@@ -0,0 +1,52 @@
+package com.democode.trial.weather.web;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+
+import com.democode.trial.weather.metrics.MetricsRegistry;
+import com.democode.trial.weather.metrics.PrometheusWriter;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.RadiusQueryCache;
+
+/**
+ * Prometheus scrape endpoint: the per endpoint request metrics and ingest counts of the {@link MetricsRegistry}
+ * and gauges of the storage. The history estimate walks all airports, so it costs a few milliseconds with a large
+ * catalogue, which is fine at the usual scrape interval but not for polling.
+ */
+@Path("/metrics")
+public class RestMetricsEndpoint {
+
+    /**
+     * Storage service
+     */
+    AWADataStorageService awaDataStorageService = new AWADataStorageServiceImpl();
+
+    @GET
+    public Response metrics() {
+        PrometheusWriter out = new PrometheusWriter();
+        MetricsRegistry.getInstance().write(out);
+        out.help("awa_queries_total", "counter", "weather queries recorded for the ping statistics")
+                .sample("awa_queries_total", new String[0], awaDataStorageService.getRequestCounters().getTotal());
+        RadiusQueryCache cache = awaDataStorageService.getQueryCache();
+        out.help("awa_query_cache_hits_total", "counter", "radius queries answered from the cache")
+                .sample("awa_query_cache_hits_total", new String[0], cache.getHits());
+        out.help("awa_query_cache_misses_total", "counter", "radius queries computed")
+                .sample("awa_query_cache_misses_total", new String[0], cache.getMisses());
+        out.help("awa_query_cache_evictions_total", "counter", "cached radius query results replaced")
+                .sample("awa_query_cache_evictions_total", new String[0], cache.getEvictions());
+        out.help("awa_query_cache_invalidations_total", "counter", "cached radius query results dropped by writes")
+                .sample("awa_query_cache_invalidations_total", new String[0], cache.getInvalidations());
+        out.gauge("awa_query_cache_bytes", "estimated memory of the radius query cache", cache.getBytes());
+        out.gauge("awa_airports", "airports in the catalogue", awaDataStorageService.getAirportCount());
+        out.gauge("awa_fresh_records", "non empty readings updated in the last day",
+                awaDataStorageService.getDataSize());
+        out.gauge("awa_history_bytes", "estimated memory of the data point history",
+                awaDataStorageService.getHistoryBytes());
+        Runtime runtime = Runtime.getRuntime();
+        out.gauge("jvm_heap_used_bytes", "used heap memory", runtime.totalMemory() - runtime.freeMemory());
+        out.gauge("jvm_heap_max_bytes", "maximum heap memory", runtime.maxMemory());
+        return Response.ok(out.toString(), PrometheusWriter.CONTENT_TYPE).build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.democode.trial.weather.web;
 
+import com.democode.trial.weather.AirportCsvParser;
 import com.democode.trial.weather.WeatherException;
 import com.democode.trial.weather.dto.AirportData;
 import com.democode.trial.weather.dto.DataPoint;
@@ -11,7 +12,16 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -27,6 +37,12 @@ public class RestWeatherCollectorEndpoint implements WeatherCollector {
 
     /** shared gson json to object factory */
     public final static Gson gson = new Gson();
+
+    /** airports stored at once by the bulk import */
+    private static final int IMPORT_BATCH = 10000;
+
+    /** rejected lines reported by the bulk import */
+    private static final int MAX_IMPORT_ERRORS = 100;
     
     /**
      * Storage service
@@ -40,21 +56,123 @@ public class RestWeatherCollectorEndpoint implements WeatherCollector {
         return Response.status(Response.Status.OK).entity("ready").build();
     }
 
+    /**
+     * Update from the request body, parsed by {@link DataPointParser} as it is read
+     *
+     * @return 200, 400 if the body is not a data point
+     */
     @PUT
     @Path("/weather/{iata}/{pointType}")
     @Override
     public Response updateWeather(@PathParam("iata") String iataCode,
                                   @PathParam("pointType") String pointType,
-                                  String datapointJson) {
+                                  InputStream body) {
+        DataPoint dp;
+        try {
+            dp = DataPointParser.parse(body);
+        } catch (IOException | IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        return updateWeather(iataCode, pointType, dp);
+    }
+
+    @Override
+    public Response updateWeather(String iataCode, String pointType, String datapointJson) {
+        DataPoint dp;
         try {
-        	awaDataStorageService.processDataPoint(iataCode, pointType, gson.fromJson(datapointJson, DataPoint.class));
-        } catch (WeatherException e) {
-           LOGGER.severe("updateWeather end-point has failed! Root case:"+e.toString());
-           return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.toString()).build();
+            dp = DataPointParser.parse(datapointJson);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+        return updateWeather(iataCode, pointType, dp);
+    }
+
+    private Response updateWeather(String iataCode, String pointType, DataPoint dp) {
+        try {
+        	awaDataStorageService.processDataPoint(iataCode, pointType, dp);
+        } catch (WeatherException | IllegalStateException e) {
+           LOGGER.warning("updateWeather end-point has failed! Root case:"+e.toString());
+           return Response.status(failureStatus(e)).entity(e.getMessage()).build();
         }
         return Response.status(Response.Status.OK).build();
     }
 
+    /**
+     * Status of an update rejected by {@link AWADataStorageService#processDataPoint}, the same for a single update
+     * and a batch record
+     *
+     * @return 404 for an unknown airport, 400 for an unknown point type or a value out of range
+     */
+    private static Response.Status failureStatus(Exception e) {
+        return e instanceof WeatherException ? Response.Status.NOT_FOUND : Response.Status.BAD_REQUEST;
+    }
+
+    /**
+     * Apply a batch of weather updates, see {@link WeatherBatchReader} for the accepted formats. Records are parsed
+     * and applied one at a time while the body is read. A failed record, including one which is not a well formed
+     * update, does not stop the batch. A body whose records can not be told apart stops it at the broken record
+     * with the records before it already applied.
+     *
+     * @return 200 with the status of every record, 400 if the body could not be read to the end
+     */
+    @PUT
+    @Path("/weather/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Override
+    public Response updateWeatherBatch(InputStream body) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        int updated = 0;
+        String error = null;
+        try (WeatherBatchReader reader = new WeatherBatchReader(body)) {
+            while (reader.hasNext()) {
+                Map<String, Object> result = updateWeather(reader.next());
+                if (Response.Status.OK.getStatusCode() == (Integer) result.get("status")) {
+                    updated++;
+                }
+                results.add(result);
+            }
+        } catch (IOException e) {
+            error = "malformed record " + results.size() + ": " + e.getMessage();
+        }
+
+        Map<String, Object> retval = new LinkedHashMap<>();
+        retval.put("updated", updated);
+        retval.put("failed", results.size() - updated);
+        retval.put("results", results);
+        if (error != null) {
+            LOGGER.warning("updateWeatherBatch has stopped: " + error);
+            retval.put("error", error);
+            return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(retval)).build();
+        }
+        return Response.status(Response.Status.OK).entity(gson.toJson(retval)).build();
+    }
+
+    /**
+     * @return status of the update of a single batch record
+     */
+    private Map<String, Object> updateWeather(WeatherBatchReader.Record record) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iata", record.getIata());
+        if (record.getError() != null) {
+            result.put("status", Response.Status.BAD_REQUEST.getStatusCode());
+            result.put("error", record.getError());
+            return result;
+        }
+        if (record.getIata() == null || record.getPointType() == null || record.getDataPoint() == null) {
+            result.put("status", Response.Status.BAD_REQUEST.getStatusCode());
+            result.put("error", "iata, pointType and dataPoint are required");
+            return result;
+        }
+        try {
+            awaDataStorageService.processDataPoint(record.getIata(), record.getPointType(), record.getDataPoint());
+            result.put("status", Response.Status.OK.getStatusCode());
+        } catch (WeatherException | IllegalStateException e) {
+            result.put("status", failureStatus(e).getStatusCode());
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
     @GET
     @Path("/airports")
     @Produces(MediaType.APPLICATION_JSON)
@@ -112,6 +230,61 @@ public class RestWeatherCollectorEndpoint implements WeatherCollector {
     	return Response.status(Response.Status.CREATED).build();
     }
     
+    /**
+     * Import airports in the airports file format, see {@link AirportCsvParser}. Lines are parsed while the body
+     * is read and stored in batches of {@value #IMPORT_BATCH}, each batch updates the airport indexes once.
+     * Invalid lines are skipped and reported, they do not stop the import.
+     *
+     * @return 201 with the number of added and rejected lines, 400 if no line was valid
+     */
+    @POST
+    @Path("/airports")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Override
+    public Response addAirports(InputStream airports) {
+        List<AirportData> batch = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int added = 0;
+        int rejected = 0;
+        int lineNo = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(airports, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    AirportData ad = AirportCsvParser.parse(line);
+                    awaDataStorageService.validateAirport(ad);
+                    batch.add(ad);
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    if (errors.size() < MAX_IMPORT_ERRORS) {
+                        errors.add("line " + lineNo + ": " + e.getMessage());
+                    }
+                }
+                if (batch.size() == IMPORT_BATCH) {
+                    awaDataStorageService.addAirports(batch);
+                    added += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.severe("addAirports end-point has failed at line " + lineNo + "! Root case:" + e.toString());
+            errors.add("line " + lineNo + ": " + e.getMessage());
+        }
+        awaDataStorageService.addAirports(batch);
+        added += batch.size();
+
+        Map<String, Object> retval = new LinkedHashMap<>();
+        retval.put("added", added);
+        retval.put("rejected", rejected);
+        retval.put("errors", errors);
+        Response.Status status = added == 0 && !errors.isEmpty() ? Response.Status.BAD_REQUEST : Response.Status.CREATED;
+        return Response.status(status).entity(gson.toJson(retval)).build();
+    }
+
     @DELETE
     @Path("/airport/{iata}")
     @Override
@@ -1,18 +1,29 @@
 package com.democode.trial.weather.web;
 
+import com.democode.trial.weather.DataPointType;
 import com.democode.trial.weather.dto.AirportData;
 import com.democode.trial.weather.dto.AtmosphericInformation;
 import com.democode.trial.weather.service.AWADataStorageService;
 import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.RadiusHistogram;
+import com.democode.trial.weather.storage.RadiusQueryCache;
+import com.democode.trial.weather.storage.RequestCounters;
+import com.democode.trial.weather.storage.SlidingWindowCounters.WindowStatistics;
 import com.google.gson.Gson;
 
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import java.lang.reflect.Type;
+
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -40,6 +51,9 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
     /** shared gson json to object factory */
     public static final Gson gson = new Gson();
 
+    /** generic type of the query results, which selects the {@link AtmosphericInformationWriter} */
+    private static final Type READINGS = new GenericType<List<AtmosphericInformation>>() { }.getType();
+
     //TODO Need to understand why that end-point returns String instead of Response (with Status and Entry)
 
     /**
@@ -59,9 +73,14 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
         Map<String, Double> freq = calculateIataFreq();
         retval.put("iata_freq", freq);
 
-        int[] hist = calculateRadiusFreq();
+        long[] hist = calculateRadiusFreq();
         retval.put("radius_freq", hist);
 
+        retval.put("last_5m", calculateWindow(5));
+        retval.put("last_1h", calculateWindow(60));
+
+        retval.put("query_cache", calculateQueryCache());
+
         return gson.toJson(retval);
     }
 
@@ -81,74 +100,124 @@ public class RestWeatherQueryEndpoint implements WeatherQueryEndpoint {
         double radius = radiusString == null || radiusString.trim().isEmpty() ? 0 : Double.valueOf(radiusString);
         awaDataStorageService.updateRequestFrequency(iata, radius);
 
-        List<AtmosphericInformation> retval = new ArrayList<>();
+        List<AtmosphericInformation> retval;
         if (radius == 0) {
         	AtmosphericInformation ai = awaDataStorageService.getAtmosphericInformation(iata);
             if(ai == null) {
             	return Response.status(Response.Status.NOT_FOUND).entity(AIRPORT_DATA_HAS_NOT_FOUND+iata).build();
             }
-            retval.add(ai);
+            retval = Collections.singletonList(ai);
         } else {
             AirportData ad = awaDataStorageService.findAirportData(iata);
             if(ad == null) {
             	return Response.status(Response.Status.NOT_FOUND).entity(AIRPORT_DATA_HAS_NOT_FOUND+iata).build();
             }
-            for (int i=0;i< awaDataStorageService.getAirportData().size(); i++){
-                if (awaDataStorageService.calculateDistance(ad, awaDataStorageService.getAirportData().get(i)) <= radius){
-                    AtmosphericInformation ai = awaDataStorageService.getAtmosphericInformation().get(i);
-                    if (isAtmosfericInformationNotEmpty(ai)){
-                        retval.add(ai);
-                    }
-                }
-            }
+            retval = awaDataStorageService.findAtmosphericInformationInRadius(ad, radius);
         }
         if(retval.isEmpty()) {
         	return Response.status(Response.Status.NOT_FOUND).entity(ATMOSPHERIC_INFORMATION_HAS_NOT_FOUND+iata).build();
         }
 
-        return Response.status(Response.Status.OK).entity(retval).build();
+        return Response.status(Response.Status.OK).entity(new GenericEntity<>(retval, READINGS)).build();
+    }
+
+    /**
+     * Retrieve the recent data points of one type collected at an airport
+     *
+     * @param iata the iataCode
+     * @param pointType the point type {@link DataPointType}
+     * @param from first sample time in milliseconds since UTC epoch, inclusive
+     * @param to last sample time in milliseconds since UTC epoch, inclusive
+     * @param points number of points wanted over the range, 0 for all samples
+     *
+     * @return the samples, or with points the coarsest rollup giving that many, as parallel arrays, oldest first
+     */
+    @GET
+    @Path("/history/{iata}/{pointType}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response history(@PathParam("iata") String iata, @PathParam("pointType") String pointType,
+            @DefaultValue("0") @QueryParam("from") long from,
+            @DefaultValue("" + Long.MAX_VALUE) @QueryParam("to") long to,
+            @DefaultValue("0") @QueryParam("points") int points) {
+        if (awaDataStorageService.findAirportData(iata) == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity(AIRPORT_DATA_HAS_NOT_FOUND+iata).build();
+        }
+        DataPointType type;
+        try {
+            type = DataPointType.valueOf(pointType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("unknown point type " + pointType).build();
+        }
+        if (points > 0) {
+            return Response.status(Response.Status.OK).entity(awaDataStorageService.getHistory(iata, type, from, to, points)).build();
+        }
+        return Response.status(Response.Status.OK).entity(awaDataStorageService.getHistory(iata, type, from, to)).build();
     }
 
-	private boolean isAtmosfericInformationNotEmpty(AtmosphericInformation ai) {
-		return ai.getCloudCover() != null || ai.getHumidity() != null || ai.getPrecipitation() != null
-		   || ai.getPressure() != null || ai.getTemperature() != null || ai.getWind() != null;
+	/**
+	 * @return queries per radius bucket, see {@link RadiusHistogram#UPPER_BOUNDS}
+	 */
+	private long[] calculateRadiusFreq() {
+		return awaDataStorageService.getRequestCounters().getRadiusHistogram();
 	}
 
-	private int[] calculateRadiusFreq() {
-		int m = awaDataStorageService.getRadiusFreq().keySet().stream().max(Double::compare).orElse(1000.0).intValue() + 1;
+	/**
+	 * @return query count, airport fractions and radius histogram of the last minutes
+	 */
+	private Map<String, Object> calculateWindow(int minutes) {
+		WindowStatistics stats = awaDataStorageService.getRequestCounters().getWindowStatistics(minutes);
+		Map<String, Double> freq = new HashMap<>();
+		if(stats.getTotal() != 0) {
+			for (Map.Entry<String, Long> e : stats.getAirportCounts().entrySet()) {
+				freq.put(e.getKey(), (double) e.getValue() / stats.getTotal());
+			}
+		}
+
+		Map<String, Object> retval = new HashMap<>();
+		retval.put("requests", stats.getTotal());
+		retval.put("iata_freq", freq);
+		retval.put("radius_freq", stats.getRadiusHistogram());
+		return retval;
+	}
 
-        int[] hist = new int[m];
-        for (Map.Entry<Double, Integer> e : awaDataStorageService.getRadiusFreq().entrySet()) {
-            int i = e.getKey().intValue() % 10;
-            hist[i] += e.getValue();
-        }
-		return hist;
+	/**
+	 * @return size, memory and effectiveness of the radius query cache
+	 */
+	private Map<String, Object> calculateQueryCache() {
+		RadiusQueryCache cache = awaDataStorageService.getQueryCache();
+		Map<String, Object> retval = new HashMap<>();
+		retval.put("size", cache.size());
+		retval.put("capacity", cache.getCapacity());
+		retval.put("bytes", cache.getBytes());
+		retval.put("hits", cache.getHits());
+		retval.put("misses", cache.getMisses());
+		retval.put("hit_ratio", cache.getHitRatio());
+		retval.put("evictions", cache.getEvictions());
+		retval.put("rejections", cache.getRejections());
+		retval.put("invalidations", cache.getInvalidations());
+		return retval;
 	}
 
+	/**
+	 * @return fraction of queries of the most requested airports
+	 */
 	private Map<String, Double> calculateIataFreq() {
 		Map<String, Double> freq = new HashMap<>();
-        // fraction of queries
-        for (AirportData data : awaDataStorageService.getAirportData()) {
-        	if(awaDataStorageService.getRequestFrequency().size() != 0) {
-        		double frac = (double)awaDataStorageService.getRequestFrequency().getOrDefault(data, 0) / awaDataStorageService.getRequestFrequency().size();
-                freq.put(data.getIata(), frac);
+		RequestCounters counters = awaDataStorageService.getRequestCounters();
+		long total = counters.getTotal();
+        if(total != 0) {
+        	for (Map.Entry<String, Long> e : counters.getTopAirports().entrySet()) {
+        		freq.put(e.getKey(), (double) e.getValue() / total);
         	}
         }
 		return freq;
 	}
 
+	/**
+	 * @return number of non empty readings updated in the last day, maintained incrementally by the storage
+	 */
 	private int calculateDataSize() {
-		int datasize = 0;
-        for (AtmosphericInformation ai : awaDataStorageService.getAtmosphericInformation()) {
-            // we only count recent readings
-            if (isAtmosfericInformationNotEmpty(ai)) {
-                // updated in the last day
-                if (ai.getLastUpdateTime() > System.currentTimeMillis() - 86400000) {
-                    datasize++;
-                }
-            }
-        }
-		return datasize;
+		return awaDataStorageService.getDataSize();
 	}
 
 }
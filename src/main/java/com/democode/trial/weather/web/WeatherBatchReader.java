@@ -0,0 +1,210 @@
+package com.democode.trial.weather.web;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.democode.trial.weather.dto.DataPoint;
+
+/**
+ * Incremental reader of weather update records {@code {"iata": .., "pointType": .., "dataPoint": {..}}}.
+ *
+ * The records are either the elements of a single json array or a stream of json objects separated by white space
+ * such as new lines (NDJSON). Records are read one at a time from the underlying stream, the body is never buffered
+ * as a whole: the bytes of one record, at most {@value DataPointParser#MAX_BODY}, are framed by their braces and
+ * parsed by {@link DataPointParser}, the same parser as a single update.
+ */
+public class WeatherBatchReader implements Closeable {
+
+    private final InputStream in;
+
+    private byte[] buffer = new byte[8192];
+
+    /** first byte not consumed yet */
+    private int pos;
+
+    /** end of the bytes read into the buffer */
+    private int limit;
+
+    private boolean eof;
+
+    /** null until the first record is requested */
+    private Boolean array;
+
+    /** a record of the array was read, a comma or the end of the array comes next */
+    private boolean separator;
+
+    /** the end of the array was read */
+    private boolean done;
+
+    public WeatherBatchReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return true if another record follows
+     * @throws IOException if the stream can not be read or the records can not be told apart
+     */
+    public boolean hasNext() throws IOException {
+        if (done) {
+            return false;
+        }
+        skipWhitespace();
+        if (array == null) {
+            array = peek(0) == '[';
+            if (array) {
+                pos++;
+                skipWhitespace();
+            }
+        }
+        if (!array) {
+            return peek(0) >= 0;
+        }
+        int c = peek(0);
+        if (c == ']') {
+            pos++;
+            done = true;
+            return false;
+        }
+        if (separator) {
+            if (c != ',') {
+                throw new IOException(c < 0 ? "unterminated array" : "expected , or ] but was '" + (char) c + "'");
+            }
+            pos++;
+            separator = false;
+            skipWhitespace();
+            c = peek(0);
+        }
+        if (c < 0) {
+            throw new IOException("unterminated array");
+        }
+        return true;
+    }
+
+    /**
+     * Read the next record. A record which is not a well formed update is returned with its {@link Record#getError()}
+     * and the fields read before the error, the records after it are still read.
+     *
+     * @throws IOException if the stream can not be read or the record is not a complete json object
+     */
+    public Record next() throws IOException {
+        if (!hasNext()) {
+            throw new IOException("no more records");
+        }
+        if (peek(0) != '{') {
+            throw new IOException("expected a record object but was '" + (char) peek(0) + "'");
+        }
+        // the closing brace of the object, strings may hold braces
+        int length = 0;
+        int depth = 0;
+        boolean string = false;
+        while (true) {
+            int c = peek(length++);
+            if (c < 0) {
+                throw new IOException("unterminated record");
+            }
+            if (string) {
+                if (c == '\\') {
+                    length++;
+                } else if (c == '"') {
+                    string = false;
+                }
+            } else if (c == '"') {
+                string = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if ((c == '}' || c == ']') && --depth == 0) {
+                break;
+            }
+        }
+
+        Record record = new Record();
+        try {
+            DataPointParser.parseRecord(buffer, pos, length, record);
+        } catch (IllegalArgumentException e) {
+            record.error = e.getMessage();
+        }
+        pos += length;
+        separator = array;
+        return record;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek(0);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * @return the byte at the offset from the first byte not consumed, -1 at the end of the stream
+     * @throws IOException if the stream can not be read or a record is larger than {@value DataPointParser#MAX_BODY}
+     */
+    private int peek(int offset) throws IOException {
+        while (pos + offset >= limit) {
+            if (eof) {
+                return -1;
+            }
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+            if (limit == buffer.length) {
+                if (limit > DataPointParser.MAX_BODY) {
+                    throw new IOException("record larger than " + DataPointParser.MAX_BODY + " bytes");
+                }
+                buffer = Arrays.copyOf(buffer, 2 * limit);
+            }
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        return buffer[pos + offset] & 0xff;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * A single weather update
+     */
+    public static class Record {
+
+        String iata;
+
+        String pointType;
+
+        DataPoint dataPoint;
+
+        String error;
+
+        public String getIata() {
+            return iata;
+        }
+
+        public String getPointType() {
+            return pointType;
+        }
+
+        public DataPoint getDataPoint() {
+            return dataPoint;
+        }
+
+        /**
+         * @return why the record is not a well formed update, null if it is
+         */
+        public String getError() {
+            return error;
+        }
+    }
+}
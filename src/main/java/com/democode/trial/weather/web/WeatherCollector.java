@@ -1,5 +1,7 @@
 package com.democode.trial.weather.web;
 
+import java.io.InputStream;
+
 import javax.ws.rs.PathParam;
 import javax.ws.rs.core.Response;
 
@@ -25,12 +27,38 @@ public interface WeatherCollector {
      * @param pointType the point type, {@link DataPointType} for a complete list
      * @param datapointJson a json dict containing mean, first, second, thrid and count keys
      *
-     * @return HTTP Response code
+     * @return HTTP Response code, 400 if the body is not a data point, the point type is unknown or a value is out
+     *         of range, 404 for an unknown airport
      */
     Response updateWeather(@PathParam("iata") String iataCode,
                            @PathParam("pointType") String pointType,
                            String datapointJson);
 
+    /**
+     * Update the airports atmospheric information for a particular pointType with a json formatted data point
+     * read from a stream.
+     *
+     * @param iataCode the 3 letter airport code
+     * @param pointType the point type, {@link DataPointType} for a complete list
+     * @param body a json dict containing mean, first, second, third and count keys
+     *
+     * @return HTTP Response code, 400 if the body is not a data point, the point type is unknown or a value is out
+     *         of range, 404 for an unknown airport
+     */
+    Response updateWeather(@PathParam("iata") String iataCode,
+                           @PathParam("pointType") String pointType,
+                           InputStream body);
+
+    /**
+     * Update the atmospheric information of many airports at once. The body is a json array or new line
+     * separated json objects, each with iata, pointType and dataPoint keys.
+     *
+     * @param body the batch, read incrementally
+     * @return HTTP Response code and a json formatted status of every record, the same status a single update
+     *         of the record would get
+     */
+    Response updateWeatherBatch(InputStream body);
+
     /**
      * Return a list of known airports as a json formatted list
      *
@@ -67,6 +95,14 @@ public interface WeatherCollector {
     Response addAirport(AirportData airport);
 
 
+    /**
+     * Add many airports at once, the body holds one airport per line in the airports file format
+     *
+     * @param airports the lines, read incrementally
+     * @return HTTP Response code and a json formatted summary of added and rejected lines
+     */
+    Response addAirports(InputStream airports);
+
     /**
      * Remove an airport from the known airport list
      *
@@ -11,8 +11,10 @@ public interface WeatherQueryEndpoint {
 
     /**
      * Retrieve health and status information for the the query api. Returns information about how the number
-     * of datapoints currently held in memory, the frequency of requests for each IATA code and the frequency of
-     * requests for each radius.
+     * of datapoints currently held in memory, the frequency of requests for the most requested IATA codes and the
+     * frequency of requests per radius bucket (0, below 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+     * 10000, 20000 km and above). The same statistics for the last 5 minutes and the last hour are reported
+     * under last_5m and last_1h.
      *
      * @return a JSON formatted dict with health information.
      */
@@ -29,4 +31,22 @@ public interface WeatherQueryEndpoint {
      * airports in the given radius
      */
     public Response get(String iata, String radiusString);
+
+    /**
+     * Retrieve the data points of one type collected at the given airport in a time range. Only the most recent
+     * points are kept, see {@link com.democode.trial.weather.storage.AtmosphericHistory}. With a number of points,
+     * the points are downsampled to the minute, hour or day buckets of the coarsest resolution that still gives
+     * that many over the range.
+     *
+     * @param iata the three letter airport code
+     * @param pointType the point type, one of {@link com.democode.trial.weather.DataPointType}
+     * @param from first sample time in milliseconds since UTC epoch, inclusive
+     * @param to last sample time in milliseconds since UTC epoch, inclusive
+     * @param points number of points wanted over the range, 0 for all samples
+     *
+     * @return an HTTP Response with a {@link com.democode.trial.weather.dto.DataPointSeries}, or a
+     * {@link com.democode.trial.weather.dto.RollupSeries} with points, 404 for an unknown airport and 400 for an
+     * unknown point type
+     */
+    public Response history(String iata, String pointType, long from, long to, int points);
 }
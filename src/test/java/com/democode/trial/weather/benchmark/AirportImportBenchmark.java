@@ -0,0 +1,93 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.AirportCsvParser;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
+import com.democode.trial.weather.web.WeatherCollector;
+
+/**
+ * Time to load an airports file into an empty storage: the bulk import endpoint parsing the whole body versus
+ * one addAirport call per line as made by the line by line loader, both without the HTTP round trips.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main AirportImportBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AirportImportBenchmark {
+
+    @Param({"10000", "100000"})
+    public int airports;
+
+    private byte[] file;
+
+    private List<String> lines;
+
+    private WeatherCollector collector;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        lines = new ArrayList<>(airports);
+        for (int i = 0; i < airports; i++) {
+            String iata = "" + (char) ('A' + i % 26) + (char) ('A' + i / 26 % 26) + (char) ('A' + i / 676 % 26);
+            String line = i + ",\"Airport " + i + "\",\"City, " + i + "\",\"Country\",\"" + iata + "\",\"K" + iata
+                    + "\"," + (random.nextDouble() * 130 - 60) + "," + (random.nextDouble() * 360 - 180) + ",0,0,\"U\"";
+            lines.add(line);
+            sb.append(line).append('\n');
+        }
+        file = sb.toString().getBytes(StandardCharsets.UTF_8);
+        collector = new RestWeatherCollectorEndpoint();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyStorage() {
+        AWAStorageFactory.reset();
+        for (AirportData ad : AWAStorageFactory.getStorage().getAirportData()) {
+            AWAStorageFactory.getStorage().removeAirport(ad.getIata());
+        }
+    }
+
+    @Benchmark
+    public Response bulkImport() {
+        return collector.addAirports(new ByteArrayInputStream(file));
+    }
+
+    @Benchmark
+    public Response lineByLine() {
+        Response response = null;
+        for (String line : lines) {
+            response = collector.addAirport(AirportCsvParser.parse(line));
+        }
+        return response;
+    }
+}
@@ -0,0 +1,87 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.storage.AWADataStorage;
+
+/**
+ * Airport lookup by IATA code for different catalogue sizes. The indexed lookup should stay flat
+ * while the former linear scan grows with the catalogue.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main AirportLookupBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AirportLookupBenchmark {
+
+    @Param({"3", "1000", "10000", "100000"})
+    public int airports;
+
+    private String[] codes;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AWADataStorage storage = AWADataStorage.getInstance();
+        storage.clear();
+        storage = AWADataStorage.getInstance();
+        for (AirportData ad : storage.getAirportData()) {
+            storage.removeAirport(ad.getIata());
+        }
+
+        codes = new String[airports];
+        for (int i = 0; i < airports; i++) {
+            codes[i] = "A" + i;
+            storage.addAirport(codes[i], -60 + (i % 120), -170 + (i % 340));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AWADataStorage.getInstance().clear();
+    }
+
+    private String nextCode() {
+        next = next + 1 == codes.length ? 0 : next + 1;
+        return codes[next];
+    }
+
+    @Benchmark
+    public AirportData indexedLookup() {
+        return AWADataStorage.getInstance().findAirportData(nextCode());
+    }
+
+    @Benchmark
+    public int indexedPosition() {
+        return AWADataStorage.getInstance().getAirportDataIdx(nextCode());
+    }
+
+    @Benchmark
+    public AirportData linearScan() {
+        String iata = nextCode();
+        return AWADataStorage.getInstance().getAirportData().stream().filter(ap -> ap.getIata().equals(iata))
+            .findFirst().orElse(null);
+    }
+}
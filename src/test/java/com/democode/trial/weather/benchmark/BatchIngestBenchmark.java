@@ -0,0 +1,149 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+import com.google.gson.Gson;
+
+/**
+ * Weather updates per second over HTTP: one PUT per record against the single record endpoint versus one PUT
+ * per {@value #BATCH} records against the batch endpoint, as array and as NDJSON. Scores are updates per second.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main BatchIngestBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchIngestBenchmark {
+
+    private static final String BASE_URL = "http://localhost:9090/";
+
+    private static final int BATCH = 500;
+
+    private final Gson gson = new Gson();
+
+    private HttpServer server;
+
+    private String[] paths;
+
+    private byte[][] bodies;
+
+    private byte[] batchArray;
+
+    private byte[] batchNdjson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+        server = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL), resourceConfig);
+
+        List<AirportData> airports = AWAStorageFactory.getStorage().getAirportData();
+        DataPointType[] types = DataPointType.values();
+        Random random = new Random(42);
+        paths = new String[BATCH];
+        bodies = new byte[BATCH][];
+        StringBuilder array = new StringBuilder("[");
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < BATCH; i++) {
+            String iata = airports.get(random.nextInt(airports.size())).getIata();
+            DataPointType type = types[i % types.length];
+            String pointType = type.name().toLowerCase();
+            int mean = (type == DataPointType.PRESSURE ? 700 : 20) + random.nextInt(50);
+            DataPoint dp = new DataPoint.Builder().withCount(10).withFirst(10).withMedian(20).withMean(mean).build();
+            String dataPoint = gson.toJson(dp);
+            String record = "{\"iata\":\"" + iata + "\",\"pointType\":\"" + pointType + "\",\"dataPoint\":" + dataPoint + "}";
+
+            paths[i] = BASE_URL + "collect/weather/" + iata + "/" + pointType;
+            bodies[i] = dataPoint.getBytes(StandardCharsets.UTF_8);
+            array.append(i == 0 ? "" : ",").append(record);
+            ndjson.append(record).append('\n');
+        }
+        batchArray = array.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        batchNdjson = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.shutdownNow();
+        AWAStorageFactory.reset();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int singleRecord() throws IOException {
+        int status = 0;
+        for (int i = 0; i < BATCH; i++) {
+            status += put(paths[i], bodies[i]);
+        }
+        return status;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int batchArray() throws IOException {
+        return put(BASE_URL + "collect/weather/batch", batchArray);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int batchNdjson() throws IOException {
+        return put(BASE_URL + "collect/weather/batch", batchNdjson);
+    }
+
+    private static int put(String url, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        // drain the response so the connection is kept alive
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[8192];
+            while (in != null && in.read(buffer) != -1) {
+            }
+        }
+        return status;
+    }
+}
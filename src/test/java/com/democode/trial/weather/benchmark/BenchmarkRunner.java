@@ -0,0 +1,65 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the hot path benchmark suite once per thread count and writes the results of each run as JSON to
+ * {@code <dir>/jmh-<threads>-threads.json}, for comparing releases.
+ *
+ * System properties: {@value #INCLUDE_PROPERTY} regular expression of the benchmarks to run (default
+ * {@value #DEFAULT_INCLUDE}), {@value #THREADS_PROPERTY} comma separated thread counts (default
+ * {@value #DEFAULT_THREADS}), {@value #DIR_PROPERTY} result directory (default target). An empty property, as
+ * passed by the benchmark profile unless it is set on the command line, means the default. With
+ * {@value #QUICK_PROPERTY} set, one warmup and one measurement iteration are run instead of the defaults of the
+ * benchmarks.
+ *
+ * Run with the benchmark profile:
+ * mvn -P benchmark clean verify -Dbenchmark.threads=1,4,16
+ */
+public final class BenchmarkRunner {
+
+    public static final String INCLUDE_PROPERTY = "benchmark.include";
+
+    public static final String THREADS_PROPERTY = "benchmark.threads";
+
+    public static final String DIR_PROPERTY = "benchmark.dir";
+
+    public static final String QUICK_PROPERTY = "benchmark.quick";
+
+    public static final String DEFAULT_INCLUDE =
+            "AirportLookupBenchmark|ServiceBenchmark|QueryEndpointBenchmark|GsonBenchmark|MetricsBenchmark";
+
+    public static final String DEFAULT_THREADS = "1,4";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = property(INCLUDE_PROPERTY, DEFAULT_INCLUDE);
+        File dir = new File(System.getProperty(DIR_PROPERTY, "target"));
+        dir.mkdirs();
+        for (String threads : property(THREADS_PROPERTY, DEFAULT_THREADS).split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .threads(count)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(dir, "jmh-" + count + "-threads.json").getPath());
+            if (Boolean.getBoolean(QUICK_PROPERTY)) {
+                options.warmupIterations(1).measurementIterations(1);
+            }
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,82 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.load.DatasetGenerator;
+import com.democode.trial.weather.web.DataPointParser;
+import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
+import com.google.gson.Gson;
+
+/**
+ * Parsing of the collector request body: the former path, which decoded the body to a string and mapped it with
+ * Gson, against the {@link DataPointParser} on the bytes and on a stream as the endpoint now reads it. The bodies
+ * are 1024 generated data points of all types. Run with -prof gc for the allocation per body.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main DataPointParseBenchmark"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataPointParseBenchmark {
+
+    private static final int BODIES = 1024;
+
+    private final Gson gson = RestWeatherCollectorEndpoint.gson;
+
+    private byte[][] bodies;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DatasetGenerator generator = new DatasetGenerator();
+        DataPointType[] types = DataPointType.values();
+        bodies = new byte[BODIES][];
+        for (int i = 0; i < BODIES; i++) {
+            bodies[i] = gson.toJson(generator.dataPoint(types[i % types.length])).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private byte[] nextBody() {
+        next = (next + 1) & (BODIES - 1);
+        return bodies[next];
+    }
+
+    @Benchmark
+    public DataPoint gson() {
+        return gson.fromJson(new String(nextBody(), StandardCharsets.UTF_8), DataPoint.class);
+    }
+
+    @Benchmark
+    public DataPoint parserBytes() {
+        byte[] body = nextBody();
+        return DataPointParser.parse(body, 0, body.length);
+    }
+
+    @Benchmark
+    public DataPoint parserStream() throws IOException {
+        return DataPointParser.parse(new ByteArrayInputStream(nextBody()));
+    }
+}
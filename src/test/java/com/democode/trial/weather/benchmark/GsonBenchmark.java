@@ -0,0 +1,83 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.web.DataPointParser;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+import com.google.gson.Gson;
+
+/**
+ * Gson serialization and parsing of a data point, as the collector read it before the {@link DataPointParser}, and
+ * of a fully populated atmospheric information. Uses the shared Gson instance of the endpoints.
+ *
+ * Part of the {@link BenchmarkRunner} suite, run alone with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main GsonBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonBenchmark {
+
+    private final Gson gson = RestWeatherQueryEndpoint.gson;
+
+    private DataPoint dp;
+
+    private String dpJson;
+
+    private AtmosphericInformation ai;
+
+    private String aiJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dp = new DataPoint.Builder().withCount(10).withFirst(10).withMedian(20).withLast(30).withMean(22).build();
+        dpJson = gson.toJson(dp);
+        ai = new AtmosphericInformation();
+        ai.setWind(dp);
+        ai.setTemperature(dp);
+        ai.setHumidity(dp);
+        ai.setPressure(dp);
+        ai.setCloudCover(dp);
+        ai.setPrecipitation(dp);
+        ai.setLastUpdateTime(System.currentTimeMillis());
+        aiJson = gson.toJson(ai);
+    }
+
+    @Benchmark
+    public String serializeDataPoint() {
+        return gson.toJson(dp);
+    }
+
+    @Benchmark
+    public DataPoint parseDataPoint() {
+        return gson.fromJson(dpJson, DataPoint.class);
+    }
+
+    @Benchmark
+    public String serializeAtmosphericInformation() {
+        return gson.toJson(ai);
+    }
+
+    @Benchmark
+    public AtmosphericInformation parseAtmosphericInformation() {
+        return gson.fromJson(aiJson, AtmosphericInformation.class);
+    }
+}
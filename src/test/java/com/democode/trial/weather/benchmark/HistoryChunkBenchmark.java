@@ -0,0 +1,105 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.storage.DataPointHistory;
+import com.democode.trial.weather.storage.GorillaChunk;
+
+/**
+ * Encode and decode throughput of history chunks, in samples per microsecond, on a synthetic trace of one reading
+ * a minute with a few hundred milliseconds of arrival jitter. The trace is a daily temperature curve with noise at
+ * one decimal, or the same rounded to whole degrees. The compressed size is printed once per trial.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main HistoryChunkBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryChunkBenchmark {
+
+    private static final int CHUNKS = 100;
+
+    private static final int SAMPLES = DataPointHistory.CHUNK_SAMPLES;
+
+    @Param({"decimal", "integer"})
+    public String trace;
+
+    private DataPointSeries[] series;
+
+    private GorillaChunk[] chunks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        series = new DataPointSeries[CHUNKS];
+        chunks = new GorillaChunk[CHUNKS];
+        long timestamp = 1500000000000L;
+        long bytes = 0;
+        for (int c = 0; c < CHUNKS; c++) {
+            series[c] = new DataPointSeries(SAMPLES);
+            for (int i = 0; i < SAMPLES; i++) {
+                timestamp += 60000 + random.nextInt(600) - 300;
+                double minute = (c * SAMPLES + i) % 1440;
+                double temperature = 15 + 8 * Math.sin(minute / 1440 * 2 * Math.PI) + random.nextGaussian() * 0.3;
+                double mean = "integer".equals(trace) ? Math.round(temperature) : Math.round(temperature * 10) / 10.0;
+                int median = (int) Math.round(mean);
+                series[c].set(i, timestamp, mean, median - 2 - random.nextInt(2), median, median + 2 + random.nextInt(2),
+                        10 + random.nextInt(3));
+            }
+            chunks[c] = encode(series[c]);
+            bytes += chunks[c].sizeInBytes();
+        }
+        System.out.printf("%n%s trace: %.2f bytes per sample, %d raw%n", trace, (double) bytes / (CHUNKS * SAMPLES),
+                DataPointHistory.SAMPLE_BYTES);
+    }
+
+    private static GorillaChunk encode(DataPointSeries s) {
+        GorillaChunk.Encoder encoder = new GorillaChunk.Encoder(s.size());
+        for (int i = 0; i < s.size(); i++) {
+            encoder.append(s.getTimestamps()[i], s.getMean()[i], s.getFirst()[i], s.getSecond()[i], s.getThird()[i],
+                    s.getCount()[i]);
+        }
+        return encoder.seal();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS * SAMPLES)
+    public int encode() {
+        int bytes = 0;
+        for (DataPointSeries s : series) {
+            bytes += encode(s).sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS * SAMPLES)
+    public long decode() {
+        long sum = 0;
+        for (GorillaChunk chunk : chunks) {
+            sum += chunk.decode().getTimestamps()[SAMPLES - 1];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,80 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.storage.PackedReadings;
+
+/**
+ * Contention on the readings of a single airport: collectors writing different data point types of it at the same
+ * time, alone and together with readers of the whole record.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main HotAirportBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotAirportBenchmark {
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private PackedReadings readings;
+
+    /** data points written by the benchmark, made up front so that their allocation is not measured */
+    private DataPoint[] points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        readings = new PackedReadings();
+        readings.add("BOS");
+        points = new DataPoint[TYPES.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new DataPoint.Builder().withFirst(i).withMean(i * 10).withMedian(i * 20).withCount(i + 1)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean write() {
+        int type = ThreadLocalRandom.current().nextInt(TYPES.length);
+        return readings.write("BOS", TYPES[type], points[type], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public boolean mixedWrite() {
+        return write();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public AtmosphericInformation mixedRead() {
+        return readings.get("BOS");
+    }
+}
@@ -0,0 +1,106 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.metrics.EndpointMetrics;
+import com.democode.trial.weather.metrics.MetricsEventListener;
+import com.democode.trial.weather.metrics.MetricsRegistry;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
+
+/**
+ * Request instrumentation overhead: the recording of a request on its own, alone and contended, and a request to
+ * the trivial collector ping through Jersey in memory with and without the {@link MetricsEventListener}, whose
+ * difference is the whole cost of the instrumentation per request.
+ *
+ * Part of the {@link BenchmarkRunner} suite, run alone with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main MetricsBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final URI BASE = URI.create("http://localhost/");
+
+    private static final URI PING = URI.create("http://localhost/collect/ping");
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private EndpointMetrics endpoint;
+
+    private ApplicationHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        endpoint = MetricsRegistry.getInstance().endpoint("GET", "/benchmark");
+        ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        if (instrumented) {
+            resourceConfig.register(MetricsEventListener.class);
+        }
+        handler = new ApplicationHandler(resourceConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MetricsRegistry.getInstance().clear();
+        AWAStorageFactory.reset();
+    }
+
+    @Benchmark
+    public void record() {
+        long start = System.nanoTime();
+        endpoint.record(ThreadLocalRandom.current().nextInt(10) == 0 ? 404 : 200, System.nanoTime() - start);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void recordContended() {
+        record();
+    }
+
+    @Benchmark
+    public ContainerResponse ping() throws Exception {
+        ContainerRequest request = new ContainerRequest(BASE, PING, "GET", null, new MapPropertiesDelegate());
+        return handler.apply(request, DISCARD).get();
+    }
+}
@@ -0,0 +1,129 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.WeatherException;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.load.DatasetGenerator;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.storage.RadiusQueryCache;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+/**
+ * Radius queries of the query endpoint with and without the {@link RadiusQueryCache} on a clustered catalogue of
+ * 10000 airports with readings. The queries are drawn from 5000 (airport, radius) pairs, either with a Zipf
+ * distribution like the public traffic or uniformly, which mostly misses and shows the cost of the cache
+ * bookkeeping. A share of the calls writes a reading of a random airport, which drops the results around it.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main QueryCacheBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryCacheBenchmark {
+
+    private static final int AIRPORTS = 10000;
+
+    private static final int QUERIES = 5000;
+
+    private static final String[] RADII = {"50", "200", "500"};
+
+    @Param({"0", "1024"})
+    public int cacheSize;
+
+    @Param({"zipf", "uniform"})
+    public String distribution;
+
+    @Param({"0", "10"})
+    public int updatePercent;
+
+    private RestWeatherQueryEndpoint endpoint;
+
+    private AWADataStorageService service;
+
+    private List<AirportData> catalogue;
+
+    private DatasetGenerator generator;
+
+    /** query number drawn for each slot, Zipf or uniform */
+    private int[] draws;
+
+    @Setup(Level.Trial)
+    public void setUp() throws WeatherException {
+        System.setProperty(RadiusQueryCache.SIZE_PROPERTY, String.valueOf(cacheSize));
+        AWAStorageFactory.reset();
+        service = new AWADataStorageServiceImpl();
+        generator = new DatasetGenerator();
+        catalogue = generator.airports(AIRPORTS);
+        service.addAirports(catalogue);
+        for (AirportData ad : catalogue) {
+            service.processDataPoint(ad.getIata(), "wind", generator.dataPoint(DataPointType.WIND, ad.getLatitude()));
+        }
+        endpoint = new RestWeatherQueryEndpoint();
+
+        double[] cumulative = new double[QUERIES];
+        double sum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            sum += "zipf".equals(distribution) ? 1.0 / (i + 1) : 1;
+            cumulative[i] = sum;
+        }
+        draws = new int[1 << 16];
+        Random random = new Random(42);
+        for (int i = 0; i < draws.length; i++) {
+            double value = random.nextDouble() * sum;
+            int query = 0;
+            while (cumulative[query] < value) {
+                query++;
+            }
+            draws[i] = query;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.clearProperty(RadiusQueryCache.SIZE_PROPERTY);
+        AWAStorageFactory.reset();
+    }
+
+    @Benchmark
+    public Object query() throws WeatherException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(100) < updatePercent) {
+            AirportData ad = catalogue.get(random.nextInt(AIRPORTS));
+            synchronized (generator) {
+                service.processDataPoint(ad.getIata(), "wind", generator.dataPoint(DataPointType.WIND, 45));
+            }
+            return ad;
+        }
+        int query = draws[random.nextInt(draws.length)];
+        Response response = endpoint.get(catalogue.get(query).getIata(), RADII[query % RADII.length]);
+        return response.getEntity();
+    }
+}
@@ -0,0 +1,93 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.WeatherException;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+/**
+ * The query endpoint called directly, without the HTTP server: weather around an airport at several radii and
+ * catalogue sizes, every airport holding a reading, and the ping statistics. Ping only depends on the catalogue,
+ * so it does not run for every radius.
+ *
+ * Part of the {@link BenchmarkRunner} suite, run alone with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main QueryEndpointBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryEndpointBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Catalogue {
+
+        @Param({"1000", "10000", "100000"})
+        public int airports;
+
+        RestWeatherQueryEndpoint endpoint;
+
+        AirportData[] catalogue;
+
+        @Setup(Level.Trial)
+        public void setUp() throws WeatherException {
+            AWAStorageFactory.reset();
+            AWADataStorageService service = new AWADataStorageServiceImpl();
+            catalogue = ServiceBenchmark.catalogue(airports);
+            service.addAirports(Arrays.asList(catalogue));
+            DataPoint dp = new DataPoint.Builder().withCount(10).withFirst(10).withMedian(20).withLast(30).withMean(22).build();
+            for (AirportData ad : catalogue) {
+                service.processDataPoint(ad.getIata(), "wind", dp);
+            }
+            endpoint = new RestWeatherQueryEndpoint();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            AWAStorageFactory.reset();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Radius {
+
+        @Param({"0", "50", "500", "2000"})
+        public String radius;
+    }
+
+    @Benchmark
+    public Response get(Catalogue catalogue, Radius radius) {
+        AirportData center = catalogue.catalogue[ThreadLocalRandom.current().nextInt(catalogue.catalogue.length)];
+        return catalogue.endpoint.get(center.getIata(), radius.radius);
+    }
+
+    @Benchmark
+    public String ping(Catalogue catalogue) {
+        return catalogue.endpoint.ping();
+    }
+}
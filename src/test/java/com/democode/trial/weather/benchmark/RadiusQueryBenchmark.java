@@ -0,0 +1,104 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.storage.AirportCoordinates;
+import com.democode.trial.weather.storage.GeoGridIndex;
+import com.democode.trial.weather.storage.GeoMath;
+
+/**
+ * Radius query through the spatial grid index and the columnar distance kernel against a Haversine scan over
+ * the whole catalogue.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main RadiusQueryBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadiusQueryBenchmark {
+
+    @Param({"10000", "100000"})
+    public int airports;
+
+    @Param({"10", "100", "1000", "5000"})
+    public double radius;
+
+    private AirportData[] catalogue;
+
+    private GeoGridIndex index;
+
+    private AirportCoordinates coordinates;
+
+    private int[] slots;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        catalogue = new AirportData[airports];
+        index = new GeoGridIndex();
+        coordinates = new AirportCoordinates();
+        slots = new int[airports];
+        for (int i = 0; i < airports; i++) {
+            AirportData ad = new AirportData();
+            ad.setIata("A" + i);
+            ad.setLatitude(random.nextDouble() * 130 - 60);
+            ad.setLongitude(random.nextDouble() * 360 - 180);
+            catalogue[i] = ad;
+            index.add(ad);
+            coordinates.add(ad.getLatitude(), ad.getLongitude());
+        }
+    }
+
+    private AirportData nextCenter() {
+        next = next + 1 == catalogue.length ? 0 : next + 1;
+        return catalogue[next];
+    }
+
+    @Benchmark
+    public List<AirportData> gridIndex() {
+        AirportData center = nextCenter();
+        return index.findInRadius(center.getLatitude(), center.getLongitude(), radius);
+    }
+
+    @Benchmark
+    public int columnarScan() {
+        AirportData center = nextCenter();
+        return coordinates.findInRadius(center.getLatitude(), center.getLongitude(), radius, slots);
+    }
+
+    @Benchmark
+    public List<AirportData> bruteForce() {
+        AirportData center = nextCenter();
+        List<AirportData> retval = new ArrayList<>();
+        for (AirportData ad : catalogue) {
+            if (GeoMath.distance(center.getLatitude(), center.getLongitude(), ad.getLatitude(), ad.getLongitude()) <= radius) {
+                retval.add(ad);
+            }
+        }
+        return retval;
+    }
+}
@@ -0,0 +1,166 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.WeatherException;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.load.DatasetGenerator;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.storage.AtmosphericHistory;
+import com.democode.trial.weather.storage.RadiusQueryCache;
+import com.democode.trial.weather.web.AtmosphericInformationWriter;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+/**
+ * Memory held by the current readings of 100000 airports with all six data points, and the allocation of writing
+ * and reading them. The setup prints the heap retained by the airports and by their readings; run with -prof gc
+ * for the allocation per write and per radius query, without and with writing its JSON. The radius query cache is
+ * off, so every query reads the storage, and the history keeps a single sample per airport and type.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ReadingsFootprintBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ReadingsFootprintBenchmark {
+
+    private static final int AIRPORTS = 100000;
+
+    private static final DataPointType[] TYPES = DataPointType.values();
+
+    private AWADataStorageService service;
+
+    private RestWeatherQueryEndpoint endpoint;
+
+    private List<AirportData> catalogue;
+
+    private final CountingStream sink = new CountingStream();
+
+    /** data points written by the benchmark, generated up front so that their allocation is not measured */
+    private DataPoint[] points;
+
+    @Setup(Level.Trial)
+    public void setUp() throws WeatherException {
+        System.setProperty(RadiusQueryCache.SIZE_PROPERTY, "0");
+        System.setProperty(AtmosphericHistory.CAPACITY_PROPERTY, "1");
+        AWAStorageFactory.reset();
+        DatasetGenerator generator = new DatasetGenerator();
+        catalogue = generator.airports(AIRPORTS);
+        service = new AWADataStorageServiceImpl();
+        endpoint = new RestWeatherQueryEndpoint();
+
+        long empty = usedHeap();
+        service.addAirports(catalogue);
+        long airports = usedHeap();
+        for (AirportData ad : catalogue) {
+            for (DataPointType type : TYPES) {
+                service.processDataPoint(ad.getIata(), type.name(), generator.dataPoint(type, ad.getLatitude()));
+            }
+        }
+        // the history and the freshness tracker keep entries per write too, drop them to see the readings alone
+        AWAStorageFactory.getStorage().getHistory().clear();
+        AWAStorageFactory.getStorage().getFreshnessTracker().clear();
+        long readings = usedHeap();
+        System.out.printf("%nairports: %d KB, current readings: %d KB, %d bytes per airport with its readings%n",
+                (airports - empty) >> 10, (readings - airports) >> 10, (readings - empty) / AIRPORTS);
+
+        points = new DataPoint[1 << 12];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = generator.dataPoint(TYPES[i % TYPES.length], 45);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.clearProperty(RadiusQueryCache.SIZE_PROPERTY);
+        System.clearProperty(AtmosphericHistory.CAPACITY_PROPERTY);
+        AWAStorageFactory.reset();
+    }
+
+    @Benchmark
+    public Object write() throws WeatherException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(points.length);
+        String iata = catalogue.get(random.nextInt(AIRPORTS)).getIata();
+        service.processDataPoint(iata, TYPES[i % TYPES.length].name(), points[i]);
+        return iata;
+    }
+
+    @Benchmark
+    public Object query() {
+        String iata = catalogue.get(ThreadLocalRandom.current().nextInt(AIRPORTS)).getIata();
+        Response response = endpoint.get(iata, "100");
+        return response.getEntity();
+    }
+
+    /**
+     * The query written as the query endpoint sends it
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public long queryJson() throws IOException {
+        String iata = catalogue.get(ThreadLocalRandom.current().nextInt(AIRPORTS)).getIata();
+        Response response = endpoint.get(iata, "100");
+        if (response.getStatus() == 200) {
+            AtmosphericInformationWriter.write((List<AtmosphericInformation>) response.getEntity(), sink);
+        }
+        return sink.bytes;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Counts the bytes written to it
+     */
+    private static final class CountingStream extends OutputStream {
+
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.storage.RequestCounters;
+
+/**
+ * Per query counting overhead: the raw counters and the service call made by every public query.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main RequestCountingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestCountingBenchmark {
+
+    private static final String[] CODES = {"BOS", "EWR", "JFK", "LGA", "MMU"};
+
+    private RequestCounters counters;
+
+    private AWADataStorageService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        counters = new RequestCounters();
+        service = new AWADataStorageServiceImpl();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AWAStorageFactory.reset();
+    }
+
+    @Benchmark
+    public void record() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        counters.record(CODES[random.nextInt(CODES.length)], random.nextInt(1000));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void recordContended() {
+        record();
+    }
+
+    @Benchmark
+    public void updateRequestFrequency() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        service.updateRequestFrequency(CODES[random.nextInt(CODES.length)], (double) random.nextInt(1000));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void updateRequestFrequencyContended() {
+        updateRequestFrequency();
+    }
+}
@@ -0,0 +1,131 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.WeatherException;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.load.DatasetGenerator;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.AtmosphericInformationWriter;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+/**
+ * Radius queries through Jersey in memory, with the response written by Jackson or by the
+ * {@link AtmosphericInformationWriter} from the encodings the readings keep. The catalogue has 10000 clustered
+ * airports with all six readings; 1% of the calls write a reading, which makes its record encode again. The
+ * sample time mode reports the percentiles, run with -prof gc for the allocation per query.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ResponseEncodingBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+
+    private static final int AIRPORTS = 10000;
+
+    private static final URI BASE = URI.create("http://localhost/");
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"false", "true"})
+    public boolean preEncoded;
+
+    @Param({"50", "500"})
+    public int radius;
+
+    private ApplicationHandler handler;
+
+    private AWADataStorageService service;
+
+    private List<AirportData> catalogue;
+
+    private DatasetGenerator generator;
+
+    private URI[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws WeatherException {
+        AWAStorageFactory.reset();
+        service = new AWADataStorageServiceImpl();
+        generator = new DatasetGenerator();
+        catalogue = generator.airports(AIRPORTS);
+        service.addAirports(catalogue);
+        for (AirportData ad : catalogue) {
+            for (DataPointType type : DataPointType.values()) {
+                service.processDataPoint(ad.getIata(), type.name(), generator.dataPoint(type, ad.getLatitude()));
+            }
+        }
+        queries = new URI[100];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = URI.create("http://localhost/query/weather/" + catalogue.get(i * 97).getIata() + "/" + radius);
+        }
+
+        ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+        if (preEncoded) {
+            resourceConfig.register(AtmosphericInformationWriter.class);
+        }
+        handler = new ApplicationHandler(resourceConfig);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AWAStorageFactory.reset();
+    }
+
+    @Benchmark
+    public Object query() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(100) == 0) {
+            AirportData ad = catalogue.get(random.nextInt(AIRPORTS));
+            synchronized (generator) {
+                service.processDataPoint(ad.getIata(), "wind", generator.dataPoint(DataPointType.WIND, 45));
+            }
+            return ad;
+        }
+        URI query = queries[random.nextInt(queries.length)];
+        ContainerRequest request = new ContainerRequest(BASE, query, "GET", null, new MapPropertiesDelegate());
+        ContainerResponse response = handler.apply(request, DISCARD).get();
+        return response;
+    }
+}
@@ -0,0 +1,99 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.WeatherException;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.load.DatasetGenerator;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+
+/**
+ * Service layer hot paths on the storage of the factory with catalogues of different sizes: airport lookup,
+ * distance between two airports and collecting a data point.
+ *
+ * Part of the {@link BenchmarkRunner} suite, run alone with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ServiceBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    public int airports;
+
+    private AWADataStorageService service;
+
+    private AirportData[] catalogue;
+
+    private DataPoint dp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AWAStorageFactory.reset();
+        service = new AWADataStorageServiceImpl();
+        catalogue = catalogue(airports);
+        List<AirportData> list = new ArrayList<>(airports);
+        for (AirportData ad : catalogue) {
+            list.add(ad);
+        }
+        service.addAirports(list);
+        dp = new DataPoint.Builder().withCount(10).withFirst(10).withMedian(20).withLast(30).withMean(22).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AWAStorageFactory.reset();
+    }
+
+    /**
+     * @return a clustered catalogue of the {@link DatasetGenerator} with distinct three character codes, as the
+     *         service requires, the same for every run
+     */
+    static AirportData[] catalogue(int airports) {
+        return new DatasetGenerator().airports(airports).toArray(new AirportData[airports]);
+    }
+
+    private AirportData randomAirport() {
+        return catalogue[ThreadLocalRandom.current().nextInt(catalogue.length)];
+    }
+
+    @Benchmark
+    public AirportData findAirportData() {
+        return service.findAirportData(randomAirport().getIata());
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        return service.calculateDistance(randomAirport(), randomAirport());
+    }
+
+    @Benchmark
+    public void processDataPoint() throws WeatherException {
+        service.processDataPoint(randomAirport().getIata(), "wind", dp);
+    }
+}
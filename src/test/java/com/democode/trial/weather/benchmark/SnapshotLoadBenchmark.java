@@ -0,0 +1,103 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.load.DatasetGenerator;
+import com.democode.trial.weather.storage.AWAStorage;
+import com.democode.trial.weather.storage.ConcurrentAWADataStorage;
+import com.democode.trial.weather.storage.StorageSnapshot;
+
+/**
+ * Time until a new storage is ready to serve: loading a snapshot with airports and readings versus parsing the
+ * same airports from lines as the airports file loader does, which restores no readings at all.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main SnapshotLoadBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotLoadBenchmark {
+
+    @Param({"10000", "100000"})
+    public int airports;
+
+    private Path file;
+
+    private List<String> lines;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        DatasetGenerator generator = new DatasetGenerator();
+        AWAStorage storage = new ConcurrentAWADataStorage();
+        List<AirportData> list = generator.airports(airports);
+        lines = new ArrayList<>(airports);
+        for (AirportData ad : list) {
+            lines.add(ad.getIata() + "," + ad.getLatitude() + "," + ad.getLongitude());
+        }
+        storage.addAirports(list);
+        for (AirportData ad : list) {
+            AtmosphericInformation ai = new AtmosphericInformation();
+            ai.setWind(generator.dataPoint(DataPointType.WIND, ad.getLatitude()));
+            ai.setTemperature(generator.dataPoint(DataPointType.TEMPERATURE, ad.getLatitude()));
+            ai.setLastUpdateTime(System.currentTimeMillis());
+            storage.updateAtmosphericInformation(ad.getIata(), ai);
+        }
+        file = Files.createTempFile("awa", ".snapshot");
+        StorageSnapshot.write(storage, file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public AWAStorage snapshot() throws IOException {
+        AWAStorage storage = new ConcurrentAWADataStorage();
+        StorageSnapshot.load(file, storage);
+        return storage;
+    }
+
+    @Benchmark
+    public AWAStorage parseLines() {
+        AWAStorage storage = new ConcurrentAWADataStorage();
+        List<AirportData> list = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            String[] split = line.split(",");
+            AirportData ad = new AirportData();
+            ad.setIata(split[0]);
+            ad.setLatitude(Double.valueOf(split[1]));
+            ad.setLongitude(Double.valueOf(split[2]));
+            list.add(ad);
+        }
+        storage.addAirports(list);
+        return storage;
+    }
+}
@@ -0,0 +1,134 @@
+package com.democode.trial.weather.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.storage.AWADataStorage;
+import com.democode.trial.weather.storage.AWAStorage;
+import com.democode.trial.weather.storage.ConcurrentAWADataStorage;
+
+/**
+ * Throughput of a read mostly request mix (9 radius queries per atmospheric update) against the single
+ * threaded storage behind one global monitor and against the concurrent storage.
+ *
+ * The main method runs the comparison at 1, 4, 16 and 64 threads:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath com.democode.trial.weather.benchmark.StorageThroughputBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageThroughputBenchmark {
+
+    private static final int AIRPORTS = 10000;
+
+    @Param({"synchronized", "concurrent"})
+    public String storageType;
+
+    private AWAStorage storage;
+
+    private boolean locked;
+
+    private String[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("concurrent".equals(storageType)) {
+            storage = new ConcurrentAWADataStorage();
+        } else {
+            storage = AWADataStorage.getInstance();
+            locked = true;
+        }
+        storage.clear();
+        if (storage instanceof AWADataStorage) {
+            storage = AWADataStorage.getInstance();
+            for (AirportData ad : storage.getAirportData()) {
+                storage.removeAirport(ad.getIata());
+            }
+        }
+
+        Random random = new Random(42);
+        List<AirportData> airports = new ArrayList<>();
+        codes = new String[AIRPORTS];
+        for (int i = 0; i < AIRPORTS; i++) {
+            codes[i] = "A" + i;
+            AirportData ad = new AirportData();
+            ad.setIata(codes[i]);
+            ad.setLatitude(random.nextDouble() * 130 - 60);
+            ad.setLongitude(random.nextDouble() * 360 - 180);
+            airports.add(ad);
+        }
+        storage.addAirports(airports);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storage.clear();
+    }
+
+    @Benchmark
+    public void requestMix(Blackhole bh) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String iata = codes[random.nextInt(codes.length)];
+        if (random.nextInt(10) == 0) {
+            AtmosphericInformation ai = new AtmosphericInformation();
+            if (locked) {
+                synchronized (storage) {
+                    storage.updateAtmosphericInformation(iata, ai);
+                }
+            } else {
+                storage.updateAtmosphericInformation(iata, ai);
+            }
+        } else if (locked) {
+            synchronized (storage) {
+                query(iata, bh);
+            }
+        } else {
+            query(iata, bh);
+        }
+    }
+
+    private void query(String iata, Blackhole bh) {
+        AirportData center = storage.findAirportData(iata);
+        for (AirportData ad : storage.findAirportsInRadius(center, 500)) {
+            bh.consume(storage.getAtmosphericInformation(ad.getIata()));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 4, 16, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(StorageThroughputBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.democode.trial.weather.benchmark;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.storage.AWAStorage;
+import com.democode.trial.weather.storage.ConcurrentAWADataStorage;
+import com.democode.trial.weather.storage.DurableAWAStorage;
+import com.democode.trial.weather.storage.WriteAheadLog;
+
+/**
+ * Throughput and latency distribution of atmospheric updates through the write ahead log in every durability
+ * mode, against the storage without a log. The contended variant shows the group commit sharing one force
+ * between concurrent writers.
+ *
+ * Run with:
+ * mvn clean test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main WriteAheadLogBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+
+    private static final String[] CODES = {"BOS", "EWR", "JFK", "LGA", "MMU"};
+
+    @Param({"off", "NONE", "BATCHED", "ALWAYS"})
+    public String durability;
+
+    private Path dir;
+
+    private AWAStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ConcurrentAWADataStorage base = new ConcurrentAWADataStorage();
+        base.initData();
+        storage = base;
+        if (!"off".equals(durability)) {
+            dir = Files.createTempDirectory("awa-wal");
+            WriteAheadLog log = new WriteAheadLog(dir, WriteAheadLog.Durability.valueOf(durability),
+                    WriteAheadLog.DEFAULT_SYNC_INTERVAL);
+            storage = new DurableAWAStorage(base, log);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (storage instanceof DurableAWAStorage) {
+            ((DurableAWAStorage) storage).close();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        DataPoint dp = new DataPoint();
+        dp.setMean(random.nextInt(100));
+        dp.setCount(10);
+        AtmosphericInformation ai = new AtmosphericInformation();
+        ai.setWind(dp);
+        ai.setLastUpdateTime(System.currentTimeMillis());
+        storage.updateAtmosphericInformation(CODES[random.nextInt(CODES.length)], ai);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void updateContended() {
+        update();
+    }
+}
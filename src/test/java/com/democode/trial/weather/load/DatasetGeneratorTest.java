@@ -0,0 +1,126 @@
+package com.democode.trial.weather.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.democode.trial.weather.AirportCsvParser;
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.web.WeatherBatchReader;
+
+public class DatasetGeneratorTest {
+
+    @Test
+    public void testDeterministic() {
+        List<AirportData> airports = new DatasetGenerator(7).airports(500);
+        List<AirportData> again = new DatasetGenerator(7).airports(500);
+        for (int i = 0; i < airports.size(); i++) {
+            assertEquals(airports.get(i).toString(), again.get(i).toString());
+        }
+        assertNotEquals(airports.get(0).toString(), new DatasetGenerator(8).airports(500).get(0).toString());
+    }
+
+    @Test
+    public void testUniqueCodes() {
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < DatasetGenerator.THREE_CHAR_CODES; i++) {
+            String code = DatasetGenerator.code(i);
+            assertEquals(code, 3, code.length());
+            assertTrue(code, codes.add(code));
+        }
+        assertEquals("AAA", DatasetGenerator.code(0));
+        assertEquals("ZZZ", DatasetGenerator.code(26 * 26 * 26 - 1));
+        assertEquals(4, DatasetGenerator.code(DatasetGenerator.THREE_CHAR_CODES).length());
+    }
+
+    @Test
+    public void testClustered() {
+        List<AirportData> airports = new DatasetGenerator().airports(2000);
+        // most airports have a neighbour within 200 km, which a uniform spread over the world would not give
+        int close = 0;
+        for (AirportData ad : airports.subList(0, 200)) {
+            for (AirportData other : airports) {
+                if (other != ad && Math.abs(other.getLatitude() - ad.getLatitude()) < 1.8
+                        && Math.abs(other.getLongitude() - ad.getLongitude()) < 1.8) {
+                    close++;
+                    break;
+                }
+            }
+            assertTrue(ad.toString(), Math.abs(ad.getLatitude()) < 90 && Math.abs(ad.getLongitude()) <= 180);
+        }
+        assertTrue("only " + close + " of 200 clustered", close > 180);
+    }
+
+    @Test
+    public void testValidDataPoints() {
+        DatasetGenerator generator = new DatasetGenerator();
+        for (int i = 0; i < 10000; i++) {
+            DataPointType type = generator.pointType();
+            DataPoint dp = generator.dataPoint(type, i % 180 - 90);
+            double mean = dp.getMean();
+            switch (type) {
+                case WIND:
+                    assertTrue(dp.toString(), mean >= 0);
+                    break;
+                case TEMPERATURE:
+                    assertTrue(dp.toString(), mean >= -50 && mean < 100);
+                    break;
+                case PRESSURE:
+                    assertTrue(dp.toString(), mean >= 650 && mean < 800);
+                    break;
+                default:
+                    assertTrue(dp.toString(), mean >= 0 && mean < 100);
+            }
+            assertTrue(dp.toString(), dp.getFirst() < dp.getSecond() && dp.getSecond() < dp.getThird());
+            assertTrue(dp.toString(), dp.getCount() > 0);
+        }
+    }
+
+    @Test
+    public void testWriteTxt() throws IOException {
+        List<AirportData> airports = new DatasetGenerator().airports(100);
+        StringWriter out = new StringWriter();
+        DatasetGenerator.writeTxt(airports, out);
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(100, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(airports.get(i).toString(), AirportCsvParser.parse(lines[i]).toString());
+        }
+    }
+
+    @Test
+    public void testWriteUpdates() throws IOException {
+        DatasetGenerator generator = new DatasetGenerator();
+        List<AirportData> airports = generator.airports(10);
+        StringWriter out = new StringWriter();
+        generator.writeUpdates(airports, 5, out);
+        Set<String> codes = new HashSet<>();
+        for (AirportData ad : airports) {
+            codes.add(ad.getIata());
+        }
+        int records = 0;
+        try (WeatherBatchReader reader = new WeatherBatchReader(
+                new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)))) {
+            while (reader.hasNext()) {
+                WeatherBatchReader.Record record = reader.next();
+                assertTrue(record.getIata(), codes.contains(record.getIata()));
+                DataPointType.valueOf(record.getPointType().toUpperCase());
+                assertTrue(record.getDataPoint().getCount() > 0);
+                records++;
+            }
+        }
+        assertEquals(5, records);
+    }
+}
@@ -0,0 +1,66 @@
+package com.democode.trial.weather.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Map;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+public class LoadGeneratorTest {
+
+    private static final String BASE_URL = "http://localhost:9091";
+
+    private HttpServer _server;
+
+    @Before
+    public void setUp() {
+        ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+        _server = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL + "/"), resourceConfig);
+    }
+
+    @After
+    public void tearDown() {
+        _server.shutdownNow();
+        AWAStorageFactory.reset();
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        String[] airports = LoadGenerator.fetchAirports(BASE_URL);
+        assertEquals(AWAStorageFactory.getStorage().getAirportData().size(), airports.length);
+
+        LoadGenerator generator = new LoadGenerator(BASE_URL, 200, 1, 0, 4, 50, new String[] {"0", "500"}, airports);
+        LoadGenerator.LoadResult result = generator.run();
+        // one second at 200 requests per second
+        assertEquals(200, result.getRequests(), 4);
+        assertEquals(result.getRequests(), result.getUncorrected().getCount());
+        assertTrue(result.getCorrected().getValueAtPercentile(99) >= result.getUncorrected().getValueAtPercentile(50));
+        long answered = 0;
+        for (Map.Entry<Integer, Long> e : result.getStatuses().entrySet()) {
+            // queries of airports without readings are not found
+            assertTrue("status " + e.getKey(), e.getKey() == 200 || e.getKey() == 404);
+            answered += e.getValue();
+        }
+        assertEquals(result.getRequests(), answered);
+    }
+
+    @Test
+    public void testParseOptions() {
+        Map<String, String> options = LoadGenerator.parseOptions(new String[] {"--rate=50", "--radius=0,10"});
+        assertEquals("50", options.get("rate"));
+        assertEquals("0,10", options.get("radius"));
+    }
+}
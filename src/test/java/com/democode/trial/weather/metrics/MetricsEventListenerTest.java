@@ -0,0 +1,145 @@
+package com.democode.trial.weather.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.web.RestMetricsEndpoint;
+import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+public class MetricsEventListenerTest {
+
+    private static final String BASE_URL = "http://localhost:9092";
+
+    private HttpServer _server;
+
+    @Before
+    public void setUp() {
+        MetricsRegistry.getInstance().clear();
+        ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherCollectorEndpoint.class);
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+        resourceConfig.register(RestMetricsEndpoint.class);
+        resourceConfig.register(MetricsEventListener.class);
+        _server = GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URL + "/"), resourceConfig);
+    }
+
+    @After
+    public void tearDown() {
+        _server.shutdownNow();
+        AWAStorageFactory.reset();
+        MetricsRegistry.getInstance().clear();
+    }
+
+    @Test
+    public void testRecorded() throws Exception {
+        assertEquals(200, send("GET", "/query/weather/BOS/0", null));
+        assertEquals(200, send("GET", "/query/weather/JFK/0", null));
+        assertEquals(404, send("GET", "/query/weather/XYZ/0", null));
+        assertEquals(200, send("PUT", "/collect/weather/BOS/wind",
+                "{\"mean\":12.5,\"first\":10,\"second\":12,\"third\":15,\"count\":20}"));
+        assertEquals(404, send("GET", "/no/such/resource", null));
+
+        EndpointMetrics query = MetricsRegistry.getInstance().endpoint("GET", "/query/weather/{iata}/{radius}");
+        assertEquals(3, query.getRequests());
+        assertEquals(1, query.getClientErrors());
+        assertEquals(0, query.getServerErrors());
+        long[] counts = query.getLatency().getCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        assertEquals(3, total);
+        assertTrue(query.getLatency().getSumNanos() > 0);
+        assertEquals(1, MetricsRegistry.getInstance().endpoint("GET", MetricsEventListener.UNMATCHED).getRequests());
+        assertEquals(1, MetricsRegistry.getInstance().getIngested(DataPointType.WIND));
+    }
+
+    @Test
+    public void testUnknownMethodsShareOneEndpoint() throws Exception {
+        for (String method : new String[] {"FOO", "BAR", "BAZ"}) {
+            try (Socket socket = new Socket("localhost", 9092)) {
+                OutputStream out = socket.getOutputStream();
+                out.write((method + " /no/such/resource HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                read(socket.getInputStream());
+            }
+        }
+
+        assertEquals(3, MetricsRegistry.getInstance().endpoint(MetricsEventListener.OTHER, MetricsEventListener.UNMATCHED)
+                .getRequests());
+        for (EndpointMetrics endpoint : MetricsRegistry.getInstance().getEndpoints()) {
+            assertTrue(endpoint.getMethod(), endpoint.getMethod().equals(MetricsEventListener.OTHER));
+        }
+    }
+
+    @Test
+    public void testScrape() throws Exception {
+        send("GET", "/query/weather/BOS/0", null);
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/metrics").openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType(), connection.getContentType().startsWith("text/plain"));
+        String body = read(connection.getInputStream());
+
+        String labels = "method=\"GET\",endpoint=\"/query/weather/{iata}/{radius}\"";
+        assertTrue(body, body.contains("# TYPE awa_http_requests_total counter\n"));
+        assertTrue(body, body.contains("awa_http_requests_total{" + labels + "} 1\n"));
+        assertTrue(body, body.contains("awa_http_errors_total{" + labels + ",status=\"4xx\"} 0\n"));
+        assertTrue(body, body.contains("awa_http_request_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 1\n"));
+        assertTrue(body, body.contains("awa_http_request_duration_seconds_count{" + labels + "} 1\n"));
+        assertTrue(body, body.contains("awa_datapoints_ingested_total{type=\"wind\"} 0\n"));
+        assertTrue(body, body.contains("awa_airports 5\n"));
+        assertTrue(body, body.contains("awa_queries_total 1\n"));
+        assertTrue(body, body.contains("# TYPE jvm_heap_used_bytes gauge\n"));
+    }
+
+    private static int send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            read(in);
+        }
+        return status;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        try (InputStream input = in) {
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
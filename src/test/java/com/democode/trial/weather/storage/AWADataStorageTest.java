@@ -0,0 +1,63 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.AirportData;
+
+public class AWADataStorageTest {
+
+    private AWADataStorage _storage;
+
+    @Before
+    public void setUp() {
+        _storage = AWADataStorage.getInstance();
+    }
+
+    @After
+    public void clear() {
+        _storage.clear();
+    }
+
+    @Test
+    public void testIndexFollowsRemoval() {
+        assertEquals(0, _storage.getAirportDataIdx("BOS"));
+        assertEquals(4, _storage.getAirportDataIdx("MMU"));
+
+        _storage.removeAirport("EWR");
+
+        assertNull(_storage.findAirportData("EWR"));
+        assertEquals(-1, _storage.getAirportDataIdx("EWR"));
+        for (int i = 0; i < _storage.getAirportData().size(); i++) {
+            AirportData ad = _storage.getAirportData().get(i);
+            assertEquals(i, _storage.getAirportDataIdx(ad.getIata()));
+            assertEquals(ad, _storage.findAirportData(ad.getIata()));
+        }
+    }
+
+    @Test
+    public void testAddSameIataReplaces() {
+        _storage.addAirport("BOS", 1.0, 2.0);
+
+        assertEquals(5, _storage.getAirportData().size());
+        assertEquals(0, _storage.getAirportDataIdx("BOS"));
+        assertEquals(1.0, _storage.findAirportData("BOS").getLatitude(), 0);
+    }
+
+    @Test
+    public void testRadiusQueryGridAndScanAgree() {
+        AirportData bos = _storage.findAirportData("BOS");
+
+        assertEquals(1, _storage.findAirportsInRadius(bos, 100).size());
+        assertEquals(5, _storage.findAirportsInRadius(bos, 400).size());
+        assertEquals(5, _storage.findAirportsInRadius(bos, 3000).size());
+
+        _storage.removeAirport("JFK");
+        assertEquals(4, _storage.findAirportsInRadius(bos, 400).size());
+        assertEquals(4, _storage.findAirportsInRadius(bos, 3000).size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AirportCoordinatesTest {
+
+    private AirportCoordinates _coordinates;
+
+    private double[][] _points;
+
+    @Before
+    public void setUp() {
+        Random random = new Random(11);
+        _coordinates = new AirportCoordinates();
+        _points = new double[3000][];
+        for (int i = 0; i < _points.length; i++) {
+            _points[i] = new double[] {random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180};
+            _coordinates.add(_points[i][0], _points[i][1]);
+        }
+    }
+
+    @Test
+    public void testDistancesMatchHaversine() {
+        double[] out = new double[_points.length];
+        Random random = new Random(3);
+        for (int q = 0; q < 50; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            _coordinates.distances(lat, lon, out);
+            for (int i = 0; i < _points.length; i++) {
+                assertEquals(haversine(lat, lon, _points[i][0], _points[i][1]), out[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testFindInRadiusMatchesHaversine() {
+        int[] out = new int[_points.length];
+        Random random = new Random(5);
+        double[] radii = {0, 10, 300, 2500, 8000, 25000};
+        for (int q = 0; q < 50; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            for (double radius : radii) {
+                int found = _coordinates.findInRadius(lat, lon, radius, out);
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < _points.length; i++) {
+                    if (haversine(lat, lon, _points[i][0], _points[i][1]) <= radius) {
+                        expected.add(i);
+                    }
+                }
+                assertEquals(expected.size(), found);
+                for (int i = 0; i < found; i++) {
+                    assertEquals(expected.get(i).intValue(), out[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindInRadiusAcrossAntimeridianAndPoles() {
+        AirportCoordinates coordinates = new AirportCoordinates();
+        coordinates.add(0, 179.9);
+        coordinates.add(0, -179.9);
+        coordinates.add(89.9, 0);
+        coordinates.add(89.9, 180);
+        coordinates.add(60, 170);
+        coordinates.add(60, -170);
+        int[] out = new int[coordinates.size()];
+
+        assertEquals(2, coordinates.findInRadius(0, 180, 50, out));
+        assertEquals(0, out[0]);
+        assertEquals(1, out[1]);
+        assertEquals(2, coordinates.findInRadius(89.95, 90, 50, out));
+        assertEquals(2, out[0]);
+        assertEquals(3, out[1]);
+        // 10 degrees of longitude at 60 degrees north are about 555 KM, on either side of the antimeridian
+        assertEquals(2, coordinates.findInRadius(60, 180, 600, out));
+        assertEquals(4, out[0]);
+        assertEquals(5, out[1]);
+        assertEquals(0, coordinates.findInRadius(60, 0, 600, out));
+    }
+
+    @Test
+    public void testRemoveKeepsSlotsAligned() {
+        _coordinates.remove(0);
+        double[] out = new double[_points.length];
+        _coordinates.distances(0, 0, out);
+
+        assertEquals(_points.length - 1, _coordinates.size());
+        assertEquals(haversine(0, 0, _points[1][0], _points[1][1]), out[0], 1e-6);
+    }
+
+    /** textbook Haversine in degrees, independent of {@link GeoMath} */
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.pow(Math.sin(dLon / 2), 2) * Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2));
+        return 2 * GeoMath.EARTH_RADIUS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
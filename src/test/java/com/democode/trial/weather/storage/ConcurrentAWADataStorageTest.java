@@ -0,0 +1,140 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+public class ConcurrentAWADataStorageTest {
+
+    private static final int THREADS = 16;
+
+    private static final int AIRPORTS_PER_THREAD = 200;
+
+    private ConcurrentAWADataStorage _storage;
+
+    private ExecutorService _executor;
+
+    @Before
+    public void setUp() {
+        _storage = new ConcurrentAWADataStorage();
+        _storage.initData();
+        _executor = Executors.newFixedThreadPool(THREADS * 2);
+    }
+
+    @After
+    public void clear() {
+        _executor.shutdownNow();
+        _storage.clear();
+    }
+
+    @Test
+    public void testConcurrentWritersAndReaders() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(THREADS);
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < AIRPORTS_PER_THREAD; i++) {
+                        String iata = "T" + thread + "_" + i;
+                        _storage.addAirport(iata, 10 + thread, 10 + i * 0.01);
+                        _storage.updateAtmosphericInformation(iata, new AtmosphericInformation());
+                        // every other airport is removed again
+                        if (i % 2 == 1) {
+                            _storage.removeAirport(iata);
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    AirportData bos = _storage.findAirportData("BOS");
+                    while (writersDone.getCount() > 0) {
+                        for (AirportData ad : _storage.getAirportData()) {
+                            assertNotNull(ad.getIata());
+                        }
+                        _storage.findAirportsInRadius(bos, 20000);
+                        _storage.getAtmosphericInformation();
+                        _storage.getRequestCounters().getTopAirports();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(writersDone.await(60, TimeUnit.SECONDS));
+        _executor.shutdown();
+        assertTrue(_executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        int expected = 5 + THREADS * AIRPORTS_PER_THREAD / 2;
+        assertEquals(expected, _storage.getAirportData().size());
+        assertEquals(expected, _storage.getAtmosphericInformation().size());
+        assertEquals(expected, _storage.findAirportsInRadius(_storage.findAirportData("BOS"), 20000).size());
+        for (int i = 0; i < _storage.getAirportData().size(); i++) {
+            assertEquals(i, _storage.getAirportDataIdx(_storage.getAirportData().get(i).getIata()));
+        }
+    }
+
+    @Test
+    public void testRemovedAirportNotTracked() throws Exception {
+        DataPoint dp = new DataPoint.Builder().withCount(1).withMean(10).build();
+        for (int round = 0; round < 200; round++) {
+            _storage.addAirport("RMV", 1, 1);
+            final AtomicBoolean stop = new AtomicBoolean();
+            final CountDownLatch written = new CountDownLatch(1);
+            Future<?> writer = _executor.submit(() -> {
+                while (!stop.get()) {
+                    _storage.updateDataPoint("RMV", DataPointType.WIND, dp, System.currentTimeMillis());
+                    written.countDown();
+                }
+            });
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            _storage.removeAirport("RMV");
+            stop.set(true);
+            writer.get(10, TimeUnit.SECONDS);
+            assertEquals(0, _storage.getFreshnessTracker().getFreshCount());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsStableForReaders() {
+        List<AirportData> before = _storage.getAirportData();
+        _storage.addAirport("NEW", 1, 1);
+        _storage.removeAirport("BOS");
+
+        assertEquals(5, before.size());
+        assertEquals("BOS", before.get(0).getIata());
+        assertEquals(5, _storage.getAirportData().size());
+        assertEquals(new ArrayList<>(before.subList(1, 5)), _storage.getAirportData().subList(0, 4));
+    }
+}
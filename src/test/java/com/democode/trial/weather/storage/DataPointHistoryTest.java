@@ -0,0 +1,159 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.dto.RollupSeries;
+
+public class DataPointHistoryTest {
+
+    private DataPointHistory _history;
+
+    @Before
+    public void setUp() {
+        _history = new DataPointHistory(4);
+    }
+
+    @Test
+    public void testRange() {
+        for (int i = 1; i <= 3; i++) {
+            _history.add(i * 1000, point(i));
+        }
+        assertEquals(3, _history.range(0, Long.MAX_VALUE).size());
+        DataPointSeries series = _history.range(1500, 3000);
+        assertEquals(2, series.size());
+        assertEquals(2000, series.getTimestamps()[0]);
+        assertEquals(3, series.getMean()[1], 0);
+        assertEquals(0, _history.range(3001, Long.MAX_VALUE).size());
+        assertEquals(0, _history.range(0, 999).size());
+    }
+
+    @Test
+    public void testWrapAround() {
+        for (int i = 1; i <= 10; i++) {
+            _history.add(i * 1000, point(i));
+        }
+        assertEquals(4, _history.size());
+        DataPointSeries series = _history.range(0, Long.MAX_VALUE);
+        assertEquals(4, series.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals((i + 7) * 1000, series.getTimestamps()[i]);
+            assertEquals(i + 7, series.getCount()[i]);
+        }
+        assertEquals(2, _history.range(8000, 9000).size());
+    }
+
+    @Test
+    public void testOutOfOrder() {
+        _history.add(2000, point(1));
+        _history.add(1000, point(2));
+        DataPointSeries series = _history.range(2000, 2000);
+        // the late sample is kept with the latest timestamp, the timestamps stay sorted
+        assertEquals(2, series.size());
+        assertEquals(2, series.getMean()[1], 0);
+    }
+
+    @Test
+    public void testRetainedChunks() {
+        // chunks of 4 samples, the ring buffer keeps the newest 4 of them
+        DataPointHistory history = new DataPointHistory(4, 3);
+        for (int i = 1; i <= 30; i++) {
+            history.add(i * 1000, point(i));
+        }
+        assertTrue(history.getChunkBytes() > 0);
+        DataPointSeries series = history.range(0, Long.MAX_VALUE);
+        // 3 chunks of 4 samples from 17 to 28 and the ring buffer from 27 to 30
+        assertEquals(14, series.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals((i + 17) * 1000, series.getTimestamps()[i]);
+            assertEquals(i + 17, series.getCount()[i]);
+        }
+        series = history.range(18500, 27000);
+        assertEquals(9, series.size());
+        assertEquals(19000, series.getTimestamps()[0]);
+        assertEquals(27000, series.getTimestamps()[8]);
+    }
+
+    @Test
+    public void testRollupResolution() {
+        // a day of minutes, a month of hours and a year of days
+        DataPointHistory history = new DataPointHistory(4, 0, 1440, 31 * 24, 366);
+        long start = 1500000000000L - 1500000000000L % Rollup.DAY;
+        // one sample a minute for 30 days
+        for (int i = 0; i < 30 * 1440; i++) {
+            history.add(start + i * Rollup.MINUTE, point(i % 100));
+        }
+        long end = start + 30 * Rollup.DAY - 1;
+        // the range ends with the last sample, a minute before the end of the 30th day
+        assertEquals(Rollup.DAY, history.rollup(start, end, 29).getResolution());
+        assertEquals(30, history.rollup(start, end, 29).size());
+        assertEquals(Rollup.HOUR, history.rollup(start, end, 30).getResolution());
+        assertEquals(720, history.rollup(start, end, 500).size());
+        // the minutes of the last day only
+        assertEquals(Rollup.HOUR, history.rollup(start, end, 1000).getResolution());
+        RollupSeries day = history.rollup(end - Rollup.DAY + 1, end, 1000);
+        assertEquals(Rollup.MINUTE, day.getResolution());
+        assertEquals(1440, day.size());
+        assertEquals(1, day.getCount()[0]);
+
+        RollupSeries daily = history.rollup(start, start + Rollup.DAY - 1, 1);
+        assertEquals(1440, daily.getCount()[0]);
+        assertEquals(0, daily.getMin()[0], 0);
+        assertEquals(99, daily.getMax()[0], 0);
+
+        // full minute and hour rollups, the day rollup has grown to 32 buckets
+        assertEquals((1440 + 744 + 32) * Rollup.BUCKET_BYTES, history.getRollupBytes());
+        for (int i = 30 * 1440; i < 400 * 1440; i += 60) {
+            history.add(start + i * Rollup.MINUTE, point(1));
+        }
+        assertEquals(history.getMaxRollupBytes(), history.getRollupBytes());
+        assertEquals((1440 + 744 + 366) * Rollup.BUCKET_BYTES, history.getRollupBytes());
+    }
+
+    @Test
+    public void testRollupRetention() {
+        long start = 1500000000000L - 1500000000000L % Rollup.DAY;
+        for (int i = 0; i < 400 * 1440; i += 10) {
+            _history.add(start + i * Rollup.MINUTE, point(1));
+        }
+        assertEquals(DataPointHistory.DEFAULT_MAX_ROLLUP_BYTES, _history.getRollupBytes());
+
+        System.setProperty(AtmosphericHistory.ROLLUP_MINUTES_PROPERTY, "10");
+        System.setProperty(AtmosphericHistory.ROLLUP_HOURS_PROPERTY, "2");
+        System.setProperty(AtmosphericHistory.ROLLUP_DAYS_PROPERTY, "1");
+        try {
+            AtmosphericHistory history = new AtmosphericHistory();
+            for (int i = 0; i < 2 * 1440; i++) {
+                history.record("BOS", DataPointType.WIND, start + i * Rollup.MINUTE, point(1));
+            }
+            assertEquals(AtmosphericHistory.DEFAULT_CAPACITY * DataPointHistory.SAMPLE_BYTES
+                    + (10 + 2 + 1) * Rollup.BUCKET_BYTES, history.sizeInBytes());
+        } finally {
+            System.clearProperty(AtmosphericHistory.ROLLUP_MINUTES_PROPERTY);
+            System.clearProperty(AtmosphericHistory.ROLLUP_HOURS_PROPERTY);
+            System.clearProperty(AtmosphericHistory.ROLLUP_DAYS_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testAtmosphericHistory() {
+        AtmosphericHistory history = new AtmosphericHistory(2);
+        history.record("BOS", DataPointType.WIND, 1000, point(1));
+        history.record("BOS", DataPointType.PRESSURE, 1000, point(700));
+        assertEquals(1, history.range("BOS", DataPointType.WIND, 0, Long.MAX_VALUE).size());
+        assertEquals(0, history.range("BOS", DataPointType.HUMIDTY, 0, Long.MAX_VALUE).size());
+        history.remove("BOS");
+        assertEquals(0, history.range("BOS", DataPointType.WIND, 0, Long.MAX_VALUE).size());
+    }
+
+    private static DataPoint point(int value) {
+        return new DataPoint.Builder().withCount(value).withFirst(value).withMedian(value).withLast(value)
+                .withMean(value).build();
+    }
+}
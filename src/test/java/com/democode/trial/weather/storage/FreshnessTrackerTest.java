@@ -0,0 +1,138 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+public class FreshnessTrackerTest {
+
+    private long _now;
+
+    private FreshnessTracker _tracker;
+
+    /** the records as the storage would hold them */
+    private Map<String, AtmosphericInformation> _records;
+
+    @Before
+    public void setUp() {
+        _now = 1500000000000L;
+        _tracker = new FreshnessTracker(new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.of("UTC");
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(_now);
+            }
+        });
+        _records = new HashMap<>();
+    }
+
+    @Test
+    public void testExpiresAtDeadline() {
+        update("BOS");
+        assertEquals(1, _tracker.getFreshCount());
+
+        _now += FreshnessTracker.FRESH_MILLIS - 1;
+        assertEquals(1, _tracker.getFreshCount());
+
+        _now += 1;
+        assertEquals(0, _tracker.getFreshCount());
+    }
+
+    @Test
+    public void testUpdateExtendsFreshness() {
+        update("BOS");
+        _now += FreshnessTracker.FRESH_MILLIS / 2;
+        update("BOS");
+        _now += FreshnessTracker.FRESH_MILLIS / 2 + 1;
+        assertEquals(1, _tracker.getFreshCount());
+
+        _now += FreshnessTracker.FRESH_MILLIS;
+        assertEquals(0, _tracker.getFreshCount());
+    }
+
+    @Test
+    public void testKeepsOneEntryPerAirport() {
+        for (int i = 0; i < 5000; i++) {
+            _now += 1000;
+            update("BOS");
+            if (i % 100 == 0) {
+                _tracker.remove("BOS");
+                assertEquals(0, _tracker.getFreshCount());
+                update("BOS");
+            }
+            assertEquals(1, _tracker.getFreshCount());
+        }
+        assertEquals(1, _tracker.getScheduledCount());
+
+        // an update older than the last one files the entry again for its earlier deadline
+        _tracker.touch("BOS", _now - FreshnessTracker.FRESH_MILLIS / 2);
+        _now += FreshnessTracker.FRESH_MILLIS / 2;
+        assertEquals(0, _tracker.getFreshCount());
+        // the replaced entry goes when its own slot comes up
+        _now += FreshnessTracker.FRESH_MILLIS;
+        assertEquals(0, _tracker.getFreshCount());
+        assertEquals(0, _tracker.getScheduledCount());
+    }
+
+    @Test
+    public void testMatchesScan() {
+        Random random = new Random(17);
+        for (int step = 0; step < 20000; step++) {
+            // mostly small steps with an occasional jump of several hours
+            _now += random.nextInt(100) == 0 ? random.nextInt(36000000) : random.nextInt(120000);
+            String iata = "A" + random.nextInt(300);
+            int action = random.nextInt(10);
+            if (action < 7) {
+                update(iata);
+            } else if (action < 9) {
+                _records.remove(iata);
+                _tracker.remove(iata);
+            } else {
+                _records.put(iata, new AtmosphericInformation());
+                _tracker.remove(iata);
+            }
+            if (step % 10 == 0) {
+                assertEquals("step " + step, scan(), _tracker.getFreshCount());
+            }
+        }
+    }
+
+    private void update(String iata) {
+        AtmosphericInformation ai = new AtmosphericInformation();
+        ai.setWind(new DataPoint.Builder().withMean(10).build());
+        ai.setLastUpdateTime(_now);
+        _records.put(iata, ai);
+        _tracker.touch(iata, ai.getLastUpdateTime());
+    }
+
+    /** the former full scan done by ping */
+    private int scan() {
+        int datasize = 0;
+        for (AtmosphericInformation ai : _records.values()) {
+            if (AbstractAWADataStorage.isNotEmpty(ai) && ai.getLastUpdateTime() > _now - 86400000) {
+                datasize++;
+            }
+        }
+        return datasize;
+    }
+}
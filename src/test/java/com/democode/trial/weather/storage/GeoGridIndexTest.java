@@ -0,0 +1,128 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.AirportData;
+
+public class GeoGridIndexTest {
+
+    private GeoGridIndex _index;
+
+    private List<AirportData> _airports;
+
+    @Before
+    public void setUp() {
+        _index = new GeoGridIndex();
+        _airports = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            AirportData ad = airport("A" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            add(ad);
+        }
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(7);
+        double[] radii = {10, 100, 500, 1000, 5000, 15000};
+        for (int i = 0; i < 200; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            for (double radius : radii) {
+                assertEquals(bruteForce(lat, lon, radius), iatas(_index.findInRadius(lat, lon, radius)));
+            }
+        }
+    }
+
+    @Test
+    public void testDatelineWraparound() {
+        AirportData east = airport("EST", 10, 179.9);
+        AirportData west = airport("WST", 10, -179.9);
+        add(east);
+        add(west);
+
+        Set<String> found = iatas(_index.findInRadius(10, 179.95, 50));
+        assertTrue(found.contains("EST"));
+        assertTrue(found.contains("WST"));
+        assertEquals(bruteForce(10, 179.95, 50), found);
+    }
+
+    @Test
+    public void testPoleWraparound() {
+        AirportData a = airport("NPA", 89.5, 0);
+        AirportData b = airport("NPB", 89.5, 180);
+        add(a);
+        add(b);
+
+        Set<String> found = iatas(_index.findInRadius(89.5, 0, 150));
+        assertTrue(found.contains("NPB"));
+        assertEquals(bruteForce(89.5, 0, 150), found);
+    }
+
+    @Test
+    public void testRemove() {
+        AirportData ad = _airports.get(0);
+        assertTrue(iatas(_index.findInRadius(ad.getLatitude(), ad.getLongitude(), 1)).contains(ad.getIata()));
+
+        assertTrue(_index.remove(ad));
+        assertEquals(4999, _index.size());
+        assertTrue(!iatas(_index.findInRadius(ad.getLatitude(), ad.getLongitude(), 1)).contains(ad.getIata()));
+    }
+
+    @Test
+    public void testAddAll() {
+        Random random = new Random(11);
+        List<AirportData> batch = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // dense cluster to put many airports into the same cells
+            batch.add(airport("B" + i, 40 + random.nextDouble() * 2, -74 + random.nextDouble() * 2));
+        }
+        _airports.addAll(batch);
+        _index.addAll(batch);
+
+        assertEquals(7000, _index.size());
+        assertEquals(bruteForce(41, -73, 100), iatas(_index.findInRadius(41, -73, 100)));
+        assertEquals(bruteForce(0, 0, 5000), iatas(_index.findInRadius(0, 0, 5000)));
+    }
+
+    private void add(AirportData ad) {
+        _airports.add(ad);
+        _index.add(ad);
+    }
+
+    private Set<String> bruteForce(double lat, double lon, double radius) {
+        Set<String> retval = new HashSet<>();
+        for (AirportData ad : _airports) {
+            if (GeoMath.distance(lat, lon, ad.getLatitude(), ad.getLongitude()) <= radius) {
+                retval.add(ad.getIata());
+            }
+        }
+        return retval;
+    }
+
+    private static Set<String> iatas(List<AirportData> airports) {
+        Set<String> retval = new HashSet<>();
+        for (AirportData ad : airports) {
+            retval.add(ad.getIata());
+        }
+        return retval;
+    }
+
+    private static AirportData airport(String iata, double lat, double lon) {
+        AirportData ad = new AirportData();
+        ad.setIata(iata);
+        ad.setLatitude(lat);
+        ad.setLongitude(lon);
+        return ad;
+    }
+}
@@ -0,0 +1,76 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.DataPointSeries;
+
+public class GorillaChunkTest {
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(7);
+        GorillaChunk.Encoder encoder = new GorillaChunk.Encoder(16);
+        DataPointSeries expected = new DataPointSeries(1000);
+        long timestamp = 1500000000000L;
+        for (int i = 0; i < expected.size(); i++) {
+            // regular minutes, jitter, gaps and repeated timestamps
+            timestamp += i % 50 == 0 ? random.nextInt(Integer.MAX_VALUE) : i % 7 == 0 ? 0 : 60000 + random.nextInt(2000);
+            double mean = i % 3 == 0 ? random.nextGaussian() * 1e6 : Math.round(random.nextDouble() * 1000) / 10.0;
+            int rounded = (int) Math.round(mean);
+            expected.set(i, timestamp, mean, rounded - random.nextInt(5), rounded, i % 11 == 0 ? Integer.MAX_VALUE
+                    : rounded + random.nextInt(40000), i % 13 == 0 ? Integer.MIN_VALUE : random.nextInt(20));
+            append(encoder, expected, i);
+        }
+        GorillaChunk chunk = encoder.seal();
+        assertEquals(expected.size(), chunk.size());
+        assertEquals(expected.getTimestamps()[0], chunk.getFirstTimestamp());
+        assertEquals(timestamp, chunk.getLastTimestamp());
+        assertSeriesEquals(expected, chunk.decode());
+    }
+
+    @Test
+    public void testSpecialValues() {
+        double[] means = {0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 0};
+        long[] timestamps = {Long.MIN_VALUE, 0, Long.MAX_VALUE, 0, -1, 1, 1};
+        GorillaChunk.Encoder encoder = new GorillaChunk.Encoder(1);
+        DataPointSeries expected = new DataPointSeries(means.length);
+        for (int i = 0; i < means.length; i++) {
+            expected.set(i, timestamps[i], means[i], Integer.MIN_VALUE, 0, Integer.MAX_VALUE, i);
+            append(encoder, expected, i);
+        }
+        assertSeriesEquals(expected, encoder.seal().decode());
+    }
+
+    @Test
+    public void testConstantSeries() {
+        GorillaChunk.Encoder encoder = new GorillaChunk.Encoder(120);
+        for (int i = 0; i < 120; i++) {
+            encoder.append(60000L * i, 21.5, 20, 21, 23, 10);
+        }
+        GorillaChunk chunk = encoder.seal();
+        // 184 bits for the first sample, 29 for the first delta and 6 bits for each unchanged sample
+        assertEquals((184 + 29 + 118 * 6 + 7) / 8, chunk.sizeInBytes());
+        assertEquals(21.5, chunk.decode().getMean()[119], 0);
+    }
+
+    private static void append(GorillaChunk.Encoder encoder, DataPointSeries series, int i) {
+        encoder.append(series.getTimestamps()[i], series.getMean()[i], series.getFirst()[i], series.getSecond()[i],
+                series.getThird()[i], series.getCount()[i]);
+    }
+
+    private static void assertSeriesEquals(DataPointSeries expected, DataPointSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTimestamps()[i], actual.getTimestamps()[i]);
+            assertEquals(Double.doubleToRawLongBits(expected.getMean()[i]), Double.doubleToRawLongBits(actual.getMean()[i]));
+            assertEquals(expected.getFirst()[i], actual.getFirst()[i]);
+            assertEquals(expected.getSecond()[i], actual.getSecond()[i]);
+            assertEquals(expected.getThird()[i], actual.getThird()[i]);
+            assertEquals(expected.getCount()[i], actual.getCount()[i]);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HeavyHittersTest {
+
+    @Test
+    public void testFindsHeavyHittersAmongManyKeys() {
+        HeavyHitters hitters = new HeavyHitters(8, 4, 1024);
+        Random random = new Random(1);
+        // a crawler sending 100k distinct keys mixed with five popular airports
+        for (int i = 0; i < 100000; i++) {
+            hitters.add("K" + random.nextInt(1000000));
+            if (i % 4 == 0) {
+                hitters.add("BOS");
+            }
+            if (i % 8 == 0) {
+                hitters.add("JFK");
+                hitters.add("EWR");
+            }
+            if (i % 16 == 0) {
+                hitters.add("LGA");
+                hitters.add("MMU");
+            }
+        }
+
+        Map<String, Long> top = hitters.top();
+        assertTrue(top.size() <= 8);
+        for (String iata : new String[] {"BOS", "JFK", "EWR", "LGA", "MMU"}) {
+            assertTrue(iata + " missing in " + top, top.containsKey(iata));
+        }
+        assertTrue(hitters.estimate("BOS") >= 25000);
+        assertTrue(hitters.estimate("BOS") < 25000 + 100000 * 3 / 1024);
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        HeavyHitters hitters = new HeavyHitters(2, 4, 64);
+        hitters.add("BOS");
+        hitters.add("BOS");
+        hitters.add("JFK");
+        assertEquals(2, hitters.estimate("BOS"));
+
+        hitters.remove("BOS");
+        assertFalse(hitters.top().containsKey("BOS"));
+
+        hitters.add("EWR");
+        assertEquals(2, hitters.top().size());
+
+        hitters.clear();
+        assertTrue(hitters.top().isEmpty());
+        assertEquals(0, hitters.estimate("BOS"));
+    }
+}
@@ -0,0 +1,313 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.service.AWADataStorageService;
+import com.democode.trial.weather.service.AWADataStorageServiceImpl;
+import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
+
+public class MappedAWADataStorageTest {
+
+    private static final int READERS = 3;
+
+    private static final int COLLECTORS = 2;
+
+    private static final int AIRPORTS = 40;
+
+    private static final int ROUNDS = 2000;
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private Path _file;
+
+    private ExecutorService _executor;
+
+    @Before
+    public void setUp() {
+        _file = _folder.getRoot().toPath().resolve("readings.mmap");
+        _executor = Executors.newFixedThreadPool(READERS + COLLECTORS + 1);
+    }
+
+    @After
+    public void tearDown() {
+        _executor.shutdownNow();
+        AWAStorageFactory.reset();
+        System.clearProperty(AWAStorageFactory.STORAGE_PROPERTY);
+        System.clearProperty(MappedReadings.FILE_PROPERTY);
+        System.clearProperty(MappedReadings.READ_ONLY_PROPERTY);
+    }
+
+    @Test
+    public void testWriterAndReader() throws IOException {
+        MappedAWADataStorage writer = new MappedAWADataStorage(MappedReadings.open(_file, 4));
+        writer.addAirport("BOS", 42.364347, -71.005181);
+        writer.addAirport("JFK", 40.639751, -73.778925);
+        assertTrue(writer.updateDataPoint("BOS", DataPointType.WIND, dataPoint(10), 1000));
+        assertFalse(writer.updateDataPoint("EWR", DataPointType.WIND, dataPoint(10), 1000));
+
+        MappedAWADataStorage reader = new MappedAWADataStorage(MappedReadings.openReadOnly(_file));
+        assertEquals(2, reader.getAirportData().size());
+        assertEquals(-71.005181, reader.findAirportData("BOS").getLongitude(), 0);
+        assertEquals(dataPoint(10), reader.getAtmosphericInformation("BOS").getWind());
+        assertEquals(1000, reader.getAtmosphericInformation("BOS").getLastUpdateTime());
+        assertNull(reader.getAtmosphericInformation("JFK").getWind());
+        assertEquals(2, reader.findAirportsInRadius(reader.findAirportData("BOS"), 500).size());
+
+        // the reader follows the catalogue changes of the writer
+        writer.removeAirport("JFK");
+        writer.addAirport("EWR", 40.6925, -74.168667);
+        writer.updateDataPoint("EWR", DataPointType.PRESSURE, dataPoint(700), 2000);
+        assertNull(reader.findAirportData("JFK"));
+        assertNull(reader.getAtmosphericInformation("JFK"));
+        assertEquals(dataPoint(700), reader.getAtmosphericInformation("EWR").getPressure());
+        assertEquals(2, reader.findAirportsInRadius(reader.findAirportData("BOS"), 500).size());
+
+        try {
+            reader.updateDataPoint("BOS", DataPointType.WIND, dataPoint(1), 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            reader.addAirport("LGA", 40.77725, -73.872611);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // a new writer keeps the airports and readings of the file
+        writer = new MappedAWADataStorage(MappedReadings.open(_file, 4));
+        assertEquals(2, writer.getAirportData().size());
+        assertEquals(dataPoint(10), writer.getAtmosphericInformation("BOS").getWind());
+        writer.addAirport("LGA", 40.77725, -73.872611);
+        writer.addAirport("MMU", 40.79935, -74.4148747);
+        List<AirportData> tooMany = new ArrayList<>();
+        tooMany.add(AbstractAWADataStorage.newAirport("BDL", 41.938889, -72.683222));
+        try {
+            writer.addAirports(tooMany);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertNull(writer.findAirportData("BDL"));
+        try {
+            writer.addAirport("TOO_LONG_CODE", 0, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(4, reader.getAirportData().size());
+    }
+
+    /**
+     * A writer killed while writing a slot leaves its sequence odd, the next writer makes it even again
+     */
+    @Test(timeout = 10000)
+    public void testSlotOfDeadWriter() throws IOException {
+        MappedAWADataStorage writer = new MappedAWADataStorage(MappedReadings.open(_file, 4));
+        writer.addAirport("BOS", 42.364347, -71.005181);
+        writer.updateDataPoint("BOS", DataPointType.WIND, dataPoint(10), 1000);
+        writer.close();
+        try (FileChannel channel = FileChannel.open(_file, StandardOpenOption.WRITE)) {
+            ByteBuffer sequence = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            sequence.putLong(0, 7);
+            channel.write(sequence, MappedReadings.HEADER_BYTES);
+        }
+
+        writer = new MappedAWADataStorage(MappedReadings.open(_file, 4));
+        MappedAWADataStorage reader = new MappedAWADataStorage(MappedReadings.openReadOnly(_file));
+        assertEquals(1, reader.getAirportData().size());
+        assertEquals(dataPoint(10), reader.getAtmosphericInformation("BOS").getWind());
+        assertTrue(writer.updateDataPoint("BOS", DataPointType.WIND, dataPoint(11), 2000));
+        assertEquals(dataPoint(11), reader.getAtmosphericInformation("BOS").getWind());
+    }
+
+    @Test
+    public void testNotMappedFile() throws IOException {
+        Files.write(_file, "not a mapped readings file".getBytes("US-ASCII"));
+        try {
+            MappedReadings.openReadOnly(_file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            MappedReadings.open(_file, 16);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * A collector writes through processDataPoint while readers with their own mappings check that they never see
+     * a half written data point nor an older value than before. Every collector writes the round number into all
+     * fields of the wind of its airports, and another thread adds and removes airports to make the readers rebuild
+     * their catalogues.
+     */
+    @Test
+    public void testConcurrentWriterAndReaders() throws Exception {
+        System.setProperty(AWAStorageFactory.STORAGE_PROPERTY, "mapped");
+        System.setProperty(MappedReadings.FILE_PROPERTY, _file.toString());
+        AWAStorageFactory.reset();
+        final AWADataStorageService service = new AWADataStorageServiceImpl();
+        final List<String> codes = new ArrayList<>();
+        for (int i = 0; i < AIRPORTS; i++) {
+            codes.add(String.format("A%02d", i));
+            service.addAirport(codes.get(i), 40 + i * 0.01, -73);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch collectorsDone = new CountDownLatch(COLLECTORS);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        final List<MappedAWADataStorage> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new MappedAWADataStorage(MappedReadings.openReadOnly(_file)));
+        }
+
+        for (int c = 0; c < COLLECTORS; c++) {
+            final int collector = c;
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int round = 1; round <= ROUNDS; round++) {
+                        for (int i = collector; i < AIRPORTS; i += COLLECTORS) {
+                            service.processDataPoint(codes.get(i), "wind", dataPoint(round));
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    collectorsDone.countDown();
+                }
+            });
+        }
+        _executor.execute(() -> {
+            try {
+                start.await();
+                for (int i = 0; !stop.get(); i++) {
+                    service.addAirport("XX" + i % 8, 41, -73 + i % 8 * 0.1);
+                    service.getAirportData();
+                    AWAStorageFactory.getStorage().removeAirport("XX" + (i + 4) % 8);
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        for (final MappedAWADataStorage reader : readers) {
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    int[] seen = new int[AIRPORTS];
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!stop.get()) {
+                        int i = random.nextInt(AIRPORTS);
+                        AtmosphericInformation ai = reader.getAtmosphericInformation(codes.get(i));
+                        assertNotNull(ai);
+                        DataPoint wind = ai.getWind();
+                        if (wind != null) {
+                            assertEquals(dataPoint(wind.getCount()), wind);
+                            assertTrue(wind.getCount() >= seen[i]);
+                            seen[i] = wind.getCount();
+                        }
+                        AirportData center = reader.findAirportData(codes.get(i));
+                        assertTrue(reader.findAirportsInRadius(center, 1).contains(center));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(collectorsDone.await(120, TimeUnit.SECONDS));
+        stop.set(true);
+        _executor.shutdown();
+        assertTrue(_executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+        for (MappedAWADataStorage reader : readers) {
+            for (String code : codes) {
+                assertEquals(dataPoint(ROUNDS), reader.getAtmosphericInformation(code).getWind());
+            }
+        }
+    }
+
+    /**
+     * A query process serves the readings of the file through the query endpoint
+     */
+    @Test
+    public void testQueryEndpoint() throws IOException {
+        MappedAWADataStorage writer = new MappedAWADataStorage(MappedReadings.open(_file, 16));
+        writer.addAirport("BOS", 42.364347, -71.005181);
+        writer.addAirport("JFK", 40.639751, -73.778925);
+        writer.updateDataPoint("BOS", DataPointType.WIND, dataPoint(10), 1000);
+
+        System.setProperty(AWAStorageFactory.STORAGE_PROPERTY, "mapped");
+        System.setProperty(MappedReadings.FILE_PROPERTY, _file.toString());
+        System.setProperty(MappedReadings.READ_ONLY_PROPERTY, "true");
+        AWAStorageFactory.reset();
+        RestWeatherQueryEndpoint endpoint = new RestWeatherQueryEndpoint();
+        assertEquals(1, readings(endpoint.get("JFK", "500")).size());
+
+        writer.updateDataPoint("JFK", DataPointType.TEMPERATURE, dataPoint(20), 2000);
+        writer.addAirport("EWR", 40.6925, -74.168667);
+        writer.updateDataPoint("EWR", DataPointType.WIND, dataPoint(5), 3000);
+        assertEquals(3, readings(endpoint.get("JFK", "500")).size());
+        assertEquals(dataPoint(20), readings(endpoint.get("JFK", "0")).get(0).getTemperature());
+        // the reader keeps the file as it is on reset
+        AWAStorageFactory.reset();
+        assertEquals(3, readings(endpoint.get("JFK", "500")).size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AtmosphericInformation> readings(Response response) {
+        assertEquals(200, response.getStatus());
+        return (List<AtmosphericInformation>) response.getEntity();
+    }
+
+    private static DataPoint dataPoint(int value) {
+        DataPoint dp = new DataPoint();
+        dp.setMean(value);
+        dp.setFirst(value);
+        dp.setSecond(value);
+        dp.setThird(value);
+        dp.setCount(value);
+        return dp;
+    }
+}
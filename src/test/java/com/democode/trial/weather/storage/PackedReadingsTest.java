@@ -0,0 +1,279 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+
+public class PackedReadingsTest {
+
+    private static final int THREADS = 4;
+
+    private PackedReadings _readings;
+
+    private ExecutorService _executor;
+
+    @Before
+    public void setUp() {
+        _readings = new PackedReadings();
+        _executor = Executors.newFixedThreadPool(THREADS * 2);
+    }
+
+    @After
+    public void tearDown() {
+        _executor.shutdownNow();
+    }
+
+    @Test
+    public void testWriteAndRead() {
+        assertNull(_readings.get("BOS"));
+        assertFalse(_readings.write("BOS", DataPointType.WIND, dataPoint(1), 1));
+        _readings.add("BOS");
+        AtmosphericInformation empty = _readings.get("BOS");
+        assertFalse(AbstractAWADataStorage.isNotEmpty(empty));
+        assertEquals(0, empty.getLastUpdateTime());
+
+        DataPoint extreme = new DataPoint();
+        extreme.setMean(-0.0);
+        extreme.setFirst(Integer.MIN_VALUE);
+        extreme.setSecond(-1);
+        extreme.setThird(Integer.MAX_VALUE);
+        extreme.setCount(-7);
+        assertTrue(_readings.write("BOS", DataPointType.WIND, extreme, 1000));
+        assertTrue(_readings.write("BOS", DataPointType.PRESSURE, dataPoint(760), 2000));
+        AtmosphericInformation ai = _readings.get("BOS");
+        assertEquals(extreme, ai.getWind());
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(ai.getWind().getMean()));
+        assertEquals(dataPoint(760), ai.getPressure());
+        assertNull(ai.getTemperature());
+        assertEquals(2000, ai.getLastUpdateTime());
+
+        // a whole record replaces all readings
+        AtmosphericInformation record = new AtmosphericInformation();
+        record.setHumidity(dataPoint(55));
+        record.setLastUpdateTime(3000);
+        assertTrue(_readings.write("BOS", record));
+        ai = _readings.get("BOS");
+        assertNull(ai.getWind());
+        assertNull(ai.getPressure());
+        assertEquals(dataPoint(55), ai.getHumidity());
+        assertEquals(3000, ai.getLastUpdateTime());
+        assertEquals(1, _readings.getAll().size());
+    }
+
+    @Test
+    public void testViewsOwnedByCaller() {
+        _readings.add("BOS");
+        _readings.write("BOS", DataPointType.WIND, dataPoint(10), 1000);
+        AtmosphericInformation ai = _readings.get("BOS");
+        assertNotSame(ai, _readings.get("BOS"));
+
+        ai.getWind().setMean(12);
+        ai.setTemperature(dataPoint(20));
+        assertEquals(10, _readings.get("BOS").getWind().getMean(), 0);
+        assertNull(_readings.get("BOS").getTemperature());
+    }
+
+    @Test
+    public void testReadOnlyViews() {
+        _readings.add("BOS");
+        assertNull(_readings.view("BOS"));
+        assertNull(_readings.view("JFK"));
+        _readings.write("BOS", DataPointType.WIND, dataPoint(10), 1000);
+        _readings.write("BOS", DataPointType.CLOUDCOVER, dataPoint(70), 2000);
+
+        AtmosphericInformation view = _readings.view("BOS");
+        AtmosphericInformation copy = _readings.get("BOS");
+        assertEquals(dataPoint(10), view.getWind());
+        assertEquals(dataPoint(70), view.getDataPoint(DataPointType.CLOUDCOVER));
+        assertNull(view.getPressure());
+        assertEquals(2000, view.getLastUpdateTime());
+        assertArrayEquals(copy.toJson(), view.toJson());
+        // the views of a record share its encoding until the record is replaced
+        assertSame(view.toJson(), _readings.view("BOS").toJson());
+        _readings.write("BOS", DataPointType.WIND, dataPoint(11), 3000);
+        assertNotSame(view.toJson(), _readings.view("BOS").toJson());
+        assertEquals(dataPoint(10), view.getWind());
+
+        try {
+            view.setWind(dataPoint(12));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSlotsReused() {
+        for (int i = 0; i < PackedReadings.PAGE_SLOTS + 1; i++) {
+            _readings.add("A" + i);
+            _readings.write("A" + i, DataPointType.WIND, dataPoint(i), i);
+        }
+        assertEquals(2L * PackedReadings.PAGE_SLOTS * Integer.BYTES
+                + (PackedReadings.PAGE_SLOTS + 1L) * PackedReadings.RECORD_BYTES, _readings.sizeInBytes());
+        assertEquals(PackedReadings.PAGE_SLOTS, _readings.get("A" + PackedReadings.PAGE_SLOTS).getWind().getMean(), 0);
+
+        assertTrue(_readings.remove("A5"));
+        assertFalse(_readings.remove("A5"));
+        assertNull(_readings.get("A5"));
+        assertFalse(_readings.write("A5", DataPointType.WIND, dataPoint(1), 1));
+        // the freed slot goes to the next airport without the readings of the old one
+        _readings.add("B");
+        assertFalse(AbstractAWADataStorage.isNotEmpty(_readings.get("B")));
+        assertEquals(2L * PackedReadings.PAGE_SLOTS * Integer.BYTES
+                + (PackedReadings.PAGE_SLOTS + 1L) * PackedReadings.RECORD_BYTES, _readings.sizeInBytes());
+
+        // adding an airport again drops its readings
+        _readings.add("A7");
+        assertNull(_readings.get("A7").getWind());
+
+        _readings.clear();
+        assertEquals(0, _readings.size());
+        assertNull(_readings.get("A6"));
+    }
+
+    /**
+     * Writers of one airport set every field of a data point and the update time to the same number, so a reader
+     * seeing a mix of two writes would find different numbers in one record
+     */
+    @Test
+    public void testReadersSeeWholeWrites() throws Exception {
+        _readings.add("BOS");
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(THREADS);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 1; i <= 20000; i++) {
+                        int value = i * THREADS + thread;
+                        _readings.write("BOS", DataPointType.WIND, dataPoint(value), value);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        AtmosphericInformation ai = _readings.get("BOS");
+                        DataPoint wind = ai.getWind();
+                        if (wind != null) {
+                            assertEquals(dataPoint(wind.getFirst()), wind);
+                            assertEquals(wind.getFirst(), ai.getLastUpdateTime());
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(writersDone.await(60, TimeUnit.SECONDS));
+        stop.set(true);
+        _executor.shutdown();
+        assertTrue(_executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    /**
+     * Every writer owns one data point type of the same airport and sets the update time to its value times the
+     * number of writers plus its type, so the update time tells which write a record comes from. A reader must
+     * find the data point of that write in the record, never a newer data point than its update time or an older
+     * one than before, and no write may get lost.
+     */
+    @Test
+    public void testWritersOfOneAirportKeepEachOthersPoints() throws Exception {
+        _readings.add("BOS");
+        final int writes = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(THREADS);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final DataPointType type = DataPointType.values()[t];
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 1; i <= writes; i++) {
+                        _readings.write("BOS", type, dataPoint(i), (long) i * THREADS + type.ordinal());
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+            _executor.execute(() -> {
+                try {
+                    start.await();
+                    int[] seen = new int[THREADS];
+                    while (!stop.get()) {
+                        AtmosphericInformation ai = _readings.get("BOS");
+                        if (ai.getLastUpdateTime() == 0) {
+                            continue;
+                        }
+                        int last = (int) (ai.getLastUpdateTime() % THREADS);
+                        assertEquals(dataPoint((int) (ai.getLastUpdateTime() / THREADS)),
+                                ai.getDataPoint(DataPointType.values()[last]));
+                        for (int u = 0; u < THREADS; u++) {
+                            DataPoint dp = ai.getDataPoint(DataPointType.values()[u]);
+                            int value = dp == null ? 0 : dp.getCount();
+                            assertTrue(value >= seen[u]);
+                            seen[u] = value;
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(writersDone.await(60, TimeUnit.SECONDS));
+        stop.set(true);
+        _executor.shutdown();
+        assertTrue(_executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+        AtmosphericInformation ai = _readings.get("BOS");
+        for (int t = 0; t < THREADS; t++) {
+            assertEquals(dataPoint(writes), ai.getDataPoint(DataPointType.values()[t]));
+        }
+    }
+
+    private static DataPoint dataPoint(int value) {
+        DataPoint dp = new DataPoint();
+        dp.setMean(value);
+        dp.setFirst(value);
+        dp.setSecond(value);
+        dp.setThird(value);
+        dp.setCount(value);
+        return dp;
+    }
+}
@@ -0,0 +1,202 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+
+public class RadiusQueryCacheTest {
+
+    private RadiusQueryCache _cache;
+
+    private AirportData _jfk;
+
+    private AirportData _ewr;
+
+    private AirportData _bos;
+
+    @Before
+    public void setUp() {
+        _cache = new RadiusQueryCache(2);
+        _jfk = airport("JFK", 40.639751, -73.778925);
+        _ewr = airport("EWR", 40.6925, -74.168667);
+        _bos = airport("BOS", 42.364347, -71.005181);
+    }
+
+    @Test
+    public void testHit() {
+        assertNull(_cache.get("JFK", 50));
+        List<AtmosphericInformation> result = Collections.singletonList(new AtmosphericInformation());
+        cache(_jfk, 50, result);
+
+        assertEquals(result, _cache.get("JFK", 50));
+        assertSame(_cache.get("JFK", 50), _cache.get("JFK", 50));
+        assertNull(_cache.get("JFK", 51));
+        assertEquals(3, _cache.getHits());
+        assertEquals(2, _cache.getMisses());
+        assertEquals(1, _cache.size());
+        assertTrue(_cache.getBytes() > 0);
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache(_jfk, 50, Collections.<AtmosphericInformation>emptyList());
+        cache(_bos, 50, Collections.<AtmosphericInformation>emptyList());
+
+        // only the entries with the airport in their circle are dropped
+        _cache.invalidate(_ewr);
+        assertNull(_cache.get("JFK", 50));
+        assertTrue(_cache.get("BOS", 50) != null);
+        assertEquals(1, _cache.getInvalidations());
+
+        // a new airport drops the entries whose circle contains it
+        cache(_jfk, 50, Collections.<AtmosphericInformation>emptyList());
+        _cache.invalidate(Collections.singletonList(airport("LGA", 40.777245, -73.872608)));
+        assertNull(_cache.get("JFK", 50));
+        assertTrue(_cache.get("BOS", 50) != null);
+        assertEquals(2, _cache.getInvalidations());
+        assertEquals(1, _cache.size());
+
+        // an airport just outside the circle, in the same grid cell, leaves the entry alone
+        cache(_jfk, 20, Collections.<AtmosphericInformation>emptyList());
+        _cache.invalidate(_ewr);
+        assertTrue(_cache.get("JFK", 20) != null);
+    }
+
+    @Test
+    public void testCells() {
+        // a circle across the dateline covers the cells on both sides
+        int[] cells = RadiusQueryCache.cells(5, 179.9, 100);
+        assertEquals(2, cells.length);
+        // one around a pole covers all longitudes
+        assertEquals(360 / RadiusQueryCache.CELL_DEGREES, RadiusQueryCache.cells(89, 0, 500).length);
+        assertEquals(0, RadiusQueryCache.cells(0, 0, -1).length);
+    }
+
+    @Test
+    public void testWriteWhileComputing() {
+        RadiusQueryCache.Entry entry = _cache.reserve(_jfk, 50);
+        // a reading is written after the query has been reserved, the result may be stale
+        _cache.invalidate(_ewr);
+        _cache.put(entry, Collections.<AtmosphericInformation>emptyList());
+        assertNull(_cache.get("JFK", 50));
+        assertEquals(0, _cache.size());
+    }
+
+    @Test
+    public void testCancel() {
+        RadiusQueryCache.Entry entry = _cache.reserve(_jfk, 50);
+        // the query failed, the entry no longer waits for writes in its cells
+        _cache.cancel(entry);
+        _cache.invalidate(_ewr);
+        assertEquals(0, _cache.getInvalidations());
+        _cache.put(entry, Collections.<AtmosphericInformation>emptyList());
+        assertNull(_cache.get("JFK", 50));
+        assertEquals(0, _cache.size());
+
+        // a cached entry is left alone
+        cache(_jfk, 50, Collections.<AtmosphericInformation>emptyList());
+        _cache.cancel(_cache.reserve(_bos, 50));
+        assertTrue(_cache.get("JFK", 50) != null);
+        _cache.cancel(null);
+    }
+
+    @Test
+    public void testAdmission() {
+        for (int i = 0; i < 5; i++) {
+            _cache.get("JFK", 50);
+            _cache.get("EWR", 50);
+        }
+        cache(_jfk, 50, Collections.<AtmosphericInformation>emptyList());
+        cache(_ewr, 50, Collections.<AtmosphericInformation>emptyList());
+
+        // a one-off query is not even reserved with a full cache
+        assertNull(_cache.get("BOS", 50));
+        assertNull(_cache.reserve(_bos, 50));
+        assertEquals(1, _cache.getRejections());
+
+        // nor does a query asked for a few times push out the popular ones
+        _cache.get("BOS", 50);
+        cache(_bos, 50, Collections.<AtmosphericInformation>emptyList());
+        assertNull(_cache.get("BOS", 50));
+        assertEquals(2, _cache.getRejections());
+
+        // but a query asked for more often than the least recently used one does
+        for (int i = 0; i < 10; i++) {
+            _cache.get("BOS", 50);
+        }
+        _cache.get("JFK", 50);
+        cache(_bos, 50, Collections.<AtmosphericInformation>emptyList());
+        assertTrue(_cache.get("BOS", 50) != null);
+        assertTrue(_cache.get("JFK", 50) != null);
+        assertNull(_cache.get("EWR", 50));
+        assertEquals(1, _cache.getEvictions());
+        assertEquals(2, _cache.size());
+    }
+
+    @Test
+    public void testStorageWrites() {
+        ConcurrentAWADataStorage storage = new ConcurrentAWADataStorage();
+        storage.addAirports(Arrays.asList(_jfk, _ewr, _bos));
+        RadiusQueryCache cache = storage.getQueryCache();
+        cache(cache, _jfk, 50);
+
+        storage.updateAtmosphericInformation("BOS", new AtmosphericInformation());
+        assertTrue(cache.get("JFK", 50) != null);
+        storage.updateAtmosphericInformation("EWR", new AtmosphericInformation());
+        assertNull(cache.get("JFK", 50));
+
+        cache(cache, _jfk, 50);
+        storage.removeAirport("JFK");
+        assertNull(cache.get("JFK", 50));
+        assertEquals(2, cache.getInvalidations());
+
+        // an airport moved into the circle drops it, and so does one moved out
+        cache(cache, _ewr, 50);
+        storage.addAirport(airport("BOS", 40.7, -74.1));
+        assertNull(cache.get("EWR", 50));
+        cache(cache, _ewr, 50);
+        storage.addAirport(airport("BOS", 42.364347, -71.005181));
+        assertNull(cache.get("EWR", 50));
+        assertEquals(4, cache.getInvalidations());
+
+        cache(cache, _ewr, 50);
+        storage.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        RadiusQueryCache cache = new RadiusQueryCache(0);
+        assertNull(cache.reserve(_jfk, 50));
+        cache.put(null, Collections.<AtmosphericInformation>emptyList());
+        assertNull(cache.get("JFK", 50));
+        assertEquals(0, cache.getMisses());
+    }
+
+    private void cache(AirportData center, double radius, List<AtmosphericInformation> result) {
+        _cache.put(_cache.reserve(center, radius), result);
+    }
+
+    private static void cache(RadiusQueryCache cache, AirportData center, double radius) {
+        cache.put(cache.reserve(center, radius), Collections.<AtmosphericInformation>emptyList());
+    }
+
+    private static AirportData airport(String iata, double latitude, double longitude) {
+        AirportData ad = new AirportData();
+        ad.setIata(iata);
+        ad.setLatitude(latitude);
+        ad.setLongitude(longitude);
+        return ad;
+    }
+}
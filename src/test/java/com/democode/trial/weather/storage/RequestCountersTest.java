@@ -0,0 +1,78 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestCountersTest {
+
+    private RequestCounters _counters;
+
+    @Before
+    public void setUp() {
+        _counters = new RequestCounters();
+    }
+
+    @Test
+    public void testRadiusBuckets() {
+        _counters.record("BOS", 0);
+        _counters.record("BOS", 9.9);
+        _counters.record("JFK", 25);
+        _counters.record(null, 1000000);
+
+        assertEquals(2, _counters.getCount("BOS"));
+        assertEquals(1, _counters.getCount("JFK"));
+        assertEquals(0, _counters.getCount("EWR"));
+        assertEquals(4, _counters.getTotal());
+
+        long[] hist = _counters.getRadiusHistogram();
+        assertEquals(RadiusHistogram.UPPER_BOUNDS.length, hist.length);
+        assertEquals(1, hist[0]);
+        assertEquals(1, hist[RadiusHistogram.bucket(9.9)]);
+        assertEquals(1, hist[RadiusHistogram.bucket(25)]);
+        assertEquals(1, hist[hist.length - 1]);
+        assertEquals(4, hist[0] + hist[4] + hist[6] + hist[15]);
+    }
+
+    @Test
+    public void testAccurateUnderContention() throws Exception {
+        final int threads = 64;
+        final int perThread = 10000;
+        final String[] codes = {"BOS", "EWR", "JFK", "LGA", "MMU"};
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    _counters.record(codes[i % codes.length], (i % 3) * 10);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, _counters.getTotal());
+        for (String code : codes) {
+            assertEquals(threads * perThread / codes.length, _counters.getCount(code));
+        }
+        long[] expected = new long[RadiusHistogram.UPPER_BOUNDS.length];
+        for (int i = 0; i < perThread; i++) {
+            expected[RadiusHistogram.bucket((i % 3) * 10)] += threads;
+        }
+        assertArrayEquals(expected, _counters.getRadiusHistogram());
+    }
+}
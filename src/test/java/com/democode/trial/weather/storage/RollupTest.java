@@ -0,0 +1,65 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.RollupSeries;
+
+public class RollupTest {
+
+    @Test
+    public void testAggregates() {
+        Rollup rollup = new Rollup(Rollup.MINUTE, 10);
+        rollup.add(0, 5);
+        rollup.add(1000, 1);
+        rollup.add(59999, 9);
+        rollup.add(Rollup.MINUTE, 3);
+        RollupSeries series = rollup.range(0, Long.MAX_VALUE);
+        assertEquals(2, series.size());
+        assertEquals(0, series.getTimestamps()[0]);
+        assertEquals(1, series.getMin()[0], 0);
+        assertEquals(9, series.getMax()[0], 0);
+        assertEquals(5, series.getMean()[0], 0);
+        assertEquals(3, series.getCount()[0]);
+        assertEquals(3, series.getMean()[1], 0);
+        // from is rounded down to the bucket
+        assertEquals(2, rollup.range(30000, Rollup.MINUTE).size());
+    }
+
+    @Test
+    public void testGrowAndEvict() {
+        Rollup rollup = new Rollup(Rollup.MINUTE, 100);
+        for (int i = 0; i < 250; i++) {
+            rollup.add(i * Rollup.MINUTE, i);
+        }
+        assertEquals(100 * Rollup.BUCKET_BYTES, rollup.sizeInBytes());
+        assertEquals(150 * Rollup.MINUTE, rollup.getOldestTimestamp());
+        RollupSeries series = rollup.range(0, Long.MAX_VALUE);
+        assertEquals(100, series.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 150, series.getMean()[i], 0);
+        }
+        // too old for the retained buckets
+        rollup.add(0, 1);
+        assertEquals(100, rollup.range(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testGap() {
+        Rollup rollup = new Rollup(Rollup.MINUTE, 16);
+        for (int i = 0; i < 16; i++) {
+            rollup.add(i * Rollup.MINUTE, i);
+        }
+        rollup.add(20 * Rollup.MINUTE, 20);
+        RollupSeries series = rollup.range(0, Long.MAX_VALUE);
+        // minutes 5 to 15 and 20, the skipped minutes are empty
+        assertEquals(12, series.size());
+        assertEquals(5 * Rollup.MINUTE, series.getTimestamps()[0]);
+        assertEquals(20, series.getMean()[11], 0);
+        rollup.add(1000 * Rollup.MINUTE, 1);
+        assertEquals(1, rollup.range(0, Long.MAX_VALUE).size());
+        assertTrue(rollup.sizeInBytes() <= 16 * Rollup.BUCKET_BYTES);
+    }
+}
@@ -0,0 +1,161 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.storage.SlidingWindowCounters.WindowStatistics;
+
+public class SlidingWindowCountersTest {
+
+    private static final int TOP = RequestCounters.TOP_AIRPORTS;
+
+    private volatile long _now;
+
+    private SlidingWindowCounters _counters;
+
+    @Before
+    public void setUp() {
+        _now = 1500000000000L;
+        _counters = new SlidingWindowCounters(new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.of("UTC");
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(_now);
+            }
+        });
+    }
+
+    @Test
+    public void testWindows() {
+        _counters.record("BOS", 0);
+        _counters.record("JFK", 100);
+        advanceMinutes(10);
+        _counters.record("BOS", 0);
+        advanceMinutes(3);
+        _counters.record("BOS", 5000);
+
+        WindowStatistics last5 = _counters.getStatistics(5, TOP);
+        assertEquals(2, last5.getTotal());
+        assertEquals(2, last5.getAirportCounts().get("BOS").longValue());
+        assertFalse(last5.getAirportCounts().containsKey("JFK"));
+        assertEquals(1, last5.getRadiusHistogram()[0]);
+        assertEquals(1, last5.getRadiusHistogram()[RadiusHistogram.bucket(5000)]);
+
+        WindowStatistics lastHour = _counters.getStatistics(60, TOP);
+        assertEquals(4, lastHour.getTotal());
+        assertEquals(3, lastHour.getAirportCounts().get("BOS").longValue());
+        assertEquals(1, lastHour.getAirportCounts().get("JFK").longValue());
+    }
+
+    @Test
+    public void testBucketsRotate() {
+        _counters.record("BOS", 0);
+        advanceMinutes(60);
+        assertEquals(0, _counters.getStatistics(60, TOP).getTotal());
+
+        // the bucket of the first query is reused and starts from zero
+        _counters.record("JFK", 0);
+        WindowStatistics lastHour = _counters.getStatistics(60, TOP);
+        assertEquals(1, lastHour.getTotal());
+        assertFalse(lastHour.getAirportCounts().containsKey("BOS"));
+
+        advanceMinutes(120);
+        assertEquals(0, _counters.getStatistics(60, TOP).getTotal());
+    }
+
+    @Test
+    public void testRecentlyHotAirportReported() {
+        // more airports than candidates in every minute of the first half hour
+        for (int minute = 0; minute < 30; minute++) {
+            for (int i = 0; i < 4 * SlidingWindowCounters.CANDIDATES; i++) {
+                for (int n = 0; n < 1 + i % 5; n++) {
+                    _counters.record(String.format("A%02d", i), 0);
+                }
+            }
+            advanceMinutes(1);
+        }
+        advanceMinutes(27);
+        for (int i = 0; i < 3; i++) {
+            _counters.record("NEW", 0);
+        }
+
+        WindowStatistics last5 = _counters.getStatistics(5, TOP);
+        assertEquals(1, last5.getAirportCounts().size());
+        assertEquals(3, last5.getAirportCounts().get("NEW").longValue());
+        WindowStatistics lastHour = _counters.getStatistics(60, TOP);
+        // every minute had the same candidates
+        assertEquals(SlidingWindowCounters.CANDIDATES + 1, lastHour.getAirportCounts().size());
+        assertEquals(3, lastHour.getAirportCounts().get("NEW").longValue());
+        // the airports queried five times a minute are the top of the hour
+        assertEquals(150, lastHour.getAirportCounts().get("A04").longValue());
+
+        _counters.remove("NEW");
+        assertFalse(_counters.getStatistics(5, TOP).getAirportCounts().containsKey("NEW"));
+    }
+
+    @Test
+    public void testCandidateReplacedByMoreQueriedAirport() {
+        for (int i = 0; i < SlidingWindowCounters.CANDIDATES; i++) {
+            _counters.record(String.format("A%02d", i), 0);
+        }
+        _counters.record("HOT", 0);
+        assertFalse(_counters.getStatistics(1, TOP).getAirportCounts().containsKey("HOT"));
+        _counters.record("HOT", 0);
+        WindowStatistics stats = _counters.getStatistics(1, TOP);
+        assertEquals(2, stats.getAirportCounts().get("HOT").longValue());
+        assertEquals(SlidingWindowCounters.CANDIDATES, stats.getAirportCounts().size());
+    }
+
+    @Test
+    public void testRotationKeepsConcurrentIncrements() throws Exception {
+        final int threads = 4;
+        final int queries = 2000;
+        for (int round = 0; round < 50; round++) {
+            advanceMinutes(SlidingWindowCounters.BUCKETS);
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread writer = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < queries; i++) {
+                        _counters.record("BOS", 0);
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            start.countDown();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertEquals(threads * queries, _counters.getStatistics(1, TOP).getTotal());
+        }
+    }
+
+    private void advanceMinutes(int minutes) {
+        _now += minutes * 60000L;
+    }
+}
@@ -0,0 +1,168 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.democode.trial.weather.DataPointType;
+import com.democode.trial.weather.dto.AirportData;
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.load.DatasetGenerator;
+
+public class StorageSnapshotTest {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private ConcurrentAWADataStorage _storage;
+
+    private Path _file;
+
+    @Before
+    public void setUp() throws IOException {
+        _storage = new ConcurrentAWADataStorage();
+        _storage.initData();
+
+        AirportData ad = new AirportData();
+        ad.setIata("DFW");
+        ad.setLatitude(32.896828);
+        ad.setLongitude(-97.037997);
+        ad.setName("Dallas Fort Worth Intl");
+        ad.setCity("Dallas, Fort Worth");
+        ad.setCountry("United States");
+        ad.setIcao("KDFW");
+        ad.setTimezone("-6");
+        _storage.addAirport(ad);
+
+        AtmosphericInformation ai = new AtmosphericInformation();
+        ai.setWind(dataPoint(22.5, 10, 20, 30, 10));
+        ai.setPressure(dataPoint(700, 690, 700, 710, 4));
+        ai.setLastUpdateTime(System.currentTimeMillis());
+        _storage.updateAtmosphericInformation("DFW", ai);
+
+        AtmosphericInformation stale = new AtmosphericInformation();
+        stale.setTemperature(dataPoint(-12.25, -20, -12, -5, 3));
+        stale.setLastUpdateTime(System.currentTimeMillis() - 2 * FreshnessTracker.FRESH_MILLIS);
+        _storage.updateAtmosphericInformation("BOS", stale);
+
+        _file = _folder.getRoot().toPath().resolve("storage.snapshot");
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        assertEquals(_storage.getAirportData().size(), StorageSnapshot.write(_storage, _file));
+
+        ConcurrentAWADataStorage loaded = new ConcurrentAWADataStorage();
+        assertEquals(_storage.getAirportData().size(), StorageSnapshot.load(_file, loaded));
+
+        assertEquals(_storage.getAirportData(), loaded.getAirportData());
+        for (AirportData ad : _storage.getAirportData()) {
+            AirportData copy = loaded.findAirportData(ad.getIata());
+            assertEquals(ad.toString(), copy.toString());
+            assertReadingsEqual(_storage.getAtmosphericInformation(ad.getIata()), loaded.getAtmosphericInformation(ad.getIata()));
+        }
+        // the stale reading is restored but not counted as fresh
+        assertEquals(1, loaded.getFreshnessTracker().getFreshCount());
+        assertEquals(-12.25, loaded.getAtmosphericInformation("BOS").getTemperature().getMean(), 0);
+        assertNull(loaded.getAtmosphericInformation("EWR").getWind());
+        // the spatial index is rebuilt
+        AirportData bos = loaded.findAirportData("BOS");
+        assertTrue(loaded.findAirportsInRadius(bos, 400).contains(loaded.findAirportData("JFK")));
+    }
+
+    @Test
+    public void testGeneratedRoundTrip() throws IOException {
+        DatasetGenerator generator = new DatasetGenerator();
+        List<AirportData> airports = generator.airports(1000);
+        ConcurrentAWADataStorage storage = new ConcurrentAWADataStorage();
+        storage.addAirports(airports);
+        for (AirportData ad : airports) {
+            double latitude = ad.getLatitude();
+            AtmosphericInformation ai = new AtmosphericInformation(
+                    generator.dataPoint(DataPointType.TEMPERATURE, latitude),
+                    generator.dataPoint(DataPointType.WIND, latitude),
+                    generator.dataPoint(DataPointType.HUMIDTY, latitude),
+                    generator.dataPoint(DataPointType.PRECIPITATION, latitude),
+                    generator.dataPoint(DataPointType.PRESSURE, latitude),
+                    generator.dataPoint(DataPointType.CLOUDCOVER, latitude));
+            ai.setLastUpdateTime(System.currentTimeMillis());
+            storage.updateAtmosphericInformation(ad.getIata(), ai);
+        }
+        assertEquals(1000, StorageSnapshot.write(storage, _file));
+
+        ConcurrentAWADataStorage loaded = new ConcurrentAWADataStorage();
+        assertEquals(1000, StorageSnapshot.load(_file, loaded));
+        for (AirportData ad : airports) {
+            assertEquals(ad.toString(), loaded.findAirportData(ad.getIata()).toString());
+            assertReadingsEqual(storage.getAtmosphericInformation(ad.getIata()),
+                    loaded.getAtmosphericInformation(ad.getIata()));
+        }
+        assertEquals(1000, loaded.getFreshnessTracker().getFreshCount());
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        StorageSnapshot.write(_storage, _file);
+        byte[] bytes = Files.readAllBytes(_file);
+        for (int length : new int[] {0, 10, StorageSnapshot.HEADER_SIZE, bytes.length / 2, bytes.length - 1}) {
+            Files.write(_file, Arrays.copyOf(bytes, length));
+            assertRejected();
+        }
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        StorageSnapshot.write(_storage, _file);
+        byte[] bytes = Files.readAllBytes(_file);
+        for (int position : new int[] {0, 5, 9, StorageSnapshot.HEADER_SIZE + 3, bytes.length / 2, bytes.length - 1}) {
+            byte[] corrupt = bytes.clone();
+            corrupt[position] ^= 0x10;
+            Files.write(_file, corrupt);
+            assertRejected();
+        }
+    }
+
+    private static void assertReadingsEqual(AtmosphericInformation expected, AtmosphericInformation actual) {
+        assertEquals(expected.getLastUpdateTime(), actual.getLastUpdateTime());
+        assertEquals(String.valueOf(expected.getTemperature()), String.valueOf(actual.getTemperature()));
+        assertEquals(String.valueOf(expected.getWind()), String.valueOf(actual.getWind()));
+        assertEquals(String.valueOf(expected.getHumidity()), String.valueOf(actual.getHumidity()));
+        assertEquals(String.valueOf(expected.getPrecipitation()), String.valueOf(actual.getPrecipitation()));
+        assertEquals(String.valueOf(expected.getPressure()), String.valueOf(actual.getPressure()));
+        assertEquals(String.valueOf(expected.getCloudCover()), String.valueOf(actual.getCloudCover()));
+    }
+
+    private void assertRejected() {
+        ConcurrentAWADataStorage loaded = new ConcurrentAWADataStorage();
+        try {
+            StorageSnapshot.load(_file, loaded);
+            fail("loaded a damaged snapshot");
+        } catch (IOException e) {
+            // the storage is left untouched
+            assertEquals(0, loaded.getAirportData().size());
+        }
+    }
+
+    private static DataPoint dataPoint(double mean, int first, int second, int third, int count) {
+        DataPoint dp = new DataPoint();
+        dp.setMean(mean);
+        dp.setFirst(first);
+        dp.setSecond(second);
+        dp.setThird(third);
+        dp.setCount(count);
+        return dp;
+    }
+}
@@ -0,0 +1,198 @@
+package com.democode.trial.weather.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.storage.WriteAheadLog.Durability;
+
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder _folder = new TemporaryFolder();
+
+    private Path _dir;
+
+    @Before
+    public void setUp() {
+        _dir = _folder.getRoot().toPath().resolve("wal");
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        for (Durability durability : Durability.values()) {
+            Path dir = _dir.resolve(durability.name());
+            DurableAWAStorage storage = open(dir, durability);
+            storage.addAirport("DFW", 32.896828, -97.037997);
+            storage.updateAtmosphericInformation("DFW", reading(22.5));
+            storage.updateAtmosphericInformation("BOS", reading(10));
+            storage.updateAtmosphericInformation("BOS", reading(11));
+            storage.removeAirport("EWR");
+            storage.close();
+
+            DurableAWAStorage restarted = open(dir, durability);
+            assertNotNull(restarted.findAirportData("DFW"));
+            assertNull(restarted.findAirportData("EWR"));
+            assertEquals(22.5, restarted.getAtmosphericInformation("DFW").getWind().getMean(), 0);
+            assertEquals(11, restarted.getAtmosphericInformation("BOS").getWind().getMean(), 0);
+            assertEquals(2, restarted.getFreshnessTracker().getFreshCount());
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        DurableAWAStorage storage = open(_dir, Durability.ALWAYS);
+        storage.updateAtmosphericInformation("BOS", reading(10));
+        storage.updateAtmosphericInformation("JFK", reading(20));
+        storage.close();
+
+        // a crash in the middle of the last record
+        Path segment = segments().get(0);
+        long complete = Files.size(segment);
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 5));
+
+        DurableAWAStorage restarted = open(_dir, Durability.ALWAYS);
+        assertEquals(10, restarted.getAtmosphericInformation("BOS").getWind().getMean(), 0);
+        assertNull(restarted.getAtmosphericInformation("JFK").getWind());
+        assertTrue(Files.size(segment) < complete - 5);
+        restarted.updateAtmosphericInformation("JFK", reading(21));
+        restarted.close();
+
+        restarted = open(_dir, Durability.ALWAYS);
+        assertEquals(21, restarted.getAtmosphericInformation("JFK").getWind().getMean(), 0);
+        restarted.close();
+    }
+
+    @Test
+    public void testDamagedMiddleSegment() throws IOException {
+        DurableAWAStorage storage = open(_dir, Durability.ALWAYS);
+        storage.updateAtmosphericInformation("BOS", reading(10));
+        storage.updateAtmosphericInformation("JFK", reading(20));
+        storage.close();
+        storage = open(_dir, Durability.ALWAYS);
+        storage.updateAtmosphericInformation("BOS", reading(11));
+        storage.updateAtmosphericInformation("JFK", reading(21));
+        storage.close();
+        storage = open(_dir, Durability.ALWAYS);
+        storage.updateAtmosphericInformation("LGA", reading(30));
+        storage.close();
+
+        // a flipped bit in the last record of the middle segment
+        Path segment = segments().get(1);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(segment, bytes);
+
+        for (int start = 0; start < 2; start++) {
+            ConcurrentAWADataStorage restored = new ConcurrentAWADataStorage();
+            restored.initData();
+            WriteAheadLog log = new WriteAheadLog(_dir, Durability.ALWAYS, 10);
+            assertEquals(4, log.replay(restored));
+            log.close();
+            assertEquals(11, restored.getAtmosphericInformation("BOS").getWind().getMean(), 0);
+            assertEquals(20, restored.getAtmosphericInformation("JFK").getWind().getMean(), 0);
+            assertEquals(30, restored.getAtmosphericInformation("LGA").getWind().getMean(), 0);
+        }
+        assertTrue(Files.size(segment) < bytes.length);
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        Path snapshot = _folder.getRoot().toPath().resolve("storage.snapshot");
+        DurableAWAStorage storage = open(_dir, Durability.BATCHED);
+        storage.updateAtmosphericInformation("BOS", reading(10));
+        storage.checkpoint(snapshot);
+        storage.updateAtmosphericInformation("JFK", reading(20));
+        storage.close();
+        // only the segment written after the checkpoint is left
+        assertEquals(1, segments().size());
+
+        ConcurrentAWADataStorage restored = new ConcurrentAWADataStorage();
+        StorageSnapshot.load(snapshot, restored);
+        WriteAheadLog log = new WriteAheadLog(_dir, Durability.BATCHED, 10);
+        assertEquals(1, log.replay(restored));
+        log.close();
+        assertEquals(10, restored.getAtmosphericInformation("BOS").getWind().getMean(), 0);
+        assertEquals(20, restored.getAtmosphericInformation("JFK").getWind().getMean(), 0);
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final DurableAWAStorage storage = open(_dir, Durability.ALWAYS);
+        final String[] codes = {"BOS", "EWR", "JFK", "LGA", "MMU"};
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    storage.updateAtmosphericInformation(codes[(offset + i) % codes.length], reading(i % 50));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long syncs = storage.getLog().getSyncCount();
+        assertTrue(syncs > 0 && syncs <= 1600);
+        storage.close();
+
+        DurableAWAStorage restarted = open(_dir, Durability.ALWAYS);
+        for (String code : codes) {
+            assertEquals(storage.getAtmosphericInformation(code).getWind().getMean(),
+                    restarted.getAtmosphericInformation(code).getWind().getMean(), 0);
+        }
+        restarted.close();
+    }
+
+    private static DurableAWAStorage open(Path dir, Durability durability) throws IOException {
+        ConcurrentAWADataStorage storage = new ConcurrentAWADataStorage();
+        storage.initData();
+        WriteAheadLog log = new WriteAheadLog(dir, durability, 10);
+        log.replay(storage);
+        return new DurableAWAStorage(storage, log);
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> retval = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(_dir)) {
+            for (Path file : files) {
+                if (Files.size(file) > 0) {
+                    retval.add(file);
+                }
+            }
+        }
+        Collections.sort(retval);
+        return retval;
+    }
+
+    private static AtmosphericInformation reading(double mean) {
+        DataPoint dp = new DataPoint();
+        dp.setMean(mean);
+        dp.setCount(1);
+        AtmosphericInformation ai = new AtmosphericInformation();
+        ai.setWind(dp);
+        ai.setLastUpdateTime(System.currentTimeMillis());
+        return ai;
+    }
+}
@@ -0,0 +1,127 @@
+package com.democode.trial.weather.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.AtmosphericInformation;
+import com.democode.trial.weather.dto.DataPoint;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+
+public class AtmosphericInformationWriterTest {
+
+    private ObjectMapper _mapper = new ObjectMapper();
+
+    private Gson _gson = new Gson();
+
+    private AtmosphericInformation _ai;
+
+    @Before
+    public void setUp() {
+        _ai = new AtmosphericInformation();
+        _ai.setWind(dataPoint(22.5, 10, 20, 30, 7));
+        _ai.setPressure(dataPoint(760.25, 750, 760, 770, 12));
+        _ai.setTemperature(dataPoint(-12.125, -20, -12, -5, 3));
+        _ai.setLastUpdateTime(1446476400123L);
+    }
+
+    @After
+    public void tearDown() {
+        AWAStorageFactory.reset();
+    }
+
+    @Test
+    public void testSameAsJackson() throws Exception {
+        assertEquals(_mapper.writeValueAsString(_ai), json(_ai));
+        AtmosphericInformation empty = new AtmosphericInformation();
+        assertEquals(_mapper.writeValueAsString(empty), json(empty));
+
+        AtmosphericInformation odd = new AtmosphericInformation(dataPoint(1e21, 0, 0, 0, 1), dataPoint(1e-5, 0, 0, 0, 1),
+                dataPoint(Double.NaN, 0, 0, 0, 1), dataPoint(Double.NEGATIVE_INFINITY, 0, 0, 0, 1),
+                dataPoint(100, Integer.MIN_VALUE, 0, Integer.MAX_VALUE, 1), null);
+        assertEquals(_mapper.writeValueAsString(odd), json(odd));
+    }
+
+    @Test
+    public void testEncodedOncePerChange() {
+        byte[] json = _ai.toJson();
+        assertSame(json, _ai.toJson());
+
+        _ai.setHumidity(dataPoint(55, 40, 50, 70, 4));
+        assertNotSame(json, _ai.toJson());
+        assertEquals(55.0, _gson.fromJson(json(_ai), AtmosphericInformation.class).getHumidity().getMean(), 0);
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        List<AtmosphericInformation> ais = Arrays.asList(_ai, new AtmosphericInformation());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtmosphericInformationWriter.write(ais, out);
+        assertEquals(_mapper.writeValueAsString(ais), out.toString("UTF-8"));
+
+        out.reset();
+        AtmosphericInformationWriter.write(Collections.<AtmosphericInformation>emptyList(), out);
+        assertEquals("[]", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testQueryResponse() throws Exception {
+        WeatherCollector update = new RestWeatherCollectorEndpoint();
+        update.updateWeather("JFK", "wind", _gson.toJson(dataPoint(22, 10, 20, 30, 10)));
+        update.updateWeather("EWR", "temperature", _gson.toJson(dataPoint(12.5, 10, 12, 15, 20)));
+        update.updateWeather("LGA", "pressure", _gson.toJson(dataPoint(701, 690, 700, 710, 5)));
+
+        // the same bytes as Jackson, with the readings in the same order
+        String jackson = query(false, "/query/weather/JFK/200");
+        assertEquals(jackson, query(true, "/query/weather/JFK/200"));
+        assertEquals(3, _gson.fromJson(jackson, AtmosphericInformation[].class).length);
+        assertEquals(query(false, "/query/weather/JFK/0"), query(true, "/query/weather/JFK/0"));
+    }
+
+    private static String query(boolean preEncoded, String path) throws Exception {
+        ResourceConfig resourceConfig = new ResourceConfig();
+        resourceConfig.register(RestWeatherQueryEndpoint.class);
+        if (preEncoded) {
+            resourceConfig.register(AtmosphericInformationWriter.class);
+        }
+        ApplicationHandler handler = new ApplicationHandler(resourceConfig);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"),
+                URI.create("http://localhost" + path), "GET", null, new MapPropertiesDelegate());
+        ContainerResponse response = handler.apply(request, out).get();
+        assertEquals(200, response.getStatus());
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String json(AtmosphericInformation ai) {
+        return new String(ai.toJson(), StandardCharsets.UTF_8);
+    }
+
+    private static DataPoint dataPoint(double mean, int first, int second, int third, int count) {
+        DataPoint dp = new DataPoint();
+        dp.setMean(mean);
+        dp.setFirst(first);
+        dp.setSecond(second);
+        dp.setThird(third);
+        dp.setCount(count);
+        return dp;
+    }
+}
@@ -0,0 +1,290 @@
+package com.democode.trial.weather.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.democode.trial.weather.dto.DataPoint;
+import com.google.gson.Gson;
+
+public class DataPointParserTest {
+
+    private static final String[] NAMES = {"mean", "first", "second", "third", "count"};
+
+    private Gson _gson = new Gson();
+
+    @Test
+    public void testParse() {
+        DataPoint dp = DataPointParser.parse("{\"mean\":22.5,\"first\":10,\"second\":20,\"third\":30,\"count\":7}");
+        assertEquals(22.5, dp.getMean(), 0);
+        assertEquals(10, dp.getFirst());
+        assertEquals(20, dp.getSecond());
+        assertEquals(30, dp.getThird());
+        assertEquals(7, dp.getCount());
+
+        // any order, whitespace, missing fields, nulls, unknown fields and duplicates
+        dp = DataPointParser.parse(" {\n\t\"count\" : 3 , \"x\": {\"a\": [1, -2.5e3, \"}\", true, null, {}]},"
+                + " \"third\": null, \"first\": 1, \"first\": 2 }\r\n");
+        assertEquals(0, dp.getMean(), 0);
+        assertEquals(2, dp.getFirst());
+        assertEquals(0, dp.getThird());
+        assertEquals(3, dp.getCount());
+
+        // quoted numbers, integral exponents and escaped names, as Gson reads them
+        dp = DataPointParser.parse("{\"mean\":\"12.25\",\"first\":1e2,\"second\":\"7\",\"third\":\"3.0\","
+                + "\"\\u0063ount\":-0}");
+        assertEquals(12.25, dp.getMean(), 0);
+        assertEquals(100, dp.getFirst());
+        assertEquals(7, dp.getSecond());
+        assertEquals(3, dp.getThird());
+        assertEquals(0, dp.getCount());
+        assertEquals(-2147483648, DataPointParser.parse("{\"first\":-2147483648}").getFirst());
+        assertEquals(1e-7, DataPointParser.parse("{\"mean\":1E-7}").getMean(), 0);
+        assertEquals(new DataPoint(), DataPointParser.parse("{}"));
+    }
+
+    @Test
+    public void testMalformed() {
+        String[] malformed = {"", "null", "[]", "{", "{\"mean\"}", "{\"mean\":}", "{\"mean\":1,}", "{mean:1}",
+                "{'mean':1}", "{\"mean\":01}", "{\"mean\":1.}", "{\"mean\":.5}", "{\"mean\":1e}", "{\"mean\":-}",
+                "{\"mean\":NaN}", "{\"mean\":true}", "{\"mean\":\"abc\"}", "{\"first\":1.5}", "{\"first\":2147483648}",
+                "{\"first\":\"1.5\"}", "{\"mean\":1} x", "{\"mean\":1}{}", "{\"x\":tru}", "{\"x\":\"\\q\"}",
+                "{\"x\":\"\\u12g4\"}", "{\"x\":[1 2]}", "{\"x\":{\"a\" 1}}", "{\"x\":\"a\tb\"}", "{\"mean\":1 /* c */}",
+                "{\"mean\":1", "{\"x\":\"abc"};
+        for (String json : malformed) {
+            try {
+                DataPointParser.parse(json);
+                fail("accepted " + json);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("malformed data point at byte "));
+            }
+        }
+        try {
+            DataPointParser.parse("{\"mean\":1,,}");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("malformed data point at byte 10: expected a quoted field name, found ','", e.getMessage());
+        }
+
+        StringBuilder deep = new StringBuilder("{\"x\":");
+        for (int i = 0; i < 100; i++) {
+            deep.append('[');
+        }
+        try {
+            DataPointParser.parse(deep.toString());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("nested deeper"));
+        }
+    }
+
+    @Test
+    public void testParseRecord() {
+        String json = " {\"x\": [\"}\"], \"pointType\": \"wind\", \"dataPoint\": {\"mean\": 2.5, \"count\": 3},"
+                + " \"iata\": \"B\\u004fS\"} ";
+        byte[] bytes = ("[" + json + "]").getBytes(StandardCharsets.UTF_8);
+        WeatherBatchReader.Record record = new WeatherBatchReader.Record();
+        DataPointParser.parseRecord(bytes, 1, bytes.length - 2, record);
+        assertEquals("BOS", record.getIata());
+        assertEquals("wind", record.getPointType());
+        assertEquals(2.5, record.getDataPoint().getMean(), 0);
+        assertEquals(3, record.getDataPoint().getCount());
+
+        // the data point is validated as a single update is
+        bytes = "{\"iata\":\"BOS\",\"dataPoint\":{\"first\":1.5}}".getBytes(StandardCharsets.UTF_8);
+        record = new WeatherBatchReader.Record();
+        try {
+            DataPointParser.parseRecord(bytes, 0, bytes.length, record);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("malformed record at byte 38: expected an int but was 1.5, found '}'", e.getMessage());
+        }
+        assertEquals("BOS", record.getIata());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            padding.append("0123456789");
+        }
+        String json = "{\"x\":\"" + padding + "\",\"mean\":5}";
+        assertEquals(5, DataPointParser.parse(stream(json)).getMean(), 0);
+        // the grown buffer is not kept
+        assertEquals(7, DataPointParser.parse(stream("{\"count\":7}")).getCount());
+
+        StringBuilder large = new StringBuilder("{\"x\":\"");
+        while (large.length() <= DataPointParser.MAX_BODY) {
+            large.append(padding);
+        }
+        try {
+            DataPointParser.parse(stream(large.append("\"}").toString()));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("data point larger than"));
+        }
+    }
+
+    /**
+     * Random well formed data points read the same as with Gson
+     */
+    @Test
+    public void testFuzzWellFormed() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String json = randomDocument(random);
+            assertEquals(json, _gson.fromJson(json, DataPoint.class), DataPointParser.parse(json));
+        }
+    }
+
+    /**
+     * Random edits of well formed data points are either rejected with an IllegalArgumentException or read the same
+     * as with Gson
+     */
+    @Test
+    public void testFuzzMutated() {
+        Random random = new Random(7);
+        String alphabet = "{}[]:,\"\\ 0123456789.eE+-tfnulx\u00e9";
+        int accepted = 0;
+        for (int i = 0; i < 50000; i++) {
+            StringBuilder json = new StringBuilder(randomDocument(random));
+            int edits = 1 + random.nextInt(3);
+            for (int e = 0; e < edits && json.length() > 0; e++) {
+                int at = random.nextInt(json.length());
+                char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                switch (random.nextInt(4)) {
+                case 0:
+                    json.deleteCharAt(at);
+                    break;
+                case 1:
+                    json.insert(at, c);
+                    break;
+                case 2:
+                    json.setCharAt(at, c);
+                    break;
+                default:
+                    json.setLength(at);
+                }
+            }
+            DataPoint dp;
+            try {
+                dp = DataPointParser.parse(json.toString());
+            } catch (IllegalArgumentException e) {
+                continue;
+            } catch (RuntimeException e) {
+                throw new AssertionError("unexpected failure on " + json, e);
+            }
+            accepted++;
+            assertEquals(json.toString(), _gson.fromJson(json.toString(), DataPoint.class), dp);
+        }
+        assertTrue("accepted " + accepted, accepted > 1000);
+    }
+
+    private static String randomDocument(Random random) {
+        List<String> members = new ArrayList<>();
+        for (String name : NAMES) {
+            if (random.nextInt(5) > 0) {
+                members.add(quote(name, random) + ws(random) + ":" + ws(random)
+                        + ("mean".equals(name) ? randomDouble(random) : randomInt(random)));
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            members.add("\"extra\":" + ws(random) + randomValue(random, 0));
+        }
+        Collections.shuffle(members, random);
+        StringBuilder sb = new StringBuilder(ws(random)).append('{');
+        for (int i = 0; i < members.size(); i++) {
+            sb.append(i == 0 ? "" : ",").append(ws(random)).append(members.get(i)).append(ws(random));
+        }
+        return sb.append('}').append(ws(random)).toString();
+    }
+
+    private static String quote(String name, Random random) {
+        if (random.nextInt(20) == 0) {
+            return "\"\\u" + String.format("%04x", (int) name.charAt(0)) + name.substring(1) + "\"";
+        }
+        return "\"" + name + "\"";
+    }
+
+    private static String randomDouble(Random random) {
+        switch (random.nextInt(8)) {
+        case 0:
+            return String.valueOf(random.nextInt(2000) - 1000);
+        case 1:
+            return String.valueOf(Double.longBitsToDouble(random.nextLong() & 0x7fefffffffffffffL));
+        case 2:
+            return String.format("%.3f", random.nextDouble() * 1000 - 500);
+        case 3:
+            return (random.nextBoolean() ? "-" : "") + random.nextInt(1000) + "." + random.nextInt(1000000000)
+                    + random.nextInt(1000000000);
+        case 4:
+            return random.nextInt(100) + "e" + (random.nextInt(40) - 20);
+        case 5:
+            return "\"" + random.nextDouble() + "\"";
+        case 6:
+            return "null";
+        default:
+            return String.valueOf(random.nextDouble() * 100);
+        }
+    }
+
+    private static String randomInt(Random random) {
+        switch (random.nextInt(6)) {
+        case 0:
+            return String.valueOf(random.nextInt());
+        case 1:
+            return random.nextInt(100) + ".0";
+        case 2:
+            return random.nextInt(10) + "e" + random.nextInt(3);
+        case 3:
+            return "\"" + random.nextInt(1000) + "\"";
+        case 4:
+            return "null";
+        default:
+            return String.valueOf(random.nextInt(200) - 100);
+        }
+    }
+
+    private static String randomValue(Random random, int depth) {
+        switch (depth > 3 ? random.nextInt(4) : random.nextInt(6)) {
+        case 0:
+            return "\"s\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e9\u00e9 " + random.nextInt() + "\"";
+        case 1:
+            return randomDouble(random);
+        case 2:
+            return random.nextBoolean() ? "true" : "false";
+        case 3:
+            return "null";
+        case 4:
+            return "[" + randomValue(random, depth + 1) + "," + ws(random) + randomValue(random, depth + 1) + "]";
+        default:
+            return "{\"a\":" + randomValue(random, depth + 1) + ",\"b\":[]}";
+        }
+    }
+
+    private static String ws(Random random) {
+        switch (random.nextInt(6)) {
+        case 0:
+            return " ";
+        case 1:
+            return "\n\t ";
+        case 2:
+            return "\r\n";
+        default:
+            return "";
+        }
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
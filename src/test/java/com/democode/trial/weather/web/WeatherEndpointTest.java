@@ -1,26 +1,36 @@
 package com.democode.trial.weather.web;
 
+import com.democode.trial.weather.dto.AirportData;
 import com.democode.trial.weather.dto.AtmosphericInformation;
 import com.democode.trial.weather.dto.DataPoint;
-import com.democode.trial.weather.storage.AWADataStorage;
+import com.democode.trial.weather.dto.DataPointSeries;
+import com.democode.trial.weather.dto.RollupSeries;
+import com.democode.trial.weather.storage.AWAStorageFactory;
+import com.democode.trial.weather.storage.Rollup;
 import com.democode.trial.weather.web.RestWeatherCollectorEndpoint;
 import com.democode.trial.weather.web.RestWeatherQueryEndpoint;
 import com.democode.trial.weather.web.WeatherCollector;
 import com.democode.trial.weather.web.WeatherQueryEndpoint;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import javax.ws.rs.core.Response;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class WeatherEndpointTest {
 
@@ -42,7 +52,7 @@ public class WeatherEndpointTest {
 
     @After
     public void clear() {
-    	AWADataStorage.getInstance().clear();
+    	AWAStorageFactory.reset();
     }
     
     @Test
@@ -50,7 +60,11 @@ public class WeatherEndpointTest {
         String ping = _query.ping();
         JsonElement pingResult = new JsonParser().parse(ping);
         assertEquals(1, pingResult.getAsJsonObject().get("datasize").getAsInt());
-        assertEquals(5, pingResult.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
+        // only queried airports are reported
+        assertEquals(1, pingResult.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
+        assertEquals(1.0, pingResult.getAsJsonObject().get("iata_freq").getAsJsonObject().get("BOS").getAsDouble(), 0);
+        assertEquals(1, pingResult.getAsJsonObject().get("last_5m").getAsJsonObject().get("requests").getAsInt());
+        assertEquals(1, pingResult.getAsJsonObject().get("last_1h").getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
     }
 
     @SuppressWarnings("unchecked")
@@ -78,6 +92,30 @@ public class WeatherEndpointTest {
         assertEquals(3, ais.size());
     }
 
+    @SuppressWarnings("unchecked")
+	@Test
+    public void testGetNearbyCached() throws Exception {
+        _update.updateWeather("JFK", "wind", _gson.toJson(_dp));
+        assertEquals(1, ((List<AtmosphericInformation>) _query.get("JFK", "200").getEntity()).size());
+        assertEquals(1, ((List<AtmosphericInformation>) _query.get("JFK", "200").getEntity()).size());
+
+        // a reading of an airport in the circle drops the cached result
+        _update.updateWeather("EWR", "wind", _gson.toJson(_dp));
+        assertEquals(2, ((List<AtmosphericInformation>) _query.get("JFK", "200").getEntity()).size());
+        // so does a new airport in the circle, which has no reading yet, and its first reading
+        _update.addAirport("NWA", "40.7", "-74.0");
+        _update.updateWeather("NWA", "wind", _gson.toJson(_dp));
+        assertEquals(3, ((List<AtmosphericInformation>) _query.get("JFK", "200").getEntity()).size());
+        _update.deleteAirport("EWR");
+        assertEquals(2, ((List<AtmosphericInformation>) _query.get("JFK", "200").getEntity()).size());
+
+        JsonObject cache = new JsonParser().parse(_query.ping()).getAsJsonObject().get("query_cache").getAsJsonObject();
+        assertEquals(1, cache.get("hits").getAsInt());
+        assertEquals(4, cache.get("misses").getAsInt());
+        assertEquals(3, cache.get("invalidations").getAsInt());
+        assertEquals(1, cache.get("size").getAsInt());
+    }
+
     @SuppressWarnings("unchecked")
 	@Test
     public void testUpdate() throws Exception {
@@ -98,21 +136,190 @@ public class WeatherEndpointTest {
         assertEquals(ais.get(0).getCloudCover(), cloudCoverDp);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testUpdateBatch() throws Exception {
+        DataPoint cloudCoverDp = new DataPoint.Builder().withCount(4).withFirst(10).withMedian(60).withLast(100).withMean(50).build();
+        String batch = "[" + record("BOS", "cloudcover", cloudCoverDp) + "," + record("JFK", "wind", _dp) + ","
+                + record("ZZZ", "wind", _dp) + "," + record("EWR", "pressure", _dp) + "," + "{\"iata\":\"LGA\"}]";
+
+        Response response = _update.updateWeatherBatch(stream(batch));
+        assertEquals(200, response.getStatus());
+        JsonObject result = new JsonParser().parse(response.getEntity().toString()).getAsJsonObject();
+        assertEquals(2, result.get("updated").getAsInt());
+        assertEquals(3, result.get("failed").getAsInt());
+        JsonArray statuses = result.get("results").getAsJsonArray();
+        assertEquals(200, statuses.get(0).getAsJsonObject().get("status").getAsInt());
+        assertEquals(200, statuses.get(1).getAsJsonObject().get("status").getAsInt());
+        assertEquals(404, statuses.get(2).getAsJsonObject().get("status").getAsInt());
+        // pressure out of range
+        assertEquals(400, statuses.get(3).getAsJsonObject().get("status").getAsInt());
+        assertEquals(400, statuses.get(4).getAsJsonObject().get("status").getAsInt());
+
+        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.get("BOS", "0").getEntity();
+        assertEquals(ais.get(0).getWind(), _dp);
+        assertEquals(ais.get(0).getCloudCover(), cloudCoverDp);
+        ais = (List<AtmosphericInformation>) _query.get("JFK", "0").getEntity();
+        assertEquals(ais.get(0).getWind(), _dp);
+    }
+
+    @Test
+    public void testSingleAndBatchFailuresAgree() throws Exception {
+        String dp = _gson.toJson(_dp);
+        assertEquals(404, _update.updateWeather("ZZZ", "wind", dp).getStatus());
+        assertEquals(400, _update.updateWeather("BOS", "snow", dp).getStatus());
+        assertEquals(400, _update.updateWeather("EWR", "pressure", dp).getStatus());
+
+        String batch = "[" + record("ZZZ", "wind", _dp) + "," + record("BOS", "snow", _dp) + ","
+                + record("EWR", "pressure", _dp) + "]";
+        JsonObject result = new JsonParser().parse(_update.updateWeatherBatch(stream(batch)).getEntity().toString())
+                .getAsJsonObject();
+        JsonArray statuses = result.get("results").getAsJsonArray();
+        assertEquals(404, statuses.get(0).getAsJsonObject().get("status").getAsInt());
+        assertEquals(400, statuses.get(1).getAsJsonObject().get("status").getAsInt());
+        assertEquals(400, statuses.get(2).getAsJsonObject().get("status").getAsInt());
+    }
+
+    @Test
+    public void testUpdateBatchNdjson() throws Exception {
+        String batch = record("JFK", "wind", _dp) + "\n" + record("EWR", "wind", _dp) + "\n";
+
+        Response response = _update.updateWeatherBatch(stream(batch));
+        assertEquals(200, response.getStatus());
+        JsonObject result = new JsonParser().parse(response.getEntity().toString()).getAsJsonObject();
+        assertEquals(2, result.get("updated").getAsInt());
+        assertEquals(3, new JsonParser().parse(_query.ping()).getAsJsonObject().get("datasize").getAsInt());
+    }
+
+    @Test
+    public void testUpdateBatchMalformedRecord() throws Exception {
+        String batch = "[{\"iata\":\"BOS\",\"pointType\":\"wind\",\"dataPoint\":{\"first\":\"x\"}},"
+                + "{\"iata\":\"BOS\" \"pointType\":\"wind\"}," + record("JFK", "wind", _dp) + "]";
+
+        Response response = _update.updateWeatherBatch(stream(batch));
+        assertEquals(200, response.getStatus());
+        JsonObject result = new JsonParser().parse(response.getEntity().toString()).getAsJsonObject();
+        assertEquals(1, result.get("updated").getAsInt());
+        JsonArray statuses = result.get("results").getAsJsonArray();
+        assertEquals(400, statuses.get(0).getAsJsonObject().get("status").getAsInt());
+        assertEquals("BOS", statuses.get(0).getAsJsonObject().get("iata").getAsString());
+        assertTrue(statuses.get(0).getAsJsonObject().get("error").getAsString().startsWith("malformed record"));
+        assertEquals(400, statuses.get(1).getAsJsonObject().get("status").getAsInt());
+        assertEquals(200, statuses.get(2).getAsJsonObject().get("status").getAsInt());
+    }
+
+    @Test
+    public void testUpdateBatchMalformed() throws Exception {
+        String batch = "[" + record("JFK", "wind", _dp) + ",{\"iata\":";
+
+        Response response = _update.updateWeatherBatch(stream(batch));
+        assertEquals(400, response.getStatus());
+        JsonObject result = new JsonParser().parse(response.getEntity().toString()).getAsJsonObject();
+        // records before the broken one are applied
+        assertEquals(1, result.get("updated").getAsInt());
+        assertNotNull(result.get("error"));
+    }
+
+    @Test
+    public void testHistory() throws Exception {
+        DataPoint second = new DataPoint.Builder().withCount(4).withFirst(1).withMedian(2).withLast(3).withMean(5).build();
+        // a later update time than the one of the set up
+        Thread.sleep(5);
+        _update.updateWeather("BOS", "wind", _gson.toJson(second));
+        _update.updateWeather("BOS", "temperature", _gson.toJson(second));
+
+        Response response = _query.history("BOS", "wind", 0, Long.MAX_VALUE, 0);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        DataPointSeries series = (DataPointSeries) response.getEntity();
+        assertEquals(2, series.size());
+        assertEquals(_dp.getMean(), series.getMean()[0], 0);
+        assertEquals(second.getMean(), series.getMean()[1], 0);
+        assertEquals(4, series.getCount()[1]);
+
+        long last = series.getTimestamps()[1];
+        assertEquals(1, ((DataPointSeries) _query.history("BOS", "wind", last, last, 0).getEntity()).size());
+        assertEquals(0, ((DataPointSeries) _query.history("BOS", "wind", 0, series.getTimestamps()[0] - 1, 0).getEntity()).size());
+        assertEquals(0, ((DataPointSeries) _query.history("BOS", "pressure", 0, Long.MAX_VALUE, 0).getEntity()).size());
+
+
+        RollupSeries rollup = (RollupSeries) _query.history("BOS", "wind", 0, Long.MAX_VALUE, 100).getEntity();
+        assertEquals(Rollup.MINUTE, rollup.getResolution());
+        int samples = 0;
+        for (int count : rollup.getCount()) {
+            samples += count;
+        }
+        assertEquals(2, samples);
+
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), _query.history("XXX", "wind", 0, Long.MAX_VALUE, 0).getStatus());
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), _query.history("BOS", "snow", 0, Long.MAX_VALUE, 0).getStatus());
+    }
+
+    private String record(String iata, String pointType, DataPoint dp) {
+        return "{\"iata\":\"" + iata + "\",\"pointType\":\"" + pointType + "\",\"dataPoint\":" + _gson.toJson(dp) + "}";
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testAddDelete() throws Exception {
 
     	_update.addAirport("BSV","1.2","2.3");
+    	_query.get("BSV", "0");
         String added = _query.ping();
         JsonElement pingResult = new JsonParser().parse(added);
         assertEquals(1, pingResult.getAsJsonObject().get("datasize").getAsInt());
-        assertEquals(6, pingResult.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
+        assertEquals(2, pingResult.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
 
     	_update.deleteAirport("BSV");
         String removed = _query.ping();
         JsonElement pingResult2 = new JsonParser().parse(removed);
-        assertEquals(5, pingResult2.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
+        assertEquals(1, pingResult2.getAsJsonObject().get("iata_freq").getAsJsonObject().entrySet().size());
     }
     
+    @Test
+    public void testAddAirportsBulk() throws Exception {
+        String airports = "100,\"Dallas Fort Worth Intl\",\"Dallas, Fort Worth\",\"United States\",\"DFW\",\"KDFW\",32.896828,-97.037997,607,-6,\"A\"\n"
+                + "101,\"Broken\",\"Nowhere\",\"United States\",\"BRK\",\"KBRK\",north,east,0,-6,\"A\"\n"
+                + "\n"
+                + "102,\"Too Long\",\"Nowhere\",\"United States\",\"LONG\",\"KLNG\",30.1,-90.1,0,-6,\"A\"\n"
+                + "103,\"Austin Bergstrom Intl\",\"Austin\",\"United States\",\"AUS\",\"KAUS\",30.194528,-97.669889,542,-6,\"A\"";
+
+        Response response = _update.addAirports(stream(airports));
+        assertEquals(201, response.getStatus());
+        JsonObject result = new JsonParser().parse(response.getEntity().toString()).getAsJsonObject();
+        assertEquals(2, result.get("added").getAsInt());
+        assertEquals(2, result.get("rejected").getAsInt());
+        assertEquals(2, result.get("errors").getAsJsonArray().size());
+
+        Response dfw = _update.getAirport("DFW");
+        assertEquals(200, dfw.getStatus());
+        assertEquals("Dallas, Fort Worth", ((AirportData) dfw.getEntity()).getCity());
+        assertEquals(32.896828, ((AirportData) dfw.getEntity()).getLatitude(), 0);
+        assertEquals(404, _update.getAirport("BRK").getStatus());
+
+        // the new airports are in the spatial index
+        _update.updateWeather("AUS", "wind", _gson.toJson(_dp));
+        assertEquals(200, _query.get("DFW", "400").getStatus());
+    }
+
+    @Test
+    public void testUpdateMalformed() throws Exception {
+        Response response = _update.updateWeather("BOS", "wind", "{\"mean\": 12,");
+        assertEquals(400, response.getStatus());
+        assertEquals("malformed data point at byte 12: expected a quoted field name, found the end",
+                response.getEntity().toString());
+
+        InputStream body = new ByteArrayInputStream("{\"mean\": 30.5, \"count\": 4}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(200, _update.updateWeather("BOS", "wind", body).getStatus());
+        body = new ByteArrayInputStream("wind".getBytes(StandardCharsets.UTF_8));
+        assertEquals(400, _update.updateWeather("BOS", "wind", body).getStatus());
+        @SuppressWarnings("unchecked")
+        List<AtmosphericInformation> ais = (List<AtmosphericInformation>) _query.get("BOS", "0").getEntity();
+        assertEquals(30.5, ais.get(0).getWind().getMean(), 0);
+    }
+
     @Test
     public void testDeleteAlterFlow() throws Exception {
 